@@ -9,6 +9,9 @@ import com.mambu.apisdk.model.Password;
 import com.mambu.apisdk.model.Protocol;
 import com.mambu.apisdk.model.UserAgentHeader;
 import com.mambu.apisdk.model.Username;
+import com.mambu.apisdk.util.AsyncRequestExecutor;
+import com.mambu.apisdk.util.AsyncRequestExecutorImpl;
+import com.mambu.apisdk.util.HttpClientConfig;
 import com.mambu.apisdk.util.RequestExecutor;
 import com.mambu.apisdk.util.RequestExecutorImpl;
 import com.mambu.core.shared.helper.StringUtils;
@@ -27,6 +30,7 @@ public class MambuAPIModule extends AbstractModule {
 	private final String protocol;
 	private final String userAgentHeader;
 	private final String apiKey;
+	private final HttpClientConfig httpClientConfig;
 
 	/***
 	 * Constructor required for setting up the date used for the wrapper to connect to the remote server
@@ -44,12 +48,36 @@ public class MambuAPIModule extends AbstractModule {
 	 */
 	MambuAPIModule(Protocol protocol, String domain, String username, String password, String userAgent) {
 
+		this(protocol, domain, username, password, userAgent, new HttpClientConfig());
+	}
+
+	/***
+	 * Constructor required for setting up the date used for the wrapper to connect to the remote server, using custom
+	 * settings for the pooled http client
+	 * 
+	 * @param protocol
+	 *            the protocol used for communication
+	 * @param domain
+	 *            the domain of the server
+	 * @param username
+	 *            the username required for the connection
+	 * @param password
+	 *            the password required for the connection
+	 * @param userAgent
+	 *            the User Agent
+	 * @param httpClientConfig
+	 *            the settings for the pooled http client
+	 */
+	MambuAPIModule(Protocol protocol, String domain, String username, String password, String userAgent,
+			HttpClientConfig httpClientConfig) {
+
 		this.protocol = Preconditions.checkNotNull(protocol, "protocol cannot be null").name();
 		this.domain = Preconditions.checkNotNull(domain, "domain cannot be null");
 		this.username = Preconditions.checkNotNull(username, "username cannot be null");
 		this.password = Preconditions.checkNotNull(password, "password cannot be null");
 		this.apiKey = StringUtils.EMPTY_STRING;
 		this.userAgentHeader = Preconditions.checkNotNull(userAgent, "userAgentHeader cannot be null");
+		this.httpClientConfig = Preconditions.checkNotNull(httpClientConfig, "httpClientConfig cannot be null");
 
 	}
 
@@ -67,12 +95,34 @@ public class MambuAPIModule extends AbstractModule {
 	 */
 	MambuAPIModule(Protocol protocol, String domain, String apiKey, String userAgent) {
 
+		this(protocol, domain, apiKey, userAgent, new HttpClientConfig());
+	}
+
+	/***
+	 * Constructor required for setting up the date used for the wrapper to connect to the remote server, using custom
+	 * settings for the pooled http client
+	 *
+	 * @param protocol
+	 *            the protocol used for communication
+	 * @param domain
+	 *            the domain of the server
+	 * @param apiKey
+	 *            the apiKey required for the authentication
+	 * @param userAgent
+	 *            the User Agent
+	 * @param httpClientConfig
+	 *            the settings for the pooled http client
+	 */
+	MambuAPIModule(Protocol protocol, String domain, String apiKey, String userAgent,
+			HttpClientConfig httpClientConfig) {
+
 		this.protocol = Preconditions.checkNotNull(protocol, "protocol cannot be null").name();
 		this.domain = Preconditions.checkNotNull(domain, "domain cannot be null");
 		this.username = StringUtils.EMPTY_STRING;
 		this.password = StringUtils.EMPTY_STRING;
 		this.apiKey = Preconditions.checkNotNull(apiKey, "api key cannot be null");
 		this.userAgentHeader = Preconditions.checkNotNull(userAgent, "userAgentHeader cannot be null");
+		this.httpClientConfig = Preconditions.checkNotNull(httpClientConfig, "httpClientConfig cannot be null");
 
 	}
 
@@ -91,7 +141,9 @@ public class MambuAPIModule extends AbstractModule {
 
 		bindConstant().annotatedWith(Domain.class).to(domain);
 		bindConstant().annotatedWith(UserAgentHeader.class).to(userAgentHeader);
+		bind(HttpClientConfig.class).toInstance(httpClientConfig);
 		bind(RequestExecutor.class).to(RequestExecutorImpl.class);
+		bind(AsyncRequestExecutor.class).to(AsyncRequestExecutorImpl.class);
 	}
 
 }
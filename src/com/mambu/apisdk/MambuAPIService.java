@@ -3,6 +3,8 @@ package com.mambu.apisdk;
 import static com.mambu.core.shared.helper.StringUtils.isNotEmpty;
 
 import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -12,9 +14,25 @@ import com.mambu.apisdk.model.Domain;
 import com.mambu.apisdk.model.Password;
 import com.mambu.apisdk.model.Username;
 import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.AsyncRequestExecutor;
+import com.mambu.apisdk.util.CircuitBreaker;
+import com.mambu.apisdk.util.ContentReader;
+import com.mambu.apisdk.util.ContentWriter;
+import com.mambu.apisdk.util.DocumentCache;
+import com.mambu.apisdk.util.EntityCache;
+import com.mambu.apisdk.util.HedgingPolicy;
+import com.mambu.apisdk.util.HttpClientProvider;
 import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RangeContentReader;
+import com.mambu.apisdk.util.RequestCoalescer;
 import com.mambu.apisdk.util.RequestExecutor;
 import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.ResponseCache;
+import com.mambu.apisdk.util.ResponseCachePolicy;
+import com.mambu.apisdk.util.RetryPolicy;
+import com.mambu.apisdk.util.TimeoutPolicy;
+import com.mambu.apisdk.util.TransactionIdempotency;
+import com.mambu.apisdk.util.ResponseReader;
 import com.mambu.apisdk.util.URLHelper;
 
 /**
@@ -27,7 +45,39 @@ import com.mambu.apisdk.util.URLHelper;
 public class MambuAPIService {
 
 	private RequestExecutor executor;
+	private AsyncRequestExecutor asyncExecutor;
 	private URLHelper urlHelper;
+	// The service holding the settings, shared by the services of the factory in all workload lanes
+	private final MambuAPIService shared;
+	private final String lane;
+	private volatile RequestCoalescer requestCoalescer;
+	private volatile CachingSettings cachingSettings;
+	private volatile EntityCache entityCache;
+	private volatile DocumentCache documentCache;
+	private volatile RetryPolicy retryPolicy;
+	private volatile TransactionIdempotency transactionIdempotency;
+	private volatile CircuitBreaker circuitBreaker;
+	private volatile HedgingPolicy hedgingPolicy;
+	private volatile TimeoutPolicy timeoutPolicy;
+	private volatile Executor backgroundExecutor;
+
+	/**
+	 * Creates a Mambu API Service class without support for asynchronous requests
+	 * 
+	 * @param username
+	 *            username to connect with to the apis
+	 * @param password
+	 *            password to connect with to the apis
+	 * @param domainName
+	 *            based domain name for the tenant (eg: mytenant.mambu.com)
+	 * @param apiKey
+	 *            the apiKey required for the authentication
+	 */
+	public MambuAPIService(@Domain String domainName, @Username String username, @Password String password, @ApiKey String apiKey,
+						   RequestExecutor executor, URLHelper urlHelper) {
+
+		this(domainName, username, password, apiKey, executor, null, urlHelper);
+	}
 
 	/**
 	 * Creates a Mambu API Service class
@@ -40,13 +90,18 @@ public class MambuAPIService {
 	 *            based domain name for the tenant (eg: mytenant.mambu.com)
 	 * @param apiKey
 	 *            the apiKey required for the authentication
+	 * @param asyncExecutor
+	 *            the executor for the asynchronous requests. Can be null if asynchronous requests are not used
 	 */
 	@Inject
 	public MambuAPIService(@Domain String domainName, @Username String username, @Password String password, @ApiKey String apiKey,
-						   RequestExecutor executor, URLHelper urlHelper) {
+						   RequestExecutor executor, AsyncRequestExecutor asyncExecutor, URLHelper urlHelper) {
 
 		this.urlHelper = urlHelper;
 		this.executor = executor;
+		this.asyncExecutor = asyncExecutor;
+		this.shared = this;
+		this.lane = null;
 
 		if (isNotEmpty(apiKey)) {
 			this.executor.setAuthorization(apiKey);
@@ -55,6 +110,50 @@ public class MambuAPIService {
 		}
 	}
 
+	/**
+	 * Creates a view of a Mambu API Service executing its requests in a workload lane
+	 * 
+	 * @param shared
+	 *            the service of the factory, whose executors and settings are shared
+	 * @param lane
+	 *            the name of the workload lane
+	 */
+	private MambuAPIService(MambuAPIService shared, String lane) {
+
+		this.urlHelper = shared.urlHelper;
+		this.executor = shared.executor;
+		this.asyncExecutor = shared.asyncExecutor;
+		this.shared = shared;
+		this.lane = lane;
+	}
+
+	/**
+	 * Gets a view of this service executing its requests in a workload lane of the factory's
+	 * {@link com.mambu.apisdk.util.Bulkhead}, unless the caller chose another lane for a request. The view shares the
+	 * executors and the settings of this service
+	 * 
+	 * @param lane
+	 *            the name of the workload lane, e.g. {@link com.mambu.apisdk.util.Bulkhead#BATCH}
+	 * @return the service in the lane
+	 */
+	public MambuAPIService inLane(String lane) {
+
+		if (lane == null) {
+			throw new IllegalArgumentException("Lane cannot be null");
+		}
+		return new MambuAPIService(shared, lane);
+	}
+
+	/**
+	 * Gets the workload lane of the requests of this service
+	 * 
+	 * @return the name of the lane or null for the default lane of the bulkhead
+	 */
+	public String getLane() {
+
+		return lane;
+	}
+
 	/**
 	 * Executes the request for a given url string using a specified method See more info here:
 	 * http://stackoverflow.com/questions/2793150/how-to-use-java -net-urlconnection-to-fire-and-handle-http-requests
@@ -110,6 +209,27 @@ public class MambuAPIService {
 		return executor.executeRequest(urlString, params, method, contentTypeFormat);
 	}
 
+	/**
+	 * Executes the request for a given url, some parameters using a specified method and contentType format and reads
+	 * the result directly from the response content with the given responseReader
+	 * 
+	 * @param urlString
+	 * @param params
+	 * @param method
+	 * @param contentTypeFormat
+	 * @param responseReader
+	 *            reads the result from the response content
+	 * 
+	 * @return the result read by the responseReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRequest(String urlString, ParamsMap params, Method method,
+			RequestExecutor.ContentType contentTypeFormat, ResponseReader<R> responseReader) throws MambuApiException {
+
+		return executor.executeRequest(urlString, params, method, contentTypeFormat, responseReader);
+	}
+
 	/**
 	 * Delegates the execution to a RequestExecutor. Used for requests that requires downloading content through the API
 	 * (like zip archives). It gets the InputStream from the response and converts it into a ByteArrayOutputStream for
@@ -131,6 +251,76 @@ public class MambuAPIService {
 		return executor.executeRequest(urlString, params, apiDefinition);
 	}
 
+	/**
+	 * Delegates the execution to a RequestExecutor. Used for requests that download content through the API (like zip
+	 * archives) which is read directly from the response by the contentReader, without holding it in memory
+	 * 
+	 * @param urlString
+	 *            The URL string
+	 * @param params
+	 *            The parameters map
+	 * @param apiDefinition
+	 *            The API definition
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			ContentReader<R> contentReader) throws MambuApiException {
+
+		return executor.executeRequest(urlString, params, apiDefinition, contentReader);
+	}
+
+	/**
+	 * Delegates the execution to a RequestExecutor. Used for requests streaming their body from the contentWriter
+	 * (like large document uploads), without holding it in memory
+	 * 
+	 * @param urlString
+	 *            The URL string
+	 * @param method
+	 *            The HTTP method
+	 * @param contentTypeFormat
+	 *            The content type
+	 * @param contentWriter
+	 *            writes the request body
+	 * @return Mambu response String
+	 * 
+	 * @throws MambuApiException
+	 */
+	public String executeRequest(String urlString, Method method, RequestExecutor.ContentType contentTypeFormat,
+			ContentWriter contentWriter) throws MambuApiException {
+
+		return executor.executeRequest(urlString, method, contentTypeFormat, contentWriter);
+	}
+
+	/**
+	 * Delegates the execution to a RequestExecutor. Used for requests that download a byte range of the content (like
+	 * a part of a zip archive), which is read directly from the response by the contentReader
+	 * 
+	 * @param urlString
+	 *            The URL string
+	 * @param params
+	 *            The parameters map
+	 * @param apiDefinition
+	 *            The API definition
+	 * @param firstByte
+	 *            the position of the first byte of the range
+	 * @param lastByte
+	 *            the position of the last byte of the range, inclusive. Negative for the end of the content
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRangeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, long firstByte,
+			long lastByte, RangeContentReader<R> contentReader) throws MambuApiException {
+
+		return executor.executeRangeRequest(urlString, params, apiDefinition, firstByte, lastByte, contentReader);
+	}
+
 	/**
 	 * Executes the request for a given url (with parameters) using a specified method and specified contentType format.
 	 * See more info here: http://stackoverflow.com/questions/2793150/how-to-use-java
@@ -150,6 +340,310 @@ public class MambuAPIService {
 		return executor.executeRequest(urlString, method, contentTypeFormat);
 	}
 
+	/**
+	 * Executes asynchronously the request for a given url, some parameters using a specified method and contentType
+	 * format. Delegates the execution to the AsyncRequestExecutor
+	 * 
+	 * @param urlString
+	 * @param params
+	 * @param method
+	 * @param contentTypeFormat
+	 * 
+	 * @return future completed with the response String or completed exceptionally with a MambuApiException
+	 * 
+	 * @throws IllegalStateException
+	 *             if this service was created without an AsyncRequestExecutor
+	 */
+	public CompletableFuture<String> executeRequestAsync(String urlString, ParamsMap params, Method method,
+			RequestExecutor.ContentType contentTypeFormat) {
+
+		return getAsyncExecutor().executeRequest(urlString, params, method, contentTypeFormat);
+	}
+
+	/**
+	 * Executes asynchronously a request that downloads content through the API (like zip archives). Delegates the
+	 * execution to the AsyncRequestExecutor
+	 * 
+	 * @param urlString
+	 *            The URL string
+	 * @param params
+	 *            The parameters map
+	 * @param apiDefinition
+	 *            The API definition
+	 * @return future completed with the response content or completed exceptionally with a MambuApiException
+	 * 
+	 * @throws IllegalStateException
+	 *             if this service was created without an AsyncRequestExecutor
+	 */
+	public CompletableFuture<ByteArrayOutputStream> executeRequestAsync(String urlString, ParamsMap params,
+			ApiDefinition apiDefinition) {
+
+		return getAsyncExecutor().executeRequest(urlString, params, apiDefinition);
+	}
+
+	/**
+	 * Gets the coalescer of identical GET requests
+	 * 
+	 * @return the request coalescer or null if identical requests are not coalesced
+	 */
+	public RequestCoalescer getRequestCoalescer() {
+
+		return shared.requestCoalescer;
+	}
+
+	/**
+	 * Sets the coalescer used to make a single API call for identical GET requests made at the same time
+	 * 
+	 * @param requestCoalescer
+	 *            the request coalescer. Null to execute every request
+	 */
+	public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+
+		shared.requestCoalescer = requestCoalescer;
+	}
+
+	/**
+	 * Gets the cache of the GET responses
+	 * 
+	 * @return the response cache or null if responses are not cached
+	 */
+	public ResponseCache getResponseCache() {
+
+		CachingSettings settings = shared.cachingSettings;
+		return settings == null ? null : settings.responseCache;
+	}
+
+	/**
+	 * Gets the policy defining which GET responses are cached
+	 * 
+	 * @return the response cache policy or null if responses are not cached
+	 */
+	public ResponseCachePolicy getResponseCachePolicy() {
+
+		CachingSettings settings = shared.cachingSettings;
+		return settings == null ? null : settings.responseCachePolicy;
+	}
+
+	/**
+	 * Sets the cache of the GET responses and the policy defining which responses are cached. Both are set together,
+	 * so that requests in flight see a consistent pair
+	 * 
+	 * @param responseCache
+	 *            the response cache. Null to stop caching responses
+	 * @param responseCachePolicy
+	 *            the response cache policy. Must not be null if the response cache is set
+	 */
+	public void setResponseCache(ResponseCache responseCache, ResponseCachePolicy responseCachePolicy) {
+
+		if (responseCache != null && responseCachePolicy == null) {
+			throw new IllegalArgumentException("Response cache policy must not be null");
+		}
+		shared.cachingSettings = responseCache == null ? null : new CachingSettings(responseCache, responseCachePolicy);
+	}
+
+	/**
+	 * Gets the cache of single entities
+	 * 
+	 * @return the entity cache or null if entities are not cached
+	 */
+	public EntityCache getEntityCache() {
+
+		return shared.entityCache;
+	}
+
+	/**
+	 * Sets the cache of single entities, evicted by the requests changing them
+	 * 
+	 * @param entityCache
+	 *            the entity cache. Null to stop caching entities
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+
+		shared.entityCache = entityCache;
+	}
+
+	/**
+	 * Gets the on-disk cache of document content
+	 * 
+	 * @return the document cache or null if documents are not cached
+	 */
+	public DocumentCache getDocumentCache() {
+
+		return shared.documentCache;
+	}
+
+	/**
+	 * Sets the on-disk cache of document content, evicted by the requests changing the documents
+	 * 
+	 * @param documentCache
+	 *            the document cache. Null to stop caching documents
+	 */
+	public void setDocumentCache(DocumentCache documentCache) {
+
+		shared.documentCache = documentCache;
+	}
+
+	/**
+	 * Gets the policy retrying the idempotent requests which failed with a transient error
+	 * 
+	 * @return the retry policy or null if requests are not retried
+	 */
+	public RetryPolicy getRetryPolicy() {
+
+		return shared.retryPolicy;
+	}
+
+	/**
+	 * Sets the policy retrying the idempotent requests which failed with a transient error
+	 * 
+	 * @param retryPolicy
+	 *            the retry policy. Null to stop retrying requests
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+
+		shared.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Gets the idempotency of the JSON transaction requests
+	 * 
+	 * @return the transaction idempotency or null if transaction requests are not retried
+	 */
+	public TransactionIdempotency getTransactionIdempotency() {
+
+		return shared.transactionIdempotency;
+	}
+
+	/**
+	 * Sets the idempotency of the JSON transaction requests, tagging them with an idempotency key so that they can be
+	 * retried
+	 * 
+	 * @param transactionIdempotency
+	 *            the transaction idempotency. Null to stop retrying transaction requests
+	 */
+	public void setTransactionIdempotency(TransactionIdempotency transactionIdempotency) {
+
+		shared.transactionIdempotency = transactionIdempotency;
+	}
+
+	/**
+	 * Gets the circuit breakers of the API endpoints
+	 * 
+	 * @return the circuit breaker or null if circuits are not used
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+
+		return shared.circuitBreaker;
+	}
+
+	/**
+	 * Sets the circuit breakers of the API endpoints, failing fast the requests to the failing endpoints
+	 * 
+	 * @param circuitBreaker
+	 *            the circuit breaker. Null to stop using circuits
+	 */
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+
+		shared.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * Gets the policy hedging the latency-sensitive GET requests
+	 * 
+	 * @return the hedging policy or null if requests are not hedged
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+
+		return shared.hedgingPolicy;
+	}
+
+	/**
+	 * Sets the policy hedging the latency-sensitive GET requests. Requests are hedged only if this service supports
+	 * asynchronous requests
+	 * 
+	 * @param hedgingPolicy
+	 *            the hedging policy. Null to stop hedging requests
+	 */
+	public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+
+		shared.hedgingPolicy = hedgingPolicy;
+	}
+
+	/**
+	 * Gets the policy defining the timeouts of the requests
+	 * 
+	 * @return the timeout policy or null if requests use the timeouts of the http client
+	 */
+	public TimeoutPolicy getTimeoutPolicy() {
+
+		return shared.timeoutPolicy;
+	}
+
+	/**
+	 * Sets the policy defining the timeouts of the requests, by API type and return format
+	 * 
+	 * @param timeoutPolicy
+	 *            the timeout policy. Null to use the timeouts of the http client
+	 */
+	public void setTimeoutPolicy(TimeoutPolicy timeoutPolicy) {
+
+		shared.timeoutPolicy = timeoutPolicy;
+	}
+
+	/**
+	 * Gets the executor of the requests made in the background, like the pages prefetched by the iterables of
+	 * {@link com.mambu.apisdk.util.ServiceExecutor#getPagedList(com.mambu.apisdk.util.PageFetcher, int, int)}
+	 * 
+	 * @return the background executor or null if the shared background threads of the SDK are used
+	 */
+	public Executor getBackgroundExecutor() {
+
+		return shared.backgroundExecutor;
+	}
+
+	/**
+	 * Sets the executor of the requests made in the background. The services of a factory use the executor of its
+	 * {@link HttpClientProvider}, shut down with the factory
+	 * 
+	 * @param backgroundExecutor
+	 *            the background executor. Null to use the shared background threads of the SDK
+	 */
+	public void setBackgroundExecutor(Executor backgroundExecutor) {
+
+		shared.backgroundExecutor = backgroundExecutor;
+	}
+
+	/**
+	 * Runs the background requests on the executor of the http client provider, created when first needed and stopped
+	 * by {@link HttpClientProvider#shutdown()}
+	 * 
+	 * @param httpClientProvider
+	 *            the http client provider of the factory
+	 */
+	@Inject
+	void useBackgroundExecutorOf(final HttpClientProvider httpClientProvider) {
+
+		backgroundExecutor = runnable -> httpClientProvider.getBackgroundExecutor().execute(runnable);
+	}
+
+	/**
+	 * Does this service support asynchronous requests, i.e. was it created with an AsyncRequestExecutor
+	 * 
+	 * @return true if asynchronous requests are supported
+	 */
+	public boolean isAsyncSupported() {
+
+		return asyncExecutor != null;
+	}
+
+	private AsyncRequestExecutor getAsyncExecutor() {
+
+		if (asyncExecutor == null) {
+			throw new IllegalStateException("Asynchronous requests are not supported: no AsyncRequestExecutor was set");
+		}
+		return asyncExecutor;
+	}
+
 	/**
 	 * Creates the URL for the request executor
 	 * 
@@ -185,4 +679,18 @@ public class MambuAPIService {
 
 		return (url);
 	}
+
+	/**
+	 * The response cache and its policy
+	 */
+	private static class CachingSettings {
+
+		private final ResponseCache responseCache;
+		private final ResponseCachePolicy responseCachePolicy;
+
+		CachingSettings(ResponseCache responseCache, ResponseCachePolicy responseCachePolicy) {
+			this.responseCache = responseCache;
+			this.responseCachePolicy = responseCachePolicy;
+		}
+	}
 }
@@ -2,6 +2,11 @@ package com.mambu.apisdk;
 
 import static com.mambu.apisdk.MambuAPIFactory.DEFAULT_USER_AGENT_HEADER_VALUE;
 
+import java.net.URI;
+import java.util.concurrent.Executor;
+
+import org.apache.http.HttpHost;
+
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.mambu.apisdk.exception.MambuApiException;
@@ -25,6 +30,24 @@ import com.mambu.apisdk.services.SavingsService;
 import com.mambu.apisdk.services.SearchService;
 import com.mambu.apisdk.services.TasksService;
 import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.Bulkhead;
+import com.mambu.apisdk.util.CircuitBreaker;
+import com.mambu.apisdk.util.HttpClientConfig;
+import com.mambu.apisdk.util.HttpClientProvider;
+import com.mambu.apisdk.util.DocumentCache;
+import com.mambu.apisdk.util.EntityCache;
+import com.mambu.apisdk.util.HedgingPolicy;
+import com.mambu.apisdk.util.InMemoryResponseCache;
+import com.mambu.apisdk.util.RateLimiter;
+import com.mambu.apisdk.util.RequestCoalescer;
+import com.mambu.apisdk.util.RequestExecutorImpl;
+import com.mambu.apisdk.util.ResponseCompression;
+import com.mambu.apisdk.util.ResponseCache;
+import com.mambu.apisdk.util.ResponseCachePolicy;
+import com.mambu.apisdk.util.RetryPolicy;
+import com.mambu.apisdk.util.TimeoutPolicy;
+import com.mambu.apisdk.util.TransactionIdempotency;
+import com.mambu.apisdk.util.URLHelper;
 
 /**
  * Factory for creating Mambu API Service objects that have fixed a tenant's Mambu credentials
@@ -109,6 +132,34 @@ public final class MambuAPIServiceFactory {
 		return new MambuAPIServiceFactory(injector);
 	}
 
+	/***
+	 * Set up the Guice Module with data required for accessing the remote server, returning a factory object to
+	 * retrieve Mambu API services that have Mambu credentials built-in. All services obtained from this factory share
+	 * one pooled http client created with the given settings
+	 * 
+	 * @param protocol
+	 *            the protocol used for communication
+	 * @param domain
+	 *            the domain where the server is found
+	 * @param username
+	 *            the name of the user
+	 * @param password
+	 *            the password used by the user
+	 * @param userAgentHeaderValue
+	 *            the user agent header value to be passed with all requests
+	 * @param httpClientConfig
+	 *            the settings for the pooled http client, like max total and per route connections
+	 * 
+	 * @return factory object to create API service objects which are bound to the given credentials
+	 */
+	public static MambuAPIServiceFactory getFactory(Protocol protocol, String domain, String username,
+			String password, String userAgentHeaderValue, HttpClientConfig httpClientConfig) {
+
+		Injector injector = Guice.createInjector(new MambuAPIModule(protocol, domain, username, password,
+				userAgentHeaderValue, httpClientConfig));
+		return new MambuAPIServiceFactory(injector);
+	}
+
 	/***
 	 * Convenience method for setting up the Guice Module with data required for accessing the remote server, returning
 	 * a factory object to retrieve Mambu API services that have Mambu credentials built-in. The application protocol
@@ -167,6 +218,374 @@ public final class MambuAPIServiceFactory {
 		return new MambuAPIServiceFactory(injector);
 	}
 
+	/***
+	 * Set up the Guice Module with data required for accessing the remote server, returning a factory object to
+	 * retrieve Mambu API services that have Mambu credentials built-in. All services obtained from this factory share
+	 * one pooled http client created with the given settings
+	 *
+	 * @param protocol
+	 *            the protocol used for communication
+	 * @param domain
+	 *            the domain where the server is found
+	 * @param apiKey
+	 * 	          the ApiKey header for an ApiConsumer. @see https://support.mambu.com/docs/api-consumers
+	 * @param userAgentHeaderValue
+	 *            the user agent header value to be passed with all requests
+	 * @param httpClientConfig
+	 *            the settings for the pooled http client, like max total and per route connections
+	 *
+	 * @return factory object to create API service objects which are bound to the given credentials
+	 */
+	public static MambuAPIServiceFactory getFactoryWithApiKey(Protocol protocol, String domain, String apiKey,
+			String userAgentHeaderValue, HttpClientConfig httpClientConfig) {
+
+		Injector injector = Guice.createInjector(new MambuAPIModule(protocol, domain, apiKey, userAgentHeaderValue,
+				httpClientConfig));
+		return new MambuAPIServiceFactory(injector);
+	}
+
+	/***
+	 * Closes the pooled http client shared by the services obtained from this factory, together with all its open
+	 * connections, and stops the threads making their background requests. Should be called when the factory is no
+	 * longer needed
+	 */
+	public void shutdown() {
+
+		injector.getInstance(HttpClientProvider.class).shutdown();
+	}
+
+	/***
+	 * Opens connections to Mambu in parallel and keeps them in the pool of the http client shared by the services
+	 * obtained from this factory, so that the first requests are served without the latency of the connect and of the
+	 * TLS handshake. Failed connections are logged and skipped. Can be called right after creating the factory
+	 * 
+	 * @param connections
+	 *            the number of connections to open, at most the max connections per route of the HttpClientConfig
+	 * @return the number of open connections in the pool
+	 */
+	public int warmUp(int connections) {
+
+		URI apiUri = URI.create(injector.getInstance(URLHelper.class).createUrl(""));
+		HttpHost target = new HttpHost(apiUri.getHost(), apiUri.getPort(), apiUri.getScheme());
+		return injector.getInstance(HttpClientProvider.class).warmUp(target, connections);
+	}
+
+	/***
+	 * Enables or disables the coalescing of identical GET requests for all services obtained from this factory. When
+	 * enabled, a GET request (same url and parameters) made while an identical request is in flight doesn't make an
+	 * API call of its own, but waits for the result of the request in flight. Disabled by default
+	 * 
+	 * @param enabled
+	 *            true to coalesce identical GET requests
+	 */
+	public void setRequestCoalescingEnabled(boolean enabled) {
+
+		MambuAPIService mambuAPIService = injector.getInstance(MambuAPIService.class);
+		if (!enabled) {
+			mambuAPIService.setRequestCoalescer(null);
+		} else if (mambuAPIService.getRequestCoalescer() == null) {
+			mambuAPIService.setRequestCoalescer(new RequestCoalescer());
+		}
+	}
+
+	/***
+	 * Get the coalescer of identical GET requests, holding the counters of the executed and coalesced requests
+	 * 
+	 * @return the request coalescer or null if request coalescing is not enabled
+	 */
+	public RequestCoalescer getRequestCoalescer() {
+
+		return injector.getInstance(MambuAPIService.class).getRequestCoalescer();
+	}
+
+	/***
+	 * Enables caching of the GET responses selected by the policy, in an {@link InMemoryResponseCache} with the default
+	 * size and refresh-ahead, for all services obtained from this factory. Disabled by default. The responses are
+	 * refreshed by the threads making the background requests of the factory, stopped by {@link #shutdown()}
+	 * 
+	 * @param responseCachePolicy
+	 *            the policy defining which responses are cached and for how long. See
+	 *            {@link ResponseCachePolicy#forConfigurationData(long, java.util.concurrent.TimeUnit)}
+	 */
+	public void enableResponseCache(ResponseCachePolicy responseCachePolicy) {
+
+		Executor backgroundExecutor = injector.getInstance(MambuAPIService.class).getBackgroundExecutor();
+		setResponseCache(new InMemoryResponseCache(InMemoryResponseCache.DEFAULT_MAX_ENTRIES,
+				InMemoryResponseCache.DEFAULT_REFRESH_AHEAD_FACTOR, backgroundExecutor), responseCachePolicy);
+	}
+
+	/***
+	 * Sets the cache of the GET responses for all services obtained from this factory
+	 * 
+	 * @param responseCache
+	 *            the response cache. Null to disable response caching
+	 * @param responseCachePolicy
+	 *            the policy defining which responses are cached and for how long. Must not be null if the response
+	 *            cache is set
+	 */
+	public void setResponseCache(ResponseCache responseCache, ResponseCachePolicy responseCachePolicy) {
+
+		injector.getInstance(MambuAPIService.class).setResponseCache(responseCache, responseCachePolicy);
+	}
+
+	/***
+	 * Get the cache of the GET responses, to invalidate cached responses or get the cache statistics
+	 * 
+	 * @return the response cache or null if response caching is not enabled
+	 */
+	public ResponseCache getResponseCache() {
+
+		return injector.getInstance(MambuAPIService.class).getResponseCache();
+	}
+
+	/***
+	 * Sets the cache of single entities (e.g. clients, loan accounts, savings accounts) for all services obtained from
+	 * this factory. Cached entities are evicted by the requests changing them made through this factory. Disabled by
+	 * default
+	 * 
+	 * @param entityCache
+	 *            the entity cache, e.g. new EntityCache(5, TimeUnit.MINUTES, MambuEntityType.CLIENT,
+	 *            MambuEntityType.LOAN_ACCOUNT). Null to disable entity caching
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+
+		injector.getInstance(MambuAPIService.class).setEntityCache(entityCache);
+	}
+
+	/***
+	 * Get the cache of single entities, to invalidate entities changed by other applications or get the cache counters
+	 * 
+	 * @return the entity cache or null if entity caching is not enabled
+	 */
+	public EntityCache getEntityCache() {
+
+		return injector.getInstance(MambuAPIService.class).getEntityCache();
+	}
+
+	/***
+	 * Sets the on-disk cache of document content (documents, images and client profile pictures and signatures) for
+	 * all services obtained from this factory. Cached documents are evicted by the requests changing them made through
+	 * this factory. Disabled by default
+	 * 
+	 * @param documentCache
+	 *            the document cache, e.g. new DocumentCache(Paths.get("/var/cache/mambu-images"), 512 * 1024 * 1024).
+	 *            Null to disable document caching
+	 */
+	public void setDocumentCache(DocumentCache documentCache) {
+
+		injector.getInstance(MambuAPIService.class).setDocumentCache(documentCache);
+	}
+
+	/***
+	 * Get the on-disk cache of document content, to invalidate it or get the cache counters
+	 * 
+	 * @return the document cache or null if document caching is not enabled
+	 */
+	public DocumentCache getDocumentCache() {
+
+		return injector.getInstance(MambuAPIService.class).getDocumentCache();
+	}
+
+	/***
+	 * Sets the policy retrying the requests which failed with a transient error (a connection failure or a 502, 503 or
+	 * 504 status) for all services obtained from this factory. Only idempotent requests are retried: GET and DELETE
+	 * requests, and the requests whose API definition is declared idempotent. The policy can be overridden for an API
+	 * definition with {@link com.mambu.apisdk.util.ApiDefinition.Builder#setRetryPolicy(RetryPolicy)}. Disabled by default
+	 * 
+	 * @param retryPolicy
+	 *            the retry policy, e.g. new RetryPolicy(). Null to disable retries
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+
+		injector.getInstance(MambuAPIService.class).setRetryPolicy(retryPolicy);
+	}
+
+	/***
+	 * Get the policy retrying the requests which failed with a transient error, to get its counters
+	 * 
+	 * @return the retry policy or null if requests are not retried
+	 */
+	public RetryPolicy getRetryPolicy() {
+
+		return injector.getInstance(MambuAPIService.class).getRetryPolicy();
+	}
+
+	/***
+	 * Sets the idempotency of the JSON transaction requests (like loan repayments, deposits and withdrawals) for all
+	 * services obtained from this factory. Transactions are tagged with an idempotency key in a transaction custom
+	 * field, and are posted again after a transient failure only if no transaction with their key is found. Disabled by
+	 * default
+	 * 
+	 * @param transactionIdempotency
+	 *            the transaction idempotency, e.g. new TransactionIdempotency("IdempotencyKey"). Null to disable it
+	 */
+	public void setTransactionIdempotency(TransactionIdempotency transactionIdempotency) {
+
+		injector.getInstance(MambuAPIService.class).setTransactionIdempotency(transactionIdempotency);
+	}
+
+	/***
+	 * Get the idempotency of the JSON transaction requests, to get its counters
+	 * 
+	 * @return the transaction idempotency or null if it is not enabled
+	 */
+	public TransactionIdempotency getTransactionIdempotency() {
+
+		return injector.getInstance(MambuAPIService.class).getTransactionIdempotency();
+	}
+
+	/***
+	 * Sets the circuit breakers of the API endpoints for all services obtained from this factory. Requests to an
+	 * endpoint whose recent calls mostly failed or were slow fail at once, with the error code
+	 * {@link CircuitBreaker#CIRCUIT_OPEN}, until the endpoint recovers. Disabled by default
+	 * 
+	 * @param circuitBreaker
+	 *            the circuit breaker, e.g. new CircuitBreaker(). Null to disable circuit breaking
+	 */
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+
+		injector.getInstance(MambuAPIService.class).setCircuitBreaker(circuitBreaker);
+	}
+
+	/***
+	 * Get the circuit breakers of the API endpoints, to get the state of the circuits, add listeners or get the counters
+	 * 
+	 * @return the circuit breaker or null if circuit breaking is not enabled
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+
+		return injector.getInstance(MambuAPIService.class).getCircuitBreaker();
+	}
+
+	/***
+	 * Sets the policy hedging the latency-sensitive GET requests (by default the requests getting a single entity, like
+	 * getClientDetails or getLoanAccountDetails) for all services obtained from this factory. A request not answered
+	 * within the usual latency of its endpoint is sent again, and the first response is used. Disabled by default
+	 * 
+	 * @param hedgingPolicy
+	 *            the hedging policy, e.g. new HedgingPolicy(). Null to disable hedging
+	 */
+	public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+
+		injector.getInstance(MambuAPIService.class).setHedgingPolicy(hedgingPolicy);
+	}
+
+	/***
+	 * Get the policy hedging the latency-sensitive GET requests, to get its counters
+	 * 
+	 * @return the hedging policy or null if hedging is not enabled
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+
+		return injector.getInstance(MambuAPIService.class).getHedgingPolicy();
+	}
+
+	/***
+	 * Sets the policy defining the connect, read and total timeouts of the requests for all services obtained from this
+	 * factory, by API type (e.g. short timeouts for GET_ENTITY) and by return format (e.g. long timeouts for the
+	 * ZIP_ARCHIVE database backups). A request still running when its timeouts expire fails with the error code
+	 * {@link com.mambu.apisdk.util.RequestTimeouts#TIMED_OUT}. Requests not covered by the policy use the timeouts of
+	 * the HttpClientConfig. Disabled by default
+	 * 
+	 * @param timeoutPolicy
+	 *            the timeout policy. Null to use only the timeouts of the HttpClientConfig
+	 */
+	public void setTimeoutPolicy(TimeoutPolicy timeoutPolicy) {
+
+		injector.getInstance(MambuAPIService.class).setTimeoutPolicy(timeoutPolicy);
+	}
+
+	/***
+	 * Get the policy defining the timeouts of the requests
+	 * 
+	 * @return the timeout policy or null if it is not set
+	 */
+	public TimeoutPolicy getTimeoutPolicy() {
+
+		return injector.getInstance(MambuAPIService.class).getTimeoutPolicy();
+	}
+
+	/***
+	 * Sets the client-side rate limiter of all requests made through this factory, i.e. for this tenant and
+	 * credentials. Disabled by default
+	 * 
+	 * @param rateLimiter
+	 *            the rate limiter, e.g. new RateLimiter(20, 5) for 20 reads and 5 writes per second. Null to disable
+	 *            rate limiting
+	 */
+	public void setRateLimiter(RateLimiter rateLimiter) {
+
+		injector.getInstance(RequestExecutorImpl.class).setRateLimiter(rateLimiter);
+	}
+
+	/***
+	 * Get the client-side rate limiter, holding its permits and wait counters
+	 * 
+	 * @return the rate limiter or null if rate limiting is not enabled
+	 */
+	public RateLimiter getRateLimiter() {
+
+		return injector.getInstance(RequestExecutorImpl.class).getRateLimiter();
+	}
+
+	/***
+	 * Sets the bulkhead isolating the workloads sharing this factory, e.g. interactive lookups and batch jobs, in lanes
+	 * with their own share of the connections and their own queue. Requests are executed in the lane chosen with
+	 * {@link Bulkhead#callInLane(String, com.mambu.apisdk.util.RetryPolicy.RetriableRequest)}, else in the lane of their
+	 * service (see {@link #getServiceInLane(Class, String)}), else in the default lane. A request finding no free slot
+	 * in its lane fails with the error code {@link Bulkhead#LANE_FULL}. Disabled by default
+	 * 
+	 * @param bulkhead
+	 *            the bulkhead, e.g. Bulkhead.forConnections(httpClientConfig.getMaxConnectionsPerRoute()). Null to
+	 *            disable the lanes
+	 */
+	public void setBulkhead(Bulkhead bulkhead) {
+
+		injector.getInstance(RequestExecutorImpl.class).setBulkhead(bulkhead);
+	}
+
+	/***
+	 * Get the bulkhead, holding the saturation counters of its lanes
+	 * 
+	 * @return the bulkhead or null if the lanes are not enabled
+	 */
+	public Bulkhead getBulkhead() {
+
+		return injector.getInstance(RequestExecutorImpl.class).getBulkhead();
+	}
+
+	/***
+	 * Get a new instance of a service executing its requests in a workload lane of the bulkhead, e.g. a LoansService
+	 * for a batch job. The service shares the connections and the settings of this factory
+	 * 
+	 * @param serviceClass
+	 *            the class of the service, e.g. LoansService.class
+	 * @param lane
+	 *            the name of the lane, e.g. {@link Bulkhead#BATCH}
+	 * @return the service in the lane
+	 */
+	public <T> T getServiceInLane(Class<T> serviceClass, String lane) {
+
+		MambuAPIService mambuAPIService = injector.getInstance(MambuAPIService.class).inLane(lane);
+		try {
+			return serviceClass.getConstructor(MambuAPIService.class).newInstance(mambuAPIService);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot create " + serviceClass.getName() + " in lane " + lane, e);
+		}
+	}
+
+	/***
+	 * Get the compression of the responses to the requests made through this factory, set with the HttpClientConfig
+	 * of the factory. Can be used to disable compression for an endpoint or to get the counters of the wire and
+	 * decoded bytes
+	 * 
+	 * @return the response compression or null if responses are not compressed
+	 */
+	public ResponseCompression getResponseCompression() {
+
+		return injector.getInstance(HttpClientConfig.class).getResponseCompression();
+	}
+
 	/***
 	 * Get an instance of the ClientService class, non-static version of {@link MambuAPIFactory#getClientService()}
 	 * 
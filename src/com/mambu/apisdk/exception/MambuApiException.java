@@ -14,8 +14,13 @@ public class MambuApiException extends Exception {
 	String errorMessage;
 
 	public MambuApiException(Exception e) {
+		this(-1, e);
+	}
+
+	// Create new exception with an error code of the API library, like a timeout, keeping the original exception
+	public MambuApiException(Integer errorCode, Exception e) {
 		super(e);
-		errorCode = -1;
+		this.errorCode = errorCode;
 		errorMessage = "";
 
 		// preserve the original's exception class
@@ -0,0 +1,25 @@
+package com.mambu.apisdk.exception;
+
+/**
+ * Wraps a {@link MambuApiException} with an unchecked exception. Used where the API calls are made behind interfaces
+ * which can't throw checked exceptions, for example when the pages of a list are fetched while iterating over it
+ *
+ */
+public class UncheckedMambuApiException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public UncheckedMambuApiException(MambuApiException cause) {
+		super(cause.getErrorMessage(), cause);
+	}
+
+	/**
+	 * Get the wrapped exception
+	 *
+	 * @return the MambuApiException thrown by the API call
+	 */
+	@Override
+	public synchronized MambuApiException getCause() {
+		return (MambuApiException) super.getCause();
+	}
+}
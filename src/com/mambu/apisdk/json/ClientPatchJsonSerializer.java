@@ -6,7 +6,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
@@ -52,11 +51,8 @@ public class ClientPatchJsonSerializer implements JsonSerializer<Client> {
 	// Serialize API request using custom InclusionStrategy and adjusting Client Role fields
 	@Override
 	public JsonElement serialize(Client client, Type typeOfSrc, JsonSerializationContext context) {
-		GsonBuilder gsonBuilder = GsonUtils.createGsonBuilder();
-		// Add inclusion strategy
-		gsonBuilder.addSerializationExclusionStrategy(clientPatchInclusionStrategy);
-
-		Gson gson = gsonBuilder.create();
+		// Get Gson with inclusion strategy
+		Gson gson = GsonUtils.createGson(GsonUtils.defaultDateTimeFormat, clientPatchInclusionStrategy);
 		JsonElement clientJsonElement = gson.toJsonTree(client);
 		JsonObject clientResult = clientJsonElement.getAsJsonObject();
 
@@ -6,7 +6,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
@@ -88,10 +87,8 @@ public class GroupExpandedPatchSerializer implements JsonSerializer<GroupExpande
 	 */
 	@Override
 	public JsonElement serialize(GroupExpanded groupExpanded, Type type, JsonSerializationContext context) {
-		GsonBuilder gsonBuilder = GsonUtils.createGsonBuilder();
-		// Add our groupExpandedPatchInclusionStrategy
-		gsonBuilder.addSerializationExclusionStrategy(groupExpandedPatchInclusionStrategy);
-		Gson gson = gsonBuilder.create();
+		// Get Gson with our groupExpandedPatchInclusionStrategy
+		Gson gson = GsonUtils.createGson(GsonUtils.defaultDateTimeFormat, groupExpandedPatchInclusionStrategy);
 		
 		JsonElement groupJsonElement = gson.toJsonTree(groupExpanded, type);
 		JsonObject groupExpandedObject = groupJsonElement.getAsJsonObject();
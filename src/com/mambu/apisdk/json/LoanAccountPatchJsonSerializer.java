@@ -6,7 +6,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
@@ -78,11 +77,8 @@ public class LoanAccountPatchJsonSerializer implements JsonSerializer<LoanAccoun
 	@Override
 	public JsonElement serialize(LoanAccount loanAccount, Type typeOfSrc, JsonSerializationContext context) {
 
-		GsonBuilder gsonBuilder = GsonUtils.createGsonBuilder();
-		// Add our loanPatchInclusionStrategy
-		gsonBuilder.addSerializationExclusionStrategy(loanPatchInclusionStrategy);
-
-		Gson gson = gsonBuilder.create();
+		// Get Gson with our loanPatchInclusionStrategy
+		Gson gson = GsonUtils.createGson(GsonUtils.defaultDateTimeFormat, loanPatchInclusionStrategy);
 		JsonElement loanAccountJsonElement = gson.toJsonTree(loanAccount);
 		JsonObject loanResult = loanAccountJsonElement.getAsJsonObject();
 
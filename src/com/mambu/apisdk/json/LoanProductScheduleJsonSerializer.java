@@ -6,7 +6,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
@@ -62,9 +61,7 @@ public class LoanProductScheduleJsonSerializer implements JsonSerializer<LoanAcc
 	public JsonElement serialize(LoanAccount loanAccount, Type typeOfSrc, JsonSerializationContext context) {
 		// GET schedule API is a x-www-form-urlencoded API. Need to specify "yyyyMmddFormat" date time format as
 		// expected by this API
-		GsonBuilder gsonBuilder = GsonUtils.createGsonBuilder(APIData.yyyyMmddFormat);
-		gsonBuilder.addSerializationExclusionStrategy(getLoanScheduleInclusionStrategy);
-		Gson gson = gsonBuilder.create();
+		Gson gson = GsonUtils.createGson(APIData.yyyyMmddFormat, getLoanScheduleInclusionStrategy);
 
 		JsonElement loanAccountJsonElement = gson.toJsonTree(loanAccount);
 		JsonObject loanResult = loanAccountJsonElement.getAsJsonObject();
@@ -6,7 +6,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
@@ -59,11 +58,8 @@ public class SavingsAccountPatchJsonSerializer implements JsonSerializer<Savings
 	// Serialize using custom Inclusion Strategy
 	@Override
 	public JsonElement serialize(SavingsAccount savingsAccount, Type typeOfSrc, JsonSerializationContext context) {
-		GsonBuilder gsonBuilder = GsonUtils.createGsonBuilder();
-		// Add savingsPatchInclusionStrategy exclusionStrategy
-		gsonBuilder.addSerializationExclusionStrategy(savingsPatchInclusionStrategy);
-
-		Gson gson = gsonBuilder.create();
+		// Get Gson with savingsPatchInclusionStrategy exclusionStrategy
+		Gson gson = GsonUtils.createGson(GsonUtils.defaultDateTimeFormat, savingsPatchInclusionStrategy);
 		JsonElement savingsAccountJsonElement = gson.toJsonTree(savingsAccount);
 		JsonObject result = savingsAccountJsonElement.getAsJsonObject();
 
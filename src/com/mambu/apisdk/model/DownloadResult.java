@@ -0,0 +1,67 @@
+package com.mambu.apisdk.model;
+
+/**
+ * The result of a download streamed to a file, channel or output stream (like a DB backup)
+ */
+public class DownloadResult {
+
+	private final long transferredBytes;
+	private final long contentLength;
+	private final String checksumAlgorithm;
+	private final String checksum;
+
+	public DownloadResult(long transferredBytes, long contentLength, String checksumAlgorithm, String checksum) {
+
+		this.transferredBytes = transferredBytes;
+		this.contentLength = contentLength;
+		this.checksumAlgorithm = checksumAlgorithm;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * Get the number of bytes written to the destination
+	 *
+	 * @return transferred bytes
+	 */
+	public long getTransferredBytes() {
+
+		return transferredBytes;
+	}
+
+	/**
+	 * Get the length of the content as sent by Mambu
+	 *
+	 * @return content length in bytes. Negative if not known
+	 */
+	public long getContentLength() {
+
+		return contentLength;
+	}
+
+	/**
+	 * Get the algorithm of the checksum. E.g. SHA-256
+	 *
+	 * @return checksum algorithm or null if no checksum was computed
+	 */
+	public String getChecksumAlgorithm() {
+
+		return checksumAlgorithm;
+	}
+
+	/**
+	 * Get the checksum of the downloaded content
+	 *
+	 * @return lower case hex encoded checksum or null if no checksum was computed
+	 */
+	public String getChecksum() {
+
+		return checksum;
+	}
+
+	@Override
+	public String toString() {
+
+		return "DownloadResult [transferredBytes=" + transferredBytes + ", contentLength=" + contentLength
+				+ ", checksumAlgorithm=" + checksumAlgorithm + ", checksum=" + checksum + "]";
+	}
+}
@@ -3,6 +3,12 @@
  */
 package com.mambu.apisdk.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 import com.google.inject.Inject;
@@ -13,9 +19,13 @@ import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.json.ClientPatchJsonSerializer;
 import com.mambu.apisdk.json.GroupExpandedPatchSerializer;
+import com.mambu.apisdk.model.DownloadResult;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.Base64ContentReader;
+import com.mambu.apisdk.util.Base64DocumentWriter;
+import com.mambu.apisdk.util.ContentDownloader;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
@@ -68,24 +78,19 @@ public class ClientsService {
 	private final static ApiDefinition updateClient = new ApiDefinition(ApiType.POST_ENTITY, ClientExpanded.class);
 	// Patch Client: PATCH {"client":{ "state":"EXITED", "clientRoleId":"{roleID}","firstName":"jan", }}
 	// /api/clients/clientID
-	private final static ApiDefinition patchClient;
-	static {
-		patchClient = new ApiDefinition(ApiType.PATCH_ENTITY, Client.class);
-		// Use ClientPatchJsonSerializer
-		patchClient.addJsonSerializer(Client.class, new ClientPatchJsonSerializer());
-	}
+	// Use ClientPatchJsonSerializer
+	private final static ApiDefinition patchClient = new ApiDefinition(ApiType.PATCH_ENTITY, Client.class).toBuilder()
+			.addJsonSerializer(Client.class, new ClientPatchJsonSerializer()).build();
 
 	// PATCH Group: PATCH:
 	// {"group":{"id":"445076768","groupName":"Village group update","notes":"some_notes after update",
 	// "assignedUserKey":"40288a164c31ebec014c31ebf7200004","assignedCentreKey":"40288a164c31eca9014c31ef7e510005",
 	// "assignedBranchKey":"40288a164c31eca9014c31ef7e4f0003"}}
 	// /api/groups/40288a164c31eca9014c31f1135103de
-	private final static ApiDefinition patchGroupExpanded;
-	static {
-		patchGroupExpanded = new ApiDefinition(ApiType.PATCH_ENTITY, GroupExpanded.class);
-		// Use GroupExpandedPatchSerializer
-		patchGroupExpanded.addJsonSerializer(GroupExpanded.class, new GroupExpandedPatchSerializer());
-	}
+	// Use GroupExpandedPatchSerializer
+	private final static ApiDefinition patchGroupExpanded = new ApiDefinition(ApiType.PATCH_ENTITY,
+			GroupExpanded.class).toBuilder()
+					.addJsonSerializer(GroupExpanded.class, new GroupExpandedPatchSerializer()).build();
 
 	// Delete Client DELETE /api/clients/{clientId}
 	private final static ApiDefinition deleteClient = new ApiDefinition(ApiType.DELETE_ENTITY, Client.class);
@@ -108,12 +113,13 @@ public class ClientsService {
 	private final static ApiDefinition getGroupsList = new ApiDefinition(ApiType.GET_LIST, Group.class);
 	// Post Client Profile Documents. POST clients/client_id/documents/PROFILE_PICTURE or
 	// clients/client_id/documents/SIGNATURE
+	// These APIs use JSON content
 	private final static ApiDefinition postClientProfileFile = new ApiDefinition(ApiType.POST_OWNED_ENTITY,
-			Client.class, Document.class, Boolean.class);
+			Client.class, Document.class, Boolean.class).withContentType(ContentType.JSON);
 	// Get profile picture or signature file for a Client. GET /api/clients/{ID}/documents/PROFILE_PICTURE or GET
 	// /api/clients/{ID}/documents/SIGNATURE
 	private final static ApiDefinition getClientProfileFile = new ApiDefinition(ApiType.GET_OWNED_ENTITY, Client.class,
-			Document.class, String.class);
+			Document.class, String.class).toBuilder().setDocumentContent(true).build();
 	// Delete profile picture or signature for a Client. DELETE api/clients/client_id/documents/PROFILE_PICTURE
 	// or DELETE api/clients/client_id/documents/SIGNATURE
 	private final static ApiDefinition deleteClientProfileFile = new ApiDefinition(ApiType.DELETE_OWNED_ENTITY,
@@ -781,6 +787,44 @@ public class ClientsService {
 
 	}
 
+	/***
+	 * Download client profile picture to an output stream. The base64 encoded picture is decoded while it is streamed
+	 * from the response, skipping the "data:image/jpg;base64," indicator
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param outputStream
+	 *            the stream to write the decoded picture to. It is not closed
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded picture
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getClientProfilePicture(String clientId, OutputStream outputStream)
+			throws MambuApiException {
+		// Example. GET /api/clients/{ID}/documents/PROFILE_PICTURE
+
+		return serviceExecutor.executeDownload(getClientProfileFile, clientId, APIData.PROFILE_PICTURE, null,
+				new Base64ContentReader<>(new ContentDownloader(outputStream)));
+	}
+
+	/***
+	 * Download client profile picture to a file. The base64 encoded picture is decoded while it is streamed from the
+	 * response, skipping the "data:image/jpg;base64," indicator
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param file
+	 *            the file to write the decoded picture to. It is created or overwritten
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded picture
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getClientProfilePicture(String clientId, Path file) throws MambuApiException {
+		// Example. GET /api/clients/{ID}/documents/PROFILE_PICTURE
+
+		return downloadClientProfileFile(clientId, APIData.PROFILE_PICTURE, file);
+	}
+
 	/***
 	 * Get client signature API response message containing image type indicator and the base64 encoded signature file
 	 * 
@@ -823,6 +867,71 @@ public class ClientsService {
 
 	}
 
+	/***
+	 * Download client signature file to an output stream. The base64 encoded signature is decoded while it is streamed
+	 * from the response, skipping the "data:image/PNG;base64," indicator
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param outputStream
+	 *            the stream to write the decoded signature to. It is not closed
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded signature
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getClientSignature(String clientId, OutputStream outputStream) throws MambuApiException {
+		// Example. GET /api/clients/{ID}/documents/SIGNATURE
+
+		return serviceExecutor.executeDownload(getClientProfileFile, clientId, APIData.SIGNATURE, null,
+				new Base64ContentReader<>(new ContentDownloader(outputStream)));
+	}
+
+	/***
+	 * Download client signature file to a file. The base64 encoded signature is decoded while it is streamed from the
+	 * response, skipping the "data:image/PNG;base64," indicator
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param file
+	 *            the file to write the decoded signature to. It is created or overwritten
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded signature
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getClientSignature(String clientId, Path file) throws MambuApiException {
+		// Example. GET /api/clients/{ID}/documents/SIGNATURE
+
+		return downloadClientProfileFile(clientId, APIData.SIGNATURE, file);
+	}
+
+	/**
+	 * Downloads a client profile file (the profile picture or the signature) to a file, decoding it while it is
+	 * streamed from the response
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param documentType
+	 *            the type of the profile file: {@link APIData#PROFILE_PICTURE} or {@link APIData#SIGNATURE}
+	 * @param file
+	 *            the file to write the decoded file to. It is created or overwritten
+	 * @return the download result
+	 * @throws MambuApiException
+	 */
+	private DownloadResult downloadClientProfileFile(String clientId, String documentType, Path file)
+			throws MambuApiException {
+
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return serviceExecutor.executeDownload(getClientProfileFile, clientId, documentType, null,
+					new Base64ContentReader<>(new ContentDownloader(fileChannel)));
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
 	/****
 	 * Upload client profile picture file
 	 * 
@@ -845,9 +954,6 @@ public class ClientsService {
 		// Make JSON document and add it to the ParamsMap
 		ParamsMap paramsMap = ServiceHelper.makeParamsForDocumentJson(pictureDocument);
 
-		// Update ApiDefintion (we need to use JSON content)
-		postClientProfileFile.setContentType(ContentType.JSON);
-
 		// Execute with PROFILE_PICTURE as an api endpoint
 		final String documentType = APIData.PROFILE_PICTURE;
 		return serviceExecutor.execute(postClientProfileFile, clientId, documentType, paramsMap);
@@ -875,14 +981,103 @@ public class ClientsService {
 		// Make JSON document and add it to the ParamsMap
 		ParamsMap paramsMap = ServiceHelper.makeParamsForDocumentJson(signatureDocument);
 
-		// Update ApiDefintion (we need to use JSON content type and it's set to WWW_FORM)
-		postClientProfileFile.setContentType(ContentType.JSON);
-
 		// Execute with SIGNATURE as an api endpoint
 		final String documentType = APIData.SIGNATURE;
 		return serviceExecutor.execute(postClientProfileFile, clientId, documentType, paramsMap);
 	}
 
+	/****
+	 * Upload client profile picture read from a file. The picture is base64 encoded while it is streamed into the
+	 * request, so that it is never held in memory
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param pictureDocument
+	 *            the picture document details, like its name and type
+	 * @param file
+	 *            the picture file
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientProfilePicture(String clientId, Document pictureDocument, Path file)
+			throws MambuApiException {
+		// Example: POST JSON api/clients/{ID}/documents/PROFILE_PICTURE
+
+		return serviceExecutor.executeUpload(postClientProfileFile, clientId, APIData.PROFILE_PICTURE,
+				new Base64DocumentWriter(pictureDocument, file));
+	}
+
+	/****
+	 * Upload client profile picture read from a stream. The picture is base64 encoded while it is streamed into the
+	 * request with chunked transfer encoding, so that it is never held in memory
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param pictureDocument
+	 *            the picture document details, like its name and type
+	 * @param content
+	 *            the stream with the picture. It is not closed
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientProfilePicture(String clientId, Document pictureDocument, InputStream content)
+			throws MambuApiException {
+		// Example: POST JSON api/clients/{ID}/documents/PROFILE_PICTURE
+
+		return serviceExecutor.executeUpload(postClientProfileFile, clientId, APIData.PROFILE_PICTURE,
+				new Base64DocumentWriter(pictureDocument, content));
+	}
+
+	/****
+	 * Upload client signature file read from a file. The signature is base64 encoded while it is streamed into the
+	 * request, so that it is never held in memory
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param signatureDocument
+	 *            the signature document details, like its name and type
+	 * @param file
+	 *            the signature file
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientSignatureFile(String clientId, Document signatureDocument, Path file)
+			throws MambuApiException {
+		// Example: POST JSON api/clients/{ID}/documents/SIGNATURE
+
+		return serviceExecutor.executeUpload(postClientProfileFile, clientId, APIData.SIGNATURE,
+				new Base64DocumentWriter(signatureDocument, file));
+	}
+
+	/****
+	 * Upload client signature file read from a stream. The signature is base64 encoded while it is streamed into the
+	 * request with chunked transfer encoding, so that it is never held in memory
+	 * 
+	 * @param clientId
+	 *            the encoded key or id of the Mambu Client
+	 * @param signatureDocument
+	 *            the signature document details, like its name and type
+	 * @param content
+	 *            the stream with the signature. It is not closed
+	 * 
+	 * @return success or failure
+	 * 
+	 * @throws MambuApiException
+	 */
+	public boolean uploadClientSignatureFile(String clientId, Document signatureDocument, InputStream content)
+			throws MambuApiException {
+		// Example: POST JSON api/clients/{ID}/documents/SIGNATURE
+
+		return serviceExecutor.executeUpload(postClientProfileFile, clientId, APIData.SIGNATURE,
+				new Base64DocumentWriter(signatureDocument, content));
+	}
+
 	/***
 	 * Delete client profile picture file
 	 * 
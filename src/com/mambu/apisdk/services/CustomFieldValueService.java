@@ -642,8 +642,8 @@ public class CustomFieldValueService {
 
 		// Create API definition
 		ApiDefinition patchOwnedEntityApiDefinition = new ApiDefinition(ApiType.PATCH_OWNED_ENTITIES,
-				parentEntity.getEntityClass(), serviceEntity.getEntityClass());
-		patchOwnedEntityApiDefinition.setApiReturnFormat(ApiReturnFormat.BOOLEAN);
+				parentEntity.getEntityClass(), serviceEntity.getEntityClass())
+						.withApiReturnFormat(ApiReturnFormat.BOOLEAN);
 
 		List<CustomFieldValue> apiCustomFieldValues = makePatchGroupApiCustomFields(customFieldValues, true);
 
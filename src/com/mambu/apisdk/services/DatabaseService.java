@@ -1,8 +1,16 @@
 package com.mambu.apisdk.services;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.google.inject.Inject;
 import com.mambu.apisdk.MambuAPIService;
@@ -10,10 +18,18 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.model.DatabaseBackup;
 import com.mambu.apisdk.model.DatabaseBackupRequest;
 import com.mambu.apisdk.model.DatabaseBackupResponse;
+import com.mambu.apisdk.model.DownloadResult;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.BackupCallbackReceiver;
+import com.mambu.apisdk.util.BackupCallbackReceiver.Callback;
+import com.mambu.apisdk.util.ContentDownloader;
+import com.mambu.apisdk.util.DownloadProgressListener;
+import com.mambu.apisdk.util.RangeContentReader;
+import com.mambu.apisdk.util.RangedDownloader;
+import com.mambu.apisdk.util.RangedDownloader.RangeRequester;
 import com.mambu.apisdk.util.ServiceExecutor;
 
 /**
@@ -27,13 +43,19 @@ public class DatabaseService {
 	// Our ServiceExecutor
 	private ServiceExecutor serviceExecutor;
 
-	// Create API definition
-	private final static ApiDefinition createDatabaseBackup = new ApiDefinition(ApiType.CREATE_JSON_ENTITY,
-			DatabaseBackupRequest.class, DatabaseBackupResponse.class);
-
-	// Download DB backup API definition
-	private final static ApiDefinition downloadLatestDbBackup = new ApiDefinition(ApiType.GET_ENTITY,
-			DatabaseBackup.class);
+	// Create API definition. POST /api/database/backup
+	private final static ApiDefinition createDatabaseBackup;
+	// Download DB backup API definition. GET /api/database/backup/LATEST
+	private final static ApiDefinition downloadLatestDbBackup;
+	static {
+		ApiDefinition backupDefinition = new ApiDefinition(ApiType.CREATE_JSON_ENTITY, DatabaseBackupRequest.class,
+				DatabaseBackupResponse.class);
+		String backupPath = backupDefinition.getEndPoint() + APIData.FORWARD_SLASH + APIData.BACKUP;
+		createDatabaseBackup = backupDefinition.withUrlPath(backupPath);
+		downloadLatestDbBackup = new ApiDefinition(ApiType.GET_ENTITY, DatabaseBackup.class)
+				.withUrlPath(backupPath + APIData.FORWARD_SLASH + APIData.LATEST)
+				.withApiReturnFormat(ApiReturnFormat.ZIP_ARCHIVE);
+	}
 
 	/**
 	 * Create a new Database service
@@ -68,13 +90,104 @@ public class DatabaseService {
 			validateCallbackUrl(databaseBackupRequest.getCallback());
 		}
 
-		createDatabaseBackup.setUrlPath(createDatabaseBackup.getEndPoint() + APIData.FORWARD_SLASH + APIData.BACKUP);
-
 		// delegate execution to service executor
 		return serviceExecutor.executeJson(createDatabaseBackup, databaseBackupRequest);
 
 	}
 
+	/**
+	 * Triggers the process of creating a DB backup, with a callback URL registered with the given receiver. The
+	 * returned future completes when Mambu calls the callback URL, once the backup was created, so that the backup can
+	 * be downloaded without polling for it
+	 * 
+	 * @param callbackReceiver
+	 *            the started receiver the callback URL is registered with
+	 * @return the future completed with the message Mambu sent to the callback URL. It fails with a TimeoutException if
+	 *         the callback is not received in {@link BackupCallbackReceiver#DEFAULT_TIMEOUT_MINUTES}
+	 * @throws MambuApiException
+	 *             if the backup process couldn't be started
+	 */
+	public CompletableFuture<DatabaseBackupResponse> createDatabaseBackup(BackupCallbackReceiver callbackReceiver)
+			throws MambuApiException {
+
+		if (callbackReceiver == null) {
+			throw new IllegalArgumentException("Callback receiver must not be null");
+		}
+		Callback callback = callbackReceiver.register();
+
+		DatabaseBackupRequest databaseBackupRequest = new DatabaseBackupRequest();
+		databaseBackupRequest.setCallback(callback.getUrl());
+		try {
+			createDatabaseBackup(databaseBackupRequest);
+		} catch (MambuApiException | RuntimeException e) {
+			// no callback will come
+			callback.getFuture().cancel(false);
+			throw e;
+		}
+
+		return callback.getFuture();
+	}
+
+	/**
+	 * Triggers the process of creating a DB backup and streams the backup to a file once Mambu called back that it was
+	 * created. See {@link #createDatabaseBackup(BackupCallbackReceiver)} and
+	 * {@link #downloadLatestDbBackup(Path, DownloadProgressListener)}
+	 * 
+	 * @param callbackReceiver
+	 *            the started receiver the callback URL is registered with
+	 * @param file
+	 *            the file to write the backup to. It is created or overwritten
+	 * @param progressListener
+	 *            listener notified of the download progress. Can be null
+	 * @return the future completed with the download result, with the size and the checksum of the backup. It fails
+	 *         with the MambuApiException of the download, with a MambuApiException with Mambu's return code if the
+	 *         backup failed, or if the callback is not received
+	 * @throws MambuApiException
+	 *             if the backup process couldn't be started
+	 */
+	public CompletableFuture<DownloadResult> createAndDownloadDatabaseBackup(BackupCallbackReceiver callbackReceiver,
+			final Path file, final DownloadProgressListener progressListener) throws MambuApiException {
+
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		// the download runs on the receiver's callback thread
+		return createDatabaseBackup(callbackReceiver).thenApply(response -> {
+			try {
+				// the latest backup is still the previous one if this one failed
+				checkBackupCreated(response);
+				return downloadLatestDbBackup(file, progressListener);
+			} catch (MambuApiException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * Checks that the message Mambu sent to the callback URL reports a created backup
+	 * 
+	 * @param response
+	 *            the message sent to the callback URL
+	 * @throws MambuApiException
+	 *             with the return code of the message if the backup was not created
+	 */
+	private static void checkBackupCreated(DatabaseBackupResponse response) throws MambuApiException {
+
+		if (response != null && ("0".equals(response.getReturnCode())
+				|| "SUCCESS".equals(response.getReturnStatus()))) {
+			return;
+		}
+		int returnCode = -1;
+		if (response != null && response.getReturnCode() != null) {
+			try {
+				returnCode = Integer.parseInt(response.getReturnCode().trim());
+			} catch (NumberFormatException e) {
+				// keep the unknown error code
+			}
+		}
+		throw new MambuApiException(returnCode, "Database backup failed: " + response);
+	}
+
 	/**
 	 * Downloads the last DB backup if there is one.
 	 * 
@@ -85,11 +198,6 @@ public class DatabaseService {
 		// Available since 4.3. See MBU-11022.
 		// Example GET /api/database/backup/LATEST
 
-		downloadLatestDbBackup.setUrlPath(createDatabaseBackup.getEndPoint() + APIData.FORWARD_SLASH + APIData.BACKUP
-				+ APIData.FORWARD_SLASH + APIData.LATEST);
-
-		downloadLatestDbBackup.setApiReturnFormat(ApiReturnFormat.ZIP_ARCHIVE);
-
 		// creates a DatabaseBackup wrapper to store the backup content
 		DatabaseBackup backup = new DatabaseBackup();
 		backup.setContent((ByteArrayOutputStream) serviceExecutor.execute(downloadLatestDbBackup));
@@ -97,6 +205,117 @@ public class DatabaseService {
 		return backup;
 	}
 
+	/**
+	 * Downloads the last DB backup to a file, streaming it through a fixed size buffer so that the memory used doesn't
+	 * depend on the size of the backup. The SHA-256 checksum of the backup is computed while downloading
+	 * 
+	 * @param file
+	 *            the file to write the backup to. It is created or overwritten
+	 * @param progressListener
+	 *            listener notified of the download progress. Can be null
+	 * @return the download result, with the size and the checksum of the backup
+	 * @throws MambuApiException
+	 */
+	public DownloadResult downloadLatestDbBackup(Path file, DownloadProgressListener progressListener)
+			throws MambuApiException {
+
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return downloadLatestDbBackup(fileChannel, progressListener);
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	/**
+	 * Downloads the last DB backup to a channel, streaming it through a fixed size buffer. The SHA-256 checksum of the
+	 * backup is computed while downloading
+	 * 
+	 * @param channel
+	 *            the channel to write the backup to. It is not closed
+	 * @param progressListener
+	 *            listener notified of the download progress. Can be null
+	 * @return the download result, with the size and the checksum of the backup
+	 * @throws MambuApiException
+	 */
+	public DownloadResult downloadLatestDbBackup(WritableByteChannel channel, DownloadProgressListener progressListener)
+			throws MambuApiException {
+
+		ContentDownloader contentDownloader = new ContentDownloader(channel);
+		contentDownloader.setProgressListener(progressListener);
+		return downloadLatestDbBackup(contentDownloader);
+	}
+
+	/**
+	 * Downloads the last DB backup to an output stream, streaming it through a fixed size buffer. The SHA-256 checksum
+	 * of the backup is computed while downloading
+	 * 
+	 * @param outputStream
+	 *            the stream to write the backup to. It is not closed
+	 * @param progressListener
+	 *            listener notified of the download progress. Can be null
+	 * @return the download result, with the size and the checksum of the backup
+	 * @throws MambuApiException
+	 */
+	public DownloadResult downloadLatestDbBackup(OutputStream outputStream, DownloadProgressListener progressListener)
+			throws MambuApiException {
+
+		ContentDownloader contentDownloader = new ContentDownloader(outputStream);
+		contentDownloader.setProgressListener(progressListener);
+		return downloadLatestDbBackup(contentDownloader);
+	}
+
+	/**
+	 * Downloads the last DB backup with a content downloader, allowing to set the buffer size and the checksum
+	 * algorithm. Without a checksum, a backup downloaded to a FileChannel is transferred directly to the file
+	 * 
+	 * @param contentDownloader
+	 *            the downloader writing the backup to its destination
+	 * @return the download result, with the size and the checksum of the backup
+	 * @throws MambuApiException
+	 */
+	public DownloadResult downloadLatestDbBackup(ContentDownloader contentDownloader) throws MambuApiException {
+		// Example GET /api/database/backup/LATEST
+
+		return serviceExecutor.executeDownload(downloadLatestDbBackup, null, null, contentDownloader);
+	}
+
+	/**
+	 * Downloads the last DB backup to a file in segments fetched in parallel with HTTP Range requests. A download which
+	 * failed is resumed by calling this method again with the same file: only the segments which were not downloaded
+	 * yet are requested, as long as the backup didn't change. Falls back to a single stream when ranges are not
+	 * supported
+	 * 
+	 * @param file
+	 *            the file to write the backup to. It is created or overwritten, unless a download is resumed
+	 * @param rangedDownloader
+	 *            the downloader, with the segment size, the parallel connections and the checksum algorithm
+	 * @return the download result, with the size and the checksum of the backup
+	 * @throws MambuApiException
+	 *             if the backup couldn't be downloaded. The segments downloaded so far are kept for resuming
+	 */
+	public DownloadResult downloadLatestDbBackup(Path file, RangedDownloader rangedDownloader)
+			throws MambuApiException {
+		// Example GET /api/database/backup/LATEST with header Range: bytes=0-8388607
+
+		if (rangedDownloader == null) {
+			throw new IllegalArgumentException("Ranged downloader must not be null");
+		}
+		return rangedDownloader.download(new RangeRequester() {
+
+			@Override
+			public <R> R request(long firstByte, long lastByte, RangeContentReader<R> contentReader)
+					throws MambuApiException {
+
+				return serviceExecutor.executeRangeDownload(downloadLatestDbBackup, null, null, firstByte, lastByte,
+						contentReader);
+			}
+		}, file);
+	}
+
 	/**
 	 * Validates whether the provided callbackUrl is valid or not. In case is not valid throws an
 	 * IllegalArgumentException.
@@ -1,5 +1,11 @@
 package com.mambu.apisdk.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -9,11 +15,15 @@ import com.google.inject.Inject;
 import com.mambu.api.server.handler.documents.model.JSONDocument;
 import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.DownloadResult;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.APIData.IMAGE_SIZE_TYPE;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.Base64ContentReader;
+import com.mambu.apisdk.util.Base64DocumentWriter;
+import com.mambu.apisdk.util.ContentDownloader;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
@@ -33,15 +43,17 @@ public class DocumentsService {
 
 	// Our serviceExecutor
 	private ServiceExecutor serviceExecutor;
-	// Get Document
-	private final static ApiDefinition getDocument = new ApiDefinition(ApiType.GET_ENTITY, Document.class);
+	// Get Document. The getDocument API must just return the response as is
+	private final static ApiDefinition getDocument = new ApiDefinition(ApiType.GET_ENTITY, Document.class)
+			.toBuilder().setApiReturnFormat(ApiReturnFormat.RESPONSE_STRING).setDocumentContent(true).build();
 	// Create Document. The input entity is a JSONDocument and Mambu returns a Document class
 	private final static ApiDefinition createDocument = new ApiDefinition(ApiType.CREATE_JSON_ENTITY,
 			JSONDocument.class, Document.class);
 	// Delete Document
 	private final static ApiDefinition deleteDocument = new ApiDefinition(ApiType.DELETE_ENTITY, Document.class);
-	// Get Image
-	private final static ApiDefinition getImage = new ApiDefinition(ApiType.GET_ENTITY, Image.class);
+	// Get Image. For this API we just need the response string as is to extract the encoded image
+	private final static ApiDefinition getImage = new ApiDefinition(ApiType.GET_ENTITY, Image.class).toBuilder()
+			.setApiReturnFormat(ApiReturnFormat.RESPONSE_STRING).setDocumentContent(true).build();
 
 	// Specify Mambu entities supported by the GET Documents API: Client, Group. LoanAccount, SavingsAccount,
 	// LoanProduct, SavingsProduct, Branch, Centre, User
@@ -84,6 +96,44 @@ public class DocumentsService {
 		return serviceExecutor.execute(createDocument, paramsMap);
 	}
 
+	/***
+	 * Upload new Document with the content read from a file. The content is base64 encoded while it is streamed into
+	 * the request, so that it is never held in memory, unlike with {@link #uploadDocument(JSONDocument)}
+	 * 
+	 * @param document
+	 *            the new document object to be uploaded containing all mandatory fields, except the content
+	 * @param file
+	 *            the file with the document content
+	 * 
+	 * @return the new document parsed as an object returned from the API call
+	 * 
+	 * @throws MambuApiException
+	 */
+	public Document uploadDocument(Document document, Path file) throws MambuApiException {
+		// Upload new document. Example POST JSON api/documents
+
+		return serviceExecutor.executeUpload(createDocument, null, null, new Base64DocumentWriter(document, file));
+	}
+
+	/***
+	 * Upload new Document with the content read from a stream. The content is base64 encoded while it is streamed into
+	 * the request with chunked transfer encoding, so that it is never held in memory
+	 * 
+	 * @param document
+	 *            the new document object to be uploaded containing all mandatory fields, except the content
+	 * @param content
+	 *            the stream with the document content. It is not closed
+	 * 
+	 * @return the new document parsed as an object returned from the API call
+	 * 
+	 * @throws MambuApiException
+	 */
+	public Document uploadDocument(Document document, InputStream content) throws MambuApiException {
+		// Upload new document. Example POST JSON api/documents
+
+		return serviceExecutor.executeUpload(createDocument, null, null, new Base64DocumentWriter(document, content));
+	}
+
 	/***
 	 * Get base64 encoded document data by document id. A typical scenario would be getting a list of attachments for a
 	 * client/group/account via getDocuments() API and then retrieving a specific document (attachment) by its id with
@@ -99,11 +149,56 @@ public class DocumentsService {
 	public String getDocument(String documentId) throws MambuApiException {
 		// Get document. Example: GET /api/documents/documentId
 		// See MBU-5084
-		// The getDocument API must just return the response as is
-		getDocument.setApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
 		return serviceExecutor.execute(getDocument, documentId);
 	}
 
+	/***
+	 * Download a document to a file. The base64 encoded document is decoded while it is streamed from the response,
+	 * so that neither the encoded nor the decoded document is held in memory
+	 * 
+	 * @param documentId
+	 *            the encoded key or id of the document
+	 * @param file
+	 *            the file to write the decoded document to. It is created or overwritten
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded document
+	 * 
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getDocument(String documentId, Path file) throws MambuApiException {
+
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return serviceExecutor.executeDownload(getDocument, documentId, null,
+					new Base64ContentReader<>(new ContentDownloader(fileChannel)));
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	/***
+	 * Download a document to an output stream. The base64 encoded document is decoded while it is streamed from the
+	 * response, so that neither the encoded nor the decoded document is held in memory
+	 * 
+	 * @param documentId
+	 *            the encoded key or id of the document
+	 * @param outputStream
+	 *            the stream to write the decoded document to. It is not closed
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded document
+	 * 
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getDocument(String documentId, OutputStream outputStream) throws MambuApiException {
+		// Get document. Example: GET /api/documents/documentId
+
+		return serviceExecutor.executeDownload(getDocument, documentId, null,
+				new Base64ContentReader<>(new ContentDownloader(outputStream)));
+	}
+
 	/***
 	 * Delete document by its Id
 	 * 
@@ -142,8 +237,6 @@ public class DocumentsService {
 			params.put(SIZE, sizeType.name());
 		}
 
-		// For this API we just need the response string as is to extract the encoded image
-		getImage.setApiReturnFormat(ApiReturnFormat.RESPONSE_STRING);
 		String apiResponse = serviceExecutor.execute(getImage, imageKey, params);
 
 		// Get only the encoded part. Mambu returns data in the following format: "data:image/jpg;base64,/9j...."
@@ -155,6 +248,73 @@ public class DocumentsService {
 		return base64EncodedString;
 	}
 
+	/***
+	 * Download an Image file to a file using file's encoded key and the preferred image size. The base64 encoded image
+	 * is decoded while it is streamed from the response, skipping the "data:image/jpg;base64," indicator
+	 * 
+	 * @param imageKey
+	 *            a key to access image file (e.g. client's profile picture key: client.getProfilePictureKey())
+	 * @param sizeType
+	 *            a desired size to be returned. E.g LARGE, MEDIUM, SMALL_THUMB, TINY_THUMB. Can be null to get full
+	 *            size
+	 * @param file
+	 *            the file to write the decoded image to. It is created or overwritten
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded image
+	 * 
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getImage(String imageKey, IMAGE_SIZE_TYPE sizeType, Path file) throws MambuApiException {
+
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		// Add size type as a parameter
+		ParamsMap params = null;
+		if (sizeType != null) {
+			params = new ParamsMap();
+			params.put(SIZE, sizeType.name());
+		}
+
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return serviceExecutor.executeDownload(getImage, imageKey, params,
+					new Base64ContentReader<>(new ContentDownloader(fileChannel)));
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	/***
+	 * Download an Image file to an output stream using file's encoded key and the preferred image size. The base64
+	 * encoded image is decoded while it is streamed from the response, skipping the "data:image/jpg;base64," indicator
+	 * 
+	 * @param imageKey
+	 *            a key to access image file (e.g. client's profile picture key: client.getProfilePictureKey())
+	 * @param sizeType
+	 *            a desired size to be returned. E.g LARGE, MEDIUM, SMALL_THUMB, TINY_THUMB. Can be null to get full
+	 *            size
+	 * @param outputStream
+	 *            the stream to write the decoded image to. It is not closed
+	 * 
+	 * @return the download result, with the size and the SHA-256 checksum of the decoded image
+	 * 
+	 * @throws MambuApiException
+	 */
+	public DownloadResult getImage(String imageKey, IMAGE_SIZE_TYPE sizeType, OutputStream outputStream)
+			throws MambuApiException {
+
+		// Add size type as a parameter
+		ParamsMap params = null;
+		if (sizeType != null) {
+			params = new ParamsMap();
+			params.put(SIZE, sizeType.name());
+		}
+
+		return serviceExecutor.executeDownload(getImage, imageKey, params,
+				new Base64ContentReader<>(new ContentDownloader(outputStream)));
+	}
+
 	/***
 	 * Get all Documents for a given parent entity
 	 * 
@@ -210,4 +370,4 @@ public class DocumentsService {
 
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -25,7 +25,10 @@ public class IntelligenceService {
 
 	private ServiceExecutor serviceExecutor;
 
-	private final static ApiDefinition getIndicator = new ApiDefinition(ApiType.GET_ENTITY, Indicator.class);
+	// IntelligenceService returns a map. Use COLLECTION: for the Indicator class ServiceHelper is set to map
+	// COLLECTION to a HashMap<String, String> type
+	private final static ApiDefinition getIndicator = new ApiDefinition(ApiType.GET_ENTITY, Indicator.class)
+			.withApiReturnFormat(ApiReturnFormat.COLLECTION);
 
 	/***
 	 * Create a new intelligence service
@@ -52,9 +55,6 @@ public class IntelligenceService {
 		if (indicator == null) {
 			throw new IllegalArgumentException("Indicator must not be null");
 		}
-		// IntelligenceService returns a map. Use COLLECTION: for the Indicator class ServiceHelper is set to map
-		// COLLECTION to a HashMap<String, String> type
-		getIndicator.setApiReturnFormat(ApiReturnFormat.COLLECTION);
 		// Execute
 		HashMap<String, String> result = serviceExecutor.execute(getIndicator, indicator.name());
 
@@ -40,6 +40,7 @@ import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.DateUtils;
 import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.PagedIterable;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
@@ -114,12 +115,8 @@ public class LoansService {
 	private final static ApiDefinition postAccountTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY,
 			LoanAccount.class, LoanTransaction.class);
 	// // Post JSON Account Transactions. Returns LoanTransaction
-	private final static ApiDefinition postAccountJSONTransaction;
-	static {
-		postAccountJSONTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY, LoanAccount.class,
-				LoanTransaction.class);
-		postAccountJSONTransaction.setContentType(ContentType.JSON);
-	}
+	private final static ApiDefinition postAccountJSONTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY,
+			LoanAccount.class, LoanTransaction.class).withContentType(ContentType.JSON);
 	// Post Account state change. Params map defines the account change transaction. Return LoanAccount
 	private final static ApiDefinition postAccountChange = new ApiDefinition(ApiType.POST_ENTITY_ACTION,
 			LoanAccount.class, LoanTransaction.class);
@@ -131,36 +128,31 @@ public class LoansService {
 	// Update Account. Used to update custom fields for loan accounts only. POST JSON /api/loans/loanId
 	private final static ApiDefinition updateAccount = new ApiDefinition(ApiType.POST_ENTITY, JSONLoanAccount.class);
 	// Patch Account. Used to update loan terms only. PATCH JSON /api/loans/loanId
-	private final static ApiDefinition patchAccount;
-	static {
-		patchAccount = new ApiDefinition(ApiType.PATCH_ENTITY, LoanAccount.class);
-		// Use LoanAccountPatchJsonSerializer to make the expected format
-		patchAccount.addJsonSerializer(LoanAccount.class, new LoanAccountPatchJsonSerializer());
-	}
-	// Used to link loan accounts with savings accounts
+	// Use LoanAccountPatchJsonSerializer to make the expected format
+	private final static ApiDefinition patchAccount = new ApiDefinition(ApiType.PATCH_ENTITY, LoanAccount.class)
+			.toBuilder().addJsonSerializer(LoanAccount.class, new LoanAccountPatchJsonSerializer()).build();
+	// Used to link loan accounts with savings accounts. Returns boolean in case of success
 	private final static ApiDefinition postSettlementForLoanAccount = new ApiDefinition(ApiType.POST_OWNED_ENTITY,
-			LoanAccount.class, SettlementAccount.class);
+			LoanAccount.class, SettlementAccount.class).withApiReturnFormat(ApiReturnFormat.BOOLEAN);
 	// Update Loan Tranches. Returns updated LoanAccount. POST /api/loans/loanId/tranches
 	private final static ApiDefinition updateAccountTranches = new ApiDefinition(ApiType.POST_ENTITY_ACTION,
-			LoanAccount.class, LoanTranche.class);
+			LoanAccount.class, LoanTranche.class).withContentType(ContentType.JSON);
 	// Update Loan Investor Funds. Returns updated LoanAccount. POST /api/loans/loanId/funds
 	private final static ApiDefinition updateAccountFunds = new ApiDefinition(ApiType.POST_ENTITY_ACTION,
-			LoanAccount.class, InvestorFund.class);
+			LoanAccount.class, InvestorFund.class).withContentType(ContentType.JSON);
 	// Update Loan Account Guarantees API. Returns LoanAccount. POST /api/loans/loanId/guarantees
 	private final static ApiDefinition updateAccountGuarantees = new ApiDefinition(ApiType.POST_ENTITY_ACTION,
-			LoanAccount.class, Guaranty.class);
+			LoanAccount.class, Guaranty.class).withContentType(ContentType.JSON);
 	// Loan Products API requests
 	// Get Loan Product Details
 	private final static ApiDefinition getProduct = new ApiDefinition(ApiType.GET_ENTITY_DETAILS, LoanProduct.class);
 	// Get Lists of Loan Products
 	private final static ApiDefinition getProductsList = new ApiDefinition(ApiType.GET_LIST, LoanProduct.class);
 	// Get schedule for Loan Products. GET /api/loanproducts/<ID>/schedule?loanAmount=50. Returns JSONLoanRepayments
-	private final static ApiDefinition getProductSchedule;
-	static {
-		getProductSchedule = new ApiDefinition(ApiType.GET_OWNED_ENTITY, LoanProduct.class, JSONLoanRepayments.class);
-		// Use LoanProductScheduleJsonSerializer
-		getProductSchedule.addJsonSerializer(LoanAccount.class, new LoanProductScheduleJsonSerializer());
-	}
+	// Use LoanProductScheduleJsonSerializer
+	private final static ApiDefinition getProductSchedule = new ApiDefinition(ApiType.GET_OWNED_ENTITY,
+			LoanProduct.class, JSONLoanRepayments.class).toBuilder()
+					.addJsonSerializer(LoanAccount.class, new LoanProductScheduleJsonSerializer()).build();
 
 	/***
 	 * Create a new loan service
@@ -341,8 +333,7 @@ public class LoansService {
 
 		// See MBU-8370. Lock account API now returns a list of transactions
 		ApiDefinition postAccountTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY, LoanAccount.class,
-				LoanTransaction.class);
-		postAccountTransaction.setApiReturnFormat(ApiReturnFormat.COLLECTION);
+				LoanTransaction.class).withApiReturnFormat(ApiReturnFormat.COLLECTION);
 		return serviceExecutor.execute(postAccountTransaction, accountId, paramsMap);
 	}
 
@@ -365,8 +356,7 @@ public class LoansService {
 
 		// See MBU-8370. Unlock account API now returns a list of transactions
 		ApiDefinition postAccountTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY, LoanAccount.class,
-				LoanTransaction.class);
-		postAccountTransaction.setApiReturnFormat(ApiReturnFormat.COLLECTION);
+				LoanTransaction.class).withApiReturnFormat(ApiReturnFormat.COLLECTION);
 		return serviceExecutor.execute(postAccountTransaction, accountId, paramsMap);
 	}
 
@@ -919,8 +909,6 @@ public class LoansService {
 		JSONTranches jsonTranches = new JSONTranches();
 		jsonTranches.setTranches(tranches);
 
-		// Set ContentType to JSON (Update tranches API uses JSON format)
-		updateAccountTranches.setContentType(ContentType.JSON);
 		return serviceExecutor.executeJson(updateAccountTranches, jsonTranches, accountId);
 	}
 
@@ -957,8 +945,6 @@ public class LoansService {
 		JSONInvestorFunds ivestorFunds = new JSONInvestorFunds();
 		ivestorFunds.setFunds(funds);
 
-		// Set ContentType to JSON (Update funds API uses JSON format)
-		updateAccountFunds.setContentType(ContentType.JSON);
 		return serviceExecutor.executeJson(updateAccountFunds, ivestorFunds, accountId);
 	}
 
@@ -991,8 +977,6 @@ public class LoansService {
 		JSONGuarantees jsonGuarantees = new JSONGuarantees();
 		jsonGuarantees.setGuarantees(guarantees);
 
-		// Set ContentType to JSON (Update guarantees API uses JSON format)
-		updateAccountGuarantees.setContentType(ContentType.JSON);
 		return serviceExecutor.executeJson(updateAccountGuarantees, jsonGuarantees, accountId);
 	}
 
@@ -1403,6 +1387,26 @@ public class LoansService {
 
 	}
 
+	/**
+	 * Iterate over all loan accounts matching the filter constraints. The accounts are fetched page by page, the next
+	 * pages being fetched in the background while the current one is consumed
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @param pageSize
+	 *            the number of accounts requested for each page. Must be greater than zero
+	 * @param prefetchDepth
+	 *            how many pages are fetched in the background. Zero fetches each page only when needed
+	 * @return iterable over all loan accounts matching filter constraints. API errors are thrown by its iterator as
+	 *         UncheckedMambuApiException
+	 */
+	public PagedIterable<LoanAccount> getLoanAccounts(final JSONFilterConstraints filterConstraints, int pageSize,
+			int prefetchDepth) {
+
+		return serviceExecutor.getPagedList((offset, limit) -> getLoanAccounts(filterConstraints,
+				String.valueOf(offset), String.valueOf(limit)), pageSize, prefetchDepth);
+	}
+
 	// Loan Products
 	/***
 	 * Get a list of Loan Products
@@ -1651,8 +1655,6 @@ public class LoansService {
 			throw new IllegalArgumentException("loanAcountKey or savingsAccountKey must NOT be NULL");
 		}
 		
-		postSettlementForLoanAccount.setApiReturnFormat(ApiReturnFormat.BOOLEAN);
-		
 		return serviceExecutor.execute(postSettlementForLoanAccount, loanAccountKey, savingsAccountKey, null);
 	}
 
@@ -1687,11 +1689,7 @@ public class LoansService {
 	
 	private ApiDefinition makeSearchTransactionsWithFullApiDefinition() {
 
-		ApiDefinition apiDefinition = SearchService
-				.makeApiDefinitionForSearchByFilter(MambuEntityType.LOAN_TRANSACTION);
-		apiDefinition.setWithFullDetails(true);
-		
-		return apiDefinition;
+		return SearchService.makeApiDefinitionForSearchByFilter(MambuEntityType.LOAN_TRANSACTION).withFullDetails(true);
 	}
 	
 	private void addExtraScheduleParams(ScheduleQueryParams queryParams, ParamsMap params) {
@@ -26,12 +26,9 @@ public class NotificationsService {
 	
 	private ServiceExecutor serviceExecutor;
 	
-	private static final ApiDefinition resendNotifications;
-	static {
-		resendNotifications = new ApiDefinition(ApiType.CREATE_JSON_ENTITY, NotificationsToBeResent.class);
-		//this endpoint returns boolean in case of success
-		resendNotifications.setApiReturnFormat(ApiReturnFormat.BOOLEAN);
-	}
+	//this endpoint returns boolean in case of success
+	private static final ApiDefinition resendNotifications = new ApiDefinition(ApiType.CREATE_JSON_ENTITY,
+			NotificationsToBeResent.class).withApiReturnFormat(ApiReturnFormat.BOOLEAN);
 	
 	/**
 	 * Create a new notifications service
@@ -66,15 +66,17 @@ public class OrganizationService {
 
 	private final static ApiDefinition getTransactionChannels = new ApiDefinition(ApiType.GET_LIST,
 			TransactionChannel.class);
-	// Post Index Interest Rate
+	// Post Index Interest Rate. This API expects JSON content. The dates are expected in "yyyy-MM-dd" format
 	private final static ApiDefinition postIndexInterestRate = new ApiDefinition(ApiType.POST_OWNED_ENTITY,
-			IndexRateSource.class, IndexRate.class);
+			IndexRateSource.class, IndexRate.class).toBuilder().setContentType(ContentType.JSON)
+					.setJsonDateTimeFormat(APIData.yyyyMmddFormat).build();
 
 	// Post exchange rates. Example: /api/currencies/{currencyCode}/rates (e.g. POST {"buyRate":"3.41231232",
 	// "sellRate":"3.4256546","startDate":"2016-02-12T00:00:00+0000"} /api/currencies/EUR/rates)
 	// For more details see MBU-12629.
+	// This API uses JSON content
 	private final static ApiDefinition postExchangeRates = new ApiDefinition(ApiType.POST_OWNED_ENTITY, Currency.class,
-			ExchangeRate.class);
+			ExchangeRate.class).withContentType(ContentType.JSON);
 
 	// Get exchange rates. Example: /api/currencies/{currencyCode}/rates. See MBU-12628
 	private final static ApiDefinition getExchangeRates = new ApiDefinition(ApiType.GET_OWNED_ENTITIES, Currency.class,
@@ -330,9 +332,6 @@ public class OrganizationService {
 		}
 
 		JsonIndexRate jsonIndexRate = new JsonIndexRate(indexRate);
-		// This API expects JSON content. The dates are expected in "yyyy-MM-dd" format
-		postIndexInterestRate.setContentType(ContentType.JSON);
-		postIndexInterestRate.setJsonDateTimeFormat(APIData.yyyyMmddFormat);
 		return serviceExecutor.executeJson(postIndexInterestRate, jsonIndexRate, indexRateSourceKey);
 	}
 
@@ -501,9 +500,6 @@ public class OrganizationService {
 			throw new IllegalArgumentException("Currency code and Exchange rate must not  be null");
 		}
 
-		// set the content type to be JSON
-		postExchangeRates.setContentType(ContentType.JSON);
-
 		// executes POST currency API
 		return serviceExecutor.executeJson(postExchangeRates, exchangeRate, currencyCode);
 	}
@@ -43,8 +43,9 @@ public class RepaymentsService {
 	private final static ApiDefinition getRepaymentsForLoan = new ApiDefinition(ApiType.GET_OWNED_ENTITIES,
 			LoanAccount.class, Repayment.class);
 	// Update Loan Repayments. PATCH JSON /api/loans/loan_id/repayments
-	private static ApiDefinition updateRepaymentsForLoan = new ApiDefinition(ApiType.PATCH_OWNED_ENTITIES,
-			LoanAccount.class, Repayment.class);
+	// This API accepts JSON requests with the dates in "yyyy-MM-dd" format only
+	private final static ApiDefinition updateRepaymentsForLoan = new ApiDefinition(ApiType.PATCH_OWNED_ENTITIES,
+			LoanAccount.class, Repayment.class).toBuilder().setJsonDateTimeFormat(APIData.yyyyMmddFormat).build();
 
 	/***
 	 * Create a new repayments service
@@ -130,8 +131,6 @@ public class RepaymentsService {
 		// Available since Mambu 3.9. See MBU-6813. For Revolving Credit product available since 3.14. See MBU-10546
 		// Available for fixed loans, when the account is in Pending/Partial state since 3.13. See MBU-10245
 		// API example: PATCH -d JSONLoanRepayments_object /api/loans/loan_id/repayments. Returns list of Repayments
-		// This API accepts JSON requests with the dates in "yyyy-MM-dd" format only
-		updateRepaymentsForLoan.setJsonDateTimeFormat(APIData.yyyyMmddFormat);
 		return serviceExecutor.executeJson(updateRepaymentsForLoan, repayments, accountId);
 
 	}
@@ -21,6 +21,7 @@ import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.PagedIterable;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
@@ -94,8 +95,8 @@ public class SavingsService {
 	private final static ApiDefinition postAccountChange = new ApiDefinition(ApiType.POST_ENTITY_ACTION,
 			SavingsAccount.class, SavingsTransaction.class);
 	// Post a transaction in a saving account in order to start its maturity
-	private final static ApiDefinition postStartMaturityTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY, 
-			SavingsAccount.class, SavingsTransaction.class, SavingsAccount.class);
+	private final static ApiDefinition postStartMaturityTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY,
+			SavingsAccount.class, SavingsTransaction.class, SavingsAccount.class).withContentType(ContentType.JSON);
 
 	// Get Accounts Transactions (transactions for a specific savings account)
 	private final static ApiDefinition getAccountTransactions = new ApiDefinition(ApiType.GET_OWNED_ENTITIES,
@@ -108,12 +109,9 @@ public class SavingsService {
 	// Update Account
 	private final static ApiDefinition updateAccount = new ApiDefinition(ApiType.POST_ENTITY, JSONSavingsAccount.class);
 	// Patch Account. Used to update savings terms only. PATCH JSON /api/savings/savingsId
-	private final static ApiDefinition patchAccount;
-	static {
-		patchAccount = new ApiDefinition(ApiType.PATCH_ENTITY, SavingsAccount.class);
-		// Use SavingsAccountPatchJsonSerializer
-		patchAccount.addJsonSerializer(SavingsAccount.class, new SavingsAccountPatchJsonSerializer());
-	}
+	// Use SavingsAccountPatchJsonSerializer
+	private final static ApiDefinition patchAccount = new ApiDefinition(ApiType.PATCH_ENTITY, SavingsAccount.class)
+			.toBuilder().addJsonSerializer(SavingsAccount.class, new SavingsAccountPatchJsonSerializer()).build();
 	// Products API requests
 	// Get Savings Product Details
 	private final static ApiDefinition getProduct = new ApiDefinition(ApiType.GET_ENTITY_DETAILS, SavingsProduct.class);
@@ -291,6 +289,27 @@ public class SavingsService {
 		return serviceExecutor.executeJson(apiDefintition, filterConstraints, null, null,
 				ServiceHelper.makePaginationParams(offset, limit));
 	}
+
+	/**
+	 * Iterate over all savings transactions matching the filter constraints, with all the details (custom fields
+	 * included). The transactions are fetched page by page, the next pages being fetched in the background while the
+	 * current one is consumed
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @param pageSize
+	 *            the number of transactions requested for each page. Must be greater than zero
+	 * @param prefetchDepth
+	 *            how many pages are fetched in the background. Zero fetches each page only when needed
+	 * @return iterable over all savings transactions matching filter constraints. API errors are thrown by its
+	 *         iterator as UncheckedMambuApiException
+	 */
+	public PagedIterable<SavingsTransaction> getSavingsTransactionsWithFullDetails(
+			final JSONFilterConstraints filterConstraints, int pageSize, int prefetchDepth) {
+
+		return serviceExecutor.getPagedList((offset, limit) -> getSavingsTransactionsWithFullDetails(
+				filterConstraints, String.valueOf(offset), String.valueOf(limit)), pageSize, prefetchDepth);
+	}
 	
 	/**
 	 * Get savings transactions by specifying filter constraints with all the details (no custom fields)
@@ -707,7 +726,6 @@ public class SavingsService {
 
 		ParamsMap paramsMap = ServiceHelper.makeParamsForTransactionRequest(APIData.START_MATURITY, transactionRequest);
 
-		postStartMaturityTransaction.setContentType(ContentType.JSON);
 		return serviceExecutor.execute(postStartMaturityTransaction, accountId, paramsMap);
 	}
 
@@ -1087,11 +1105,7 @@ public class SavingsService {
 	
 	private ApiDefinition makeSearchTransactionsWithFullApiDefinition() {
 
-		ApiDefinition apiDefinition = SearchService
-				.makeApiDefinitionForSearchByFilter(MambuEntityType.SAVINGS_TRANSACTION);
-		apiDefinition.setWithFullDetails(true);
-		
-		return apiDefinition;
+		return SearchService.makeApiDefinitionForSearchByFilter(MambuEntityType.SAVINGS_TRANSACTION).withFullDetails(true);
 	}
 
 }
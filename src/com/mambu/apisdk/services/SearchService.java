@@ -5,6 +5,7 @@ package com.mambu.apisdk.services;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import com.google.inject.Inject;
 import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
@@ -15,6 +16,7 @@ import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.ParallelPageFetcher;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
@@ -213,6 +215,114 @@ public class SearchService {
 
 	}
 
+	/**
+	 * Get all Mambu entities matching filter constraints, with full details (custom fields included). The pages of
+	 * results are requested concurrently, with at most maxConcurrency pages requested at the same time, and are merged
+	 * in the order returned by Mambu. No more pages are requested once a page has less entities than the page size.
+	 * 
+	 * Each page is a separate search, so the filter constraints should specify a sort order on a unique column (e.g.
+	 * the id) for the pages not to overlap or miss entities
+	 * 
+	 * @param searchEntityType
+	 *            Mambu entity type. Must not be null. See {@link #makeApiDefinitionForSearchByFilter(MambuEntityType)}
+	 *            for the supported entities
+	 * @param filterConstraints
+	 *            JSONFilterConstraints object defining an array of applicable filter constraints and an optional sort
+	 *            order. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested in one API call. Must be greater than zero
+	 * @param maxConcurrency
+	 *            the maximum number of pages requested at the same time. Must be greater than zero
+	 * @return all entities of the searchEntityType matching provided filter constraints
+	 * @throws MambuApiException
+	 *             in case exception occurs while fetching entities
+	 */
+	public <T> List<T> searchAllEntitiesWithFullDetails(MambuEntityType searchEntityType,
+			JSONFilterConstraints filterConstraints, int pageSize, int maxConcurrency) throws MambuApiException {
+
+		ApiDefinition apiDefinition = makeSearchEntitiesWithFullApiDefinition(searchEntityType);
+		return this.<T> makeParallelSearch(apiDefinition, filterConstraints, pageSize, maxConcurrency).fetchAll();
+	}
+
+	/**
+	 * Get all Mambu entities matching filter constraints, with full details (custom fields included), passing the
+	 * pages of results to the consumer. The pages are requested concurrently and passed to the consumer in the order
+	 * returned by Mambu, so that not all entities need to be held in memory. See
+	 * {@link #searchAllEntitiesWithFullDetails(MambuEntityType, JSONFilterConstraints, int, int)}
+	 * 
+	 * @param searchEntityType
+	 *            Mambu entity type. Must not be null
+	 * @param filterConstraints
+	 *            JSONFilterConstraints object defining an array of applicable filter constraints and an optional sort
+	 *            order. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested in one API call. Must be greater than zero
+	 * @param maxConcurrency
+	 *            the maximum number of pages requested at the same time. Must be greater than zero
+	 * @param pageConsumer
+	 *            consumer of the pages of entities, called in the calling thread. Must not be null
+	 * @throws MambuApiException
+	 *             in case exception occurs while fetching entities
+	 */
+	public <T> void searchAllEntitiesWithFullDetails(MambuEntityType searchEntityType,
+			JSONFilterConstraints filterConstraints, int pageSize, int maxConcurrency,
+			Consumer<? super List<T>> pageConsumer) throws MambuApiException {
+
+		ApiDefinition apiDefinition = makeSearchEntitiesWithFullApiDefinition(searchEntityType);
+		this.<T> makeParallelSearch(apiDefinition, filterConstraints, pageSize, maxConcurrency).forEachPage(
+				pageConsumer);
+	}
+
+	/**
+	 * Get all Mambu entities matching filter constraints, without custom fields. The pages of results are requested
+	 * concurrently and merged in the order returned by Mambu. See
+	 * {@link #searchAllEntitiesWithFullDetails(MambuEntityType, JSONFilterConstraints, int, int)}
+	 * 
+	 * @param searchEntityType
+	 *            Mambu entity type. Must not be null
+	 * @param filterConstraints
+	 *            JSONFilterConstraints object defining an array of applicable filter constraints and an optional sort
+	 *            order. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested in one API call. Must be greater than zero
+	 * @param maxConcurrency
+	 *            the maximum number of pages requested at the same time. Must be greater than zero
+	 * @return all entities of the searchEntityType matching provided filter constraints
+	 * @throws MambuApiException
+	 *             in case exception occurs while fetching entities
+	 */
+	public <T> List<T> searchAllEntitiesWithBasicDetails(MambuEntityType searchEntityType,
+			JSONFilterConstraints filterConstraints, int pageSize, int maxConcurrency) throws MambuApiException {
+
+		ApiDefinition apiDefinition = SearchService.makeApiDefinitionForSearchByFilter(searchEntityType);
+		return this.<T> makeParallelSearch(apiDefinition, filterConstraints, pageSize, maxConcurrency).fetchAll();
+	}
+
+	/**
+	 * Helper to create a fetcher requesting the pages of a search with filter constraints concurrently
+	 * 
+	 * @param apiDefinition
+	 *            api definition for searching entities using filter constraints
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested in one API call
+	 * @param maxConcurrency
+	 *            the maximum number of pages requested at the same time
+	 * @return parallel page fetcher
+	 */
+	private <T> ParallelPageFetcher<T> makeParallelSearch(final ApiDefinition apiDefinition,
+			final JSONFilterConstraints filterConstraints, int pageSize, int maxConcurrency) {
+
+		if (filterConstraints == null) {
+			throw new IllegalArgumentException("Filter constraints must not be NULL");
+		}
+		return new ParallelPageFetcher<T>((offset, limit) -> serviceExecutor.executeJson(apiDefinition,
+				filterConstraints, null, null,
+				ServiceHelper.makePaginationParams(String.valueOf(offset), String.valueOf(limit))), pageSize,
+				maxConcurrency);
+	}
+
 	/**
 	 * Helper to create ApiDefintion for searching entities matching filter criteria
 	 * 
@@ -331,9 +441,7 @@ public class SearchService {
 
 
 	private ApiDefinition makeSearchEntitiesWithFullApiDefinition(MambuEntityType searchEntityType) {
-		ApiDefinition apiDefinition = SearchService.makeApiDefinitionForSearchByFilter(searchEntityType);
-		apiDefinition.setWithFullDetails(true);
-		return apiDefinition;
+		return SearchService.makeApiDefinitionForSearchByFilter(searchEntityType).withFullDetails(true);
 	}
 
 }
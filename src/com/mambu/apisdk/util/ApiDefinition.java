@@ -1,6 +1,7 @@
 package com.mambu.apisdk.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -91,6 +92,12 @@ import com.mambu.tasks.shared.model.Task;
  * 
  * ApiDefinition class provides a number of convenience constructors to be used to set the required parameters.
  * 
+ * ApiDefinition is immutable, so the services can keep their definitions in static fields and be used by any number of
+ * threads at the same time. Definitions with modified parameters are created as copies, either with the with...()
+ * methods or with a {@link Builder} obtained from {@link #toBuilder()}. The setters of the earlier versions are kept,
+ * deprecated, for the definitions made by client code: they change the definition in place, so they must not be used
+ * on a definition shared between threads.
+ * 
  * ApiDefinition class also defines a number of typical Mambu API request types (see ApiType). These include standard
  * Mambu API requests, such as Get Entity Details, Get a List of Entities, Create JSON Entity, Get Account Transactions,
  * etc..). Constructor with an ApiType parameter derives the URL format and HTTP parameters from the ApiType, the user
@@ -278,26 +285,34 @@ public class ApiDefinition {
 	private String endPoint;
 	private boolean requiresObjectId;
 	// The 'relatedEntity' part of the URL path
-	private String relatedEntity;
+	private final String relatedEntity;
 	// API return format. Specified in the ApiType but can be modified
 	private ApiReturnFormat returnFormat;
 	// Is fill details param required
 	private boolean isWithFullDetails;
+	// Does the API return document content (like a document, an image or a profile picture), which can be cached
+	private final boolean isDocumentContent;
+	// Is the API safe to retry. If null, it's derived from the method
+	private final Boolean isIdempotent;
+	// Retry policy of the API, overriding the retry policy of the factory. Can be null
+	private final RetryPolicy retryPolicy;
+	// Timeouts of the API, overriding the timeout policy of the factory. Can be null
+	private final RequestTimeouts timeouts;
 
 	// The class of the object returned by Mambu
-	private Class<?> returnClass;
+	private final Class<?> returnClass;
 	// Date time format for the output JSON strings. Mambu supports ISO-8601 "yyyy-MM-dd'T'HH:mm:ssZ". This is the
 	// default. ApiDefinition allows optionally setting this format for a specific API definition. For example, to use a
 	// shorter date only format, like "yyyy-MM-dd"
-	private String jsonDateTimeFormat = GsonUtils.defaultDateTimeFormat;
+	private String jsonDateTimeFormat;
 
 	// support specifying optional exclusion strategies
-	List<ExclusionStrategy> serializationExclusionStrategies = null;
+	private List<ExclusionStrategy> serializationExclusionStrategies;
 
 	// support optional API request JsonSerializers
-	private HashMap<Class<?>, JsonSerializer<?>> jsonSerializers = null;
+	private Map<Class<?>, JsonSerializer<?>> jsonSerializers;
 	// support optional API response JsonDeserializers
-	private HashMap<Class<?>, JsonDeserializer<?>> jsonDeserializers = null;
+	private Map<Class<?>, JsonDeserializer<?>> jsonDeserializers;
 
 	/**
 	 * Constructor used with ApiType requests for which only one entity class needs to be specified, Example GET
@@ -307,8 +322,8 @@ public class ApiDefinition {
 	 *            determines API's endpoint (e.g. LoanAccount for loans/)
 	 */
 	public ApiDefinition(ApiType apiType, Class<?> entityClass) {
-		this.relatedEntity = null; // no related entity
-		initDefintion(apiType, entityClass, null);
+		// no related entity
+		this(initDefintion(apiType, null, entityClass, null, null));
 	}
 
 	/**
@@ -322,8 +337,8 @@ public class ApiDefinition {
 	 */
 
 	public ApiDefinition(ApiType apiType, Class<?> entityClass, Class<?> resultClass) {
-		this.relatedEntity = null; // the related entity name to be determined by the specified resultClass
-		initDefintion(apiType, entityClass, resultClass);
+		// the related entity name to be determined by the specified resultClass
+		this(initDefintion(apiType, null, entityClass, null, resultClass));
 	}
 
 	/**
@@ -344,9 +359,8 @@ public class ApiDefinition {
 	 */
 
 	public ApiDefinition(ApiType apiType, String apiEndPoint, Class<?> resultClass) {
-		this.relatedEntity = null; // the related entity name to be determined by the specified resultClass
-		this.endPoint = apiEndPoint; // api endpoint string
-		initDefintion(apiType, null, resultClass);
+		// the related entity name to be determined by the specified resultClass
+		this(initDefintion(apiType, apiEndPoint, null, null, resultClass));
 	}
 
 	/**
@@ -366,18 +380,9 @@ public class ApiDefinition {
 	public ApiDefinition(String urlPath, ContentType contentType, Method method, Class<?> retrunClass,
 			ApiReturnFormat returnFormt) {
 
-		this.urlPath = urlPath;
-		this.method = method;
-		this.returnClass = retrunClass;
-		this.contentType = contentType;
-		this.returnFormat = returnFormt;
-		this.requiresObjectId = false;
-		// Not specified
-		this.apiType = null;
-		this.isWithFullDetails = false;
-		this.relatedEntity = null;
-		this.endPoint = null;
-
+		// ApiType is not specified
+		this(new Builder().setUrlPath(urlPath).setContentType(contentType).setMethod(method)
+				.setReturnClass(retrunClass).setApiReturnFormat(returnFormt));
 	}
 
 	/**
@@ -395,8 +400,36 @@ public class ApiDefinition {
 	 */
 
 	public ApiDefinition(ApiType apiType, Class<?> entityClass, Class<?> relatedEntity, Class<?> resultClass) {
-		this.relatedEntity = getApiEndPoint(relatedEntity);
-		initDefintion(apiType, entityClass, resultClass);
+		this(initDefintion(apiType, null, entityClass, getApiEndPoint(relatedEntity), resultClass));
+	}
+
+	/**
+	 * Creates an ApiDefinition with the parameters specified in the builder
+	 * 
+	 * @param builder
+	 *            builder holding the API definition parameters
+	 */
+	private ApiDefinition(Builder builder) {
+
+		this.apiType = builder.apiType;
+		this.method = builder.method;
+		this.contentType = builder.contentType;
+		this.urlPath = builder.urlPath;
+		this.endPoint = builder.endPoint;
+		this.requiresObjectId = builder.requiresObjectId;
+		this.relatedEntity = builder.relatedEntity;
+		this.returnFormat = builder.returnFormat;
+		this.isWithFullDetails = builder.isWithFullDetails;
+		this.isDocumentContent = builder.isDocumentContent;
+		this.isIdempotent = builder.isIdempotent;
+		this.retryPolicy = builder.retryPolicy;
+		this.timeouts = builder.timeouts;
+		this.returnClass = builder.returnClass;
+		this.jsonDateTimeFormat = builder.jsonDateTimeFormat;
+		this.serializationExclusionStrategies = Collections
+				.unmodifiableList(new ArrayList<>(builder.serializationExclusionStrategies));
+		this.jsonSerializers = Collections.unmodifiableMap(new HashMap<>(builder.jsonSerializers));
+		this.jsonDeserializers = Collections.unmodifiableMap(new HashMap<>(builder.jsonDeserializers));
 	}
 
 	/**
@@ -404,34 +437,40 @@ public class ApiDefinition {
 	 * 
 	 * @param apiType
 	 *            API type
+	 * @param endPoint
+	 *            API's end point. If null, it is derived from the entity class
 	 * @param entityClass
 	 *            entity class which identifies the api's end point
+	 * @param relatedEntity
+	 *            the 'relatedEntity' part of the URL path. If null, it is derived from the result class when needed
 	 * @param resultClass
 	 *            the class for the objects returned by the api. Needed for ApiType.GetOwnedEntities and is optional for
 	 *            CREATE and UPDATE ApiTypes. For all other API types entity class determines also the result class
-	 * 
+	 * @return builder with the API definition parameters
 	 */
 
-	private void initDefintion(ApiType apiType, Class<?> entityClass, Class<?> resultClass) {
+	private static Builder initDefintion(ApiType apiType, String endPoint, Class<?> entityClass,
+			String relatedEntity, Class<?> resultClass) {
 
 		if (apiType == null) {
 			throw new IllegalArgumentException("apiType must not be null");
 		}
 
-		this.apiType = apiType;
-		this.contentType = apiType.getContentType();
-		this.method = apiType.getMethod();
-		this.requiresObjectId = apiType.isObjectIdNeeded();
-		this.isWithFullDetails = apiType.isWithFullDetails();
+		Builder definition = new Builder();
+		definition.apiType = apiType;
+		definition.contentType = apiType.getContentType();
+		definition.method = apiType.getMethod();
+		definition.requiresObjectId = apiType.isObjectIdNeeded();
+		definition.isWithFullDetails = apiType.isWithFullDetails();
+		definition.relatedEntity = relatedEntity;
 
 		// Get defaults from the ApiType
-		returnFormat = apiType.getApiReturnFormat();
+		ApiReturnFormat returnFormat = apiType.getApiReturnFormat();
+		Class<?> returnClass = null;
 
 		// Get the end point. It can be specified directly or derived from an entityClass
-		this.urlPath = null;
-		if (endPoint == null) {
-			this.endPoint = getApiEndPoint(entityClass);
-		}
+		definition.urlPath = null;
+		definition.endPoint = (endPoint == null) ? getApiEndPoint(entityClass) : endPoint;
 
 		switch (apiType) {
 		case GET_LIST_WITH_DETAILS:
@@ -471,8 +510,8 @@ public class ApiDefinition {
 				throw new IllegalArgumentException("resultClass must be not null for " + apiType.name());
 			}
 			// Get relatedEntity based on the specified resultClass, unless relatedEntity was specified explicitly
-			if (relatedEntity == null) {
-				relatedEntity = getApiEndPoint(resultClass);
+			if (definition.relatedEntity == null) {
+				definition.relatedEntity = getApiEndPoint(resultClass);
 			}
 			// These API types return object (or collection) of the resultClass (for OBJECT and COLLECTION return
 			// formats)
@@ -507,12 +546,15 @@ public class ApiDefinition {
 				throw new IllegalArgumentException("resultClass must be not null for " + apiType.name());
 			}
 			// Get relatedEntity based on the specified resultClass, unless relatedEntity was specified explicitly
-			if (relatedEntity == null) {
-				relatedEntity = getApiEndPoint(resultClass);
+			if (definition.relatedEntity == null) {
+				definition.relatedEntity = getApiEndPoint(resultClass);
 			}
 			returnClass = entityClass;
 			break;
 		}
+		definition.returnFormat = returnFormat;
+		definition.returnClass = returnClass;
+		return definition;
 	}
 
 	// apiEndPointsMap maps Mambu classes to the corresponding Mambu API URL path endpoints.
@@ -665,62 +707,175 @@ public class ApiDefinition {
 		return isWithFullDetails;
 	}
 
+	/**
+	 * Does the API return document content, like a base64 encoded document, image or profile picture. Such responses
+	 * are cached by the {@link DocumentCache} when one is set
+	 * 
+	 * @return true for document content APIs
+	 */
+	public boolean isDocumentContent() {
+
+		return isDocumentContent;
+	}
+
+	/**
+	 * Is the API safe to retry, i.e. does executing it more than once have the same effect as executing it once. GET and
+	 * DELETE APIs are idempotent unless declared otherwise, POST and PATCH APIs are not unless declared so with
+	 * {@link Builder#setIdempotent(boolean)}
+	 * 
+	 * @return true if the API can be retried by a {@link RetryPolicy}
+	 */
+	public boolean isIdempotent() {
+
+		if (isIdempotent != null) {
+			return isIdempotent;
+		}
+		return method == Method.GET || method == Method.DELETE;
+	}
+
+	/**
+	 * Get the retry policy of this API, overriding the retry policy of the factory
+	 * 
+	 * @return the retry policy or null to use the retry policy of the factory
+	 */
+	public RetryPolicy getRetryPolicy() {
+
+		return retryPolicy;
+	}
+
+	/**
+	 * Get the timeouts of this API, overriding the timeout policy of the factory
+	 * 
+	 * @return the timeouts or null to use the timeout policy of the factory
+	 */
+	public RequestTimeouts getTimeouts() {
+
+		return timeouts;
+	}
+
 	public Class<?> getReturnClass() {
 
 		return returnClass;
 	}
 
-	// Setters for params which can be modified
+	public String getJsonDateTimeFormat() {
+
+		return jsonDateTimeFormat;
+	}
+
+	public String getUrlPath() {
+
+		return urlPath;
+	}
+
+	/**
+	 * Get serialization ExclusionStrategy specified in the API definition
+	 * 
+	 * @return unmodifiable list of exclusion strategies. Empty if none were specified
+	 */
+	public List<ExclusionStrategy> getSerializationExclusionStrategies() {
+
+		return serializationExclusionStrategies;
+	}
+
+	/**
+	 * Get JsonSerializers specified in the API definition
+	 * 
+	 * @return copy of the map of classes to JsonSerializer for these classes. Empty if none were specified
+	 */
+	public HashMap<Class<?>, JsonSerializer<?>> getJsonSerializers() {
+
+		return new HashMap<>(jsonSerializers);
+	}
+
+	/**
+	 * Get JsonDeserializers specified in the API definition
+	 * 
+	 * @return copy of the map of classes to JsonDeserializers for these classes. Empty if none were specified
+	 */
+	public HashMap<Class<?>, JsonDeserializer<?>> getJsonDeserializers() {
+
+		return new HashMap<>(jsonDeserializers);
+	}
+
+	// Deprecated setters, changing this definition in place ////////////////
+
+	/**
+	 * @deprecated use {@link Builder#setApiType(ApiType)}
+	 */
+	@Deprecated
 	public void setApiType(ApiType apiType) {
 
 		this.apiType = apiType;
 	}
 
+	/**
+	 * @deprecated use {@link Builder#setEndPoint(String)}
+	 */
+	@Deprecated
 	public void setEndPoint(String endPoint) {
 
 		this.endPoint = endPoint;
 	}
 
+	/**
+	 * @deprecated use {@link #withApiReturnFormat(ApiReturnFormat)}
+	 */
+	@Deprecated
 	public void setApiReturnFormat(ApiReturnFormat returnFormat) {
 
 		this.returnFormat = returnFormat;
 	}
-	
+
+	/**
+	 * @deprecated use {@link #withFullDetails(boolean)}
+	 */
+	@Deprecated
 	public void setWithFullDetails(boolean isWithFullDetails) {
-	
+
 		this.isWithFullDetails = isWithFullDetails;
 	}
 
+	/**
+	 * @deprecated use {@link #withContentType(ContentType)}
+	 */
+	@Deprecated
 	public void setContentType(ContentType contentType) {
 
 		this.contentType = contentType;
 	}
 
+	/**
+	 * @deprecated use {@link Builder#setMethod(Method)}
+	 */
+	@Deprecated
 	public void setMethod(Method method) {
 
 		this.method = method;
 	}
 
+	/**
+	 * @deprecated use {@link Builder#setJsonDateTimeFormat(String)}
+	 */
+	@Deprecated
 	public void setJsonDateTimeFormat(String dateTimeFormat) {
 
 		this.jsonDateTimeFormat = dateTimeFormat;
 	}
 
-	public String getJsonDateTimeFormat() {
-
-		return jsonDateTimeFormat;
-	}
-
+	/**
+	 * @deprecated use {@link Builder#setRequiresObjectId(boolean)}
+	 */
+	@Deprecated
 	public void setRequiresObjectId(boolean requires) {
 
 		this.requiresObjectId = requires;
 	}
 
-	public String getUrlPath() {
-
-		return urlPath;
-	}
-
+	/**
+	 * @deprecated use {@link #withUrlPath(String)}
+	 */
+	@Deprecated
 	public void setUrlPath(String urlPath) {
 
 		this.urlPath = urlPath;
@@ -731,75 +886,311 @@ public class ApiDefinition {
 	 * 
 	 * @param exclusionStrategy
 	 *            exclusion strategy
+	 * @deprecated use {@link Builder#addSerializationExclusionStrategy(ExclusionStrategy)}
 	 */
+	@Deprecated
 	public void addSerializationExclusionStrategy(ExclusionStrategy exclusionStrategy) {
 
-		if (serializationExclusionStrategies == null) {
-			serializationExclusionStrategies = new ArrayList<>();
-		}
-		serializationExclusionStrategies.add(exclusionStrategy);
+		List<ExclusionStrategy> strategies = new ArrayList<>(serializationExclusionStrategies);
+		strategies.add(exclusionStrategy);
+		serializationExclusionStrategies = Collections.unmodifiableList(strategies);
 	}
 
 	/**
-	 * Get serialization ExclusionStrategy specified in the API definition
+	 * Add JsonSerializer for a specific class to the API definition
 	 * 
-	 * @return exclusion strategy
+	 * @param clazz
+	 *            class
+	 * @param serializer
+	 *            JsonSerializer
+	 * @deprecated use {@link Builder#addJsonSerializer(Class, JsonSerializer)}
 	 */
-	public List<ExclusionStrategy> getSerializationExclusionStrategies() {
+	@Deprecated
+	public void addJsonSerializer(Class<?> clazz, JsonSerializer<?> serializer) {
 
-		return serializationExclusionStrategies;
+		Map<Class<?>, JsonSerializer<?>> serializers = new HashMap<>(jsonSerializers);
+		serializers.put(clazz, serializer);
+		jsonSerializers = Collections.unmodifiableMap(serializers);
 	}
 
 	/**
-	 * Add JsonSerializer for a specific class to the API definition
+	 * Add JsonDeserializer for a specific class to the API definition
 	 * 
 	 * @param clazz
 	 *            class
-	 * @param serializer
-	 *            JsonSerializer
+	 * @param deserializer
+	 *            Json Deserializer
+	 * @deprecated use {@link Builder#addJsonDeserializer(Class, JsonDeserializer)}
 	 */
-	public void addJsonSerializer(Class<?> clazz, JsonSerializer<?> serializer) {
+	@Deprecated
+	public void addJsonDeserializer(Class<?> clazz, JsonDeserializer<?> deserializer) {
 
-		if (jsonSerializers == null) {
-			jsonSerializers = new HashMap<>();
-		}
-		jsonSerializers.put(clazz, serializer);
+		Map<Class<?>, JsonDeserializer<?>> deserializers = new HashMap<>(jsonDeserializers);
+		deserializers.put(clazz, deserializer);
+		jsonDeserializers = Collections.unmodifiableMap(deserializers);
 	}
 
+	// Copy-on-write methods for the params which are commonly modified ////////////////
+
 	/**
-	 * Get JsonSerializers specified in the API definition
+	 * Creates a copy of this API definition with a different return format
 	 * 
-	 * @return map of classes to JsonSerializer for these classes
+	 * @param returnFormat
+	 *            API return format
+	 * @return new API definition
 	 */
-	public HashMap<Class<?>, JsonSerializer<?>> getJsonSerializers() {
+	public ApiDefinition withApiReturnFormat(ApiReturnFormat returnFormat) {
 
-		return jsonSerializers;
+		return toBuilder().setApiReturnFormat(returnFormat).build();
 	}
 
 	/**
-	 * Add JsonDeserializer for a specific class to the API definition
+	 * Creates a copy of this API definition with a different content type
 	 * 
-	 * @param clazz
-	 *            class
-	 * @param deserializer
-	 *            Json Deserializer
+	 * @param contentType
+	 *            content type
+	 * @return new API definition
 	 */
-	public void addJsonDeserializer(Class<?> clazz, JsonDeserializer<?> deserializer) {
+	public ApiDefinition withContentType(ContentType contentType) {
 
-		if (jsonDeserializers == null) {
-			jsonDeserializers = new HashMap<>();
-		}
-		jsonDeserializers.put(clazz, deserializer);
+		return toBuilder().setContentType(contentType).build();
 	}
 
 	/**
-	 * Get JsonDeserializers specified in the API definition
+	 * Creates a copy of this API definition with the full details parameter required or not
 	 * 
-	 * @return map of classes to JsonDeserializers for these classes
+	 * @param isWithFullDetails
+	 *            true if the full details parameter is required
+	 * @return new API definition
 	 */
-	public HashMap<Class<?>, JsonDeserializer<?>> getJsonDeserializers() {
+	public ApiDefinition withFullDetails(boolean isWithFullDetails) {
+
+		return toBuilder().setWithFullDetails(isWithFullDetails).build();
+	}
+
+	/**
+	 * Creates a copy of this API definition with the URL path specified directly
+	 * 
+	 * @param urlPath
+	 *            full URL path (without the https prefix)
+	 * @return new API definition
+	 */
+	public ApiDefinition withUrlPath(String urlPath) {
+
+		return toBuilder().setUrlPath(urlPath).build();
+	}
+
+	/**
+	 * Creates a builder initialised with all parameters of this API definition. Used to create modified copies of the
+	 * API definition, which itself can't be modified
+	 * 
+	 * @return new builder
+	 */
+	public Builder toBuilder() {
+
+		Builder builder = new Builder();
+		builder.apiType = apiType;
+		builder.method = method;
+		builder.contentType = contentType;
+		builder.urlPath = urlPath;
+		builder.endPoint = endPoint;
+		builder.requiresObjectId = requiresObjectId;
+		builder.relatedEntity = relatedEntity;
+		builder.returnFormat = returnFormat;
+		builder.isWithFullDetails = isWithFullDetails;
+		builder.isDocumentContent = isDocumentContent;
+		builder.isIdempotent = isIdempotent;
+		builder.retryPolicy = retryPolicy;
+		builder.timeouts = timeouts;
+		builder.returnClass = returnClass;
+		builder.jsonDateTimeFormat = jsonDateTimeFormat;
+		builder.serializationExclusionStrategies.addAll(serializationExclusionStrategies);
+		builder.jsonSerializers.putAll(jsonSerializers);
+		builder.jsonDeserializers.putAll(jsonDeserializers);
+		return builder;
+	}
+
+	/**
+	 * Builder for API definitions. ApiDefinition instances are immutable, so they can be safely shared by the services
+	 * between threads. Use the builder, usually obtained with {@link ApiDefinition#toBuilder()}, to make an API
+	 * definition with modified parameters
+	 * 
+	 * Example: ApiDefinition patchAccount = new ApiDefinition(ApiType.PATCH_ENTITY, LoanAccount.class).toBuilder()
+	 * .addJsonSerializer(LoanAccount.class, new LoanAccountPatchJsonSerializer()).build();
+	 */
+	public static final class Builder {
+
+		private ApiType apiType;
+		private Method method;
+		private ContentType contentType;
+		private String urlPath;
+		private String endPoint;
+		private boolean requiresObjectId;
+		private String relatedEntity;
+		private ApiReturnFormat returnFormat;
+		private boolean isWithFullDetails;
+		private boolean isDocumentContent;
+		private Boolean isIdempotent;
+		private RetryPolicy retryPolicy;
+		private RequestTimeouts timeouts;
+		private Class<?> returnClass;
+		private String jsonDateTimeFormat = GsonUtils.defaultDateTimeFormat;
+		private final List<ExclusionStrategy> serializationExclusionStrategies = new ArrayList<>();
+		private final Map<Class<?>, JsonSerializer<?>> jsonSerializers = new HashMap<>();
+		private final Map<Class<?>, JsonDeserializer<?>> jsonDeserializers = new HashMap<>();
+
+		public Builder setApiType(ApiType apiType) {
+
+			this.apiType = apiType;
+			return this;
+		}
+
+		public Builder setEndPoint(String endPoint) {
+
+			this.endPoint = endPoint;
+			return this;
+		}
+
+		public Builder setApiReturnFormat(ApiReturnFormat returnFormat) {
+
+			this.returnFormat = returnFormat;
+			return this;
+		}
+
+		public Builder setWithFullDetails(boolean isWithFullDetails) {
+
+			this.isWithFullDetails = isWithFullDetails;
+			return this;
+		}
+
+		public Builder setDocumentContent(boolean isDocumentContent) {
+
+			this.isDocumentContent = isDocumentContent;
+			return this;
+		}
+
+		/**
+		 * Declare whether the API is safe to retry. By default only GET and DELETE APIs are
+		 * 
+		 * @param isIdempotent
+		 *            true if executing the API more than once has the same effect as executing it once
+		 */
+		public Builder setIdempotent(boolean isIdempotent) {
+
+			this.isIdempotent = isIdempotent;
+			return this;
+		}
+
+		/**
+		 * Set the retry policy of the API, overriding the retry policy of the factory
+		 * 
+		 * @param retryPolicy
+		 *            the retry policy, e.g. {@link RetryPolicy#noRetries()}. Null to use the retry policy of the
+		 *            factory
+		 */
+		public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+
+			this.retryPolicy = retryPolicy;
+			return this;
+		}
+
+		/**
+		 * Set the timeouts of the API, overriding the timeout policy of the factory
+		 * 
+		 * @param timeouts
+		 *            the timeouts. Null to use the timeout policy of the factory
+		 */
+		public Builder setTimeouts(RequestTimeouts timeouts) {
+
+			this.timeouts = timeouts;
+			return this;
+		}
+
+		public Builder setContentType(ContentType contentType) {
+
+			this.contentType = contentType;
+			return this;
+		}
+
+		public Builder setMethod(Method method) {
+
+			this.method = method;
+			return this;
+		}
+
+		public Builder setJsonDateTimeFormat(String dateTimeFormat) {
+
+			this.jsonDateTimeFormat = dateTimeFormat;
+			return this;
+		}
+
+		public Builder setRequiresObjectId(boolean requires) {
+
+			this.requiresObjectId = requires;
+			return this;
+		}
 
-		return jsonDeserializers;
+		public Builder setUrlPath(String urlPath) {
+
+			this.urlPath = urlPath;
+			return this;
+		}
+
+		public Builder setReturnClass(Class<?> returnClass) {
+
+			this.returnClass = returnClass;
+			return this;
+		}
+
+		/**
+		 * Add serialization ExclusionStrategy to the API definition
+		 * 
+		 * @param exclusionStrategy
+		 *            exclusion strategy
+		 */
+		public Builder addSerializationExclusionStrategy(ExclusionStrategy exclusionStrategy) {
+
+			serializationExclusionStrategies.add(exclusionStrategy);
+			return this;
+		}
+
+		/**
+		 * Add JsonSerializer for a specific class to the API definition
+		 * 
+		 * @param clazz
+		 *            class
+		 * @param serializer
+		 *            JsonSerializer
+		 */
+		public Builder addJsonSerializer(Class<?> clazz, JsonSerializer<?> serializer) {
+
+			jsonSerializers.put(clazz, serializer);
+			return this;
+		}
+
+		/**
+		 * Add JsonDeserializer for a specific class to the API definition
+		 * 
+		 * @param clazz
+		 *            class
+		 * @param deserializer
+		 *            Json Deserializer
+		 */
+		public Builder addJsonDeserializer(Class<?> clazz, JsonDeserializer<?> deserializer) {
+
+			jsonDeserializers.put(clazz, deserializer);
+			return this;
+		}
+
+		/**
+		 * Build the immutable API definition
+		 * 
+		 * @return new API definition
+		 */
+		public ApiDefinition build() {
+
+			return new ApiDefinition(this);
+		}
 	}
 
 }
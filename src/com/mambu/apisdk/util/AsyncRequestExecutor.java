@@ -0,0 +1,54 @@
+package com.mambu.apisdk.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Interface for executing url requests without blocking the calling thread. The requests are sent with a non-blocking
+ * http client and the results are returned as {@link CompletableFuture}s, so many API calls can be in flight at the
+ * same time without using a thread for each of them.
+ * 
+ * A failed API call completes the future exceptionally with a {@link MambuApiException}, holding the same error code
+ * and message as the one thrown by the corresponding {@link RequestExecutor} method.
+ * 
+ */
+public interface AsyncRequestExecutor {
+
+	/**
+	 * Executes asynchronously a request with given url, params, request method and content type
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/clients
+	 * @param params
+	 *            the parameters eg: {clientId=id}. Can be null
+	 * @param method
+	 *            the method (e.g. GET or POST)
+	 * @param contentTypeFormat
+	 *            the content type (e.g. WWW_FORM or JSON)
+	 * 
+	 * @return future completed with the Mambu Response String
+	 */
+	CompletableFuture<String> executeRequest(String urlString, ParamsMap params, Method method,
+			ContentType contentTypeFormat);
+
+	/**
+	 * Executes asynchronously a request in order to download content (like zip archives). The response content is
+	 * returned as a ByteArrayOutputStream
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/database/backup/LATEST
+	 * @param params
+	 *            the parameters. Can be null
+	 * @param apiDefinition
+	 *            the ApiDefinition holding details like HTTP method, content type and API return type
+	 * 
+	 * @return future completed with the response content
+	 */
+	CompletableFuture<ByteArrayOutputStream> executeRequest(String urlString, ParamsMap params,
+			ApiDefinition apiDefinition);
+
+}
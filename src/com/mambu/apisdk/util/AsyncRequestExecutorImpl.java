@@ -0,0 +1,249 @@
+package com.mambu.apisdk.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Implementation of executing url requests asynchronously with a non-blocking http client.
+ * 
+ * The requests are built, logged and processed exactly as by the {@link RequestExecutorImpl}, which also holds the
+ * authorization used for the requests. Only the sending of the request and the waits, for a slot in the workload lane,
+ * for a permit of the rate limiter and for the response, are done without blocking the caller. The response is
+ * processed on the I/O dispatch thread of the http client, callers should use the async variants of the
+ * CompletableFuture methods for any further expensive processing.
+ * 
+ */
+@Singleton
+public class AsyncRequestExecutorImpl implements AsyncRequestExecutor {
+
+	private static final Logger LOGGER = Logger.getLogger(AsyncRequestExecutorImpl.class.getName());
+
+	private HttpClientProvider httpClientProvider;
+	private RequestExecutorImpl requestExecutor;
+
+	@Inject
+	public AsyncRequestExecutorImpl(HttpClientProvider httpClientProvider, RequestExecutorImpl requestExecutor) {
+
+		this.httpClientProvider = httpClientProvider;
+		this.requestExecutor = requestExecutor;
+	}
+
+	@Override
+	public CompletableFuture<String> executeRequest(String urlString, ParamsMap params, final Method method,
+			final ContentType contentTypeFormat) {
+
+		// Prepare a copy of the caller's params, which may be sent again, e.g. by a retry or a hedge
+		params = RequestExecutorImpl.copyParams(params);
+
+		// Pagination parameters for POST with JSON are to be provided with the URL. See MBU-8975
+		final String url = requestExecutor.prepareUrl(urlString, method, contentTypeFormat, params);
+
+		// Log API Request details
+		requestExecutor.logRequest(url, params, method, contentTypeFormat);
+
+		// Add 'Application Key', if it was set by the application
+		final ParamsMap paramsWithAppKey = requestExecutor.addAppKeyToParams(params);
+
+		return execute(url, paramsWithAppKey, method, contentTypeFormat, new HttpResponseProcessor<String>() {
+
+			@Override
+			public String process(HttpResponse httpResponse) throws MambuApiException, IOException {
+
+				return RequestExecutorImpl.processResponse(httpResponse, method, contentTypeFormat, url,
+						paramsWithAppKey);
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<ByteArrayOutputStream> executeRequest(final String urlString, ParamsMap params,
+			ApiDefinition apiDefinition) {
+
+		// Prepare a copy of the caller's params, which may be sent again, e.g. by a retry or a hedge
+		params = RequestExecutorImpl.copyParams(params);
+
+		final Method method = apiDefinition.getMethod();
+		final ContentType contentTypeFormat = apiDefinition.getContentType();
+
+		// Log API Request details
+		requestExecutor.logRequest(urlString, params, method, contentTypeFormat);
+
+		// Add 'Application Key', if it was set by the application
+		final ParamsMap paramsWithAppKey = requestExecutor.addAppKeyToParams(params);
+
+		return execute(urlString, paramsWithAppKey, method, contentTypeFormat,
+				new HttpResponseProcessor<ByteArrayOutputStream>() {
+
+					@Override
+					public ByteArrayOutputStream process(HttpResponse httpResponse)
+							throws MambuApiException, IOException {
+
+						return RequestExecutorImpl.processInputStreamResponse(httpResponse, method,
+								contentTypeFormat, urlString, paramsWithAppKey);
+					}
+				});
+	}
+
+	/**
+	 * Sends the HTTP request with the non-blocking http client and returns a future completed with the processed
+	 * response. Failures are mapped to MambuApiException as in the blocking executor. The future fails with the
+	 * {@link RequestTimeouts#TIMED_OUT} error code and the request is cancelled when its total timeout or the caller's
+	 * deadline expires, also while it waits for a slot in its workload lane or for a permit of the rate limiter
+	 * 
+	 * @param urlString
+	 *            URL string for the HTTP request
+	 * @param params
+	 *            parameters map, with the application key already added
+	 * @param method
+	 *            HTTP method
+	 * @param contentTypeFormat
+	 *            content type
+	 * @param responseProcessor
+	 *            converts the HTTP response into the result of the future
+	 * @return future completed with the processed response
+	 */
+	private <T> CompletableFuture<T> execute(String urlString, ParamsMap params, final Method method,
+			ContentType contentTypeFormat, final HttpResponseProcessor<T> responseProcessor) {
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		final HttpUriRequest httpRequest;
+		final RequestTimeouts.Watchdog watchdog;
+		try {
+			httpRequest = requestExecutor.createHttpRequest(urlString, params, method, contentTypeFormat);
+			requestExecutor.applyTimeouts(httpRequest);
+			watchdog = RequestTimeouts.watch(future::completeExceptionally);
+		} catch (MambuApiException e) {
+			future.completeExceptionally(e);
+			return future;
+		} catch (IOException e) {
+			LOGGER.warning("IOException: message= " + e.getMessage());
+			future.completeExceptionally(new MambuApiException(e));
+			return future;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		future.whenComplete((result, exception) -> watchdog.cancel());
+
+		// Take a slot in the workload lane, if a bulkhead is set, and then a permit of the tenant's rate limit, if one
+		// is set, without blocking the caller. The slot is released once the future completed
+		final Bulkhead bulkhead = requestExecutor.getBulkhead();
+		final RateLimiter rateLimiter = requestExecutor.getRateLimiter();
+		final CompletableFuture<Bulkhead.Lane> laneSlot;
+		try {
+			laneSlot = bulkhead == null ? CompletableFuture.completedFuture(null) : bulkhead.acquireAsync();
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		// A request timing out or cancelled while queued leaves the queue of its lane
+		future.whenComplete((result, exception) -> laneSlot.cancel(false));
+
+		laneSlot.thenCompose(lane -> {
+			if (lane != null) {
+				future.whenComplete((result, exception) -> lane.release());
+			}
+			return rateLimiter == null ? CompletableFuture.<Void> completedFuture(null) : rateLimiter
+					.acquireAsync(method);
+		}).whenComplete((permit, exception) -> {
+			if (exception != null) {
+				future.completeExceptionally(exception instanceof CompletionException ? exception.getCause()
+						: exception);
+			} else if (!future.isDone()) {
+				send(httpRequest, method, watchdog, responseProcessor, future);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Sends the HTTP request and completes the future with the processed response. Cancelling the future aborts the
+	 * request
+	 * 
+	 * @param httpRequest
+	 *            the HTTP request
+	 * @param method
+	 *            HTTP method
+	 * @param watchdog
+	 *            the watchdog of the request timeouts
+	 * @param responseProcessor
+	 *            converts the HTTP response into the result of the future
+	 * @param future
+	 *            the future of the request
+	 */
+	private <T> void send(HttpUriRequest httpRequest, final Method method, final RequestTimeouts.Watchdog watchdog,
+			final HttpResponseProcessor<T> responseProcessor, final CompletableFuture<T> future) {
+
+		final RateLimiter rateLimiter = requestExecutor.getRateLimiter();
+		final ResponseCompression responseCompression = httpClientProvider.getResponseCompression();
+
+		final Future<HttpResponse> httpFuture;
+		try {
+			httpFuture = httpClientProvider.getAsyncHttpClient().execute(httpRequest,
+					new FutureCallback<HttpResponse>() {
+
+						@Override
+						public void completed(HttpResponse httpResponse) {
+
+							try {
+								if (rateLimiter != null) {
+									rateLimiter.onResponse(method, httpResponse);
+								}
+								if (responseCompression != null) {
+									responseCompression.decode(httpResponse);
+								}
+								future.complete(responseProcessor.process(httpResponse));
+							} catch (MambuApiException e) {
+								future.completeExceptionally(e);
+							} catch (IOException e) {
+								LOGGER.warning("IOException: message= " + e.getMessage());
+								future.completeExceptionally(watchdog.toMambuApiException(e));
+							} catch (RuntimeException e) {
+								future.completeExceptionally(e);
+							} finally {
+								RequestExecutorImpl.releaseConnection(httpResponse);
+							}
+						}
+
+						@Override
+						public void failed(Exception e) {
+
+							LOGGER.warning("Exception: message= " + e.getMessage());
+							future.completeExceptionally(watchdog.toMambuApiException(e));
+						}
+
+						@Override
+						public void cancelled() {
+
+							future.cancel(false);
+						}
+					});
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			return;
+		}
+
+		// Cancelling the future aborts the request, e.g. the request losing to its hedge or timing out
+		future.whenComplete((result, exception) -> {
+			if (future.isCancelled() || watchdog.isExpired()) {
+				httpFuture.cancel(true);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the API requests made in the background, like the pages prefetched by a {@link PagedIterable} or the
+ * responses refreshed ahead by an {@link InMemoryResponseCache}. These requests block their thread while waiting for
+ * Mambu, so they don't run in the common fork join pool, which is shared with the parallel streams and the
+ * CompletableFutures of the application.
+ *
+ * Each factory has its own background executor, see {@link HttpClientProvider#getBackgroundExecutor()}. The shared
+ * executor is used by the iterables and caches created without an executor.
+ *
+ * The scheduler times the waits of the asynchronous requests, like the wait for a permit of the {@link RateLimiter},
+ * so that they don't hold a thread while waiting. Its tasks must not block
+ */
+final class BackgroundExecutors {
+
+	// Threads of the shared executor, enough for a few concurrent iterations and refreshes
+	static final int SHARED_THREADS = 4;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static ExecutorService shared;
+	private static ScheduledThreadPoolExecutor scheduler;
+
+	private BackgroundExecutors() {
+
+	}
+
+	/**
+	 * Creates an executor with at most maxThreads daemon threads, queueing the tasks submitted while all of them are
+	 * busy. Idle threads are stopped after a minute
+	 *
+	 * @param name
+	 *            prefix of the thread names
+	 * @param maxThreads
+	 *            the maximum number of threads. Must be greater than zero
+	 * @return new executor
+	 */
+	static ExecutorService newExecutor(final String name, int maxThreads) {
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Get the executor shared by the iterables and caches created without an executor. Its threads are daemon threads,
+	 * so it doesn't need to be shut down
+	 *
+	 * @return the shared executor
+	 */
+	static synchronized ExecutorService getShared() {
+
+		if (shared == null) {
+			shared = newExecutor("mambu-background", SHARED_THREADS);
+		}
+		return shared;
+	}
+
+	/**
+	 * Get the scheduler of the waits of the asynchronous requests. It has a single daemon thread
+	 *
+	 * @return the scheduler
+	 */
+	static synchronized ScheduledExecutorService getScheduler() {
+
+		if (scheduler == null) {
+			scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "mambu-scheduler");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.setRemoveOnCancelPolicy(true);
+		}
+		return scheduler;
+	}
+}
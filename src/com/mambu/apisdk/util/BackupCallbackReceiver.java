@@ -0,0 +1,285 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+import com.google.gson.JsonParseException;
+import com.mambu.apisdk.model.DatabaseBackupResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP receiver for the webhook Mambu calls when a DB backup was created, used instead of polling for the
+ * latest backup. Each registration gets its own callback URL, with a random token in its path, and a future completed
+ * when Mambu calls it. Only POST requests to a registered callback URL are accepted, each of them once.
+ *
+ * The receiver listens on the given local address. When Mambu reaches it through a proxy or a NAT, the public base URL
+ * of the receiver must be set with {@link #setPublicBaseUrl(String)}.
+ *
+ * The futures are completed on the receiver's callback threads, so that dependent stages (like downloading the backup)
+ * don't block the HTTP server. Closing the receiver stops the server and fails the pending futures
+ */
+public class BackupCallbackReceiver implements AutoCloseable {
+
+	public static final String CALLBACK_PATH = "/mambu/backup/";
+	public static final long DEFAULT_TIMEOUT_MINUTES = 120;
+	// callbacks are small JSON messages, larger bodies are not read
+	private static final int MAX_CALLBACK_BODY_SIZE = 64 * 1024;
+
+	private final static Logger LOGGER = Logger.getLogger(BackupCallbackReceiver.class.getName());
+
+	private final HttpServer server;
+	private final ExecutorService callbackExecutor;
+	private final ScheduledThreadPoolExecutor timeoutScheduler;
+	private final Map<String, CompletableFuture<DatabaseBackupResponse>> pendingCallbacks = new ConcurrentHashMap<>();
+	private volatile String publicBaseUrl;
+
+	/**
+	 * Creates a receiver listening on the given port of all local addresses. The receiver must be started
+	 *
+	 * @param port
+	 *            the port to listen on. Zero to use any free port
+	 * @throws IOException
+	 *             if the server couldn't be created
+	 */
+	public BackupCallbackReceiver(int port) throws IOException {
+
+		this(new InetSocketAddress(port));
+	}
+
+	/**
+	 * Creates a receiver listening on the given local address. The receiver must be started
+	 *
+	 * @param address
+	 *            the local address to listen on
+	 * @throws IOException
+	 *             if the server couldn't be created
+	 */
+	public BackupCallbackReceiver(InetSocketAddress address) throws IOException {
+
+		if (address == null) {
+			throw new IllegalArgumentException("Address must not be null");
+		}
+		server = HttpServer.create(address, 0);
+		callbackExecutor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "mambu-backup-callback");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timeoutScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "mambu-backup-callback-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timeoutScheduler.setRemoveOnCancelPolicy(true);
+		server.setExecutor(callbackExecutor);
+		server.createContext(CALLBACK_PATH, this::handleCallback);
+	}
+
+	/**
+	 * Starts listening for callbacks
+	 */
+	public void start() {
+
+		server.start();
+		LOGGER.info("Listening for DB backup callbacks on " + getBaseUrl());
+	}
+
+	/**
+	 * Registers a new callback, waiting for Mambu to call it for at most {@link #DEFAULT_TIMEOUT_MINUTES}
+	 *
+	 * @return the registered callback
+	 */
+	public Callback register() {
+
+		return register(DEFAULT_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Registers a new callback. Its future fails with a TimeoutException if Mambu doesn't call it in time
+	 *
+	 * @param timeout
+	 *            how long to wait for the callback
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the registered callback
+	 */
+	public Callback register(long timeout, TimeUnit unit) {
+
+		if (timeout <= 0 || unit == null) {
+			throw new IllegalArgumentException("Timeout must be greater than zero");
+		}
+		final String token = UUID.randomUUID().toString();
+		final CompletableFuture<DatabaseBackupResponse> future = new CompletableFuture<>();
+		pendingCallbacks.put(token, future);
+
+		final ScheduledFuture<?> timeoutTask = timeoutScheduler.schedule(() -> future.completeExceptionally(
+				new TimeoutException("No DB backup callback received in " + timeout + " " + unit)), timeout, unit);
+		// a completed or cancelled future no longer accepts callbacks
+		future.whenComplete((response, failure) -> {
+			pendingCallbacks.remove(token);
+			timeoutTask.cancel(false);
+		});
+
+		return new Callback(getBaseUrl() + CALLBACK_PATH + token, future);
+	}
+
+	/**
+	 * Get the number of callbacks registered and not called yet
+	 *
+	 * @return pending callbacks
+	 */
+	public int getPendingCallbacks() {
+
+		return pendingCallbacks.size();
+	}
+
+	/**
+	 * Get the base URL of the callback URLs
+	 *
+	 * @return the public base URL if set, otherwise the URL of the local address the receiver listens on
+	 */
+	public String getBaseUrl() {
+
+		if (publicBaseUrl != null) {
+			return publicBaseUrl;
+		}
+		InetSocketAddress address = server.getAddress();
+		String host = address.getAddress().isAnyLocalAddress() ? getLocalHostName()
+				: address.getAddress().getHostAddress();
+		return "http://" + host + ":" + address.getPort();
+	}
+
+	/**
+	 * Set the base URL Mambu calls the receiver with, when it differs from the local address. E.g.
+	 * https://backups.example.com
+	 *
+	 * @param publicBaseUrl
+	 *            base URL without a trailing slash. Null to use the local address
+	 */
+	public void setPublicBaseUrl(String publicBaseUrl) {
+
+		this.publicBaseUrl = publicBaseUrl != null && publicBaseUrl.endsWith("/")
+				? publicBaseUrl.substring(0, publicBaseUrl.length() - 1) : publicBaseUrl;
+	}
+
+	/**
+	 * Stops the receiver. The pending callbacks fail with an IllegalStateException
+	 */
+	@Override
+	public void close() {
+
+		server.stop(0);
+		for (CompletableFuture<DatabaseBackupResponse> future : pendingCallbacks.values()) {
+			future.completeExceptionally(new IllegalStateException("DB backup callback receiver closed"));
+		}
+		timeoutScheduler.shutdownNow();
+		callbackExecutor.shutdown();
+	}
+
+	private void handleCallback(HttpExchange exchange) throws IOException {
+
+		CompletableFuture<DatabaseBackupResponse> future;
+		DatabaseBackupResponse response;
+		try {
+			String token = exchange.getRequestURI().getPath().substring(CALLBACK_PATH.length());
+			if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			response = readResponse(exchange.getRequestBody());
+			future = pendingCallbacks.remove(token);
+			if (future == null) {
+				LOGGER.warning("Ignoring DB backup callback for an unknown URL " + exchange.getRequestURI());
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, -1);
+		} finally {
+			exchange.close();
+		}
+
+		// complete once Mambu got the response, the dependent stages run on this callback thread
+		LOGGER.info("DB backup callback received: " + response);
+		future.complete(response);
+	}
+
+	/**
+	 * Reads the callback message. The body is not required to be a DatabaseBackupResponse: its status is kept when it
+	 * is, otherwise an empty response is returned
+	 */
+	private static DatabaseBackupResponse readResponse(InputStream body) throws IOException {
+
+		byte[] buffer = new byte[MAX_CALLBACK_BODY_SIZE];
+		int length = 0;
+		int count;
+		while (length < buffer.length && (count = body.read(buffer, length, buffer.length - length)) != -1) {
+			length += count;
+		}
+		String message = new String(buffer, 0, length, StandardCharsets.UTF_8);
+
+		DatabaseBackupResponse response = null;
+		if (!message.trim().isEmpty()) {
+			try {
+				response = GsonUtils.createGson().fromJson(message, DatabaseBackupResponse.class);
+			} catch (JsonParseException e) {
+				LOGGER.warning("DB backup callback message is not JSON: " + message);
+			}
+		}
+		return response != null ? response : new DatabaseBackupResponse();
+	}
+
+	private static String getLocalHostName() {
+
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			return InetAddress.getLoopbackAddress().getHostName();
+		}
+	}
+
+	/**
+	 * A registered callback: the URL to send with the backup request and the future completed when Mambu calls it
+	 */
+	public static class Callback {
+
+		private final String url;
+		private final CompletableFuture<DatabaseBackupResponse> future;
+
+		Callback(String url, CompletableFuture<DatabaseBackupResponse> future) {
+
+			this.url = url;
+			this.future = future;
+		}
+
+		public String getUrl() {
+
+			return url;
+		}
+
+		/**
+		 * Get the future completed with the message Mambu sent to the callback URL. Cancelling it unregisters the
+		 * callback
+		 *
+		 * @return callback future
+		 */
+		public CompletableFuture<DatabaseBackupResponse> getFuture() {
+
+			return future;
+		}
+	}
+}
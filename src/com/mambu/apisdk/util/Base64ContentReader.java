@@ -0,0 +1,202 @@
+package com.mambu.apisdk.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.codec.binary.Base64InputStream;
+
+/**
+ * Reads a base64 encoded API response (like a document, an image or a profile picture) decoding it on the fly, and
+ * passes the decoded content to another ContentReader, e.g. a {@link ContentDownloader} writing it to a file.
+ *
+ * The "data:image/jpg;base64," indicator Mambu sends before the encoded content, the enclosing double quotes and the
+ * CRLFs, sent as is or JSON escaped, are skipped as they go by, so that neither the response nor the decoded content
+ * is held in memory. See {@link ServiceHelper#getContentForBase64EncodedMessage(String)} for the String counterpart
+ *
+ * @param <R>
+ *            the type of the result
+ */
+public class Base64ContentReader<R> implements ContentReader<R> {
+
+	// the base64 indicator is expected within the first bytes of the response
+	private static final int MAX_INDICATOR_POSITION = 512;
+
+	private final ContentReader<R> decodedContentReader;
+
+	/**
+	 * Creates a reader decoding the content for another reader
+	 *
+	 * @param decodedContentReader
+	 *            reads the result from the decoded content. Must not be null
+	 */
+	public Base64ContentReader(ContentReader<R> decodedContentReader) {
+
+		if (decodedContentReader == null) {
+			throw new IllegalArgumentException("Decoded content reader must not be null");
+		}
+		this.decodedContentReader = decodedContentReader;
+	}
+
+	@Override
+	public R read(InputStream content, long contentLength) throws IOException {
+
+		// the decoded length is not known, as the encoded content is not only base64 characters
+		return decodedContentReader.read(new Base64InputStream(new EncodedContentInputStream(content), false), -1);
+	}
+
+	/**
+	 * Passes through only the base64 encoded part of the API response: skips the base64 indicator, and all the
+	 * characters which are not base64 characters. JSON escape sequences are decoded first, so that escaped base64
+	 * characters, written as \/ or as unicode escapes, are kept and escaped line breaks like \r\n are skipped
+	 */
+	private static class EncodedContentInputStream extends FilterInputStream {
+
+		private static final byte[] INDICATOR = APIData.BASE64_ENCODING_INDICATOR.getBytes(StandardCharsets.US_ASCII);
+
+		// the response start read to look for the indicator, and the position of the encoded content in it
+		private byte[] responseStart;
+		private int responseStartPosition;
+		// the state of the JSON escape sequence being read: after the backslash, and the hex digits of a \\u escape
+		private boolean escaped;
+		private int unicodeDigits;
+		private int unicodeCharacter;
+
+		EncodedContentInputStream(InputStream in) {
+
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			byte[] single = new byte[1];
+			int count;
+			while ((count = read(single, 0, 1)) == 0) {
+				// nothing to return yet
+			}
+			return count < 0 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+
+			if (length == 0) {
+				return 0;
+			}
+			if (responseStart == null) {
+				readResponseStart();
+			}
+
+			int count;
+			if (responseStartPosition < responseStart.length) {
+				count = Math.min(length, responseStart.length - responseStartPosition);
+				System.arraycopy(responseStart, responseStartPosition, buffer, offset, count);
+				responseStartPosition += count;
+			} else {
+				count = in.read(buffer, offset, length);
+				if (count < 0) {
+					return -1;
+				}
+			}
+			return filter(buffer, offset, count);
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+
+			throw new IOException("Skip not supported");
+		}
+
+		@Override
+		public boolean markSupported() {
+
+			return false;
+		}
+
+		/**
+		 * Reads the start of the response and positions after the base64 indicator, if there is one
+		 */
+		private void readResponseStart() throws IOException {
+
+			byte[] start = new byte[MAX_INDICATOR_POSITION];
+			int length = 0;
+			int count;
+			while (length < start.length && (count = in.read(start, length, start.length - length)) != -1) {
+				length += count;
+			}
+			responseStart = new byte[length];
+			System.arraycopy(start, 0, responseStart, 0, length);
+			responseStartPosition = indexOf(responseStart, INDICATOR);
+			responseStartPosition = responseStartPosition < 0 ? 0 : responseStartPosition + INDICATOR.length;
+		}
+
+		/**
+		 * Decodes the JSON escape sequences and keeps only the base64 characters in place. Escape sequences can span
+		 * several reads
+		 *
+		 * @return the number of characters kept
+		 * @throws IOException
+		 *             if a \\u escape sequence is not followed by four hex digits
+		 */
+		private int filter(byte[] buffer, int offset, int count) throws IOException {
+
+			int kept = offset;
+			for (int i = offset; i < offset + count; i++) {
+				int character = buffer[i];
+				if (unicodeDigits > 0) {
+					// a hex digit of a \\uXXXX escape sequence
+					int digit = Character.digit(character, 16);
+					if (digit < 0) {
+						throw new IOException("Invalid JSON unicode escape sequence in the base64 content");
+					}
+					unicodeCharacter = unicodeCharacter * 16 + digit;
+					if (--unicodeDigits > 0) {
+						continue;
+					}
+					character = unicodeCharacter;
+				} else if (escaped) {
+					escaped = false;
+					if (character == 'u') {
+						unicodeDigits = 4;
+						unicodeCharacter = 0;
+						continue;
+					}
+					// \/ is the only escape sequence of a base64 character. Others, like the n of \n, are skipped
+					if (character != '/') {
+						continue;
+					}
+				} else if (character == '\\') {
+					escaped = true;
+					continue;
+				}
+				if (isBase64(character)) {
+					buffer[kept++] = (byte) character;
+				}
+			}
+			return kept - offset;
+		}
+
+		private static boolean isBase64(int character) {
+
+			return (character >= 'A' && character <= 'Z') || (character >= 'a' && character <= 'z')
+					|| (character >= '0' && character <= '9') || character == '+' || character == '/'
+					|| character == '=' || character == '-' || character == '_';
+		}
+
+		private static int indexOf(byte[] bytes, byte[] searched) {
+
+			for (int i = 0; i <= bytes.length - searched.length; i++) {
+				int j = 0;
+				while (j < searched.length && bytes[i + j] == searched[j]) {
+					j++;
+				}
+				if (j == searched.length) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
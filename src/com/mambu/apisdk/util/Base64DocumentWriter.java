@@ -0,0 +1,143 @@
+package com.mambu.apisdk.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.codec.binary.Base64OutputStream;
+
+import com.mambu.docs.shared.model.Document;
+
+/**
+ * Writes the JSON for uploading a document, base64 encoding the document content on the fly from a file or a stream.
+ * The same JSON as by {@link ServiceHelper#makeParamsForDocumentJson} is sent, but the document content is never held
+ * in memory, neither raw nor encoded.
+ *
+ * A document read from a file has a known length and can be sent again. A document read from a stream is sent with
+ * chunked transfer encoding, and only once
+ */
+public class Base64DocumentWriter implements ContentWriter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final byte[] jsonBeforeContent;
+	private final byte[] jsonAfterContent;
+	private final Path file;
+	private final InputStream content;
+	private boolean written;
+
+	/**
+	 * Creates a writer for a document read from a file
+	 *
+	 * @param document
+	 *            the document details, like its name and type. Must not be null
+	 * @param file
+	 *            the file with the document content. Must not be null
+	 */
+	public Base64DocumentWriter(Document document, Path file) {
+
+		this(document, file, null);
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+	}
+
+	/**
+	 * Creates a writer for a document read from a stream
+	 *
+	 * @param document
+	 *            the document details, like its name and type. Must not be null
+	 * @param content
+	 *            the stream with the document content. It is read once and not closed. Must not be null
+	 */
+	public Base64DocumentWriter(Document document, InputStream content) {
+
+		this(document, null, content);
+		if (content == null) {
+			throw new IllegalArgumentException("Content must not be null");
+		}
+	}
+
+	private Base64DocumentWriter(Document document, Path file, InputStream content) {
+
+		if (document == null) {
+			throw new IllegalArgumentException("Document must not be null");
+		}
+		String jsonTemplate = ServiceHelper.makeDocumentJsonTemplate(document);
+		int contentPosition = ServiceHelper.getDocumentContentPosition(jsonTemplate);
+
+		this.jsonBeforeContent = jsonTemplate.substring(0, contentPosition).getBytes(StandardCharsets.UTF_8);
+		this.jsonAfterContent = jsonTemplate.substring(contentPosition).getBytes(StandardCharsets.UTF_8);
+		this.file = file;
+		this.content = content;
+	}
+
+	@Override
+	public void writeTo(OutputStream output) throws IOException {
+
+		if (!isRepeatable() && written) {
+			throw new IllegalStateException("The document content stream was already sent");
+		}
+		written = true;
+
+		output.write(jsonBeforeContent);
+		// encode without line breaks. Closing the encoder writes the final padding but doesn't close the request body
+		try (OutputStream encoder = new Base64OutputStream(new FilterOutputStream(output) {
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+
+				out.write(bytes, offset, length);
+			}
+
+			@Override
+			public void close() throws IOException {
+
+				flush();
+			}
+		}, true, 0, null)) {
+			if (file != null) {
+				try (InputStream fileContent = Files.newInputStream(file)) {
+					copy(fileContent, encoder);
+				}
+			} else {
+				copy(content, encoder);
+			}
+		}
+		output.write(jsonAfterContent);
+		output.flush();
+	}
+
+	@Override
+	public long getContentLength() {
+
+		if (file == null) {
+			return -1;
+		}
+		try {
+			long encodedLength = (Files.size(file) + 2) / 3 * 4;
+			return jsonBeforeContent.length + encodedLength + jsonAfterContent.length;
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public boolean isRepeatable() {
+
+		return file != null;
+	}
+
+	private static void copy(InputStream input, OutputStream output) throws IOException {
+
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int count;
+		while ((count = input.read(buffer)) != -1) {
+			output.write(buffer, 0, count);
+		}
+	}
+}
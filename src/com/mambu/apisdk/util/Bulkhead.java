@@ -0,0 +1,449 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Isolates the workloads sharing the requests of a factory in named lanes, e.g. interactive lookups, nightly batch jobs
+ * and administration tasks. Each lane has its own limit of concurrent requests, i.e. its share of the pooled
+ * connections, and its own queue of requests waiting for a free slot. A batch job saturating its lane then queues
+ * behind its own requests only, while the interactive requests still find free connections in theirs. The limits of
+ * all lanes should not exceed the max connections of the {@link HttpClientConfig}, so that lanes never wait for each
+ * other's connections in the pool.
+ *
+ * A request is executed in the lane chosen by the caller with
+ * {@link #callInLane(String, RetryPolicy.RetriableRequest)}, else in the lane of its service (see
+ * {@link com.mambu.apisdk.MambuAPIServiceFactory#getServiceInLane(Class, String)}), else in the default lane. The lane
+ * chosen by the caller also applies to the requests the SDK makes for it on other threads, like the prefetched pages of
+ * a {@link PagedIterable}. A request not getting a slot, because its lane's queue is full or because it waited for
+ * longer than the lane's max wait, fails with the {@link #LANE_FULL} error code. Asynchronous requests wait in the same
+ * queue, without holding a thread.
+ *
+ * Lanes are expected to be set before the bulkhead is used. Each lane counts its requests to show how saturated it is
+ */
+public class Bulkhead {
+
+	public static final String INTERACTIVE = "interactive";
+	public static final String BATCH = "batch";
+	public static final String ADMIN = "admin";
+
+	/**
+	 * Error code of the {@link MambuApiException} thrown when a request found no free slot in its lane
+	 */
+	public static final int LANE_FULL = -4;
+
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 30 * 1000L;
+
+	private final static Logger LOGGER = Logger.getLogger(Bulkhead.class.getName());
+
+	// The lane chosen by the caller for the requests of the current thread
+	private static final ThreadLocal<String> currentLane = new ThreadLocal<>();
+
+	private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+	private volatile String defaultLane = INTERACTIVE;
+
+	/**
+	 * Creates a bulkhead with the interactive, batch and admin lanes sharing the connections: half of them for the
+	 * interactive lane, which is the default one, 40% for the batch lane and the rest for the admin lane. The queue of
+	 * each lane can hold ten times as many requests as its limit
+	 *
+	 * @param maxConnections
+	 *            the connections shared by the lanes, e.g. the max connections per route of the HttpClientConfig
+	 * @return the bulkhead
+	 */
+	public static Bulkhead forConnections(int maxConnections) {
+
+		if (maxConnections < 3) {
+			throw new IllegalArgumentException("At least 3 connections are needed for 3 lanes");
+		}
+		int interactive = Math.max(1, maxConnections / 2);
+		int batch = Math.max(1, maxConnections * 2 / 5);
+		int admin = Math.max(1, maxConnections - interactive - batch);
+
+		Bulkhead bulkhead = new Bulkhead();
+		bulkhead.setLane(INTERACTIVE, interactive, interactive * 10, DEFAULT_MAX_WAIT_MILLIS);
+		bulkhead.setLane(BATCH, batch, batch * 10, DEFAULT_MAX_WAIT_MILLIS);
+		bulkhead.setLane(ADMIN, admin, admin * 10, DEFAULT_MAX_WAIT_MILLIS);
+		return bulkhead;
+	}
+
+	/**
+	 * Executes the request in a lane. Requests made by the request on the current thread, including its retries, are
+	 * executed in this lane, even if their service has a lane of its own
+	 *
+	 * @param lane
+	 *            the name of the lane
+	 * @param request
+	 *            the request, e.g. a call to a service of the factory
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 */
+	public static <T> T callInLane(String lane, RetryPolicy.RetriableRequest<T> request) throws MambuApiException {
+
+		if (lane == null || request == null) {
+			throw new IllegalArgumentException("Lane and request cannot be null");
+		}
+		String outerLane = setCurrentLane(lane);
+		try {
+			return request.execute();
+		} finally {
+			setCurrentLane(outerLane);
+		}
+	}
+
+	/**
+	 * Get the lane chosen for the requests of the current thread
+	 *
+	 * @return the name of the lane or null if none was chosen
+	 */
+	static String getCurrentLane() {
+
+		return currentLane.get();
+	}
+
+	/**
+	 * Set the lane for the requests made on the current thread. The caller must restore the previous lane once its
+	 * requests are sent
+	 *
+	 * @param lane
+	 *            the name of the lane. Null to use the default lane
+	 * @return the previous lane
+	 */
+	static String setCurrentLane(String lane) {
+
+		String outerLane = currentLane.get();
+		if (lane == null) {
+			currentLane.remove();
+		} else {
+			currentLane.set(lane);
+		}
+		return outerLane;
+	}
+
+	/**
+	 * Set a lane, replacing the lane with the same name
+	 *
+	 * @param name
+	 *            the name of the lane
+	 * @param maxConcurrent
+	 *            max number of requests executed at the same time in the lane
+	 * @param maxQueued
+	 *            max number of requests waiting for a free slot. Zero to fail at once when the lane is saturated
+	 * @param maxWaitMillis
+	 *            max time a request waits for a free slot, in milliseconds
+	 * @return this bulkhead
+	 */
+	public Bulkhead setLane(String name, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+
+		if (name == null || maxConcurrent < 1 || maxQueued < 0 || maxWaitMillis < 0) {
+			throw new IllegalArgumentException("Invalid lane. Name=" + name + " Max concurrent=" + maxConcurrent
+					+ " Max queued=" + maxQueued + " Max wait=" + maxWaitMillis);
+		}
+		lanes.put(name, new Lane(name, maxConcurrent, maxQueued, maxWaitMillis));
+		return this;
+	}
+
+	/**
+	 * Set the lane of the requests made without choosing one
+	 *
+	 * @param defaultLane
+	 *            the name of the lane
+	 * @return this bulkhead
+	 */
+	public Bulkhead setDefaultLane(String defaultLane) {
+
+		if (defaultLane == null) {
+			throw new IllegalArgumentException("Default lane cannot be null");
+		}
+		this.defaultLane = defaultLane;
+		return this;
+	}
+
+	public String getDefaultLane() {
+
+		return defaultLane;
+	}
+
+	/**
+	 * Get a lane, to get its counters
+	 *
+	 * @param name
+	 *            the name of the lane
+	 * @return the lane or null if there is no lane with this name
+	 */
+	public Lane getLane(String name) {
+
+		return lanes.get(name);
+	}
+
+	/**
+	 * Get all the lanes
+	 *
+	 * @return the lanes
+	 */
+	public Collection<Lane> getLanes() {
+
+		return Collections.unmodifiableCollection(lanes.values());
+	}
+
+	/**
+	 * Waits for a free slot in the lane of the current thread, or else in the default lane
+	 *
+	 * @return the lane, whose slot must be released once the request completed
+	 * @throws MambuApiException
+	 *             with the {@link #LANE_FULL} error code if no slot was free
+	 */
+	Lane acquire() throws MambuApiException {
+
+		Lane lane = getCurrentLaneOrDefault();
+		lane.acquire();
+		return lane;
+	}
+
+	/**
+	 * Takes a slot in the lane of the current thread, or else in the default lane, for an asynchronous request. The
+	 * caller is not blocked while the request is queued
+	 *
+	 * @return future completed with the lane once the request got a slot, which must be released once the request
+	 *         completed. Fails with the {@link #LANE_FULL} error code if no slot was free. Cancelling the future
+	 *         removes the request from the queue
+	 */
+	CompletableFuture<Lane> acquireAsync() {
+
+		return getCurrentLaneOrDefault().acquireAsync();
+	}
+
+	private Lane getCurrentLaneOrDefault() {
+
+		String name = currentLane.get();
+		Lane lane = lanes.get(name != null ? name : defaultLane);
+		if (lane == null) {
+			throw new IllegalArgumentException("Unknown workload lane: " + (name != null ? name : defaultLane));
+		}
+		return lane;
+	}
+
+	/**
+	 * A workload lane: its limits and its saturation counters. The counters are thread safe
+	 */
+	public static class Lane {
+
+		private final String name;
+		private final int maxConcurrent;
+		private final int maxQueued;
+		private final long maxWaitMillis;
+
+		// Guarded by this
+		private int freeSlots;
+		// The requests waiting for a free slot, in arrival order. A freed slot is handed over to the first one, so
+		// that new requests don't take it ahead of them. Guarded by this
+		private final Deque<CompletableFuture<Lane>> waiters = new ArrayDeque<>();
+
+		private final AtomicInteger queuedCount = new AtomicInteger();
+		private final AtomicLong requestCount = new AtomicLong();
+		private final AtomicLong waitCount = new AtomicLong();
+		private final AtomicLong waitNanos = new AtomicLong();
+		private final AtomicLong rejectedCount = new AtomicLong();
+
+		Lane(String name, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+
+			this.name = name;
+			this.maxConcurrent = maxConcurrent;
+			this.maxQueued = maxQueued;
+			this.maxWaitMillis = maxWaitMillis;
+			this.freeSlots = maxConcurrent;
+		}
+
+		public String getName() {
+
+			return name;
+		}
+
+		public int getMaxConcurrent() {
+
+			return maxConcurrent;
+		}
+
+		public int getMaxQueued() {
+
+			return maxQueued;
+		}
+
+		public long getMaxWaitMillis() {
+
+			return maxWaitMillis;
+		}
+
+		/**
+		 * Get the number of requests being executed in the lane
+		 *
+		 * @return number of active requests
+		 */
+		public synchronized int getActiveCount() {
+
+			return maxConcurrent - freeSlots;
+		}
+
+		/**
+		 * Get the number of requests waiting for a free slot
+		 *
+		 * @return number of queued requests
+		 */
+		public int getQueuedCount() {
+
+			return queuedCount.get();
+		}
+
+		/**
+		 * Get the number of requests which got a slot in the lane
+		 *
+		 * @return number of requests
+		 */
+		public long getRequestCount() {
+
+			return requestCount.get();
+		}
+
+		/**
+		 * Get the number of requests which had to wait for a slot because the lane was saturated
+		 *
+		 * @return number of waiting requests
+		 */
+		public long getWaitCount() {
+
+			return waitCount.get();
+		}
+
+		/**
+		 * Get the total time requests waited for a slot
+		 *
+		 * @return total wait time in milliseconds
+		 */
+		public long getWaitMillis() {
+
+			return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+		}
+
+		/**
+		 * Get the number of requests which failed because they got no slot
+		 *
+		 * @return number of rejected requests
+		 */
+		public long getRejectedCount() {
+
+			return rejectedCount.get();
+		}
+
+		private void acquire() throws MambuApiException {
+
+			CompletableFuture<Lane> slot = acquireAsync();
+			try {
+				slot.get();
+			} catch (InterruptedException e) {
+				// give the slot back if it was handed over meanwhile
+				if (!slot.cancel(false) && !slot.isCompletedExceptionally()) {
+					release();
+				}
+				Thread.currentThread().interrupt();
+				throw new MambuApiException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof MambuApiException) {
+					throw (MambuApiException) e.getCause();
+				}
+				throw new MambuApiException(e);
+			}
+		}
+
+		private CompletableFuture<Lane> acquireAsync() {
+
+			final CompletableFuture<Lane> waiter = new CompletableFuture<>();
+			synchronized (this) {
+				if (freeSlots > 0) {
+					freeSlots--;
+					requestCount.incrementAndGet();
+					waiter.complete(this);
+					return waiter;
+				}
+				if (waiters.size() >= maxQueued) {
+					waiter.completeExceptionally(reject("the lane and its queue are full"));
+					return waiter;
+				}
+				if (maxWaitMillis == 0) {
+					waiter.completeExceptionally(reject("no slot was free after 0 milliseconds"));
+					return waiter;
+				}
+				waiters.add(waiter);
+				queuedCount.incrementAndGet();
+			}
+			waitCount.incrementAndGet();
+			final long start = System.nanoTime();
+			final ScheduledFuture<?> timeout = BackgroundExecutors.getScheduler().schedule(() -> {
+				synchronized (this) {
+					// else a slot was handed over meanwhile
+					if (!waiters.remove(waiter)) {
+						return;
+					}
+					queuedCount.decrementAndGet();
+				}
+				waiter.completeExceptionally(reject("no slot was free after " + maxWaitMillis + " milliseconds"));
+			}, maxWaitMillis, TimeUnit.MILLISECONDS);
+			waiter.whenComplete((lane, exception) -> {
+				timeout.cancel(false);
+				waitNanos.addAndGet(System.nanoTime() - start);
+				if (exception == null) {
+					requestCount.incrementAndGet();
+				} else {
+					// cancelled while queued
+					synchronized (this) {
+						if (waiters.remove(waiter)) {
+							queuedCount.decrementAndGet();
+						}
+					}
+				}
+			});
+			return waiter;
+		}
+
+		/**
+		 * Releases the slot of a completed request, handing it over to the first queued request
+		 */
+		void release() {
+
+			while (true) {
+				CompletableFuture<Lane> waiter;
+				synchronized (this) {
+					waiter = waiters.poll();
+					if (waiter == null) {
+						freeSlots++;
+						return;
+					}
+					queuedCount.decrementAndGet();
+				}
+				// completed outside of the lock, as it runs the continuation of an asynchronous request
+				if (waiter.complete(this)) {
+					return;
+				}
+			}
+		}
+
+		private MambuApiException reject(String reason) {
+
+			rejectedCount.incrementAndGet();
+			LOGGER.warning("Request rejected by the workload lane " + name + ": " + reason);
+			return new MambuApiException(LANE_FULL, "Workload lane " + name + " is saturated: " + reason);
+		}
+	}
+}
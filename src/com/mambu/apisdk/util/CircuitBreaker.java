@@ -0,0 +1,519 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RetryPolicy.RetriableRequest;
+
+/**
+ * Circuit breakers for the API endpoints of one factory, shedding the requests to an endpoint which keeps failing or
+ * responding slowly, so that they don't hold the threads needed by the healthy endpoints. Set with
+ * {@link com.mambu.apisdk.MambuAPIServiceFactory#setCircuitBreaker(CircuitBreaker)}.
+ *
+ * Each endpoint (see {@link #getEndpoint(ApiDefinition)}) has its own circuit, recording the outcome of its last calls.
+ * A call fails when it gets a connection failure or a 5xx status, and is slow when it takes longer than the slow call
+ * duration. Once the window holds the minimum number of calls:
+ * <ul>
+ * <li>CLOSED: the circuit opens when the failure rate or the slow call rate reaches its threshold</li>
+ * <li>OPEN: calls fail at once with a MambuApiException with the error code {@link #CIRCUIT_OPEN}. After the open
+ * duration the circuit becomes half-open</li>
+ * <li>HALF_OPEN: a number of trial calls are let through. The circuit closes if their rates are below the thresholds,
+ * and opens again otherwise</li>
+ * </ul>
+ *
+ * The settings are expected to be set before the breaker is used. This class is thread safe
+ */
+public class CircuitBreaker {
+
+	/**
+	 * Error code of the MambuApiException thrown for the calls on an open circuit
+	 */
+	public static final int CIRCUIT_OPEN = -2;
+
+	public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+	public static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+	public static final long DEFAULT_SLOW_CALL_DURATION_MILLIS = 10 * 1000L;
+	public static final int DEFAULT_WINDOW_SIZE = 50;
+	public static final int DEFAULT_MINIMUM_CALLS = 20;
+	public static final long DEFAULT_OPEN_DURATION_MILLIS = 30 * 1000L;
+	public static final int DEFAULT_HALF_OPEN_CALLS = 5;
+	public static final int DEFAULT_MAX_CIRCUITS = 1000;
+
+	private final static Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+	/**
+	 * The states of a circuit
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * Listener notified of the state transitions of the circuits
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after the circuit of an endpoint changed its state
+		 *
+		 * @param endpoint
+		 *            the endpoint of the circuit
+		 * @param from
+		 *            the previous state
+		 * @param to
+		 *            the new state
+		 */
+		void onStateChange(String endpoint, State from, State to);
+	}
+
+	private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private final LongSupplier nanoClock;
+
+	private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+	private double slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+	private long slowCallDurationMillis = DEFAULT_SLOW_CALL_DURATION_MILLIS;
+	private int windowSize = DEFAULT_WINDOW_SIZE;
+	private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+	private long openDurationMillis = DEFAULT_OPEN_DURATION_MILLIS;
+	private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+	private int maxCircuits = DEFAULT_MAX_CIRCUITS;
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong openedCount = new AtomicLong();
+
+	public CircuitBreaker() {
+
+		this(System::nanoTime);
+	}
+
+	CircuitBreaker(LongSupplier nanoClock) {
+
+		this.nanoClock = nanoClock;
+	}
+
+	/**
+	 * Get the endpoint of an API definition, naming its circuit: its end point followed by its related entity, or the
+	 * first part of its url path, which may hold entity ids further on. For example "loans/transactions",
+	 * "gljournalentries" or "loans" for "loans/ABC123/custominformation/cf1"
+	 *
+	 * @param apiDefinition
+	 *            API definition
+	 * @return endpoint
+	 */
+	public static String getEndpoint(ApiDefinition apiDefinition) {
+
+		String urlPath = apiDefinition.getUrlPath();
+		if (urlPath != null) {
+			int end = 0;
+			while (end < urlPath.length() && "/?#".indexOf(urlPath.charAt(end)) < 0) {
+				end++;
+			}
+			return urlPath.substring(0, end);
+		}
+		String relatedEntity = apiDefinition.getRelatedEntity();
+		return relatedEntity == null ? apiDefinition.getEndPoint() : apiDefinition.getEndPoint() + "/" + relatedEntity;
+	}
+
+	/**
+	 * Executes the request through the circuit of the endpoint
+	 *
+	 * @param endpoint
+	 *            the endpoint of the request
+	 * @param request
+	 *            the request
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 *             the exception of the request, or an exception with the error code {@link #CIRCUIT_OPEN} if the
+	 *             circuit is open
+	 */
+	public <T> T execute(String endpoint, RetriableRequest<T> request) throws MambuApiException {
+
+		Circuit circuit = circuits.get(endpoint);
+		if (circuit == null) {
+			if (circuits.size() >= maxCircuits) {
+				LOGGER.fine("No circuit for endpoint " + endpoint + ": max circuits reached");
+				return request.execute();
+			}
+			circuit = circuits.computeIfAbsent(endpoint, Circuit::new);
+		}
+		if (!circuit.tryAcquire()) {
+			rejectedCount.incrementAndGet();
+			throw new MambuApiException(CIRCUIT_OPEN, "Circuit open for endpoint " + endpoint);
+		}
+		long start = nanoClock.getAsLong();
+		boolean failed = false;
+		try {
+			return request.execute();
+		} catch (MambuApiException e) {
+			failed = isFailure(e);
+			throw e;
+		} finally {
+			long durationNanos = nanoClock.getAsLong() - start;
+			circuit.record(failed, durationNanos >= TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis));
+		}
+	}
+
+	/**
+	 * Does the exception show that the endpoint is unhealthy. Client errors, like a validation error, don't
+	 *
+	 * @param exception
+	 *            the exception of a failed request
+	 * @return true for connection failures and 5xx statuses
+	 */
+	public boolean isFailure(MambuApiException exception) {
+
+		Integer errorCode = exception.getErrorCode();
+		return exception.getCause() instanceof IOException || (errorCode != null && errorCode >= 500);
+	}
+
+	/**
+	 * Get the state of the circuit of an endpoint
+	 *
+	 * @param endpoint
+	 *            the endpoint
+	 * @return the state, CLOSED for the endpoints not called yet
+	 */
+	public State getState(String endpoint) {
+
+		Circuit circuit = circuits.get(endpoint);
+		return circuit == null ? State.CLOSED : circuit.getState();
+	}
+
+	/**
+	 * Closes the circuit of an endpoint and forgets its recorded calls
+	 *
+	 * @param endpoint
+	 *            the endpoint
+	 */
+	public void reset(String endpoint) {
+
+		Circuit circuit = circuits.get(endpoint);
+		if (circuit != null) {
+			circuit.reset();
+		}
+	}
+
+	public void addListener(Listener listener) {
+
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Get the number of calls which failed fast on an open circuit
+	 *
+	 * @return number of rejected calls
+	 */
+	public long getRejectedCount() {
+
+		return rejectedCount.get();
+	}
+
+	/**
+	 * Get the number of times a circuit opened
+	 *
+	 * @return number of openings
+	 */
+	public long getOpenedCount() {
+
+		return openedCount.get();
+	}
+
+	private void notifyListeners(String endpoint, State from, State to) {
+
+		if (to == State.OPEN) {
+			openedCount.incrementAndGet();
+			LOGGER.warning("Circuit opened for endpoint " + endpoint);
+		} else {
+			LOGGER.info("Circuit " + to + " for endpoint " + endpoint);
+		}
+		for (Listener listener : listeners) {
+			try {
+				listener.onStateChange(endpoint, from, to);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Circuit breaker listener failed", e);
+			}
+		}
+	}
+
+	/**
+	 * The circuit of one endpoint, recording the outcome of its last calls in a ring buffer
+	 */
+	private class Circuit {
+
+		private final String endpoint;
+		private State state = State.CLOSED;
+		private long openedAtNanos;
+		private final boolean[] failures = new boolean[windowSize];
+		private final boolean[] slowCalls = new boolean[windowSize];
+		private int next;
+		private int callCount;
+		private int failureCount;
+		private int slowCallCount;
+		// Trial calls let through while half-open
+		private int trialCount;
+
+		Circuit(String endpoint) {
+
+			this.endpoint = endpoint;
+		}
+
+		boolean tryAcquire() {
+
+			State from;
+			synchronized (this) {
+				from = state;
+				switch (state) {
+				case CLOSED:
+					return true;
+				case OPEN:
+					if (nanoClock.getAsLong() - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(openDurationMillis)) {
+						return false;
+					}
+					transition(State.HALF_OPEN);
+					trialCount = 1;
+					break;
+				default:
+					if (trialCount >= Math.min(failures.length, halfOpenCalls)) {
+						return false;
+					}
+					trialCount++;
+					return true;
+				}
+			}
+			notifyListeners(endpoint, from, State.HALF_OPEN);
+			return true;
+		}
+
+		void record(boolean failed, boolean slow) {
+
+			State from;
+			State to;
+			synchronized (this) {
+				from = state;
+				if (state == State.OPEN) {
+					// A call started before the circuit opened
+					return;
+				}
+				add(failed, slow);
+				int requiredCalls = Math.min(failures.length, state == State.HALF_OPEN ? halfOpenCalls : minimumCalls);
+				if (callCount < requiredCalls) {
+					return;
+				}
+				boolean unhealthy = failureCount >= failureRateThreshold * callCount
+						|| slowCallCount >= slowCallRateThreshold * callCount;
+				if (unhealthy) {
+					transition(State.OPEN);
+					openedAtNanos = nanoClock.getAsLong();
+				} else if (state == State.HALF_OPEN) {
+					transition(State.CLOSED);
+				} else {
+					return;
+				}
+				to = state;
+			}
+			notifyListeners(endpoint, from, to);
+		}
+
+		synchronized State getState() {
+
+			return state;
+		}
+
+		void reset() {
+
+			State from;
+			synchronized (this) {
+				from = state;
+				transition(State.CLOSED);
+			}
+			if (from != State.CLOSED) {
+				notifyListeners(endpoint, from, State.CLOSED);
+			}
+		}
+
+		private void add(boolean failed, boolean slow) {
+
+			if (callCount == failures.length) {
+				// Drop the oldest call
+				failureCount -= failures[next] ? 1 : 0;
+				slowCallCount -= slowCalls[next] ? 1 : 0;
+				callCount--;
+			}
+			failures[next] = failed;
+			slowCalls[next] = slow;
+			failureCount += failed ? 1 : 0;
+			slowCallCount += slow ? 1 : 0;
+			callCount++;
+			next = (next + 1) % failures.length;
+		}
+
+		// Each state starts with an empty window
+		private void transition(State to) {
+
+			state = to;
+			next = 0;
+			callCount = 0;
+			failureCount = 0;
+			slowCallCount = 0;
+			trialCount = 0;
+		}
+	}
+
+	public double getFailureRateThreshold() {
+
+		return failureRateThreshold;
+	}
+
+	/**
+	 * Set the failure rate opening the circuit
+	 *
+	 * @param failureRateThreshold
+	 *            rate between 0 (exclusive) and 1 (inclusive)
+	 */
+	public void setFailureRateThreshold(double failureRateThreshold) {
+
+		checkRate(failureRateThreshold);
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	public double getSlowCallRateThreshold() {
+
+		return slowCallRateThreshold;
+	}
+
+	/**
+	 * Set the slow call rate opening the circuit
+	 *
+	 * @param slowCallRateThreshold
+	 *            rate between 0 (exclusive) and 1 (inclusive)
+	 */
+	public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+
+		checkRate(slowCallRateThreshold);
+		this.slowCallRateThreshold = slowCallRateThreshold;
+	}
+
+	public long getSlowCallDurationMillis() {
+
+		return slowCallDurationMillis;
+	}
+
+	public void setSlowCallDurationMillis(long slowCallDurationMillis) {
+
+		if (slowCallDurationMillis <= 0) {
+			throw new IllegalArgumentException("Slow call duration must be greater than zero");
+		}
+		this.slowCallDurationMillis = slowCallDurationMillis;
+	}
+
+	public int getWindowSize() {
+
+		return windowSize;
+	}
+
+	/**
+	 * Set the number of last calls recorded by each circuit. Applies to the circuits of the endpoints not called yet
+	 *
+	 * @param windowSize
+	 *            number of calls. Must be greater than zero
+	 */
+	public void setWindowSize(int windowSize) {
+
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("Window size must be greater than zero");
+		}
+		this.windowSize = windowSize;
+	}
+
+	public int getMinimumCalls() {
+
+		return minimumCalls;
+	}
+
+	/**
+	 * Set the number of calls recorded before the rates of a closed circuit are checked
+	 *
+	 * @param minimumCalls
+	 *            number of calls, capped to the window size. Must be greater than zero
+	 */
+	public void setMinimumCalls(int minimumCalls) {
+
+		if (minimumCalls < 1) {
+			throw new IllegalArgumentException("Minimum calls must be greater than zero");
+		}
+		this.minimumCalls = minimumCalls;
+	}
+
+	public long getOpenDurationMillis() {
+
+		return openDurationMillis;
+	}
+
+	public void setOpenDurationMillis(long openDurationMillis) {
+
+		if (openDurationMillis < 0) {
+			throw new IllegalArgumentException("Open duration must not be negative");
+		}
+		this.openDurationMillis = openDurationMillis;
+	}
+
+	public int getHalfOpenCalls() {
+
+		return halfOpenCalls;
+	}
+
+	/**
+	 * Set the number of trial calls let through by a half-open circuit
+	 *
+	 * @param halfOpenCalls
+	 *            number of calls, capped to the window size. Must be greater than zero
+	 */
+	public void setHalfOpenCalls(int halfOpenCalls) {
+
+		if (halfOpenCalls < 1) {
+			throw new IllegalArgumentException("Half-open calls must be greater than zero");
+		}
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	public int getMaxCircuits() {
+
+		return maxCircuits;
+	}
+
+	/**
+	 * Set the max number of circuits. The calls to the endpoints beyond it are executed without a circuit
+	 *
+	 * @param maxCircuits
+	 *            number of circuits. Must be greater than zero
+	 */
+	public void setMaxCircuits(int maxCircuits) {
+
+		if (maxCircuits < 1) {
+			throw new IllegalArgumentException("Max circuits must be greater than zero");
+		}
+		this.maxCircuits = maxCircuits;
+	}
+
+	private static void checkRate(double rate) {
+
+		if (rate <= 0 || rate > 1) {
+			throw new IllegalArgumentException("Rate must be greater than 0 and not greater than 1");
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.codec.binary.Hex;
+
+import com.mambu.apisdk.model.DownloadResult;
+
+/**
+ * Streams the content of a download to a channel through a fixed size buffer, so that the memory used doesn't depend
+ * on the size of the content. The checksum of the content is computed while it is streamed, and the progress is
+ * reported after each chunk.
+ *
+ * When no checksum is computed and the destination is a FileChannel, the content is transferred with
+ * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}, which avoids copying it through this buffer.
+ *
+ * The destination is written from its current position and is not closed
+ */
+public class ContentDownloader implements ContentReader<DownloadResult> {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final String DEFAULT_CHECKSUM_ALGORITHM = "SHA-256";
+
+	private final WritableByteChannel destination;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private String checksumAlgorithm = DEFAULT_CHECKSUM_ALGORITHM;
+	private DownloadProgressListener progressListener;
+
+	/**
+	 * Creates a downloader writing to a channel
+	 *
+	 * @param destination
+	 *            the destination channel. Must not be null
+	 */
+	public ContentDownloader(WritableByteChannel destination) {
+
+		if (destination == null) {
+			throw new IllegalArgumentException("Destination must not be null");
+		}
+		this.destination = destination;
+	}
+
+	/**
+	 * Creates a downloader writing to an output stream
+	 *
+	 * @param destination
+	 *            the destination stream. Must not be null
+	 */
+	public ContentDownloader(OutputStream destination) {
+
+		this(destination == null ? null : Channels.newChannel(destination));
+	}
+
+	@Override
+	public DownloadResult read(InputStream content, long contentLength) throws IOException {
+
+		MessageDigest digest = createDigest();
+		ReadableByteChannel source = Channels.newChannel(content);
+		long transferredBytes = 0;
+
+		if (digest == null && destination instanceof FileChannel) {
+			FileChannel file = (FileChannel) destination;
+			long startPosition = file.position();
+			long count;
+			while ((count = file.transferFrom(source, startPosition + transferredBytes, bufferSize)) > 0) {
+				transferredBytes += count;
+				reportProgress(transferredBytes, contentLength);
+			}
+			// transferFrom doesn't move the position of the file
+			file.position(startPosition + transferredBytes);
+		} else {
+			ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+			while (source.read(buffer) != -1) {
+				buffer.flip();
+				int count = buffer.remaining();
+				if (digest != null) {
+					digest.update(buffer.array(), 0, count);
+				}
+				while (buffer.hasRemaining()) {
+					destination.write(buffer);
+				}
+				buffer.clear();
+				transferredBytes += count;
+				reportProgress(transferredBytes, contentLength);
+			}
+		}
+
+		String checksum = digest == null ? null : Hex.encodeHexString(digest.digest());
+		return new DownloadResult(transferredBytes, contentLength, checksumAlgorithm, checksum);
+	}
+
+	public int getBufferSize() {
+
+		return bufferSize;
+	}
+
+	/**
+	 * Set the size of the buffer the content is copied through, and of the chunks reported to the progress listener
+	 *
+	 * @param bufferSize
+	 *            buffer size in bytes. Must be greater than zero
+	 */
+	public void setBufferSize(int bufferSize) {
+
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be greater than zero");
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	public String getChecksumAlgorithm() {
+
+		return checksumAlgorithm;
+	}
+
+	/**
+	 * Set the algorithm of the checksum computed while downloading
+	 *
+	 * @param checksumAlgorithm
+	 *            a MessageDigest algorithm, e.g. SHA-256 or MD5. Null to compute no checksum
+	 */
+	public void setChecksumAlgorithm(String checksumAlgorithm) {
+
+		this.checksumAlgorithm = checksumAlgorithm;
+	}
+
+	public DownloadProgressListener getProgressListener() {
+
+		return progressListener;
+	}
+
+	public void setProgressListener(DownloadProgressListener progressListener) {
+
+		this.progressListener = progressListener;
+	}
+
+	private MessageDigest createDigest() throws IOException {
+
+		if (checksumAlgorithm == null) {
+			return null;
+		}
+		try {
+			return MessageDigest.getInstance(checksumAlgorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("Checksum algorithm not supported: " + checksumAlgorithm, e);
+		}
+	}
+
+	private void reportProgress(long transferredBytes, long totalBytes) {
+
+		if (progressListener != null) {
+			progressListener.onProgress(transferredBytes, totalBytes);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.mambu.apisdk.util;
+
+/**
+ * The range of the content sent in the response to a ranged download request, as given by the Content-Range header of
+ * a 206 (Partial Content) response. A server which doesn't support ranges answers with the whole content, which is
+ * described by a range which is not partial
+ */
+public class ContentRange {
+
+	private final long firstByte;
+	private final long lastByte;
+	private final long totalLength;
+	private final boolean partial;
+	private final String validator;
+
+	public ContentRange(long firstByte, long lastByte, long totalLength, boolean partial, String validator) {
+
+		this.firstByte = firstByte;
+		this.lastByte = lastByte;
+		this.totalLength = totalLength;
+		this.partial = partial;
+		this.validator = validator;
+	}
+
+	/**
+	 * Creates the range of a response with the whole content, sent by a server which doesn't support ranges
+	 *
+	 * @param contentLength
+	 *            the length of the content. Negative if not known
+	 * @param validator
+	 *            the ETag or Last-Modified value of the content. Can be null
+	 * @return content range which is not partial
+	 */
+	public static ContentRange wholeContent(long contentLength, String validator) {
+
+		return new ContentRange(0, contentLength < 0 ? -1 : contentLength - 1, contentLength, false, validator);
+	}
+
+	/**
+	 * Parses the value of a Content-Range header. E.g. "bytes 0-1023/146515"
+	 *
+	 * @param headerValue
+	 *            the Content-Range header value
+	 * @param validator
+	 *            the ETag or Last-Modified value of the content. Can be null
+	 * @return partial content range or null if the header value is not a valid bytes range
+	 */
+	public static ContentRange parse(String headerValue, String validator) {
+
+		if (headerValue == null) {
+			return null;
+		}
+		String value = headerValue.trim();
+		if (!value.startsWith("bytes ")) {
+			return null;
+		}
+		value = value.substring("bytes ".length()).trim();
+
+		int dash = value.indexOf('-');
+		int slash = value.indexOf('/');
+		if (dash < 1 || slash < dash) {
+			return null;
+		}
+		try {
+			long firstByte = Long.parseLong(value.substring(0, dash).trim());
+			long lastByte = Long.parseLong(value.substring(dash + 1, slash).trim());
+			String total = value.substring(slash + 1).trim();
+			long totalLength = "*".equals(total) ? -1 : Long.parseLong(total);
+			if (lastByte < firstByte || (totalLength >= 0 && lastByte >= totalLength)) {
+				return null;
+			}
+			return new ContentRange(firstByte, lastByte, totalLength, true, validator);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the position of the first byte of the range in the whole content
+	 *
+	 * @return first byte position
+	 */
+	public long getFirstByte() {
+
+		return firstByte;
+	}
+
+	/**
+	 * Get the position of the last byte of the range in the whole content, inclusive
+	 *
+	 * @return last byte position. Negative if the length of the whole content is not known
+	 */
+	public long getLastByte() {
+
+		return lastByte;
+	}
+
+	/**
+	 * Get the length of the range
+	 *
+	 * @return length in bytes. Negative if not known
+	 */
+	public long getLength() {
+
+		return lastByte < 0 ? -1 : lastByte - firstByte + 1;
+	}
+
+	/**
+	 * Get the length of the whole content
+	 *
+	 * @return total length in bytes. Negative if not known
+	 */
+	public long getTotalLength() {
+
+		return totalLength;
+	}
+
+	/**
+	 * Whether the response has only a part of the content. False if the server sent the whole content, ignoring the
+	 * requested range
+	 *
+	 * @return true for a 206 (Partial Content) response
+	 */
+	public boolean isPartial() {
+
+		return partial;
+	}
+
+	/**
+	 * Get the validator of the content, used to check that the parts of a resumed download are from the same content
+	 *
+	 * @return the ETag or, if not sent, the Last-Modified value of the content. Null if none was sent
+	 */
+	public String getValidator() {
+
+		return validator;
+	}
+
+	@Override
+	public String toString() {
+
+		return "ContentRange [firstByte=" + firstByte + ", lastByte=" + lastByte + ", totalLength=" + totalLength
+				+ ", partial=" + partial + ", validator=" + validator + "]";
+	}
+}
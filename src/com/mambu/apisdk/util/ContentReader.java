@@ -0,0 +1,27 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the result of a download request (like a DB backup) directly from the binary content of Mambu response. The
+ * binary counterpart of the {@link ResponseReader}, used to stream large downloads without holding them in memory
+ *
+ * @param <R>
+ *            the type of the result
+ */
+public interface ContentReader<R> {
+
+	/**
+	 * Reads the result from Mambu response content
+	 *
+	 * @param content
+	 *            the response content. It is closed by the caller
+	 * @param contentLength
+	 *            the length of the content in bytes, as sent by Mambu. Negative if not known
+	 * @return the result read from the response
+	 * @throws IOException
+	 */
+	R read(InputStream content, long contentLength) throws IOException;
+
+}
@@ -0,0 +1,36 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the content of a request (like a document upload) directly to the request body. The upload counterpart of
+ * the {@link ContentReader}, used to stream large uploads without holding them in memory
+ */
+public interface ContentWriter {
+
+	/**
+	 * Writes the content to the request body
+	 *
+	 * @param output
+	 *            the request body. It is closed by the caller
+	 * @throws IOException
+	 */
+	void writeTo(OutputStream output) throws IOException;
+
+	/**
+	 * Get the length of the content, sent as the Content-Length of the request
+	 *
+	 * @return the length of the content in bytes. Negative if not known, in which case the content is sent with
+	 *         chunked transfer encoding
+	 */
+	long getContentLength();
+
+	/**
+	 * Whether the content can be written more than once, e.g. when a request is retried
+	 *
+	 * @return true if {@link #writeTo(OutputStream)} can be called again
+	 */
+	boolean isRepeatable();
+
+}
@@ -0,0 +1,602 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.binary.Hex;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.DownloadResult;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * On-disk cache of document content responses (documents, images and client profile pictures and signatures, see
+ * {@link ApiDefinition#isDocumentContent()}), used by the {@link ServiceExecutor} when set for a factory. Responses
+ * are cached per request URL and parameters, so that each image size is cached separately.
+ *
+ * Each response is kept in its own file in the cache directory, as returned by Mambu. A response is downloaded to a
+ * temporary file and atomically moved into place, so that concurrent readers never see partial files, and cached
+ * files are read memory-mapped. The cache is bounded by the total size of the cached files, evicting the least
+ * recently used files when full. Files already in the directory are kept when the cache is created, the least recently
+ * modified first to be evicted.
+ *
+ * Every request which changes a document (e.g. deleting a document or uploading a profile picture) evicts the
+ * responses of its URL and of the URLs below it, before it is sent and again once it completes. Other requests, like
+ * creating a new document or a loan repayment, don't evict anything. Since each factory
+ * evicts only its own changes, a cache directory must not be shared by factories or processes.
+ *
+ * This class is thread safe
+ */
+public class DocumentCache {
+
+	public static final long DEFAULT_MAX_SIZE = 256 * 1024 * 1024;
+	static final String FILE_SUFFIX = ".content";
+	private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+	private final static Logger LOGGER = Logger.getLogger(DocumentCache.class.getName());
+
+	private final Path directory;
+	private final long maxSize;
+
+	// Cached files by request key, in access order. Guarded by this
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	// Total size of the cached files. Guarded by this
+	private long size;
+	// Incremented by each invalidation. Guarded by this
+	private long sequence;
+	// Sequence of the last invalidation of each URL, kept while loads started before it are in flight. Guarded by this
+	private final Map<String, Long> invalidations = new HashMap<>();
+	// Sequence of the last invalidation of all responses. Guarded by this
+	private long allInvalidation;
+	// Number of loads in flight by the sequence they started at. Guarded by this
+	private final TreeMap<Long, Integer> loadsInFlight = new TreeMap<>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();
+
+	/**
+	 * A request downloading the response content to be cached
+	 */
+	public interface ContentLoader {
+
+		/**
+		 * Makes the API request, passing its response content to the downloader
+		 *
+		 * @param downloader
+		 *            reads the response content
+		 * @return the result of the downloader
+		 * @throws MambuApiException
+		 */
+		DownloadResult load(ContentReader<DownloadResult> downloader) throws MambuApiException;
+	}
+
+	/**
+	 * Creates a cache holding up to {@value #DEFAULT_MAX_SIZE} bytes of responses
+	 *
+	 * @param directory
+	 *            the cache directory. It is created if it doesn't exist
+	 * @throws IOException
+	 *             if the directory couldn't be created or read
+	 */
+	public DocumentCache(Path directory) throws IOException {
+
+		this(directory, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param directory
+	 *            the cache directory. It is created if it doesn't exist
+	 * @param maxSize
+	 *            the maximum total size of the cached files, in bytes. Must be greater than zero
+	 * @throws IOException
+	 *             if the directory couldn't be created or read
+	 */
+	public DocumentCache(Path directory, long maxSize) throws IOException {
+
+		if (directory == null || maxSize < 1) {
+			throw new IllegalArgumentException("Invalid cache parameters. Directory=" + directory + " Max size="
+					+ maxSize);
+		}
+		this.directory = directory;
+		this.maxSize = maxSize;
+		Files.createDirectories(directory);
+		loadEntries();
+	}
+
+	/**
+	 * Make the key identifying the cached response of a request
+	 *
+	 * @param url
+	 *            the request URL, without parameters
+	 * @param params
+	 *            the request parameters. Can be null
+	 * @return request key
+	 */
+	static String makeRequestKey(String url, ParamsMap params) {
+
+		Map<String, String> sortedParams = params == null ? new TreeMap<String, String>() : new TreeMap<>(params);
+		return url + " " + sortedParams;
+	}
+
+	/**
+	 * Get the paths of the documents changed by a request: the document deleted or updated by a request to
+	 * documents/{id}, together with its image, and the owned documents like the profile picture changed by a request
+	 * to {entity}/{id}/documents/{type}. Creating a document, with a POST to documents, changes no cached document
+	 *
+	 * @param method
+	 *            the method of the request
+	 * @param urlPath
+	 *            the URL path of the request, relative to the API URL. Can contain parameters
+	 * @return the paths of the changed documents. Empty if the request doesn't change documents
+	 */
+	static List<String> getChangedPaths(Method method, String urlPath) {
+
+		if (method == Method.GET || urlPath == null) {
+			return Collections.emptyList();
+		}
+		int queryStart = urlPath.indexOf('?');
+		String path = queryStart < 0 ? urlPath : urlPath.substring(0, queryStart);
+		String[] pathParts = path.split("/");
+		if (pathParts.length >= 2 && (APIData.DOCUMENTS.equals(pathParts[0]) || APIData.IMAGES.equals(pathParts[0]))) {
+			return Arrays.asList(APIData.DOCUMENTS + "/" + pathParts[1], APIData.IMAGES + "/" + pathParts[1]);
+		}
+		if (pathParts.length >= 3 && APIData.DOCUMENTS.equals(pathParts[2])) {
+			return Collections.singletonList(path);
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Read the cached response for the request key, loading and caching it with the loader if it is not cached
+	 *
+	 * @param requestKey
+	 *            key identifying identical requests. See {@link #makeRequestKey(String, ParamsMap)}
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @param loader
+	 *            makes the API request downloading the response content
+	 * @return the result read by the contentReader
+	 * @throws MambuApiException
+	 *             the exception thrown by the loader, or if the response couldn't be read
+	 */
+	<R> R read(String requestKey, ContentReader<R> contentReader, ContentLoader loader) throws MambuApiException {
+
+		final Entry entry;
+		final long loadSequence;
+		synchronized (this) {
+			entry = entries.get(requestKey);
+			loadSequence = sequence;
+			loadsInFlight.merge(loadSequence, 1, Integer::sum);
+		}
+
+		try {
+			if (entry != null) {
+				ByteBuffer content = map(entry.file);
+				if (content != null) {
+					hitCount.incrementAndGet();
+					return readContent(content, contentReader);
+				}
+				// Deleted by someone else
+				synchronized (this) {
+					if (entries.get(requestKey) == entry) {
+						remove(requestKey);
+					}
+				}
+			}
+
+			missCount.incrementAndGet();
+			Path temporaryFile = Files.createTempFile(directory, "document", TEMPORARY_FILE_SUFFIX);
+			try {
+				try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+					channel.write(ByteBuffer.wrap((requestKey + "\n").getBytes(StandardCharsets.UTF_8)));
+					ContentDownloader downloader = new ContentDownloader(channel);
+					downloader.setChecksumAlgorithm(null);
+					loader.load(downloader);
+				}
+				// The mapping stays valid once the file is moved into the cache
+				ByteBuffer content = map(temporaryFile);
+				put(requestKey, temporaryFile, content.limit(), loadSequence);
+				return readContent(content, contentReader);
+			} finally {
+				Files.deleteIfExists(temporaryFile);
+			}
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		} finally {
+			loadCompleted(loadSequence);
+		}
+	}
+
+	/**
+	 * Evict the responses for the URL and for the URLs below it
+	 *
+	 * @param url
+	 *            the URL of a request changing documents, without parameters
+	 */
+	synchronized void invalidate(String url) {
+
+		sequence++;
+		for (String requestKey : new ArrayList<>(entries.keySet())) {
+			if (isBelow(requestKey, url)) {
+				remove(requestKey);
+				invalidationCount.incrementAndGet();
+			}
+		}
+		if (!loadsInFlight.isEmpty()) {
+			invalidations.put(url, sequence);
+		}
+	}
+
+	/**
+	 * Evict all responses, deleting their files
+	 */
+	public synchronized void invalidateAll() {
+
+		sequence++;
+		allInvalidation = sequence;
+		for (String requestKey : new ArrayList<>(entries.keySet())) {
+			remove(requestKey);
+		}
+	}
+
+	/**
+	 * Get the number of reads answered with a cached file
+	 *
+	 * @return number of hits
+	 */
+	public long getHitCount() {
+
+		return hitCount.get();
+	}
+
+	/**
+	 * Get the number of reads which made an API request
+	 *
+	 * @return number of misses
+	 */
+	public long getMissCount() {
+
+		return missCount.get();
+	}
+
+	/**
+	 * Get the number of files removed to keep the cache within its size
+	 *
+	 * @return number of evictions
+	 */
+	public long getEvictionCount() {
+
+		return evictionCount.get();
+	}
+
+	/**
+	 * Get the number of files removed because their document was changed
+	 *
+	 * @return number of invalidated files
+	 */
+	public long getInvalidationCount() {
+
+		return invalidationCount.get();
+	}
+
+	/**
+	 * Get the number of cached files
+	 *
+	 * @return number of files
+	 */
+	public synchronized int getFileCount() {
+
+		return entries.size();
+	}
+
+	/**
+	 * Get the total size of the cached files
+	 *
+	 * @return cache size in bytes
+	 */
+	public synchronized long getSize() {
+
+		return size;
+	}
+
+	public long getMaxSize() {
+
+		return maxSize;
+	}
+
+	public Path getDirectory() {
+
+		return directory;
+	}
+
+	/**
+	 * Moves the downloaded file into the cache, unless its URL was invalidated since the load started or the file is
+	 * larger than the cache
+	 */
+	private synchronized void put(String requestKey, Path downloadedFile, long fileSize, long loadSequence) {
+
+		if (allInvalidation > loadSequence || fileSize > maxSize) {
+			return;
+		}
+		for (Map.Entry<String, Long> invalidation : invalidations.entrySet()) {
+			if (invalidation.getValue() > loadSequence && isBelow(requestKey, invalidation.getKey())) {
+				return;
+			}
+		}
+		Path file = directory.resolve(makeFileName(requestKey));
+		try {
+			move(downloadedFile, file);
+		} catch (IOException e) {
+			LOGGER.warning("Document not cached. Couldn't move it to " + file + ": " + e.getMessage());
+			return;
+		}
+
+		Entry replaced = entries.remove(requestKey);
+		if (replaced != null) {
+			size -= replaced.size;
+		}
+		entries.put(requestKey, new Entry(file, fileSize));
+		size += fileSize;
+		evictLeastRecentlyUsed();
+	}
+
+	/**
+	 * Forgets the invalidations which no load in flight started before
+	 */
+	private synchronized void loadCompleted(long loadSequence) {
+
+		loadsInFlight.computeIfPresent(loadSequence, (key, count) -> count == 1 ? null : count - 1);
+		if (loadsInFlight.isEmpty()) {
+			invalidations.clear();
+		} else {
+			long oldestLoad = loadsInFlight.firstKey();
+			invalidations.values().removeIf(invalidation -> invalidation <= oldestLoad);
+		}
+	}
+
+	/**
+	 * Is the request key the key of a request for the URL or for a URL below it
+	 */
+	private static boolean isBelow(String requestKey, String url) {
+
+		return requestKey.startsWith(url + " ") || requestKey.startsWith(url + "/");
+	}
+
+	/**
+	 * Removes the least recently used files until the cache is within its size. The most recently used file fits on
+	 * its own
+	 */
+	private void evictLeastRecentlyUsed() {
+
+		while (size > maxSize) {
+			remove(entries.keySet().iterator().next());
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes the cached file. Readers which already mapped it keep reading their mapping
+	 */
+	private void remove(String requestKey) {
+
+		Entry entry = entries.remove(requestKey);
+		if (entry == null) {
+			return;
+		}
+		size -= entry.size;
+		try {
+			Files.deleteIfExists(entry.file);
+		} catch (IOException e) {
+			LOGGER.warning("Couldn't delete cached document " + entry.file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds the cached files found in the directory, the least recently modified first, and deletes the temporary
+	 * files left by an interrupted download
+	 */
+	private void loadEntries() throws IOException {
+
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> directoryFiles = Files.newDirectoryStream(directory)) {
+			for (Path file : directoryFiles) {
+				String fileName = file.getFileName().toString();
+				if (fileName.endsWith(TEMPORARY_FILE_SUFFIX)) {
+					Files.deleteIfExists(file);
+				} else if (fileName.endsWith(FILE_SUFFIX)) {
+					files.add(file);
+				}
+			}
+		}
+		Map<Long, List<Path>> filesByModificationTime = new TreeMap<>();
+		for (Path file : files) {
+			long modificationTime = Files.getLastModifiedTime(file).toMillis();
+			List<Path> modifiedFiles = filesByModificationTime.get(modificationTime);
+			if (modifiedFiles == null) {
+				modifiedFiles = new ArrayList<>();
+				filesByModificationTime.put(modificationTime, modifiedFiles);
+			}
+			modifiedFiles.add(file);
+		}
+
+		synchronized (this) {
+			for (List<Path> modifiedFiles : filesByModificationTime.values()) {
+				for (Path file : modifiedFiles) {
+					String requestKey = readRequestKey(file);
+					if (requestKey == null || !file.getFileName().toString().equals(makeFileName(requestKey))) {
+						LOGGER.warning("Ignoring unknown file in the document cache " + file);
+						continue;
+					}
+					long fileSize = Files.size(file);
+					entries.put(requestKey, new Entry(file, fileSize));
+					size += fileSize;
+				}
+			}
+			evictLeastRecentlyUsed();
+		}
+	}
+
+	/**
+	 * Reads the request key in the first line of a cached file
+	 *
+	 * @return the request key or null if the file has no key line
+	 */
+	private static String readRequestKey(Path file) throws IOException {
+
+		ByteBuffer content = map(file);
+		if (content == null) {
+			return null;
+		}
+		int keyEnd = indexOf(content, (byte) '\n');
+		if (keyEnd < 0) {
+			return null;
+		}
+		content.limit(keyEnd);
+		return StandardCharsets.UTF_8.decode(content).toString();
+	}
+
+	/**
+	 * Passes the response in the mapped file to the reader, skipping the request key line
+	 */
+	private static <R> R readContent(ByteBuffer content, ContentReader<R> contentReader) throws IOException {
+
+		content.position(indexOf(content, (byte) '\n') + 1);
+		try (InputStream input = new ByteBufferInputStream(content)) {
+			return contentReader.read(input, content.remaining());
+		}
+	}
+
+	/**
+	 * Maps the file for reading
+	 *
+	 * @return the mapped file or null if it doesn't exist
+	 */
+	private static MappedByteBuffer map(Path file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static int indexOf(ByteBuffer content, byte searched) {
+
+		for (int i = content.position(); i < content.limit(); i++) {
+			if (content.get(i) == searched) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Makes the file name from the SHA-256 hash of the request key, as URLs and parameters can't be file names
+	 */
+	private static String makeFileName(String requestKey) {
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Hex.encodeHexString(digest.digest(requestKey.getBytes(StandardCharsets.UTF_8))) + FILE_SUFFIX;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads the remaining bytes of a buffer
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+
+			int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+
+			return buffer.remaining();
+		}
+	}
+
+	/**
+	 * A cached file
+	 */
+	private static class Entry {
+
+		private final Path file;
+		private final long size;
+
+		Entry(Path file, long size) {
+			this.file = file;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Listener notified of the progress of a download, in the downloading thread
+ */
+@FunctionalInterface
+public interface DownloadProgressListener {
+
+	/**
+	 * Called after each chunk of the content was written to its destination
+	 *
+	 * @param transferredBytes
+	 *            the number of bytes written so far
+	 * @param totalBytes
+	 *            the total number of bytes to download. Negative if not known
+	 */
+	void onProgress(long transferredBytes, long totalBytes);
+}
@@ -0,0 +1,492 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestCoalescer.CoalescedRequest;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Cache of single entities (e.g. a client, a loan account or a savings account) read with GET_ENTITY and
+ * GET_ENTITY_DETAILS requests, used by the {@link ServiceExecutor} when set for a factory.
+ *
+ * Entities are identified by their {@link MambuEntityType} and either their id or their encoded key: a cached entity
+ * is indexed by both, whichever was used to read it. Every request which changes an entity (POST, PATCH or DELETE of
+ * the entity, of entities it owns like transactions or custom field values, or actions on it like approvals) evicts it
+ * before it is sent and again once it completes, so that a caller always reads its own changes made through the same
+ * factory. A transfer also evicts the destination account. Changes made outside the factory are seen once the entity
+ * expires.
+ *
+ * The cache is bounded by the total length of the cached responses, evicting the least recently used responses when
+ * full. Responses are cached as the response strings returned by Mambu, so that each caller parses its own objects.
+ *
+ * This class is thread safe
+ */
+public class EntityCache {
+
+	public static final long DEFAULT_MAX_WEIGHT = 10 * 1024 * 1024;
+
+	private final long maxWeight;
+	private final long timeToLiveMillis;
+	// API end points of the cached entity types
+	private final Set<String> cachedEndPoints = new HashSet<>();
+	private final LongSupplier clock;
+
+	// Cached responses by request key, in access order. Guarded by this
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	// Request keys of the cached responses by entity reference (end point/id and end point/encoded key). Guarded by
+	// this
+	private final Map<String, Set<String>> requestKeysByEntity = new HashMap<>();
+	// Total length of the cached responses. Guarded by this
+	private long weight;
+	// Incremented by each invalidation. Guarded by this
+	private long sequence;
+	// Sequence of the last invalidation of each entity reference, kept while loads started before it are in flight.
+	// Guarded by this
+	private final Map<String, Long> invalidations = new HashMap<>();
+	// Sequence of the last invalidation of all entities. Guarded by this
+	private long allInvalidation;
+	// Number of loads in flight by the sequence they started at. Guarded by this
+	private final TreeMap<Long, Integer> loadsInFlight = new TreeMap<>();
+
+	private final RequestCoalescer loads = new RequestCoalescer();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();
+
+	/**
+	 * Creates a cache holding up to {@value #DEFAULT_MAX_WEIGHT} characters of responses
+	 *
+	 * @param timeToLive
+	 *            how long a cached entity is returned
+	 * @param unit
+	 *            time unit of the time to live
+	 * @param entityTypes
+	 *            the cached entity types. Must not be empty
+	 */
+	public EntityCache(long timeToLive, TimeUnit unit, MambuEntityType... entityTypes) {
+
+		this(DEFAULT_MAX_WEIGHT, timeToLive, unit, entityTypes);
+	}
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param maxWeight
+	 *            the maximum total length of the cached responses, in characters. Must be greater than zero
+	 * @param timeToLive
+	 *            how long a cached entity is returned. Must be greater than zero
+	 * @param unit
+	 *            time unit of the time to live
+	 * @param entityTypes
+	 *            the cached entity types. Must not be empty
+	 */
+	public EntityCache(long maxWeight, long timeToLive, TimeUnit unit, MambuEntityType... entityTypes) {
+
+		this(maxWeight, unit == null ? 0 : unit.toMillis(timeToLive), System::currentTimeMillis, entityTypes);
+	}
+
+	EntityCache(long maxWeight, long timeToLiveMillis, LongSupplier clock, MambuEntityType... entityTypes) {
+
+		if (maxWeight < 1 || timeToLiveMillis < 1 || entityTypes == null || entityTypes.length == 0) {
+			throw new IllegalArgumentException("Invalid cache parameters. Max weight=" + maxWeight
+					+ " Time to live=" + timeToLiveMillis);
+		}
+		this.maxWeight = maxWeight;
+		this.timeToLiveMillis = timeToLiveMillis;
+		this.clock = clock;
+		for (MambuEntityType entityType : entityTypes) {
+			cachedEndPoints.add(getEndPoint(entityType));
+		}
+	}
+
+	/**
+	 * Get the reference of the entity read by a request, if the response can be cached
+	 *
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            the object id of the request
+	 * @return the entity reference or null if the response is not cached
+	 */
+	String getCachedEntity(ApiDefinition apiDefinition, String objectId) {
+
+		ApiType apiType = apiDefinition.getApiType();
+		if (apiDefinition.getMethod() != Method.GET || apiDefinition.getUrlPath() != null
+				|| apiDefinition.getApiReturnFormat() != ApiReturnFormat.OBJECT || objectId == null
+				|| (apiType != ApiType.GET_ENTITY && apiType != ApiType.GET_ENTITY_DETAILS)) {
+			return null;
+		}
+		return cachedEndPoints.contains(apiDefinition.getEndPoint()) ? makeEntityReference(apiDefinition
+				.getEndPoint(), objectId) : null;
+	}
+
+	/**
+	 * Get the references of the cached entity types changed by a request. The changed entity is identified by the
+	 * first two parts of the request's URL path: end point/object id
+	 *
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            the object id of the request. Can be null
+	 * @param paramsMap
+	 *            the request parameters. Can be null
+	 * @return references of the changed entities. Empty if the request doesn't change cached entity types
+	 */
+	Set<String> getChangedEntities(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap) {
+
+		if (apiDefinition.getMethod() == Method.GET) {
+			return Collections.emptySet();
+		}
+		Set<String> changedEntities = new LinkedHashSet<>();
+		String urlPath = apiDefinition.getUrlPath();
+		if (urlPath != null) {
+			String[] pathParts = urlPath.split("[/?]");
+			if (pathParts.length > 1) {
+				addCachedEntity(changedEntities, pathParts[0], pathParts[1]);
+			}
+		} else {
+			addCachedEntity(changedEntities, apiDefinition.getEndPoint(), objectId);
+		}
+		if (paramsMap != null) {
+			// Transfers change the destination account too
+			addCachedEntity(changedEntities, APIData.SAVINGS, paramsMap.get(APIData.TO_SAVINGS));
+			addCachedEntity(changedEntities, APIData.LOANS, paramsMap.get(APIData.TO_LOAN));
+		}
+		return changedEntities;
+	}
+
+	/**
+	 * Get the cached response for the request key, loading it with the loader if it is not cached or it has expired
+	 *
+	 * @param entityReference
+	 *            reference of the read entity, as returned by {@link #getCachedEntity(ApiDefinition, String)}
+	 * @param requestKey
+	 *            key identifying identical requests
+	 * @param loader
+	 *            makes the API request returning the response
+	 * @return the response string
+	 * @throws MambuApiException
+	 *             the exception thrown by the loader
+	 */
+	String get(final String entityReference, final String requestKey, final CoalescedRequest<String> loader)
+			throws MambuApiException {
+
+		final long loadSequence;
+		final long entityVersion;
+		synchronized (this) {
+			Entry entry = entries.get(requestKey);
+			if (entry != null && clock.getAsLong() < entry.expiresAt) {
+				hitCount.incrementAndGet();
+				return entry.response;
+			}
+			if (entry != null) {
+				remove(requestKey);
+			}
+			loadSequence = sequence;
+			entityVersion = Math.max(allInvalidation, getInvalidation(entityReference));
+			loadsInFlight.merge(loadSequence, 1, Integer::sum);
+		}
+
+		missCount.incrementAndGet();
+		try {
+			// Only loads started after the last change of the entity are joined, so that a caller always reads its
+			// own changes
+			return loads.execute(requestKey + "#" + entityVersion, () -> {
+				String response = loader.execute();
+				put(entityReference, requestKey, response, loadSequence);
+				return response;
+			});
+		} finally {
+			loadCompleted(loadSequence);
+		}
+	}
+
+	/**
+	 * Evict the entities
+	 *
+	 * @param entityReferences
+	 *            references of the entities, as returned by {@link #getChangedEntities(ApiDefinition, String, ParamsMap)}
+	 */
+	synchronized void invalidate(Collection<String> entityReferences) {
+
+		sequence++;
+		Set<String> changedReferences = new HashSet<>(entityReferences);
+		for (String entityReference : entityReferences) {
+			Set<String> requestKeys = requestKeysByEntity.get(entityReference);
+			if (requestKeys != null) {
+				for (String requestKey : new HashSet<>(requestKeys)) {
+					// The entity is changed whether it's referenced by its id or by its encoded key
+					changedReferences.addAll(entries.get(requestKey).entityReferences);
+					remove(requestKey);
+					invalidationCount.incrementAndGet();
+				}
+			}
+		}
+		if (!loadsInFlight.isEmpty()) {
+			for (String changedReference : changedReferences) {
+				invalidations.put(changedReference, sequence);
+			}
+		}
+	}
+
+	/**
+	 * Evict an entity
+	 *
+	 * @param entityType
+	 *            the entity type
+	 * @param entityId
+	 *            the entity id or encoded key
+	 */
+	public void invalidate(MambuEntityType entityType, String entityId) {
+
+		invalidate(Collections.singleton(makeEntityReference(getEndPoint(entityType), entityId)));
+	}
+
+	/**
+	 * Evict all entities
+	 */
+	public synchronized void invalidateAll() {
+
+		sequence++;
+		allInvalidation = sequence;
+		entries.clear();
+		requestKeysByEntity.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Get the number of reads answered with a cached entity
+	 *
+	 * @return number of hits
+	 */
+	public long getHitCount() {
+
+		return hitCount.get();
+	}
+
+	/**
+	 * Get the number of reads which made an API request
+	 *
+	 * @return number of misses
+	 */
+	public long getMissCount() {
+
+		return missCount.get();
+	}
+
+	/**
+	 * Get the number of responses removed to keep the cache within its weight
+	 *
+	 * @return number of evictions
+	 */
+	public long getEvictionCount() {
+
+		return evictionCount.get();
+	}
+
+	/**
+	 * Get the number of responses removed because their entity was changed or invalidated
+	 *
+	 * @return number of invalidated responses
+	 */
+	public long getInvalidationCount() {
+
+		return invalidationCount.get();
+	}
+
+	/**
+	 * Get the number of cached responses, including the expired responses not removed yet
+	 *
+	 * @return cache size
+	 */
+	public synchronized int size() {
+
+		return entries.size();
+	}
+
+	/**
+	 * Get the total length of the cached responses
+	 *
+	 * @return cache weight in characters
+	 */
+	public synchronized long getWeight() {
+
+		return weight;
+	}
+
+	public long getMaxWeight() {
+
+		return maxWeight;
+	}
+
+	public long getTimeToLiveMillis() {
+
+		return timeToLiveMillis;
+	}
+
+	/**
+	 * Caches the response, unless its entity was invalidated since the load started. The response is indexed by the
+	 * requested entity reference and by the id and encoded key of the returned entity
+	 */
+	private synchronized void put(String entityReference, String requestKey, String response, long loadSequence) {
+
+		if (response == null || allInvalidation > loadSequence || response.length() > maxWeight) {
+			return;
+		}
+		Set<String> entityReferences = new HashSet<>();
+		entityReferences.add(entityReference);
+		String endPoint = entityReference.substring(0, entityReference.indexOf('/'));
+		for (String identifier : readIdentifiers(response)) {
+			entityReferences.add(makeEntityReference(endPoint, identifier));
+		}
+		for (String reference : entityReferences) {
+			if (getInvalidation(reference) > loadSequence) {
+				return;
+			}
+		}
+
+		remove(requestKey);
+		entries.put(requestKey, new Entry(response, entityReferences, clock.getAsLong() + timeToLiveMillis));
+		weight += response.length();
+		for (String reference : entityReferences) {
+			Set<String> requestKeys = requestKeysByEntity.get(reference);
+			if (requestKeys == null) {
+				requestKeys = new HashSet<>();
+				requestKeysByEntity.put(reference, requestKeys);
+			}
+			requestKeys.add(requestKey);
+		}
+
+		// The new response is the most recently used, and fits on its own
+		while (weight > maxWeight) {
+			remove(entries.keySet().iterator().next());
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Get the sequence of the last invalidation of an entity which may matter to the loads in flight
+	 */
+	private long getInvalidation(String entityReference) {
+
+		Long invalidation = invalidations.get(entityReference);
+		return invalidation == null ? 0 : invalidation;
+	}
+
+	/**
+	 * Forgets the invalidations which no load in flight started before
+	 */
+	private synchronized void loadCompleted(long loadSequence) {
+
+		loadsInFlight.computeIfPresent(loadSequence, (key, count) -> count == 1 ? null : count - 1);
+		if (loadsInFlight.isEmpty()) {
+			invalidations.clear();
+		} else {
+			long oldestLoad = loadsInFlight.firstKey();
+			invalidations.values().removeIf(invalidation -> invalidation <= oldestLoad);
+		}
+	}
+
+	/**
+	 * Removes the cached response and its index entries
+	 */
+	private void remove(String requestKey) {
+
+		Entry entry = entries.remove(requestKey);
+		if (entry == null) {
+			return;
+		}
+		weight -= entry.response.length();
+		for (String reference : entry.entityReferences) {
+			Set<String> requestKeys = requestKeysByEntity.get(reference);
+			if (requestKeys != null) {
+				requestKeys.remove(requestKey);
+				if (requestKeys.isEmpty()) {
+					requestKeysByEntity.remove(reference);
+				}
+			}
+		}
+	}
+
+	private void addCachedEntity(Set<String> entityReferences, String endPoint, String entityId) {
+
+		if (endPoint != null && entityId != null && !entityId.isEmpty() && cachedEndPoints.contains(endPoint)) {
+			entityReferences.add(makeEntityReference(endPoint, entityId));
+		}
+	}
+
+	private static String makeEntityReference(String endPoint, String entityId) {
+
+		return endPoint + "/" + entityId;
+	}
+
+	private static String getEndPoint(MambuEntityType entityType) {
+
+		if (entityType == null) {
+			throw new IllegalArgumentException("Entity type must not be null");
+		}
+		return ApiDefinition.getApiEndPoint(entityType.getEntityClass());
+	}
+
+	/**
+	 * Reads the id and the encoded key of the entity in the response, skipping all other values
+	 */
+	private static Set<String> readIdentifiers(String response) {
+
+		Set<String> identifiers = new HashSet<>();
+		try (JsonReader reader = new JsonReader(new StringReader(response))) {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				return identifiers;
+			}
+			reader.beginObject();
+			while (reader.hasNext() && identifiers.size() < 2) {
+				String name = reader.nextName();
+				if ((APIData.ID.equals(name) || APIData.ENCODED_KEY.equals(name))
+						&& reader.peek() == JsonToken.STRING) {
+					identifiers.add(reader.nextString());
+				} else {
+					reader.skipValue();
+				}
+			}
+		} catch (IOException | IllegalStateException e) {
+			// Not an entity. It's still indexed by the requested reference
+		}
+		return identifiers;
+	}
+
+	/**
+	 * A cached response
+	 */
+	private static class Entry {
+
+		private final String response;
+		private final Set<String> entityReferences;
+		private final long expiresAt;
+
+		Entry(String response, Set<String> entityReferences, long expiresAt) {
+			this.response = response;
+			this.entityReferences = entityReferences;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
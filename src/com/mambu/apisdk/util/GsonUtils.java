@@ -3,15 +3,17 @@
  */
 package com.mambu.apisdk.util;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.gson.ExclusionStrategy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonSerializer;
 
 /**
  * Utill class for gson formatting
@@ -23,6 +25,11 @@ public class GsonUtils {
 
 	public static final String defaultDateTimeFormat = "yyyy-MM-dd'T'HH:mm:ssZ";
 
+	// Gson instances are thread safe and keep a cache of the type adapters created for each class. Building a new Gson
+	// for each request throws this cache away, so the Gson instances are cached per their configuration
+	private static final int MAX_CACHED_GSON_INSTANCES = 256;
+	private static final ConcurrentMap<GsonConfiguration, Gson> gsonCache = new ConcurrentHashMap<>();
+
 	/**
 	 * Creates a GSON instance with default date/time format
 	 * 
@@ -30,7 +37,7 @@ public class GsonUtils {
 	 */
 	public static Gson createGson() {
 		// Create with the default date/time format
-		return new GsonBuilder().setDateFormat(defaultDateTimeFormat).create();
+		return createGson(defaultDateTimeFormat);
 	}
 
 	/**
@@ -63,8 +70,23 @@ public class GsonUtils {
 	 */
 	public static Gson createGson(String dateTimeFormat) {
 		// Create with the specified dateTimeFormat
-		GsonBuilder gsonBuilder = createGsonBuilder(dateTimeFormat);
-		return gsonBuilder.create();
+		return getGson(new GsonConfiguration(dateTimeFormat));
+	}
+
+	/***
+	 * Creates a GSON instance specifying custom date/time format and a serialization exclusion strategy
+	 * 
+	 * @param dateTimeFormat
+	 *            date/time format. If null, default date/time format is used
+	 * @param serializationExclusionStrategy
+	 *            the serialization exclusion strategy
+	 * @return the GSON instance
+	 */
+	public static Gson createGson(String dateTimeFormat, ExclusionStrategy serializationExclusionStrategy) {
+
+		GsonConfiguration configuration = new GsonConfiguration(dateTimeFormat);
+		configuration.serializationExclusionStrategies.add(serializationExclusionStrategy);
+		return getGson(configuration);
 	}
 
 	/**
@@ -77,27 +99,13 @@ public class GsonUtils {
 	 */
 	public static Gson createSerializerGson(ApiDefinition apiDefinition) {
 
-		String dateTimeFormat = apiDefinition.getJsonDateTimeFormat();
-		GsonBuilder gsonBuilder = GsonUtils.createGsonBuilder(dateTimeFormat);
+		GsonConfiguration configuration = new GsonConfiguration(apiDefinition.getJsonDateTimeFormat());
 
 		// Add optional serialisation Exclusion Strategies
-		List<ExclusionStrategy> serializationExclusionStrategies = apiDefinition.getSerializationExclusionStrategies();
-		if (serializationExclusionStrategies != null) {
-			for (ExclusionStrategy exclusionStrategy : serializationExclusionStrategies) {
-				gsonBuilder.addSerializationExclusionStrategy(exclusionStrategy);
-			}
-		}
-		// Add optional JsonSerializer adapters to the builder as specified in ApiDefinition
-		HashMap<Class<?>, JsonSerializer<?>> serializers = apiDefinition.getJsonSerializers();
-		if (serializers != null && serializers.size() != 0) {
-			for (Map.Entry<Class<?>, JsonSerializer<?>> entry : serializers.entrySet()) {
-				// Register each type adapter.
-				// NOTE: register as Type Hierarchy adapter, otherwise if doesn't seem to work on Android if registering
-				// just as a "registerTypeAdapter()"
-				gsonBuilder.registerTypeHierarchyAdapter(entry.getKey(), entry.getValue());
-			}
-		}
-		return gsonBuilder.create();
+		configuration.serializationExclusionStrategies.addAll(apiDefinition.getSerializationExclusionStrategies());
+		// Add optional JsonSerializer adapters as specified in ApiDefinition
+		configuration.typeHierarchyAdapters.putAll(apiDefinition.getJsonSerializers());
+		return getGson(configuration);
 	}
 
 	/**
@@ -110,17 +118,96 @@ public class GsonUtils {
 	 */
 	public static Gson createDeserializerGson(ApiDefinition apiDefinition) {
 
-		String dateTimeFormat = GsonUtils.defaultDateTimeFormat;
-		GsonBuilder gsonBuilder = GsonUtils.createGsonBuilder(dateTimeFormat);
+		GsonConfiguration configuration = new GsonConfiguration(GsonUtils.defaultDateTimeFormat);
+
+		// Add optional JsonDeserializer type adapters as specified in ApiDefinition
+		configuration.typeAdapters.putAll(apiDefinition.getJsonDeserializers());
+		return getGson(configuration);
+	}
 
-		// Add optional JsonDeserializer type adapters to the builder as specified in ApiDefinition
-		HashMap<Class<?>, JsonDeserializer<?>> deserializers = apiDefinition.getJsonDeserializers();
-		if (deserializers != null && deserializers.size() > 0) {
-			for (Map.Entry<Class<?>, JsonDeserializer<?>> entry : deserializers.entrySet()) {
+	/**
+	 * Gets the cached Gson instance for the given configuration, creating it if needed. Gson instances are not cached
+	 * any more once the cache is full (e.g. if ApiDefinitions with new serializer instances are created for each
+	 * request), they are then created for each call as before
+	 * 
+	 * @param configuration
+	 *            Gson configuration
+	 * @return Gson instance for the configuration
+	 */
+	private static Gson getGson(GsonConfiguration configuration) {
+
+		Gson gson = gsonCache.get(configuration);
+		if (gson != null) {
+			return gson;
+		}
+		gson = configuration.createGson();
+		if (gsonCache.size() < MAX_CACHED_GSON_INSTANCES) {
+			Gson cachedGson = gsonCache.putIfAbsent(configuration, gson);
+			if (cachedGson != null) {
+				return cachedGson;
+			}
+		}
+		return gson;
+	}
+
+	/**
+	 * The effective configuration of a Gson instance: the date/time format, serialization exclusion strategies and the
+	 * registered serializers and deserializers. Used as the key of the Gson cache. Strategies and adapters are compared
+	 * by identity, as they are usually created once for each ApiDefinition
+	 */
+	private static final class GsonConfiguration {
+
+		private final String dateTimeFormat;
+		private final List<ExclusionStrategy> serializationExclusionStrategies = new ArrayList<>();
+		// Adapters registered with registerTypeHierarchyAdapter(), used for the serializers
+		private final Map<Class<?>, Object> typeHierarchyAdapters = new LinkedHashMap<>();
+		// Adapters registered with registerTypeAdapter(), used for the deserializers
+		private final Map<Class<?>, Object> typeAdapters = new LinkedHashMap<>();
+
+		private GsonConfiguration(String dateTimeFormat) {
+
+			this.dateTimeFormat = (dateTimeFormat == null) ? defaultDateTimeFormat : dateTimeFormat;
+		}
+
+		private Gson createGson() {
+
+			GsonBuilder gsonBuilder = createGsonBuilder(dateTimeFormat);
+			for (ExclusionStrategy exclusionStrategy : serializationExclusionStrategies) {
+				gsonBuilder.addSerializationExclusionStrategy(exclusionStrategy);
+			}
+			for (Map.Entry<Class<?>, Object> entry : typeHierarchyAdapters.entrySet()) {
+				// Register each type adapter.
+				// NOTE: register as Type Hierarchy adapter, otherwise if doesn't seem to work on Android if registering
+				// just as a "registerTypeAdapter()"
+				gsonBuilder.registerTypeHierarchyAdapter(entry.getKey(), entry.getValue());
+			}
+			for (Map.Entry<Class<?>, Object> entry : typeAdapters.entrySet()) {
 				gsonBuilder.registerTypeAdapter(entry.getKey(), entry.getValue());
 			}
+			return gsonBuilder.create();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof GsonConfiguration)) {
+				return false;
+			}
+			GsonConfiguration other = (GsonConfiguration) o;
+			return dateTimeFormat.equals(other.dateTimeFormat)
+					&& serializationExclusionStrategies.equals(other.serializationExclusionStrategies)
+					&& typeHierarchyAdapters.equals(other.typeHierarchyAdapters)
+					&& typeAdapters.equals(other.typeAdapters);
+		}
+
+		@Override
+		public int hashCode() {
+
+			return Objects.hash(dateTimeFormat, serializationExclusionStrategies, typeHierarchyAdapters, typeAdapters);
 		}
-		return gsonBuilder.create();
 	}
 
 }
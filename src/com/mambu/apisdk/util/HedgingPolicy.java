@@ -0,0 +1,402 @@
+package com.mambu.apisdk.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Policy hedging the latency-sensitive GET requests: when a request hasn't answered within the hedge delay, a duplicate
+ * request is sent, the first successful response is used and the other request is cancelled. The hedge delay of an
+ * endpoint is a percentile (by default the 95th) of the latencies of its last responses, so that only the slowest
+ * requests are hedged.
+ *
+ * Hedges are limited by a budget: each request adds the budget ratio to the budget, up to the max budget, and each
+ * hedge takes one from it. By default at most 1 in 10 requests is hedged, so that a slow Mambu is not loaded even more.
+ *
+ * The policy is set with {@link com.mambu.apisdk.MambuAPIServiceFactory#setHedgingPolicy(HedgingPolicy)} and applies to
+ * the GET APIs of the hedged API types, by default {@link ApiType#GET_ENTITY} and {@link ApiType#GET_ENTITY_DETAILS}.
+ * Requests are sent with the asynchronous executor of the factory.
+ *
+ * The settings are expected to be set before the policy is used. The counters are thread safe
+ */
+public class HedgingPolicy {
+
+	public static final double DEFAULT_DELAY_PERCENTILE = 0.95;
+	public static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
+	public static final long DEFAULT_MIN_DELAY_MILLIS = 20;
+	public static final double DEFAULT_BUDGET_RATIO = 0.1;
+	public static final double DEFAULT_MAX_BUDGET = 10;
+	// Number of last latencies of an endpoint giving its hedge delay, and the number needed to use them
+	private static final int LATENCY_WINDOW_SIZE = 200;
+	private static final int MIN_LATENCY_SAMPLES = 20;
+
+	private final static Logger LOGGER = Logger.getLogger(HedgingPolicy.class.getName());
+
+	private Set<ApiType> apiTypes = Collections.unmodifiableSet(EnumSet.of(ApiType.GET_ENTITY,
+			ApiType.GET_ENTITY_DETAILS));
+	private double delayPercentile = DEFAULT_DELAY_PERCENTILE;
+	private long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+	private long minDelayMillis = DEFAULT_MIN_DELAY_MILLIS;
+	private double budgetRatio = DEFAULT_BUDGET_RATIO;
+	private double maxBudget = DEFAULT_MAX_BUDGET;
+
+	private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+	private double budget;
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong hedgeCount = new AtomicLong();
+	private final AtomicLong hedgeWonCount = new AtomicLong();
+	private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+	/**
+	 * Is the API hedged by this policy
+	 *
+	 * @param apiDefinition
+	 *            API definition
+	 * @return true for the GET APIs of the hedged API types, except for ZIP archives and document content
+	 */
+	public boolean isHedged(ApiDefinition apiDefinition) {
+
+		return apiDefinition.getMethod() == Method.GET && apiTypes.contains(apiDefinition.getApiType())
+				&& apiDefinition.getApiReturnFormat() != ApiReturnFormat.ZIP_ARCHIVE
+				&& !apiDefinition.isDocumentContent();
+	}
+
+	/**
+	 * Executes a request, hedging it if it hasn't answered within the hedge delay of its endpoint
+	 *
+	 * @param endpoint
+	 *            the endpoint of the request, see {@link CircuitBreaker#getEndpoint(ApiDefinition)}
+	 * @param request
+	 *            sends the request asynchronously. Called once more for the hedge
+	 * @return the first successful response
+	 * @throws MambuApiException
+	 *             the exception of the request, or of the hedge if both failed
+	 */
+	public <T> T execute(String endpoint, Supplier<CompletableFuture<T>> request) throws MambuApiException {
+
+		requestCount.incrementAndGet();
+		addBudget();
+		LatencyWindow latencyWindow = latencies.computeIfAbsent(endpoint, key -> new LatencyWindow());
+
+		long start = System.nanoTime();
+		CompletableFuture<T> first = request.get();
+		try {
+			T result = first.get(getDelayMillis(latencyWindow), TimeUnit.MILLISECONDS);
+			latencyWindow.add(start);
+			return result;
+		} catch (TimeoutException e) {
+			// Hedge below
+		} catch (InterruptedException e) {
+			first.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+
+		if (!tryTakeBudget()) {
+			budgetExhaustedCount.incrementAndGet();
+			T result = await(first);
+			latencyWindow.add(start);
+			return result;
+		}
+
+		hedgeCount.incrementAndGet();
+		CompletableFuture<T> hedge = request.get();
+		CompletableFuture<CompletableFuture<T>> winner = firstSuccessful(first, hedge);
+		try {
+			CompletableFuture<T> won = await(winner);
+			CompletableFuture<T> lost = won == first ? hedge : first;
+			lost.cancel(true);
+			if (won == hedge) {
+				hedgeWonCount.incrementAndGet();
+				LOGGER.fine("Hedge won for endpoint " + endpoint);
+			}
+			// The latency seen by the caller: a lower bound of the latency of a request losing to its hedge
+			latencyWindow.add(start);
+			return won.getNow(null);
+		} catch (MambuApiException | RuntimeException e) {
+			first.cancel(true);
+			hedge.cancel(true);
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the delay before a request to an endpoint is hedged
+	 *
+	 * @param endpoint
+	 *            the endpoint
+	 * @return delay in milliseconds
+	 */
+	public long getDelayMillis(String endpoint) {
+
+		LatencyWindow latencyWindow = latencies.get(endpoint);
+		return latencyWindow == null ? Math.max(minDelayMillis, initialDelayMillis) : getDelayMillis(latencyWindow);
+	}
+
+	private long getDelayMillis(LatencyWindow latencyWindow) {
+
+		long percentileMillis = latencyWindow.getPercentileMillis(delayPercentile);
+		return Math.max(minDelayMillis, percentileMillis < 0 ? initialDelayMillis : percentileMillis);
+	}
+
+	private synchronized void addBudget() {
+
+		budget = Math.min(maxBudget, budget + budgetRatio);
+	}
+
+	private synchronized boolean tryTakeBudget() {
+
+		if (budget < 1) {
+			return false;
+		}
+		budget--;
+		return true;
+	}
+
+	/**
+	 * Makes a future completed with the first of the futures completing successfully, or failed if both fail
+	 */
+	private static <T> CompletableFuture<CompletableFuture<T>> firstSuccessful(CompletableFuture<T> first,
+			CompletableFuture<T> second) {
+
+		final CompletableFuture<CompletableFuture<T>> winner = new CompletableFuture<>();
+		final AtomicInteger failures = new AtomicInteger();
+		for (final CompletableFuture<T> future : Arrays.asList(first, second)) {
+			future.whenComplete((result, exception) -> {
+				if (exception == null) {
+					winner.complete(future);
+				} else if (failures.incrementAndGet() == 2) {
+					winner.completeExceptionally(exception);
+				}
+			});
+		}
+		return winner;
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws MambuApiException {
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private static MambuApiException unwrap(ExecutionException e) {
+
+		Throwable cause = e.getCause();
+		if (cause instanceof MambuApiException) {
+			return (MambuApiException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new MambuApiException((Exception) cause);
+	}
+
+	/**
+	 * The latencies of the last successful responses of an endpoint
+	 */
+	private static class LatencyWindow {
+
+		private final long[] latencyMillis = new long[LATENCY_WINDOW_SIZE];
+		private int next;
+		private int count;
+
+		synchronized void add(long startNanos) {
+
+			latencyMillis[next] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+			next = (next + 1) % latencyMillis.length;
+			count = Math.min(count + 1, latencyMillis.length);
+		}
+
+		/**
+		 * @return the percentile of the latencies, or -1 if there are not enough latencies yet
+		 */
+		synchronized long getPercentileMillis(double percentile) {
+
+			if (count < MIN_LATENCY_SAMPLES) {
+				return -1;
+			}
+			long[] sorted = Arrays.copyOf(latencyMillis, count);
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(percentile * count) - 1;
+			return sorted[Math.max(0, Math.min(index, count - 1))];
+		}
+	}
+
+	/**
+	 * Get the number of requests executed by this policy
+	 *
+	 * @return number of requests
+	 */
+	public long getRequestCount() {
+
+		return requestCount.get();
+	}
+
+	/**
+	 * Get the number of hedges sent
+	 *
+	 * @return number of hedges
+	 */
+	public long getHedgeCount() {
+
+		return hedgeCount.get();
+	}
+
+	/**
+	 * Get the number of hedges answering before the request they duplicated
+	 *
+	 * @return number of hedges won
+	 */
+	public long getHedgeWonCount() {
+
+		return hedgeWonCount.get();
+	}
+
+	/**
+	 * Get the number of slow requests not hedged because the budget was used up
+	 *
+	 * @return number of requests not hedged
+	 */
+	public long getBudgetExhaustedCount() {
+
+		return budgetExhaustedCount.get();
+	}
+
+	public Set<ApiType> getApiTypes() {
+
+		return apiTypes;
+	}
+
+	/**
+	 * Set the API types hedged by this policy. Only their GET APIs are hedged
+	 *
+	 * @param apiTypes
+	 *            the API types. Must not be null
+	 */
+	public void setApiTypes(Set<ApiType> apiTypes) {
+
+		if (apiTypes == null) {
+			throw new IllegalArgumentException("API types must not be null");
+		}
+		this.apiTypes = Collections.unmodifiableSet(apiTypes.isEmpty() ? EnumSet.noneOf(ApiType.class) : EnumSet
+				.copyOf(apiTypes));
+	}
+
+	public double getDelayPercentile() {
+
+		return delayPercentile;
+	}
+
+	/**
+	 * Set the percentile of the latencies of an endpoint used as its hedge delay
+	 *
+	 * @param delayPercentile
+	 *            percentile greater than 0 and not greater than 1, e.g. 0.95
+	 */
+	public void setDelayPercentile(double delayPercentile) {
+
+		if (delayPercentile <= 0 || delayPercentile > 1) {
+			throw new IllegalArgumentException("Delay percentile must be greater than 0 and not greater than 1");
+		}
+		this.delayPercentile = delayPercentile;
+	}
+
+	public long getInitialDelayMillis() {
+
+		return initialDelayMillis;
+	}
+
+	/**
+	 * Set the hedge delay of an endpoint until enough of its latencies are known
+	 *
+	 * @param initialDelayMillis
+	 *            delay in milliseconds
+	 */
+	public void setInitialDelayMillis(long initialDelayMillis) {
+
+		if (initialDelayMillis < 0) {
+			throw new IllegalArgumentException("Initial delay must not be negative");
+		}
+		this.initialDelayMillis = initialDelayMillis;
+	}
+
+	public long getMinDelayMillis() {
+
+		return minDelayMillis;
+	}
+
+	public void setMinDelayMillis(long minDelayMillis) {
+
+		if (minDelayMillis < 0) {
+			throw new IllegalArgumentException("Min delay must not be negative");
+		}
+		this.minDelayMillis = minDelayMillis;
+	}
+
+	public double getBudgetRatio() {
+
+		return budgetRatio;
+	}
+
+	/**
+	 * Set the share of the requests which can be hedged
+	 *
+	 * @param budgetRatio
+	 *            ratio between 0 and 1, e.g. 0.1 to hedge at most 1 in 10 requests
+	 */
+	public void setBudgetRatio(double budgetRatio) {
+
+		if (budgetRatio < 0 || budgetRatio > 1) {
+			throw new IllegalArgumentException("Budget ratio must be between 0 and 1");
+		}
+		this.budgetRatio = budgetRatio;
+	}
+
+	public double getMaxBudget() {
+
+		return maxBudget;
+	}
+
+	/**
+	 * Set the max budget, i.e. the number of hedges which can be sent in a burst after a quiet period
+	 *
+	 * @param maxBudget
+	 *            max number of hedges. Must not be negative
+	 */
+	public void setMaxBudget(double maxBudget) {
+
+		if (maxBudget < 0) {
+			throw new IllegalArgumentException("Max budget must not be negative");
+		}
+		this.maxBudget = maxBudget;
+	}
+}
@@ -0,0 +1,184 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Configuration for the HTTP client shared by all API requests made through one factory. It holds the settings of the
+ * pooling connection manager used by {@link HttpClientProvider}: the pool limits, how long idle connections are kept
+ * and how long a persistent connection may be reused when Mambu doesn't send a Keep-Alive header. It also holds the
+ * default timeouts of the requests, which can be overridden by a {@link TimeoutPolicy}, the cache of the TLS sessions
+ * resumed by new connections and the {@link ResponseCompression} negotiating compressed responses.
+ *
+ * All settings have defaults, so a new HttpClientConfig can be used as is and only the values which need to differ can
+ * be changed.
+ */
+public class HttpClientConfig {
+
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+	public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT_MILLIS = 30 * 1000L;
+	public static final long DEFAULT_KEEP_ALIVE_MILLIS = 60 * 1000L;
+	public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS = 2 * 1000;
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+	public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS = 30 * 1000;
+	public static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 120 * 1000;
+	public static final int DEFAULT_TLS_SESSION_CACHE_SIZE = 100;
+	public static final int DEFAULT_TLS_SESSION_TIMEOUT_SECONDS = 60 * 60;
+
+	private static final String DATABASE_ENDPOINT = "database";
+
+	// Max number of connections in the pool, over all routes
+	private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+	// Max number of connections per route. All requests of a factory go to the same tenant, so usually a single route
+	private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+	// Connections idle for longer than this are evicted from the pool by a background thread
+	private long idleConnectionTimeoutMillis = DEFAULT_IDLE_CONNECTION_TIMEOUT_MILLIS;
+	// How long a connection is kept alive if the response doesn't specify it with a Keep-Alive header
+	private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+	// Pooled connections idle for longer than this are re-validated before being leased again
+	private int validateAfterInactivityMillis = DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS;
+	// Timeout for establishing a connection to Mambu. Zero for no limit
+	private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+	// Timeout for leasing a connection from the pool when all connections are in use. Zero for no limit
+	private int connectionRequestTimeoutMillis = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS;
+	// Timeout for waiting for data from Mambu, i.e. the longest inactivity between two packets. Zero for no limit
+	private int socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+	// Max number of TLS sessions cached for resumption, shared by the connections to Mambu. Zero for no limit
+	private int tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+	// How long a cached TLS session can be resumed by a new connection. Zero for no limit
+	private int tlsSessionTimeoutSeconds = DEFAULT_TLS_SESSION_TIMEOUT_SECONDS;
+	// Negotiates compressed responses and decompresses them while they are read. Null for uncompressed responses. The
+	// database backups are already compressed, so they are downloaded as is
+	private ResponseCompression responseCompression = new ResponseCompression().setCompressed(DATABASE_ENDPOINT,
+			false);
+
+	public int getMaxTotalConnections() {
+
+		return maxTotalConnections;
+	}
+
+	public void setMaxTotalConnections(int maxTotalConnections) {
+
+		if (maxTotalConnections < 1) {
+			throw new IllegalArgumentException("Max total connections must be greater than zero");
+		}
+		this.maxTotalConnections = maxTotalConnections;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+
+		if (maxConnectionsPerRoute < 1) {
+			throw new IllegalArgumentException("Max connections per route must be greater than zero");
+		}
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public long getIdleConnectionTimeoutMillis() {
+
+		return idleConnectionTimeoutMillis;
+	}
+
+	public void setIdleConnectionTimeoutMillis(long idleConnectionTimeoutMillis) {
+
+		this.idleConnectionTimeoutMillis = idleConnectionTimeoutMillis;
+	}
+
+	public long getKeepAliveMillis() {
+
+		return keepAliveMillis;
+	}
+
+	public void setKeepAliveMillis(long keepAliveMillis) {
+
+		this.keepAliveMillis = keepAliveMillis;
+	}
+
+	public int getValidateAfterInactivityMillis() {
+
+		return validateAfterInactivityMillis;
+	}
+
+	public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+
+		this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+	}
+
+	public int getConnectTimeoutMillis() {
+
+		return connectTimeoutMillis;
+	}
+
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+
+		if (connectTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Connect timeout must not be negative");
+		}
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	public int getConnectionRequestTimeoutMillis() {
+
+		return connectionRequestTimeoutMillis;
+	}
+
+	public void setConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+
+		if (connectionRequestTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Connection request timeout must not be negative");
+		}
+		this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+	}
+
+	public int getSocketTimeoutMillis() {
+
+		return socketTimeoutMillis;
+	}
+
+	public void setSocketTimeoutMillis(int socketTimeoutMillis) {
+
+		if (socketTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Socket timeout must not be negative");
+		}
+		this.socketTimeoutMillis = socketTimeoutMillis;
+	}
+
+	public int getTlsSessionCacheSize() {
+
+		return tlsSessionCacheSize;
+	}
+
+	public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+
+		if (tlsSessionCacheSize < 0) {
+			throw new IllegalArgumentException("TLS session cache size must not be negative");
+		}
+		this.tlsSessionCacheSize = tlsSessionCacheSize;
+	}
+
+	public int getTlsSessionTimeoutSeconds() {
+
+		return tlsSessionTimeoutSeconds;
+	}
+
+	public void setTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+
+		if (tlsSessionTimeoutSeconds < 0) {
+			throw new IllegalArgumentException("TLS session timeout must not be negative");
+		}
+		this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+	}
+
+	public ResponseCompression getResponseCompression() {
+
+		return responseCompression;
+	}
+
+	public void setResponseCompression(ResponseCompression responseCompression) {
+
+		this.responseCompression = responseCompression;
+	}
+
+}
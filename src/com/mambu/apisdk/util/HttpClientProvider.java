@@ -1,37 +1,431 @@
 package com.mambu.apisdk.util;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.protocol.HttpContext;
 
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 /**
+ * Provides the HTTP client used to run the API calls. One client, backed by a pooling connection manager, is created
+ * lazily and then shared by all requests, so that connections (and their TLS sessions) are reused between API calls
+ * instead of being opened for every single request. The client is thread safe and is closed by {@link #shutdown()}.
+ * 
+ * A non-blocking client, used by the {@link AsyncRequestExecutor}, is also provided. It is created only when first
+ * requested and uses the same pool limits.
+ * 
+ * Both clients negotiate compressed responses with the {@link ResponseCompression} of the HttpClientConfig, if set,
+ * and share one TLS context, so that new connections resume the TLS sessions of the previous ones. The pool can be
+ * warmed up at startup with {@link #warmUp(HttpHost, int)}.
+ *
  * @author cezarrom
  */
 @Singleton
 public class HttpClientProvider {
 
 	private static final String TLS_V1_2 = "TLSv1.2";
+	private static final String HTTP_SCHEME = "http";
+	private static final String HTTPS_SCHEME = "https";
+	private static final Logger LOGGER = Logger.getLogger(HttpClientProvider.class.getName());
 
+	private final HttpClientConfig httpClientConfig;
+	private CloseableHttpClient httpClient;
+	private PoolingHttpClientConnectionManager connectionManager;
+	private CloseableHttpAsyncClient asyncHttpClient;
+	private SSLContext sslContext;
+	private ExecutorService backgroundExecutor;
+
+	/**
+	 * Creates an HttpClientProvider with the default {@link HttpClientConfig}
+	 */
+	public HttpClientProvider() {
+
+		this(new HttpClientConfig());
+	}
 
 	/**
-	 * Creates an httpClient used to run the API calls
+	 * Creates an HttpClientProvider for the given pool settings
 	 *
-	 * @return newly created httpClient
+	 * @param httpClientConfig
+	 *            the settings used when creating the pooled http client. Must not be null
+	 */
+	@Inject
+	public HttpClientProvider(HttpClientConfig httpClientConfig) {
+
+		if (httpClientConfig == null) {
+			throw new IllegalArgumentException("Http client config cannot be null");
+		}
+		this.httpClientConfig = httpClientConfig;
+	}
+
+	/**
+	 * Gets the shared httpClient used to run the API calls. The client is created on the first call
+	 *
+	 * @return the pooled httpClient
+	 */
+	public synchronized HttpClient getHttpClient() {
+
+		if (httpClient == null) {
+			httpClient = createPooledHttpClient();
+		}
+		return httpClient;
+	}
+
+	/**
+	 * Gets the shared non-blocking http client used to run the asynchronous API calls. The client is created and
+	 * started on the first call
+	 *
+	 * @return the started non-blocking http client
+	 */
+	public synchronized HttpAsyncClient getAsyncHttpClient() {
+
+		if (asyncHttpClient == null) {
+			asyncHttpClient = createPooledAsyncHttpClient();
+			asyncHttpClient.start();
+		}
+		return asyncHttpClient;
+	}
+
+	/**
+	 * Gets the executor of the API requests made in the background, like prefetched pages and responses refreshed
+	 * ahead. It has as many daemon threads as the max connections per route, and is created on the first call
+	 *
+	 * @return the background executor
+	 */
+	public synchronized ExecutorService getBackgroundExecutor() {
+
+		if (backgroundExecutor == null) {
+			backgroundExecutor = BackgroundExecutors.newExecutor("mambu-background",
+					httpClientConfig.getMaxConnectionsPerRoute());
+		}
+		return backgroundExecutor;
+	}
+
+	/**
+	 * Gets the TLS context of the connections to Mambu, shared by the blocking and the non-blocking client and kept
+	 * when the clients are shut down. Its session cache lets new connections resume a TLS session with an abbreviated
+	 * handshake instead of making a full one
+	 *
+	 * @return the TLS context
+	 */
+	public synchronized SSLContext getSslContext() {
+
+		if (sslContext == null) {
+			sslContext = SSLContexts.createDefault();
+			SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+			if (sessionContext != null) {
+				sessionContext.setSessionCacheSize(httpClientConfig.getTlsSessionCacheSize());
+				sessionContext.setSessionTimeout(httpClientConfig.getTlsSessionTimeoutSeconds());
+			}
+		}
+		return sslContext;
+	}
+
+	/**
+	 * Opens connections to Mambu and leaves them in the pool of the shared httpClient, so that the first requests
+	 * don't pay for the connect and the TLS handshake. The first connection is opened alone so that the others, opened
+	 * in parallel, can resume its TLS session. Only the blocking client is warmed up
+	 *
+	 * @param target
+	 *            the Mambu host, with its scheme
+	 * @param connections
+	 *            the number of connections to open, at most the max connections per route
+	 * @return the number of open connections in the pool for the host
 	 */
-	public HttpClient createCustomHttpClient() {
+	public int warmUp(HttpHost target, int connections) {
 
-		HttpClient httpClient = HttpClients.custom()
+		if (target == null || connections < 1) {
+			throw new IllegalArgumentException("Invalid warm up. Target=" + target + " Connections=" + connections);
+		}
+		// The client and its pool are read together, as a concurrent shutdown() discards them
+		final PoolingHttpClientConnectionManager manager;
+		synchronized (this) {
+			getHttpClient();
+			manager = connectionManager;
+		}
+
+		// The route must be the one planned for the requests, with the default port of the scheme resolved
+		boolean isSecure = HTTPS_SCHEME.equalsIgnoreCase(target.getSchemeName());
+		HttpHost host = target.getPort() > 0 ? target : new HttpHost(target.getHostName(), isSecure ? 443 : 80,
+				target.getSchemeName());
+		final HttpRoute route = new HttpRoute(host, null, isSecure);
+		int count = Math.min(connections, Math.min(httpClientConfig.getMaxConnectionsPerRoute(),
+				httpClientConfig.getMaxTotalConnections()));
+
+		List<HttpClientConnection> opened = new ArrayList<>();
+		ExecutorService executor = null;
+		try {
+			// Keep all connections leased until they are all open, so that each opens a new one
+			HttpClientConnection first = openConnection(manager, route);
+			if (first == null) {
+				return 0;
+			}
+			opened.add(first);
+			List<Future<HttpClientConnection>> others = new ArrayList<>();
+			if (count > 1) {
+				executor = Executors.newFixedThreadPool(count - 1, runnable -> {
+					Thread thread = new Thread(runnable, "mambu-warm-up");
+					thread.setDaemon(true);
+					return thread;
+				});
+				for (int i = 1; i < count; i++) {
+					others.add(executor.submit(() -> openConnection(manager, route)));
+				}
+			}
+			for (Future<HttpClientConnection> other : others) {
+				try {
+					HttpClientConnection connection = other.get();
+					if (connection != null) {
+						opened.add(connection);
+					}
+				} catch (ExecutionException e) {
+					LOGGER.warning("Warm up failed: message= " + e.getMessage());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+			for (HttpClientConnection connection : opened) {
+				manager.releaseConnection(connection, null, httpClientConfig.getKeepAliveMillis(),
+						TimeUnit.MILLISECONDS);
+			}
+		}
+		return manager.getStats(route).getAvailable();
+	}
+
+	/**
+	 * Leases a connection from the pool and opens it, unless it's already open
+	 *
+	 * @return the leased connection, or null if it could not be opened
+	 */
+	private HttpClientConnection openConnection(PoolingHttpClientConnectionManager manager, HttpRoute route) {
+
+		HttpClientConnection connection = null;
+		try {
+			connection = manager.requestConnection(route, null).get(
+					httpClientConfig.getConnectionRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+			if (!connection.isOpen()) {
+				HttpClientContext context = HttpClientContext.create();
+				manager.connect(connection, route, httpClientConfig.getConnectTimeoutMillis(), context);
+				manager.routeComplete(connection, route, context);
+			}
+			return connection;
+		} catch (IOException | ExecutionException e) {
+			LOGGER.warning("Warm up connection failed: message= " + e.getMessage());
+		} catch (IllegalStateException e) {
+			// the pool was shut down meanwhile
+			LOGGER.warning("Warm up stopped: message= " + e.getMessage());
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (connection != null) {
+			manager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the connection manager of the shared httpClient. Can be used to inspect the pool statistics
+	 *
+	 * @return the connection manager or null if the client was not created yet
+	 */
+	public synchronized PoolingHttpClientConnectionManager getConnectionManager() {
+
+		return connectionManager;
+	}
+
+	/**
+	 * Gets the request config used by default for all requests: cookies are ignored and the timeouts are the ones of
+	 * the HttpClientConfig. A request config set for a request replaces this one, so it must be copied from it
+	 *
+	 * @return the default request config
+	 */
+	public RequestConfig getDefaultRequestConfig() {
+
+		return RequestConfig.custom()
 				// set cookies validation on ignore
-				.setDefaultRequestConfig(RequestConfig.custom().setCookieSpec(CookieSpecs.IGNORE_COOKIES).build())
-				.setSSLSocketFactory(createSslConnectionSocketFactory())
+				.setCookieSpec(CookieSpecs.IGNORE_COOKIES)
+				.setConnectTimeout(httpClientConfig.getConnectTimeoutMillis())
+				.setConnectionRequestTimeout(httpClientConfig.getConnectionRequestTimeoutMillis())
+				.setSocketTimeout(httpClientConfig.getSocketTimeoutMillis())
 				.build();
+	}
 
-		return httpClient;
+	/**
+	 * Gets the compression of the responses, which decodes the responses of the non-blocking http client
+	 *
+	 * @return the response compression or null if responses are not compressed
+	 */
+	public ResponseCompression getResponseCompression() {
+
+		return httpClientConfig.getResponseCompression();
+	}
+
+	/**
+	 * Closes the shared http clients and all their pooled connections, and stops the background executor once its
+	 * tasks completed. A subsequent call to {@link #getHttpClient()}, {@link #getAsyncHttpClient()} or
+	 * {@link #getBackgroundExecutor()} will create a new one
+	 */
+	public synchronized void shutdown() {
+
+		if (httpClient != null) {
+			try {
+				httpClient.close();
+			} catch (IOException e) {
+				LOGGER.warning("IOException when closing the http client: message= " + e.getMessage());
+			} finally {
+				httpClient = null;
+				connectionManager = null;
+			}
+		}
+		if (asyncHttpClient != null) {
+			try {
+				asyncHttpClient.close();
+			} catch (IOException e) {
+				LOGGER.warning("IOException when closing the async http client: message= " + e.getMessage());
+			} finally {
+				asyncHttpClient = null;
+			}
+		}
+		if (backgroundExecutor != null) {
+			backgroundExecutor.shutdown();
+			backgroundExecutor = null;
+		}
+	}
+
+	/**
+	 * Creates the pooled httpClient as specified by the HttpClientConfig
+	 *
+	 * @return newly created httpClient
+	 */
+	private CloseableHttpClient createPooledHttpClient() {
+
+		connectionManager = new PoolingHttpClientConnectionManager(createSocketFactoryRegistry());
+		connectionManager.setMaxTotal(httpClientConfig.getMaxTotalConnections());
+		connectionManager.setDefaultMaxPerRoute(httpClientConfig.getMaxConnectionsPerRoute());
+		connectionManager.setValidateAfterInactivity(httpClientConfig.getValidateAfterInactivityMillis());
+
+		HttpClientBuilder builder = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(getDefaultRequestConfig())
+				.setKeepAliveStrategy(createKeepAliveStrategy())
+				.evictExpiredConnections()
+				.evictIdleConnections(httpClientConfig.getIdleConnectionTimeoutMillis(), TimeUnit.MILLISECONDS)
+				// responses are decompressed by the ResponseCompression, which also counts their bytes
+				.disableContentCompression();
+
+		ResponseCompression responseCompression = httpClientConfig.getResponseCompression();
+		if (responseCompression != null) {
+			builder.addInterceptorLast((HttpRequestInterceptor) responseCompression);
+			builder.addInterceptorFirst((HttpResponseInterceptor) responseCompression);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Creates the pooled non-blocking http client as specified by the HttpClientConfig. HTTPS connections use only the
+	 * TLSv1.2 protocol, as for the blocking client
+	 *
+	 * @return newly created non-blocking http client, not started yet
+	 */
+	private CloseableHttpAsyncClient createPooledAsyncHttpClient() {
+
+		SSLIOSessionStrategy sslStrategy = new SSLIOSessionStrategy(getSslContext(),
+				new String[] { TLS_V1_2 }, null, NoopHostnameVerifier.INSTANCE);
+
+		HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+				.setMaxConnTotal(httpClientConfig.getMaxTotalConnections())
+				.setMaxConnPerRoute(httpClientConfig.getMaxConnectionsPerRoute())
+				.setDefaultRequestConfig(getDefaultRequestConfig())
+				.setKeepAliveStrategy(createKeepAliveStrategy())
+				.setSSLStrategy(sslStrategy);
+
+		// responses are decoded once completed by the AsyncRequestExecutorImpl
+		ResponseCompression responseCompression = httpClientConfig.getResponseCompression();
+		if (responseCompression != null) {
+			builder.addInterceptorLast((HttpRequestInterceptor) responseCompression);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Creates the keep-alive strategy: use the timeout sent by the server in the Keep-Alive header and fall back to the
+	 * configured keep-alive time otherwise
+	 *
+	 * @return keep-alive strategy
+	 */
+	private ConnectionKeepAliveStrategy createKeepAliveStrategy() {
+
+		final long defaultKeepAlive = httpClientConfig.getKeepAliveMillis();
+
+		return new DefaultConnectionKeepAliveStrategy() {
+
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+
+				long keepAlive = super.getKeepAliveDuration(response, context);
+				return keepAlive > 0 ? keepAlive : defaultKeepAlive;
+			}
+		};
+	}
+
+	/**
+	 * Creates the registry of socket factories used by the pooling connection manager. HTTPS connections use only the
+	 * TLSv1.2 protocol
+	 *
+	 * @return socket factories registry
+	 */
+	private Registry<ConnectionSocketFactory> createSocketFactoryRegistry() {
+
+		return RegistryBuilder.<ConnectionSocketFactory> create()
+				.register(HTTP_SCHEME, PlainConnectionSocketFactory.getSocketFactory())
+				.register(HTTPS_SCHEME, createSslConnectionSocketFactory())
+				.build();
 	}
 
 	/**
@@ -42,7 +436,7 @@ public class HttpClientProvider {
 	private SSLConnectionSocketFactory createSslConnectionSocketFactory() {
 
 		SSLConnectionSocketFactory sslConnFactory = new
-				SSLConnectionSocketFactory(SSLContexts.createDefault(),
+				SSLConnectionSocketFactory(getSslContext(),
 				new String[]{TLS_V1_2}, null,
 				SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
 		return sslConnFactory;
@@ -0,0 +1,20 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Converts an HTTP response into the result of an API request. Used by the request executors to share the execution of
+ * the HTTP requests between the different response types
+ * 
+ * @param <T>
+ *            the type of the result
+ */
+interface HttpResponseProcessor<T> {
+
+	T process(HttpResponse httpResponse) throws MambuApiException, IOException;
+
+}
@@ -0,0 +1,293 @@
+package com.mambu.apisdk.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestCoalescer.CoalescedRequest;
+
+/**
+ * Size bounded, in memory {@link ResponseCache}. When the cache is full, the least recently used response is removed.
+ *
+ * A response is returned until its time to live has passed. Responses read after refreshAheadFactor of their time to
+ * live are reloaded in the background, while the callers keep getting the cached response, so that frequently read
+ * responses are not waited for once loaded. If the reload fails, the cached response is kept until it expires.
+ * Callers missing the same response at the same time wait for a single load.
+ *
+ * A response loaded while an invalidation is made is not cached, as it may have been read before the change which
+ * caused the invalidation.
+ */
+public class InMemoryResponseCache implements ResponseCache {
+
+	private final static Logger LOGGER = Logger.getLogger(InMemoryResponseCache.class.getName());
+
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+	public static final double DEFAULT_REFRESH_AHEAD_FACTOR = 0.75;
+
+	private final int maxEntries;
+	private final double refreshAheadFactor;
+	private final Executor refreshExecutor;
+	private final LongSupplier clock;
+
+	// Cached responses in access order. Guarded by this
+	private final LinkedHashMap<String, Entry> entries;
+	// Incremented by each invalidation. Guarded by this
+	private long generation;
+
+	private final RequestCoalescer loads = new RequestCoalescer();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong loadSuccessCount = new AtomicLong();
+	private final AtomicLong loadFailureCount = new AtomicLong();
+	private final AtomicLong totalLoadTimeNanos = new AtomicLong();
+	private final AtomicLong refreshCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Creates a cache of {@value #DEFAULT_MAX_ENTRIES} responses, refreshed after
+	 * {@value #DEFAULT_REFRESH_AHEAD_FACTOR} of their time to live
+	 */
+	public InMemoryResponseCache() {
+
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_REFRESH_AHEAD_FACTOR);
+	}
+
+	/**
+	 * Creates a cache refreshing the responses with the shared background threads of the SDK, not with the common fork
+	 * join pool, as a refresh blocks its thread
+	 *
+	 * @param maxEntries
+	 *            the maximum number of cached responses. Must be greater than zero
+	 * @param refreshAheadFactor
+	 *            the part of the time to live after which a read response is refreshed, greater than zero and at most
+	 *            1. A factor of 1 disables refresh-ahead
+	 */
+	public InMemoryResponseCache(int maxEntries, double refreshAheadFactor) {
+
+		this(maxEntries, refreshAheadFactor, BackgroundExecutors.getShared());
+	}
+
+	/**
+	 * Creates a cache
+	 *
+	 * @param maxEntries
+	 *            the maximum number of cached responses. Must be greater than zero
+	 * @param refreshAheadFactor
+	 *            the part of the time to live after which a read response is refreshed, greater than zero and at most
+	 *            1. A factor of 1 disables refresh-ahead
+	 * @param refreshExecutor
+	 *            executor running the background refreshes. Must not be null
+	 */
+	public InMemoryResponseCache(int maxEntries, double refreshAheadFactor, Executor refreshExecutor) {
+
+		this(maxEntries, refreshAheadFactor, refreshExecutor, System::currentTimeMillis);
+	}
+
+	InMemoryResponseCache(int maxEntries, double refreshAheadFactor, Executor refreshExecutor, LongSupplier clock) {
+
+		if (maxEntries < 1 || !(refreshAheadFactor > 0 && refreshAheadFactor <= 1)) {
+			throw new IllegalArgumentException("Invalid cache parameters. Max entries=" + maxEntries
+					+ " Refresh ahead factor=" + refreshAheadFactor);
+		}
+		if (refreshExecutor == null) {
+			throw new IllegalArgumentException("Refresh executor must not be null");
+		}
+		this.maxEntries = maxEntries;
+		this.refreshAheadFactor = refreshAheadFactor;
+		this.refreshExecutor = refreshExecutor;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+
+				if (size() > InMemoryResponseCache.this.maxEntries) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	@Override
+	public String get(final String requestKey, final Class<?> entityClass, final long timeToLiveMillis,
+			final CoalescedRequest<String> loader) throws MambuApiException {
+
+		if (requestKey == null || loader == null) {
+			throw new IllegalArgumentException("Request key and loader must not be null");
+		}
+		if (timeToLiveMillis <= 0) {
+			return loader.execute();
+		}
+
+		long now = clock.getAsLong();
+		Entry entry;
+		boolean refresh = false;
+		final long loadGeneration;
+		synchronized (this) {
+			entry = entries.get(requestKey);
+			if (entry != null && now >= entry.expiresAt) {
+				entries.remove(requestKey);
+				entry = null;
+			}
+			if (entry != null && now >= entry.refreshAt && !entry.refreshing) {
+				entry.refreshing = true;
+				refresh = true;
+			}
+			loadGeneration = generation;
+		}
+
+		if (entry != null) {
+			hitCount.incrementAndGet();
+			if (refresh) {
+				refresh(requestKey, entityClass, timeToLiveMillis, loader, entry, loadGeneration);
+			}
+			return entry.response;
+		}
+
+		missCount.incrementAndGet();
+		return loads.execute(requestKey, () -> load(requestKey, entityClass, timeToLiveMillis, loader, loadGeneration));
+	}
+
+	@Override
+	public synchronized void invalidate(String requestKey) {
+
+		generation++;
+		entries.remove(requestKey);
+	}
+
+	@Override
+	public synchronized void invalidate(Class<?> entityClass) {
+
+		generation++;
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().entityClass == entityClass) {
+				iterator.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+
+		generation++;
+		entries.clear();
+	}
+
+	@Override
+	public ResponseCacheStatistics getStatistics() {
+
+		return new ResponseCacheStatistics(hitCount.get(), missCount.get(), loadSuccessCount.get(),
+				loadFailureCount.get(), totalLoadTimeNanos.get(), refreshCount.get(), evictionCount.get(), size());
+	}
+
+	/**
+	 * Get the number of cached responses, including the expired responses not removed yet
+	 *
+	 * @return cache size
+	 */
+	public synchronized int size() {
+
+		return entries.size();
+	}
+
+	public int getMaxEntries() {
+
+		return maxEntries;
+	}
+
+	public double getRefreshAheadFactor() {
+
+		return refreshAheadFactor;
+	}
+
+	/**
+	 * Loads the response and caches it, unless the cache was invalidated since the load was decided
+	 */
+	private String load(String requestKey, Class<?> entityClass, long timeToLiveMillis,
+			CoalescedRequest<String> loader, long loadGeneration) throws MambuApiException {
+
+		long start = System.nanoTime();
+		String response;
+		try {
+			response = loader.execute();
+		} catch (MambuApiException | RuntimeException e) {
+			totalLoadTimeNanos.addAndGet(System.nanoTime() - start);
+			loadFailureCount.incrementAndGet();
+			throw e;
+		}
+		totalLoadTimeNanos.addAndGet(System.nanoTime() - start);
+		loadSuccessCount.incrementAndGet();
+
+		long loadedAt = clock.getAsLong();
+		Entry entry = new Entry(response, entityClass, loadedAt + (long) (timeToLiveMillis * refreshAheadFactor),
+				loadedAt + timeToLiveMillis);
+		synchronized (this) {
+			if (generation == loadGeneration) {
+				entries.put(requestKey, entry);
+			}
+		}
+		return response;
+	}
+
+	/**
+	 * Reloads the cached response in the background
+	 */
+	private void refresh(final String requestKey, final Class<?> entityClass, final long timeToLiveMillis,
+			final CoalescedRequest<String> loader, final Entry entry, final long loadGeneration) {
+
+		refreshCount.incrementAndGet();
+		try {
+			refreshExecutor.execute(() -> {
+				try {
+					load(requestKey, entityClass, timeToLiveMillis, loader, loadGeneration);
+				} catch (MambuApiException | RuntimeException e) {
+					LOGGER.warning("Failed to refresh cached response for " + requestKey + ". Exception message="
+							+ e.getMessage());
+					refreshFailed(entry);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			refreshFailed(entry);
+		}
+	}
+
+	/**
+	 * Allows the next read of the entry to try the refresh again
+	 */
+	private synchronized void refreshFailed(Entry entry) {
+
+		entry.refreshing = false;
+	}
+
+	/**
+	 * A cached response
+	 */
+	private static class Entry {
+
+		private final String response;
+		private final Class<?> entityClass;
+		private final long refreshAt;
+		private final long expiresAt;
+		// Guarded by the cache
+		private boolean refreshing;
+
+		Entry(String response, Class<?> entityClass, long refreshAt, long expiresAt) {
+			this.response = response;
+			this.entityClass = entityClass;
+			this.refreshAt = refreshAt;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.mambu.apisdk.util;
+
+import java.util.List;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Fetches one page of a paginated Mambu list. Usually implemented by calling one of the API wrappers accepting offset
+ * and limit parameters, for example:
+ *
+ * (offset, limit) -> loansService.getLoanAccounts(filterConstraints, String.valueOf(offset), String.valueOf(limit))
+ *
+ * @param <T>
+ *            the type of the listed entities
+ */
+@FunctionalInterface
+public interface PageFetcher<T> {
+
+	/**
+	 * Get one page of entities
+	 *
+	 * @param offset
+	 *            pagination offset, the index of the first entity in the page
+	 * @param limit
+	 *            pagination limit, the maximum number of entities in the page
+	 * @return the entities in the page. A page with less than limit entities is the last page
+	 * @throws MambuApiException
+	 */
+	List<T> getPage(int offset, int limit) throws MambuApiException;
+}
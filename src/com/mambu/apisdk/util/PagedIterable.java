@@ -0,0 +1,219 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.exception.UncheckedMambuApiException;
+
+/**
+ * Iterable over all entities of a paginated Mambu list. The pages are fetched lazily, using the supplied
+ * {@link PageFetcher}, as the entities are consumed. While a page is consumed the following pages (as many as the
+ * prefetch depth) are already fetched in the background, so that the caller doesn't wait for each page in turn.
+ *
+ * The iteration stops at the first page having less entities than the page size. Only the current page and the
+ * prefetched pages are held in memory. Note that the pages prefetched after the last page are empty, so when the
+ * number of entities is a multiple of the page size up to prefetch depth extra requests are made.
+ *
+ * Each call to {@link #iterator()} starts a new iteration from the first page. The iterators are not thread safe. API
+ * errors are thrown by the iterator as {@link UncheckedMambuApiException} and end the iteration.
+ *
+ * Usage Example:
+ *
+ * for (LoanAccount account : loansService.getLoanAccounts(filterConstraints, 100, 2)) { ... }
+ *
+ * @param <T>
+ *            the type of the listed entities
+ */
+public class PagedIterable<T> implements Iterable<T> {
+
+	public static final int DEFAULT_PAGE_SIZE = 50;
+	public static final int DEFAULT_PREFETCH_DEPTH = 1;
+
+	private final PageFetcher<T> pageFetcher;
+	private final int pageSize;
+	private final int prefetchDepth;
+	private final Executor executor;
+
+	/**
+	 * Creates a PagedIterable with the default page size and prefetch depth. The pages are prefetched by the shared
+	 * background threads of the SDK
+	 *
+	 * @param pageFetcher
+	 *            fetcher of one page. Must not be null
+	 */
+	public PagedIterable(PageFetcher<T> pageFetcher) {
+
+		this(pageFetcher, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DEPTH);
+	}
+
+	/**
+	 * Creates a PagedIterable prefetching the pages with the shared background threads of the SDK, not with the common
+	 * fork join pool, as fetching a page blocks its thread
+	 *
+	 * @param pageFetcher
+	 *            fetcher of one page. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested for each page. Must be greater than zero
+	 * @param prefetchDepth
+	 *            how many pages to fetch in the background while the current page is consumed. Zero fetches each page
+	 *            only when needed, in the calling thread
+	 */
+	public PagedIterable(PageFetcher<T> pageFetcher, int pageSize, int prefetchDepth) {
+
+		this(pageFetcher, pageSize, prefetchDepth, BackgroundExecutors.getShared());
+	}
+
+	/**
+	 * Creates a PagedIterable
+	 *
+	 * @param pageFetcher
+	 *            fetcher of one page. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested for each page. Must be greater than zero
+	 * @param prefetchDepth
+	 *            how many pages to fetch in the background while the current page is consumed. Zero fetches each page
+	 *            only when needed, in the calling thread
+	 * @param executor
+	 *            executor used to prefetch the pages. Must not be null
+	 */
+	public PagedIterable(PageFetcher<T> pageFetcher, int pageSize, int prefetchDepth, Executor executor) {
+
+		if (pageFetcher == null || executor == null) {
+			throw new IllegalArgumentException("Page fetcher and executor must not be null");
+		}
+		if (pageSize < 1 || prefetchDepth < 0) {
+			throw new IllegalArgumentException("Invalid paging parameters. Page size=" + pageSize + " Prefetch depth="
+					+ prefetchDepth);
+		}
+		this.pageFetcher = pageFetcher;
+		this.pageSize = pageSize;
+		this.prefetchDepth = prefetchDepth;
+		this.executor = executor;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+
+		return new PagedIterator();
+	}
+
+	public int getPageSize() {
+
+		return pageSize;
+	}
+
+	public int getPrefetchDepth() {
+
+		return prefetchDepth;
+	}
+
+	/**
+	 * Iterator over the entities of the current page, moving to the next page when the current one is consumed
+	 */
+	private class PagedIterator implements Iterator<T> {
+
+		// Pages requested in the background, in offset order
+		private final Deque<CompletableFuture<List<T>>> prefetchedPages = new ArrayDeque<>();
+		private Iterator<T> currentPage = Collections.<T> emptyIterator();
+		private int nextOffset = 0;
+		private boolean lastPageReached = false;
+
+		@Override
+		public boolean hasNext() {
+
+			while (!currentPage.hasNext()) {
+				if (lastPageReached) {
+					return false;
+				}
+				currentPage = nextPage().iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public T next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return currentPage.next();
+		}
+
+		/**
+		 * Gets the next page, either prefetched or fetched now, and starts prefetching the pages following it
+		 *
+		 * @return entities in the next page
+		 */
+		private List<T> nextPage() {
+
+			List<T> page;
+			try {
+				page = prefetchedPages.isEmpty() ? fetch(nextPageOffset()) : join(prefetchedPages.poll());
+			} catch (RuntimeException e) {
+				// The iteration can't continue past a page which failed
+				stop();
+				throw e;
+			}
+			if (page == null || page.size() < pageSize) {
+				// This is the last page. Pages prefetched after it are not needed
+				stop();
+				return page == null ? Collections.<T> emptyList() : page;
+			}
+
+			// The pages are prefetched in the lane and within the deadline of the iterating thread
+			RequestContext requestContext = RequestContext.capture();
+			while (prefetchedPages.size() < prefetchDepth) {
+				final int offset = nextPageOffset();
+				prefetchedPages.add(CompletableFuture.supplyAsync(requestContext.supplier(() -> fetch(offset)),
+						executor));
+			}
+			return page;
+		}
+
+		private void stop() {
+
+			lastPageReached = true;
+			for (CompletableFuture<List<T>> prefetchedPage : prefetchedPages) {
+				prefetchedPage.cancel(false);
+			}
+			prefetchedPages.clear();
+		}
+
+		private int nextPageOffset() {
+
+			int offset = nextOffset;
+			nextOffset += pageSize;
+			return offset;
+		}
+
+		private List<T> fetch(int offset) {
+
+			try {
+				return pageFetcher.getPage(offset, pageSize);
+			} catch (MambuApiException e) {
+				throw new UncheckedMambuApiException(e);
+			}
+		}
+
+		private List<T> join(CompletableFuture<List<T>> prefetchedPage) {
+
+			try {
+				return prefetchedPage.join();
+			} catch (CompletionException e) {
+				// Throw the exception raised by the page fetcher
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package com.mambu.apisdk.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Fetches all entities of a paginated Mambu list by requesting several offset windows (pages) concurrently. Used for
+ * large extracts, where waiting for each page in turn makes the total time the sum of all round trips.
+ *
+ * Pages are requested in offset order with at most maxConcurrency pages requested or waiting to be emitted at any
+ * time. They are emitted in offset order, so the entities keep the sort order of the server. No more pages are
+ * requested once a page having less entities than the page size signals the end of the list.
+ *
+ * @param <T>
+ *            the type of the listed entities
+ */
+public class ParallelPageFetcher<T> {
+
+	public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+	private final PageFetcher<T> pageFetcher;
+	private final int pageSize;
+	private final int maxConcurrency;
+	private final Executor executor;
+
+	/**
+	 * Creates a ParallelPageFetcher running the page requests in its own threads, created for each fetch
+	 *
+	 * @param pageFetcher
+	 *            fetcher of one page. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested for each page. Must be greater than zero
+	 * @param maxConcurrency
+	 *            the maximum number of pages requested at the same time. Must be greater than zero
+	 */
+	public ParallelPageFetcher(PageFetcher<T> pageFetcher, int pageSize, int maxConcurrency) {
+
+		this(pageFetcher, pageSize, maxConcurrency, null);
+	}
+
+	/**
+	 * Creates a ParallelPageFetcher
+	 *
+	 * @param pageFetcher
+	 *            fetcher of one page. Must not be null
+	 * @param pageSize
+	 *            the number of entities requested for each page. Must be greater than zero
+	 * @param maxConcurrency
+	 *            the maximum number of pages requested at the same time. Must be greater than zero
+	 * @param executor
+	 *            executor running the page requests. If null, a thread pool of maxConcurrency threads is created for
+	 *            each fetch
+	 */
+	public ParallelPageFetcher(PageFetcher<T> pageFetcher, int pageSize, int maxConcurrency, Executor executor) {
+
+		if (pageFetcher == null) {
+			throw new IllegalArgumentException("Page fetcher must not be null");
+		}
+		if (pageSize < 1 || maxConcurrency < 1) {
+			throw new IllegalArgumentException("Invalid paging parameters. Page size=" + pageSize + " Max concurrency="
+					+ maxConcurrency);
+		}
+		this.pageFetcher = pageFetcher;
+		this.pageSize = pageSize;
+		this.maxConcurrency = maxConcurrency;
+		this.executor = executor;
+	}
+
+	/**
+	 * Fetch all entities
+	 *
+	 * @return all entities, in the order returned by the server
+	 * @throws MambuApiException
+	 *             the error returned when fetching the first failed page
+	 */
+	public List<T> fetchAll() throws MambuApiException {
+
+		final List<T> entities = new ArrayList<>();
+		forEachPage(entities::addAll);
+		return entities;
+	}
+
+	/**
+	 * Fetch all pages, passing each page to the consumer as soon as it and all pages before it are fetched. Only the
+	 * pages which are requested or waiting to be emitted are held in memory
+	 *
+	 * @param pageConsumer
+	 *            consumer of the pages, called in the calling thread and in offset order. Must not be null
+	 * @throws MambuApiException
+	 *             the error returned when fetching the first failed page. No more pages are requested after it
+	 */
+	public void forEachPage(Consumer<? super List<T>> pageConsumer) throws MambuApiException {
+
+		if (pageConsumer == null) {
+			throw new IllegalArgumentException("Page consumer must not be null");
+		}
+
+		ExecutorService ownExecutor = executor == null ? Executors.newFixedThreadPool(maxConcurrency) : null;
+		CompletionService<Window<T>> completionService = new ExecutorCompletionService<>(
+				ownExecutor != null ? ownExecutor : executor);
+		// Windows requested and not fetched yet
+		Map<Integer, Future<Window<T>>> runningWindows = new HashMap<>();
+		// Fetched windows waiting for the windows before them
+		Map<Integer, Window<T>> fetchedWindows = new HashMap<>();
+
+		int nextWindowToRequest = 0;
+		int nextWindowToEmit = 0;
+		int lastWindow = Integer.MAX_VALUE;
+		// The windows are requested in the lane and within the deadline of the caller
+		RequestContext requestContext = RequestContext.capture();
+
+		try {
+			while (nextWindowToEmit <= lastWindow) {
+				// Request windows while there is room. Windows requested but not yet emitted count against the limit
+				while (nextWindowToRequest <= lastWindow && nextWindowToRequest - nextWindowToEmit < maxConcurrency) {
+					runningWindows.put(nextWindowToRequest,
+							completionService.submit(requestContext.callable(new WindowRequest(nextWindowToRequest))));
+					nextWindowToRequest++;
+				}
+				if (runningWindows.isEmpty()) {
+					break;
+				}
+
+				Window<T> window = take(completionService);
+				runningWindows.remove(window.index);
+				if (window.index > lastWindow) {
+					// Requested before the end of the list was known
+					continue;
+				}
+				if (window.error == null && window.page.size() < pageSize) {
+					lastWindow = window.index;
+				}
+				fetchedWindows.put(window.index, window);
+
+				// Emit all windows which are now in sequence. Errors are thrown only when their window is reached, as
+				// a failed window could still turn out to be past the end of the list
+				while (nextWindowToEmit <= lastWindow && fetchedWindows.containsKey(nextWindowToEmit)) {
+					Window<T> nextWindow = fetchedWindows.remove(nextWindowToEmit);
+					nextWindowToEmit++;
+					if (nextWindow.error != null) {
+						throw nextWindow.error;
+					}
+					if (!nextWindow.page.isEmpty()) {
+						pageConsumer.accept(nextWindow.page);
+					}
+				}
+			}
+		} finally {
+			for (Future<Window<T>> runningWindow : runningWindows.values()) {
+				runningWindow.cancel(true);
+			}
+			if (ownExecutor != null) {
+				ownExecutor.shutdownNow();
+			}
+		}
+	}
+
+	public int getPageSize() {
+
+		return pageSize;
+	}
+
+	public int getMaxConcurrency() {
+
+		return maxConcurrency;
+	}
+
+	/**
+	 * Waits for the next fetched window
+	 */
+	private Window<T> take(CompletionService<Window<T>> completionService) throws MambuApiException {
+
+		try {
+			return completionService.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} catch (ExecutionException e) {
+			// Not expected, window requests catch the exceptions of the page fetcher
+			throw new MambuApiException(e);
+		}
+	}
+
+	/**
+	 * Request for one window, the page at offset index * pageSize
+	 */
+	private class WindowRequest implements Callable<Window<T>> {
+
+		private final int index;
+
+		WindowRequest(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Window<T> call() {
+
+			try {
+				List<T> page = pageFetcher.getPage(index * pageSize, pageSize);
+				return new Window<>(index, page == null ? new ArrayList<T>() : page, null);
+			} catch (MambuApiException e) {
+				return new Window<>(index, null, e);
+			} catch (RuntimeException e) {
+				return new Window<>(index, null, new MambuApiException(e));
+			}
+		}
+	}
+
+	/**
+	 * A fetched page, or the error returned when fetching it, with its position in the list
+	 */
+	private static class Window<T> {
+
+		private final int index;
+		private final List<T> page;
+		private final MambuApiException error;
+
+		Window(int index, List<T> page, MambuApiException error) {
+			this.index = index;
+			this.page = page;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.mambu.apisdk.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader which records a bounded prefix of the characters read through it. Used to log the beginning of a response
+ * which is parsed directly from the response stream, without keeping the whole response in memory
+ */
+class PrefixRecordingReader extends FilterReader {
+
+	private final StringBuilder prefix;
+	private final int maxPrefixLength;
+	private long charsRead;
+
+	/**
+	 * @param in
+	 *            the reader to read from
+	 * @param maxPrefixLength
+	 *            the maximum number of characters to record
+	 */
+	PrefixRecordingReader(Reader in, int maxPrefixLength) {
+
+		super(in);
+		this.maxPrefixLength = maxPrefixLength;
+		this.prefix = new StringBuilder(Math.min(maxPrefixLength, 1024));
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		int c = super.read();
+		if (c != -1) {
+			record(c);
+		}
+		return c;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+
+		int count = super.read(cbuf, off, len);
+		if (count > 0) {
+			int toRecord = Math.min(count, maxPrefixLength - prefix.length());
+			if (toRecord > 0) {
+				prefix.append(cbuf, off, toRecord);
+			}
+			charsRead += count;
+		}
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+
+		// Read skipped characters so that the recorded prefix stays contiguous
+		char[] buffer = new char[(int) Math.min(n, 1024)];
+		long skipped = 0;
+		while (skipped < n) {
+			int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+			if (count == -1) {
+				break;
+			}
+			skipped += count;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+
+		return false;
+	}
+
+	@Override
+	public void mark(int readAheadLimit) throws IOException {
+
+		throw new IOException("mark() not supported");
+	}
+
+	@Override
+	public void reset() throws IOException {
+
+		throw new IOException("reset() not supported");
+	}
+
+	/**
+	 * @return the recorded prefix of the content read so far
+	 */
+	String getPrefix() {
+
+		return prefix.toString();
+	}
+
+	/**
+	 * @return the total number of characters read so far
+	 */
+	long getCharsRead() {
+
+		return charsRead;
+	}
+
+	/**
+	 * @return true if more characters were read than the recorded prefix holds
+	 */
+	boolean isTruncated() {
+
+		return charsRead > prefix.length();
+	}
+
+	private void record(int c) {
+
+		if (prefix.length() < maxPrefixLength) {
+			prefix.append((char) c);
+		}
+		charsRead++;
+	}
+}
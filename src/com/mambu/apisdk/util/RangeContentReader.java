@@ -0,0 +1,27 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the result of a ranged download request from the binary content of Mambu response. The ranged counterpart of
+ * the {@link ContentReader}, which also gets the range of the content actually sent by the server
+ *
+ * @param <R>
+ *            the type of the result
+ */
+public interface RangeContentReader<R> {
+
+	/**
+	 * Reads the result from Mambu response content
+	 *
+	 * @param content
+	 *            the response content. It is closed by the caller
+	 * @param contentRange
+	 *            the range of the content sent. Not partial if the server sent the whole content
+	 * @return the result read from the response
+	 * @throws IOException
+	 */
+	R read(InputStream content, ContentRange contentRange) throws IOException;
+
+}
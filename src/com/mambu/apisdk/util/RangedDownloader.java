@@ -0,0 +1,686 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.DownloadResult;
+
+/**
+ * Downloads large content (like a DB backup) to a file with HTTP Range requests. The content is split in segments
+ * which are fetched in parallel over the pooled connections and written with positional writes into the file,
+ * allocated upfront for the whole content.
+ *
+ * The completed segments are recorded in a segment map stored next to the file (see {@link #getSegmentMapFile(Path)}).
+ * When a download fails, downloading again to the same file resumes it: only the segments missing from the map are
+ * fetched, as long as the length and the validator (ETag or Last-Modified) of the content didn't change. The segment
+ * map is deleted once the download completed.
+ *
+ * When the server doesn't support ranges, and answers with the whole content, the content is streamed to the file as
+ * by the {@link ContentDownloader}
+ */
+public class RangedDownloader {
+
+	public static final long DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+	public static final int DEFAULT_MAX_CONNECTIONS = 4;
+	public static final int DEFAULT_MAX_ATTEMPTS_PER_SEGMENT = 3;
+	public static final String SEGMENT_MAP_SUFFIX = ".segments";
+
+	private final static Logger LOGGER = Logger.getLogger(RangedDownloader.class.getName());
+
+	private long segmentSize = DEFAULT_SEGMENT_SIZE;
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+	private int maxAttemptsPerSegment = DEFAULT_MAX_ATTEMPTS_PER_SEGMENT;
+	private int bufferSize = ContentDownloader.DEFAULT_BUFFER_SIZE;
+	private String checksumAlgorithm = ContentDownloader.DEFAULT_CHECKSUM_ALGORITHM;
+	private DownloadProgressListener progressListener;
+
+	/**
+	 * Requests a byte range of the downloaded content. E.g. delegates to
+	 * {@link ServiceExecutor#executeRangeDownload(ApiDefinition, String, ParamsMap, long, long, RangeContentReader)}
+	 */
+	public interface RangeRequester {
+
+		/**
+		 * Requests a byte range of the content and reads the response with the given reader
+		 *
+		 * @param firstByte
+		 *            the position of the first byte of the range
+		 * @param lastByte
+		 *            the position of the last byte of the range, inclusive. Negative for the end of the content
+		 * @param contentReader
+		 *            reads the result from the response content
+		 * @return the result read by the contentReader
+		 * @throws MambuApiException
+		 */
+		<R> R request(long firstByte, long lastByte, RangeContentReader<R> contentReader) throws MambuApiException;
+	}
+
+	/**
+	 * Downloads the content to a file, resuming a previous download to the same file if its segment map was left
+	 *
+	 * @param requester
+	 *            requests the byte ranges of the content
+	 * @param file
+	 *            the file to write the content to. It is created or overwritten, unless a download is resumed
+	 * @return the download result, with the length and the checksum of the whole content
+	 * @throws MambuApiException
+	 *             if the content couldn't be downloaded. The segments completed so far are kept for resuming
+	 */
+	public DownloadResult download(RangeRequester requester, final Path file) throws MambuApiException {
+
+		if (requester == null || file == null) {
+			throw new IllegalArgumentException("Requester and file must not be null");
+		}
+		checkChecksumAlgorithm();
+
+		Path segmentMapFile = getSegmentMapFile(file);
+		try {
+			// Request the first byte, to find out whether ranges are supported and the length of the content
+			final AtomicReference<ContentRange> firstRange = new AtomicReference<>();
+			DownloadResult result = requester.request(0, 0, new RangeContentReader<DownloadResult>() {
+
+				@Override
+				public DownloadResult read(InputStream content, ContentRange contentRange) throws IOException {
+
+					if (contentRange.isPartial()) {
+						firstRange.set(contentRange);
+						return null;
+					}
+					// the server doesn't support ranges and sent the whole content
+					LOGGER.info("Ranges are not supported, downloading the whole content to " + file);
+					return downloadWholeContent(file, content, contentRange.getTotalLength());
+				}
+			});
+
+			if (result == null) {
+				ContentRange contentRange = firstRange.get();
+				if (contentRange == null) {
+					throw new MambuApiException(-1, "No content received");
+				}
+				if (contentRange.getTotalLength() < 0) {
+					// segments can't be computed without the total length
+					LOGGER.info("Content length unknown, downloading the whole content to " + file);
+					result = requester.request(0, -1, new RangeContentReader<DownloadResult>() {
+
+						@Override
+						public DownloadResult read(InputStream content, ContentRange contentRange) throws IOException {
+
+							return downloadWholeContent(file, content, contentRange.getTotalLength());
+						}
+					});
+				} else {
+					result = downloadSegments(requester, file, segmentMapFile, contentRange.getTotalLength(),
+							contentRange.getValidator());
+				}
+			}
+
+			Files.deleteIfExists(segmentMapFile);
+			return result;
+
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	/**
+	 * Get the file storing the segment map of a download, used to resume it after a failure
+	 *
+	 * @param file
+	 *            the file the content is downloaded to
+	 * @return the segment map file, with the {@link #SEGMENT_MAP_SUFFIX} appended to the file name
+	 */
+	public static Path getSegmentMapFile(Path file) {
+
+		return file.resolveSibling(file.getFileName() + SEGMENT_MAP_SUFFIX);
+	}
+
+	public long getSegmentSize() {
+
+		return segmentSize;
+	}
+
+	/**
+	 * Set the size of the segments requested in parallel. A resumed download keeps using the segment size it was
+	 * started with
+	 *
+	 * @param segmentSize
+	 *            segment size in bytes. Must be greater than zero
+	 */
+	public void setSegmentSize(long segmentSize) {
+
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException("Segment size must be greater than zero");
+		}
+		this.segmentSize = segmentSize;
+	}
+
+	public int getMaxConnections() {
+
+		return maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of segments downloaded in parallel. Should not exceed the connections per route of the
+	 * http client (see {@link HttpClientConfig})
+	 *
+	 * @param maxConnections
+	 *            maximum parallel requests. Must be greater than zero
+	 */
+	public void setMaxConnections(int maxConnections) {
+
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("Max connections must be greater than zero");
+		}
+		this.maxConnections = maxConnections;
+	}
+
+	public int getMaxAttemptsPerSegment() {
+
+		return maxAttemptsPerSegment;
+	}
+
+	/**
+	 * Set how many times a segment is requested before the download fails. Only failures which may be transient (I/O
+	 * errors, server errors, 408 and 429) are retried
+	 *
+	 * @param maxAttemptsPerSegment
+	 *            maximum attempts. Must be greater than zero
+	 */
+	public void setMaxAttemptsPerSegment(int maxAttemptsPerSegment) {
+
+		if (maxAttemptsPerSegment < 1) {
+			throw new IllegalArgumentException("Max attempts per segment must be greater than zero");
+		}
+		this.maxAttemptsPerSegment = maxAttemptsPerSegment;
+	}
+
+	public int getBufferSize() {
+
+		return bufferSize;
+	}
+
+	/**
+	 * Set the size of the buffer each segment is copied through, and of the chunks reported to the progress listener
+	 *
+	 * @param bufferSize
+	 *            buffer size in bytes. Must be greater than zero
+	 */
+	public void setBufferSize(int bufferSize) {
+
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be greater than zero");
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	public String getChecksumAlgorithm() {
+
+		return checksumAlgorithm;
+	}
+
+	/**
+	 * Set the algorithm of the checksum of the downloaded content. The segments are written out of order, so the
+	 * checksum is computed by reading the file once the download completed
+	 *
+	 * @param checksumAlgorithm
+	 *            a MessageDigest algorithm, e.g. SHA-256 or MD5. Null to compute no checksum
+	 */
+	public void setChecksumAlgorithm(String checksumAlgorithm) {
+
+		this.checksumAlgorithm = checksumAlgorithm;
+	}
+
+	public DownloadProgressListener getProgressListener() {
+
+		return progressListener;
+	}
+
+	/**
+	 * Set the listener notified of the download progress. With parallel segments, the listener is called from the
+	 * downloading threads, one call at a time. The bytes of the segments completed before a resumed download are
+	 * reported as transferred
+	 *
+	 * @param progressListener
+	 *            progress listener. Can be null
+	 */
+	public void setProgressListener(DownloadProgressListener progressListener) {
+
+		this.progressListener = progressListener;
+	}
+
+	private void checkChecksumAlgorithm() {
+
+		if (checksumAlgorithm == null) {
+			return;
+		}
+		try {
+			MessageDigest.getInstance(checksumAlgorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Checksum algorithm not supported: " + checksumAlgorithm, e);
+		}
+	}
+
+	/**
+	 * Streams the whole content to the file, for servers which don't support ranges
+	 */
+	private DownloadResult downloadWholeContent(Path file, InputStream content, long contentLength)
+			throws IOException {
+
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ContentDownloader contentDownloader = new ContentDownloader(fileChannel);
+			contentDownloader.setBufferSize(bufferSize);
+			contentDownloader.setChecksumAlgorithm(checksumAlgorithm);
+			contentDownloader.setProgressListener(progressListener);
+			return contentDownloader.read(content, contentLength);
+		}
+	}
+
+	/**
+	 * Downloads the segments missing from the segment map in parallel. A new segment map is started, and the file
+	 * allocated, unless the stored one is for the same content
+	 */
+	private DownloadResult downloadSegments(RangeRequester requester, Path file, Path segmentMapFile,
+			long totalLength, String validator) throws IOException, MambuApiException {
+
+		SegmentMap segmentMap = SegmentMap.load(segmentMapFile);
+		if (segmentMap != null && segmentMap.isFor(totalLength, validator) && Files.isRegularFile(file)
+				&& Files.size(file) == totalLength) {
+			LOGGER.info("Resuming download to " + file + ", " + segmentMap.getCompletedBytes() + " of "
+					+ totalLength + " bytes already downloaded");
+		} else {
+			segmentMap = new SegmentMap(totalLength, segmentSize, validator);
+			allocate(file, totalLength);
+			segmentMap.save(segmentMapFile);
+		}
+
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			new SegmentedDownload(requester, fileChannel, segmentMap, segmentMapFile).run();
+			fileChannel.force(false);
+		}
+
+		String checksum = null;
+		if (checksumAlgorithm != null) {
+			ContentDownloader checksumReader = new ContentDownloader(new NullOutputStream());
+			checksumReader.setBufferSize(bufferSize);
+			checksumReader.setChecksumAlgorithm(checksumAlgorithm);
+			try (InputStream content = Files.newInputStream(file)) {
+				checksum = checksumReader.read(content, totalLength).getChecksum();
+			}
+		}
+		return new DownloadResult(totalLength, totalLength, checksumAlgorithm, checksum);
+	}
+
+	/**
+	 * Creates or truncates the file and extends it to the length of the content
+	 */
+	private static void allocate(Path file, long length) throws IOException {
+
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (length > 0) {
+				fileChannel.write(ByteBuffer.allocate(1), length - 1);
+			}
+		}
+	}
+
+	/**
+	 * Is the failure of a segment transient, so that the segment may be downloaded if requested again. Failures of the
+	 * library itself, like an open circuit, a saturated workload lane or the caller's deadline, are not retried
+	 *
+	 * @param exception
+	 *            the exception of the failed request
+	 * @return true for I/O errors, including the requests timing out on their own timeouts, and retryable statuses
+	 */
+	private static boolean isRetryable(MambuApiException exception) {
+
+		Long deadline = RequestTimeouts.getCurrentDeadline();
+		if (deadline != null && deadline - System.nanoTime() <= 0) {
+			return false;
+		}
+		Integer errorCode = exception.getErrorCode();
+		return exception.getCause() instanceof IOException
+				|| (errorCode != null && (errorCode >= 500 || errorCode == 408 || errorCode == 429));
+	}
+
+	/**
+	 * The state of one download of segments. The segment map is updated and stored by the calling thread only, as the
+	 * segments complete
+	 */
+	private class SegmentedDownload {
+
+		private final RangeRequester requester;
+		private final FileChannel fileChannel;
+		private final SegmentMap segmentMap;
+		private final Path segmentMapFile;
+		private final Object progressLock = new Object();
+		private long transferredBytes;
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+
+		SegmentedDownload(RangeRequester requester, FileChannel fileChannel, SegmentMap segmentMap,
+				Path segmentMapFile) {
+
+			this.requester = requester;
+			this.fileChannel = fileChannel;
+			this.segmentMap = segmentMap;
+			this.segmentMapFile = segmentMapFile;
+			this.transferredBytes = segmentMap.getCompletedBytes();
+		}
+
+		void run() throws IOException, MambuApiException {
+
+			List<Integer> pendingSegments = segmentMap.getPendingSegments();
+			if (pendingSegments.isEmpty()) {
+				return;
+			}
+
+			ExecutorService executor = Executors
+					.newFixedThreadPool(Math.min(maxConnections, pendingSegments.size()));
+			CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+			// The segments are requested in the lane and within the deadline of the caller
+			RequestContext requestContext = RequestContext.capture();
+			for (final Integer segment : pendingSegments) {
+				completionService.submit(requestContext.callable(() -> {
+					downloadSegment(segment);
+					return segment;
+				}));
+			}
+
+			try {
+				for (int i = 0; i < pendingSegments.size(); i++) {
+					int segment = completionService.take().get();
+					segmentMap.complete(segment);
+					segmentMap.save(segmentMapFile);
+				}
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof MambuApiException) {
+					throw (MambuApiException) cause;
+				}
+				throw new MambuApiException(cause instanceof Exception ? (Exception) cause : e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MambuApiException(e);
+			} finally {
+				// let the segments in progress stop at their next chunk, without interrupting the file channel
+				cancelled.set(true);
+				executor.shutdown();
+				try {
+					executor.awaitTermination(1, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void downloadSegment(int segment) throws MambuApiException {
+
+			long firstByte = segmentMap.getFirstByte(segment);
+			long lastByte = segmentMap.getLastByte(segment);
+
+			MambuApiException failure = null;
+			for (int attempt = 1; attempt <= maxAttemptsPerSegment; attempt++) {
+				if (cancelled.get()) {
+					throw new CancellationException("Download cancelled");
+				}
+				SegmentWriter segmentWriter = new SegmentWriter(firstByte, lastByte);
+				try {
+					requester.request(firstByte, lastByte, segmentWriter);
+					return;
+				} catch (MambuApiException e) {
+					// the bytes of the failed attempt will be downloaded again
+					addTransferredBytes(-segmentWriter.writtenBytes, false);
+					failure = e;
+					if (!isRetryable(e)) {
+						break;
+					}
+					LOGGER.warning("Download of bytes " + firstByte + "-" + lastByte + " failed, attempt " + attempt
+							+ " of " + maxAttemptsPerSegment + ": " + e.getMessage());
+				}
+			}
+			throw failure;
+		}
+
+		private void addTransferredBytes(long bytes, boolean report) {
+
+			synchronized (progressLock) {
+				transferredBytes += bytes;
+				if (report && progressListener != null) {
+					progressListener.onProgress(transferredBytes, segmentMap.getTotalLength());
+				}
+			}
+		}
+
+		/**
+		 * Writes the content of one segment at its position in the file
+		 */
+		private class SegmentWriter implements RangeContentReader<Long> {
+
+			private final long firstByte;
+			private final long lastByte;
+			private long writtenBytes;
+
+			SegmentWriter(long firstByte, long lastByte) {
+
+				this.firstByte = firstByte;
+				this.lastByte = lastByte;
+			}
+
+			@Override
+			public Long read(InputStream content, ContentRange contentRange) throws IOException {
+
+				if (!contentRange.isPartial() || contentRange.getFirstByte() != firstByte
+						|| contentRange.getLastByte() != lastByte
+						|| contentRange.getTotalLength() != segmentMap.getTotalLength()) {
+					throw new IOException("Unexpected range for bytes " + firstByte + "-" + lastByte + ": "
+							+ contentRange);
+				}
+				String validator = segmentMap.getValidator();
+				if (validator != null && !validator.equals(contentRange.getValidator())) {
+					throw new IOException("The content changed while downloading, validator "
+							+ contentRange.getValidator() + " instead of " + validator);
+				}
+
+				ReadableByteChannel source = Channels.newChannel(content);
+				ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+				long position = firstByte;
+				while (source.read(buffer) != -1) {
+					if (cancelled.get()) {
+						throw new IOException("Download cancelled");
+					}
+					buffer.flip();
+					int count = buffer.remaining();
+					if (position + count > lastByte + 1) {
+						throw new IOException("More content than requested for bytes " + firstByte + "-" + lastByte);
+					}
+					while (buffer.hasRemaining()) {
+						position += fileChannel.write(buffer, position);
+					}
+					buffer.clear();
+					writtenBytes += count;
+					addTransferredBytes(count, true);
+				}
+				if (position != lastByte + 1) {
+					throw new IOException(
+							"Content truncated for bytes " + firstByte + "-" + lastByte + " at " + position);
+				}
+				return writtenBytes;
+			}
+		}
+	}
+
+	/**
+	 * The segments of a download and which of them completed, stored as properties so that a failed download can be
+	 * resumed. The file is replaced atomically where supported, so that a crash never leaves a partial map
+	 */
+	static class SegmentMap {
+
+		private static final String TOTAL_LENGTH = "totalLength";
+		private static final String SEGMENT_SIZE = "segmentSize";
+		private static final String VALIDATOR = "validator";
+		private static final String COMPLETED = "completed";
+
+		private final long totalLength;
+		private final long segmentSize;
+		private final String validator;
+		private final BitSet completed = new BitSet();
+
+		SegmentMap(long totalLength, long segmentSize, String validator) {
+
+			this.totalLength = totalLength;
+			this.segmentSize = segmentSize;
+			this.validator = validator;
+		}
+
+		/**
+		 * Loads the segment map stored by a previous download
+		 *
+		 * @param segmentMapFile
+		 *            segment map file
+		 * @return the segment map or null if there is none, or it can't be read
+		 */
+		static SegmentMap load(Path segmentMapFile) {
+
+			if (!Files.isRegularFile(segmentMapFile)) {
+				return null;
+			}
+			try (InputStream input = Files.newInputStream(segmentMapFile)) {
+				Properties properties = new Properties();
+				properties.load(input);
+
+				SegmentMap segmentMap = new SegmentMap(Long.parseLong(properties.getProperty(TOTAL_LENGTH)),
+						Long.parseLong(properties.getProperty(SEGMENT_SIZE)), properties.getProperty(VALIDATOR));
+				if (segmentMap.segmentSize < 1) {
+					return null;
+				}
+				for (String segment : properties.getProperty(COMPLETED, "").split(",")) {
+					if (!segment.isEmpty()) {
+						segmentMap.complete(Integer.parseInt(segment));
+					}
+				}
+				return segmentMap;
+
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warning("Ignoring unreadable segment map " + segmentMapFile + ": " + e.getMessage());
+				return null;
+			}
+		}
+
+		void save(Path segmentMapFile) throws IOException {
+
+			Properties properties = new Properties();
+			properties.setProperty(TOTAL_LENGTH, String.valueOf(totalLength));
+			properties.setProperty(SEGMENT_SIZE, String.valueOf(segmentSize));
+			if (validator != null) {
+				properties.setProperty(VALIDATOR, validator);
+			}
+			StringBuilder segments = new StringBuilder();
+			for (int segment = completed.nextSetBit(0); segment >= 0; segment = completed.nextSetBit(segment + 1)) {
+				if (segments.length() > 0) {
+					segments.append(',');
+				}
+				segments.append(segment);
+			}
+			properties.setProperty(COMPLETED, segments.toString());
+
+			Path temporaryFile = segmentMapFile.resolveSibling(segmentMapFile.getFileName() + ".tmp");
+			try (OutputStream output = Files.newOutputStream(temporaryFile)) {
+				properties.store(output, null);
+			}
+			try {
+				Files.move(temporaryFile, segmentMapFile, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, segmentMapFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		boolean isFor(long totalLength, String validator) {
+
+			return this.totalLength == totalLength
+					&& (this.validator == null ? validator == null : this.validator.equals(validator));
+		}
+
+		int getSegmentCount() {
+
+			return (int) ((totalLength + segmentSize - 1) / segmentSize);
+		}
+
+		long getFirstByte(int segment) {
+
+			return segment * segmentSize;
+		}
+
+		long getLastByte(int segment) {
+
+			return Math.min(getFirstByte(segment) + segmentSize, totalLength) - 1;
+		}
+
+		List<Integer> getPendingSegments() {
+
+			List<Integer> pendingSegments = new ArrayList<>();
+			for (int segment = 0; segment < getSegmentCount(); segment++) {
+				if (!completed.get(segment)) {
+					pendingSegments.add(segment);
+				}
+			}
+			return pendingSegments;
+		}
+
+		long getCompletedBytes() {
+
+			long completedBytes = 0;
+			for (int segment = completed.nextSetBit(0); segment >= 0; segment = completed.nextSetBit(segment + 1)) {
+				completedBytes += getLastByte(segment) - getFirstByte(segment) + 1;
+			}
+			return completedBytes;
+		}
+
+		void complete(int segment) {
+
+			if (segment < 0 || segment >= getSegmentCount()) {
+				throw new IllegalArgumentException("Invalid segment " + segment);
+			}
+			completed.set(segment);
+		}
+
+		long getTotalLength() {
+
+			return totalLength;
+		}
+
+		String getValidator() {
+
+			return validator;
+		}
+	}
+}
@@ -0,0 +1,463 @@
+package com.mambu.apisdk.util;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Client-side token bucket rate limiter for the API requests of one factory, i.e. of one tenant and its credentials.
+ * Set with {@link com.mambu.apisdk.MambuAPIServiceFactory#setRateLimiter(RateLimiter)}.
+ *
+ * Reads (GET requests) and writes (all other requests) take their permits from separate buckets, each refilled at its
+ * own rate and holding up to its burst size. A request without an available permit waits for one, or fails at once
+ * with a MambuApiException with the error code 429 when the limiter is set to fail fast or when the wait would exceed
+ * the max wait. Asynchronous requests wait for their permit without holding a thread.
+ *
+ * The limiter adapts to Mambu throttling: a 429 (Too Many Requests) or 503 (Service Unavailable) response halves the
+ * rate of its bucket, and pauses it until the time given by the Retry-After header, if there is one. Each successful
+ * response then recovers a twentieth of the configured rate, so that the requests run close to the highest rate Mambu
+ * accepts.
+ *
+ * This class is thread safe
+ */
+public class RateLimiter {
+
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 60 * 1000L;
+	public static final int TOO_MANY_REQUESTS = 429;
+	private static final int SERVICE_UNAVAILABLE = 503;
+	private static final String RETRY_AFTER_HEADER_NAME = "Retry-After";
+	// Throttling doesn't lower a rate below this fraction of the configured rate
+	private static final double MIN_RATE_FRACTION = 0.05;
+	// Each successful response recovers this fraction of the configured rate
+	private static final double RECOVERY_FRACTION = 0.05;
+
+	private final static Logger LOGGER = Logger.getLogger(RateLimiter.class.getName());
+
+	/**
+	 * The request types having separate buckets
+	 */
+	public enum RequestType {
+		READ, WRITE;
+
+		public static RequestType of(Method method) {
+
+			return method == Method.GET ? READ : WRITE;
+		}
+	}
+
+	private final Bucket readBucket;
+	private final Bucket writeBucket;
+	private final LongSupplier nanoClock;
+	private volatile boolean failFast;
+	private volatile long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+
+	private final AtomicLong waitCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong longestWaitNanos = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong throttledCount = new AtomicLong();
+
+	/**
+	 * Creates a limiter allowing bursts of one second of requests
+	 *
+	 * @param readsPerSecond
+	 *            the rate of the GET requests. Must be greater than zero
+	 * @param writesPerSecond
+	 *            the rate of the POST, PATCH and DELETE requests. Must be greater than zero
+	 */
+	public RateLimiter(double readsPerSecond, double writesPerSecond) {
+
+		this(readsPerSecond, (int) Math.ceil(readsPerSecond), writesPerSecond, (int) Math.ceil(writesPerSecond));
+	}
+
+	/**
+	 * Creates a limiter
+	 *
+	 * @param readsPerSecond
+	 *            the rate of the GET requests. Must be greater than zero
+	 * @param readBurst
+	 *            how many GET requests can be made at once after an idle period. Must be greater than zero
+	 * @param writesPerSecond
+	 *            the rate of the POST, PATCH and DELETE requests. Must be greater than zero
+	 * @param writeBurst
+	 *            how many POST, PATCH and DELETE requests can be made at once after an idle period. Must be greater
+	 *            than zero
+	 */
+	public RateLimiter(double readsPerSecond, int readBurst, double writesPerSecond, int writeBurst) {
+
+		this(readsPerSecond, readBurst, writesPerSecond, writeBurst, System::nanoTime);
+	}
+
+	RateLimiter(double readsPerSecond, int readBurst, double writesPerSecond, int writeBurst, LongSupplier nanoClock) {
+
+		this.nanoClock = nanoClock;
+		long now = nanoClock.getAsLong();
+		this.readBucket = new Bucket(RequestType.READ, readsPerSecond, readBurst, now);
+		this.writeBucket = new Bucket(RequestType.WRITE, writesPerSecond, writeBurst, now);
+	}
+
+	/**
+	 * Takes a permit for a request, waiting for it if needed
+	 *
+	 * @param method
+	 *            the method of the request
+	 * @throws MambuApiException
+	 *             with the error code 429 if a permit is not available in time, or if interrupted while waiting
+	 */
+	public void acquire(Method method) throws MambuApiException {
+
+		Bucket bucket = getBucket(RequestType.of(method));
+		long maxWaitNanos = failFast ? 0 : TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+		long waitNanos = bucket.reserve(nanoClock.getAsLong(), maxWaitNanos);
+		if (waitNanos < 0) {
+			throw reject(bucket, maxWaitNanos);
+		}
+		if (waitNanos == 0) {
+			return;
+		}
+
+		long start = nanoClock.getAsLong();
+		try {
+			// Wait again if Mambu paused the bucket meanwhile
+			while (waitNanos > 0) {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+				waitNanos = bucket.getPausedNanos(nanoClock.getAsLong());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} finally {
+			recordWait(nanoClock.getAsLong() - start);
+		}
+	}
+
+	/**
+	 * Takes a permit for an asynchronous request, without blocking the caller
+	 *
+	 * @param method
+	 *            the method of the request
+	 * @return future completed once the permit is taken, or failed with the error code 429 if the permit is not
+	 *         available in time
+	 */
+	CompletableFuture<Void> acquireAsync(Method method) {
+
+		Bucket bucket = getBucket(RequestType.of(method));
+		long maxWaitNanos = failFast ? 0 : TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+		CompletableFuture<Void> permit = new CompletableFuture<>();
+		long waitNanos = bucket.reserve(nanoClock.getAsLong(), maxWaitNanos);
+		if (waitNanos < 0) {
+			permit.completeExceptionally(reject(bucket, maxWaitNanos));
+		} else if (waitNanos == 0) {
+			permit.complete(null);
+		} else {
+			schedulePermit(bucket, permit, waitNanos, nanoClock.getAsLong());
+		}
+		return permit;
+	}
+
+	/**
+	 * Completes the future of a reserved permit once the wait is over, waiting again if Mambu paused the bucket
+	 * meanwhile
+	 */
+	private void schedulePermit(final Bucket bucket, final CompletableFuture<Void> permit, long waitNanos,
+			final long start) {
+
+		BackgroundExecutors.getScheduler().schedule(() -> {
+			long pausedNanos = bucket.getPausedNanos(nanoClock.getAsLong());
+			if (pausedNanos > 0) {
+				schedulePermit(bucket, permit, pausedNanos, start);
+				return;
+			}
+			recordWait(nanoClock.getAsLong() - start);
+			permit.complete(null);
+		}, waitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void recordWait(long waitedNanos) {
+
+		waitCount.incrementAndGet();
+		totalWaitNanos.addAndGet(waitedNanos);
+		longestWaitNanos.accumulateAndGet(waitedNanos, Math::max);
+	}
+
+	private MambuApiException reject(Bucket bucket, long maxWaitNanos) {
+
+		rejectedCount.incrementAndGet();
+		return new MambuApiException(TOO_MANY_REQUESTS, "Client rate limit exceeded: no " + bucket.type
+				+ " permit available within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+	}
+
+	/**
+	 * Adapts the rate to a response: a throttled response slows the bucket of its request down, a successful response
+	 * recovers its rate
+	 *
+	 * @param method
+	 *            the method of the request
+	 * @param httpResponse
+	 *            the response
+	 */
+	public void onResponse(Method method, HttpResponse httpResponse) {
+
+		Bucket bucket = getBucket(RequestType.of(method));
+		int status = httpResponse.getStatusLine().getStatusCode();
+		if (status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE) {
+			throttledCount.incrementAndGet();
+			long now = nanoClock.getAsLong();
+			long retryAfterNanos = getRetryAfterNanos(httpResponse.getFirstHeader(RETRY_AFTER_HEADER_NAME));
+			bucket.throttle(now, retryAfterNanos);
+			LOGGER.warning("Mambu throttled a " + bucket.type + " request with status " + status + ". Rate lowered to "
+					+ bucket.getRate() + " per second, paused for " + TimeUnit.NANOSECONDS.toMillis(retryAfterNanos)
+					+ " ms");
+		} else if (status < 400) {
+			bucket.recover();
+		}
+	}
+
+	/**
+	 * Get the permits which can be taken at once without waiting
+	 *
+	 * @param requestType
+	 *            the request type
+	 * @return available permits. Zero if requests are waiting
+	 */
+	public int getAvailablePermits(RequestType requestType) {
+
+		return getBucket(requestType).getAvailablePermits(nanoClock.getAsLong());
+	}
+
+	/**
+	 * Get the current rate, lower than the configured rate while recovering from Mambu throttling
+	 *
+	 * @param requestType
+	 *            the request type
+	 * @return permits per second
+	 */
+	public double getRate(RequestType requestType) {
+
+		return getBucket(requestType).getRate();
+	}
+
+	/**
+	 * Get the configured rate
+	 *
+	 * @param requestType
+	 *            the request type
+	 * @return permits per second
+	 */
+	public double getConfiguredRate(RequestType requestType) {
+
+		return getBucket(requestType).configuredRate;
+	}
+
+	/**
+	 * Get the number of requests which waited for a permit
+	 *
+	 * @return number of waits
+	 */
+	public long getWaitCount() {
+
+		return waitCount.get();
+	}
+
+	/**
+	 * Get the total time requests waited for permits
+	 *
+	 * @return total wait time in milliseconds
+	 */
+	public long getTotalWaitMillis() {
+
+		return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+	}
+
+	/**
+	 * Get the longest time a request waited for a permit
+	 *
+	 * @return longest wait time in milliseconds
+	 */
+	public long getLongestWaitMillis() {
+
+		return TimeUnit.NANOSECONDS.toMillis(longestWaitNanos.get());
+	}
+
+	/**
+	 * Get the number of requests failed because no permit was available in time
+	 *
+	 * @return number of rejected requests
+	 */
+	public long getRejectedCount() {
+
+		return rejectedCount.get();
+	}
+
+	/**
+	 * Get the number of responses with which Mambu throttled the requests (429 or 503)
+	 *
+	 * @return number of throttled responses
+	 */
+	public long getThrottledCount() {
+
+		return throttledCount.get();
+	}
+
+	public boolean isFailFast() {
+
+		return failFast;
+	}
+
+	/**
+	 * Set whether a request without an available permit fails at once rather than waiting for one
+	 *
+	 * @param failFast
+	 *            true to fail fast. False by default
+	 */
+	public void setFailFast(boolean failFast) {
+
+		this.failFast = failFast;
+	}
+
+	public long getMaxWaitMillis() {
+
+		return maxWaitMillis;
+	}
+
+	/**
+	 * Set how long a request waits for a permit at most. A request which would wait longer fails at once
+	 *
+	 * @param maxWaitMillis
+	 *            max wait in milliseconds. Defaults to {@value #DEFAULT_MAX_WAIT_MILLIS}
+	 */
+	public void setMaxWaitMillis(long maxWaitMillis) {
+
+		if (maxWaitMillis < 0) {
+			throw new IllegalArgumentException("Max wait must not be negative");
+		}
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	private Bucket getBucket(RequestType requestType) {
+
+		return requestType == RequestType.READ ? readBucket : writeBucket;
+	}
+
+	/**
+	 * Get the time to wait from a Retry-After header, given either in seconds or as an HTTP date
+	 *
+	 * @return wait time in nanoseconds. Zero if there is no valid header
+	 */
+	private static long getRetryAfterNanos(Header retryAfterHeader) {
+
+		if (retryAfterHeader == null || retryAfterHeader.getValue() == null) {
+			return 0;
+		}
+		String retryAfter = retryAfterHeader.getValue().trim();
+		try {
+			return Math.max(0, TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter)));
+		} catch (NumberFormatException e) {
+			Date retryDate = DateUtils.parseDate(retryAfter);
+			return retryDate == null ? 0 : Math.max(0, TimeUnit.MILLISECONDS.toNanos(retryDate.getTime()
+					- System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * A token bucket. Its tokens go below zero when permits are reserved by waiting requests
+	 */
+	private static class Bucket {
+
+		private final RequestType type;
+		private final double configuredRate;
+		private final int burst;
+
+		// Guarded by this
+		private double rate;
+		private double tokens;
+		// Tokens are added from this time. Set in the future while the bucket is paused
+		private long refilledAtNanos;
+
+		Bucket(RequestType type, double rate, int burst, long now) {
+
+			if (!(rate > 0) || burst < 1) {
+				throw new IllegalArgumentException("Invalid " + type + " rate limit. Rate=" + rate + " Burst=" + burst);
+			}
+			this.type = type;
+			this.configuredRate = rate;
+			this.burst = burst;
+			this.rate = rate;
+			this.tokens = burst;
+			this.refilledAtNanos = now;
+		}
+
+		/**
+		 * Reserves a permit
+		 *
+		 * @return the time to wait for the permit in nanoseconds, or -1 if the permit is not reserved because the
+		 *         wait would exceed the max wait
+		 */
+		synchronized long reserve(long now, long maxWaitNanos) {
+
+			refill(now);
+			long waitNanos = Math.max(0, refilledAtNanos - now);
+			if (tokens < 1) {
+				waitNanos += (long) Math.ceil((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+			}
+			if (waitNanos > maxWaitNanos) {
+				return -1;
+			}
+			tokens -= 1;
+			return waitNanos;
+		}
+
+		/**
+		 * Lowers the rate and pauses the bucket. Permits already reserved are not taken back
+		 */
+		synchronized void throttle(long now, long pauseNanos) {
+
+			refill(now);
+			rate = Math.max(configuredRate * MIN_RATE_FRACTION, rate / 2);
+			// No burst once the pause is over
+			tokens = Math.min(tokens, 0);
+			refilledAtNanos = Math.max(refilledAtNanos, now + pauseNanos);
+		}
+
+		synchronized void recover() {
+
+			rate = Math.min(configuredRate, rate + configuredRate * RECOVERY_FRACTION);
+		}
+
+		synchronized long getPausedNanos(long now) {
+
+			return Math.max(0, refilledAtNanos - now);
+		}
+
+		synchronized int getAvailablePermits(long now) {
+
+			refill(now);
+			return refilledAtNanos > now ? 0 : (int) Math.max(0, Math.floor(tokens));
+		}
+
+		synchronized double getRate() {
+
+			return rate;
+		}
+
+		private void refill(long now) {
+
+			if (now > refilledAtNanos) {
+				tokens = Math.min(burst, tokens + (now - refilledAtNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+				refilledAtNanos = now;
+			}
+		}
+	}
+}
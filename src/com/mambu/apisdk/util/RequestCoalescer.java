@@ -0,0 +1,149 @@
+package com.mambu.apisdk.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+/**
+ * Coalesces identical requests made at the same time into a single API call (also known as single-flight). The first
+ * caller for a request key executes the request, while callers asking for the same key before it completes wait for
+ * it and get the same result or the same exception. Requests made after the call completes execute again, no results
+ * are cached. A waiting caller waits for no longer than it would for its own request: until its deadline, set with
+ * {@link RequestTimeouts#callWithDeadline(long, java.util.concurrent.TimeUnit, RetryPolicy.RetriableRequest)}, and for
+ * the total timeout of its request. It then fails with the {@link RequestTimeouts#TIMED_OUT} error code, while the
+ * call in flight goes on for the other callers.
+ *
+ * Used by the {@link ServiceExecutor} for GET requests, when enabled for a factory. Only reads must be coalesced, as
+ * the waiting callers don't make a request of their own.
+ *
+ * This class is thread safe
+ */
+public class RequestCoalescer {
+
+	/**
+	 * A request which can be coalesced
+	 *
+	 * @param <T>
+	 *            the type of the result
+	 */
+	@FunctionalInterface
+	public interface CoalescedRequest<T> {
+
+		T execute() throws MambuApiException;
+	}
+
+	// Requests in flight, by request key
+	private final ConcurrentMap<String, CompletableFuture<Object>> inFlightRequests = new ConcurrentHashMap<>();
+
+	private final AtomicLong executedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * Execute the request, unless an identical request is in flight, in which case wait for its result
+	 *
+	 * @param requestKey
+	 *            key identifying identical requests. See {@link #makeRequestKey(Method, String, ParamsMap)}
+	 * @param request
+	 *            the request to execute
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 *             the exception thrown by the request, also thrown to all callers which waited for it. With the
+	 *             {@link RequestTimeouts#TIMED_OUT} error code if the time of a waiting caller was up
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(String requestKey, CoalescedRequest<T> request) throws MambuApiException {
+
+		if (requestKey == null || request == null) {
+			throw new IllegalArgumentException("Request key and request must not be null");
+		}
+
+		CompletableFuture<Object> newCall = new CompletableFuture<>();
+		CompletableFuture<Object> inFlightCall = inFlightRequests.putIfAbsent(requestKey, newCall);
+		if (inFlightCall != null) {
+			coalescedCount.incrementAndGet();
+			return (T) await(inFlightCall);
+		}
+
+		executedCount.incrementAndGet();
+		try {
+			T result = request.execute();
+			newCall.complete(result);
+			return result;
+		} catch (MambuApiException | RuntimeException | Error e) {
+			newCall.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlightRequests.remove(requestKey, newCall);
+		}
+	}
+
+	/**
+	 * Make the key identifying identical requests. Parameters are compared regardless of their order
+	 *
+	 * @param method
+	 *            request method
+	 * @param urlString
+	 *            request url
+	 * @param params
+	 *            request parameters. Can be null
+	 * @return request key
+	 */
+	public static String makeRequestKey(Method method, String urlString, ParamsMap params) {
+
+		Map<String, String> sortedParams = params == null ? null : new TreeMap<>(params);
+		return method + " " + urlString + " " + sortedParams;
+	}
+
+	/**
+	 * Get the number of requests actually executed
+	 *
+	 * @return number of executed requests
+	 */
+	public long getExecutedCount() {
+
+		return executedCount.get();
+	}
+
+	/**
+	 * Get the number of calls which didn't make a request of their own but waited for an identical request in flight
+	 *
+	 * @return number of coalesced calls
+	 */
+	public long getCoalescedCount() {
+
+		return coalescedCount.get();
+	}
+
+	/**
+	 * Get the number of requests in flight
+	 *
+	 * @return number of requests in flight
+	 */
+	public int getInFlightCount() {
+
+		return inFlightRequests.size();
+	}
+
+	private Object await(CompletableFuture<Object> inFlightCall) throws MambuApiException {
+
+		try {
+			return RequestTimeouts.await(inFlightCall);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof MambuApiException) {
+				throw (MambuApiException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new MambuApiException(e);
+		}
+	}
+}
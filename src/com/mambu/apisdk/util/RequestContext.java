@@ -0,0 +1,88 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * The settings a caller gives to the requests of its thread: the workload lane chosen with
+ * {@link Bulkhead#callInLane(String, RetryPolicy.RetriableRequest)}, the deadline set with
+ * {@link RequestTimeouts#callWithDeadline(long, java.util.concurrent.TimeUnit, RetryPolicy.RetriableRequest)} and the
+ * timeouts of the API request in progress.
+ *
+ * These settings are thread local. Tasks making requests on other threads, like the segment downloads of the
+ * {@link RangedDownloader} or the prefetched pages of a {@link PagedIterable}, capture them when they are submitted and
+ * run with them on their worker thread
+ */
+final class RequestContext {
+
+	private final String lane;
+	private final Long deadline;
+	private final RequestTimeouts timeouts;
+
+	private RequestContext(String lane, Long deadline, RequestTimeouts timeouts) {
+
+		this.lane = lane;
+		this.deadline = deadline;
+		this.timeouts = timeouts;
+	}
+
+	/**
+	 * Captures the settings of the requests of the current thread
+	 *
+	 * @return the request context
+	 */
+	static RequestContext capture() {
+
+		return new RequestContext(Bulkhead.getCurrentLane(), RequestTimeouts.getCurrentDeadline(),
+				RequestTimeouts.getCurrentTimeouts());
+	}
+
+	/**
+	 * Wraps a task to run it with the captured settings
+	 *
+	 * @param task
+	 *            the task
+	 * @return the task running with the captured settings, on any thread
+	 */
+	<T> Callable<T> callable(Callable<T> task) {
+
+		return () -> {
+			RequestContext outerContext = apply();
+			try {
+				return task.call();
+			} finally {
+				outerContext.apply();
+			}
+		};
+	}
+
+	/**
+	 * Wraps a task to run it with the captured settings
+	 *
+	 * @param task
+	 *            the task
+	 * @return the task running with the captured settings, on any thread
+	 */
+	<T> Supplier<T> supplier(Supplier<T> task) {
+
+		return () -> {
+			RequestContext outerContext = apply();
+			try {
+				return task.get();
+			} finally {
+				outerContext.apply();
+			}
+		};
+	}
+
+	/**
+	 * Sets the captured settings for the requests of the current thread
+	 *
+	 * @return the previous settings, to be restored once the task completed
+	 */
+	private RequestContext apply() {
+
+		return new RequestContext(Bulkhead.setCurrentLane(lane), RequestTimeouts.setCurrentDeadline(deadline),
+				RequestTimeouts.setCurrentTimeouts(timeouts));
+	}
+}
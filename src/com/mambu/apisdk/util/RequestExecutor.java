@@ -1,6 +1,11 @@
 package com.mambu.apisdk.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
 import com.mambu.apisdk.exception.MambuApiException;
 
@@ -114,4 +119,146 @@ public interface RequestExecutor {
 	ByteArrayOutputStream executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
 			throws MambuApiException;
 
+	/**
+	 * Executes a request downloading content through the API (like zip archives) and reads the result directly from
+	 * the response content with the given contentReader, without holding the content in memory.
+	 * 
+	 * The default implementation downloads the content as a ByteArrayOutputStream and reads the result from it, so
+	 * that existing executors keep working unchanged.
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/database/backup/LATEST
+	 * @param params
+	 *            the parameters eg: {clientId=id}
+	 * @param apiDefinition
+	 *            the ApiDefinition holding details like HTTP method, content type and API return type
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * 
+	 * @return the result read by the contentReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	default <R> R executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			ContentReader<R> contentReader) throws MambuApiException {
+
+		ByteArrayOutputStream content = executeRequest(urlString, params, apiDefinition);
+		if (content == null) {
+			return null;
+		}
+		try {
+			return contentReader.read(new ByteArrayInputStream(content.toByteArray()), content.size());
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	/**
+	 * Executes a request with given url, request method and content type, streaming the request body from the given
+	 * contentWriter (like a large document upload) rather than making it from a params map.
+	 * 
+	 * The default implementation writes the content into a JSON string param and executes the request as a String
+	 * request, so that existing executors keep working unchanged.
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/documents
+	 * @param method
+	 *            the method (e.g. POST)
+	 * @param contentTypeFormat
+	 *            enum for the content type string. Only JSON is supported
+	 * @param contentWriter
+	 *            writes the request body
+	 * 
+	 * @return Mambu Response String
+	 * 
+	 * @throws MambuApiException
+	 */
+	default String executeRequest(String urlString, Method method, ContentType contentTypeFormat,
+			ContentWriter contentWriter) throws MambuApiException {
+
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try {
+			contentWriter.writeTo(content);
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+		ParamsMap params = new ParamsMap();
+		params.put(APIData.JSON_OBJECT, new String(content.toByteArray(), StandardCharsets.UTF_8));
+		return executeRequest(urlString, params, method, contentTypeFormat);
+	}
+
+	/**
+	 * Executes a request downloading a byte range of the content (like a part of a zip archive) and reads the result
+	 * directly from the response content with the given contentReader. A server which doesn't support ranges sends the
+	 * whole content, which is passed to the contentReader with a range which is not partial
+	 * 
+	 * The default implementation doesn't request a range and always reads the whole content, so that existing
+	 * executors keep working unchanged.
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/database/backup/LATEST
+	 * @param params
+	 *            the parameters eg: {clientId=id}
+	 * @param apiDefinition
+	 *            the ApiDefinition holding details like HTTP method, content type and API return type
+	 * @param firstByte
+	 *            the position of the first byte of the range
+	 * @param lastByte
+	 *            the position of the last byte of the range, inclusive. Negative for the end of the content
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * 
+	 * @return the result read by the contentReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	default <R> R executeRangeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition, long firstByte,
+			long lastByte, final RangeContentReader<R> contentReader) throws MambuApiException {
+
+		return executeRequest(urlString, params, apiDefinition, new ContentReader<R>() {
+
+			@Override
+			public R read(InputStream content, long contentLength) throws IOException {
+
+				return contentReader.read(content, ContentRange.wholeContent(contentLength, null));
+			}
+		});
+	}
+
+	/**
+	 * Executes a request with given url, params, request method and content type and reads the result directly from
+	 * the response content with the given responseReader, without building the response String first.
+	 * 
+	 * The default implementation executes the request as a String request and reads the result from the response
+	 * String, so that existing executors keep working unchanged.
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/clients
+	 * @param params
+	 *            the parameters eg: {clientId=id}
+	 * @param method
+	 *            the method (e.g. GET or POST)
+	 * @param contentTypeFormat
+	 *            enum for the content type string (e.g WWW_FORM or JSON)
+	 * @param responseReader
+	 *            reads the result from the response content
+	 * 
+	 * @return the result read by the responseReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	default <R> R executeRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat,
+			ResponseReader<R> responseReader) throws MambuApiException {
+
+		String response = executeRequest(urlString, params, method, contentTypeFormat);
+		if (response == null) {
+			return null;
+		}
+		try {
+			return responseReader.read(new StringReader(response));
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
 }
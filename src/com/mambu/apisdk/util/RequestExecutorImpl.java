@@ -5,6 +5,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
@@ -22,14 +25,20 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -50,6 +59,10 @@ public class RequestExecutorImpl implements RequestExecutor {
 	private static final String AUTHORIZATION_HEADER_NAME = "Authorization";
 	private static final String APIKEY_HEADER_NAME = "apikey";
 	private static final String USER_AGENT_HEADER_NAME = "User-Agent";
+	private static final String RANGE_HEADER_NAME = "Range";
+	private static final String CONTENT_RANGE_HEADER_NAME = "Content-Range";
+	private static final String ETAG_HEADER_NAME = "ETag";
+	private static final String LAST_MODIFIED_HEADER_NAME = "Last-Modified";
 	// Added charset charset=UTF-8, MBU-4137 is now fixed
 	private static final String UTF8_CHARSET = StandardCharsets.UTF_8.name();
 	private static final String WWW_FORM_URLENCODED_CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
@@ -67,6 +80,8 @@ public class RequestExecutorImpl implements RequestExecutor {
 	private URLHelper urlHelper;
 	private HttpClientProvider httpClientProvider;
 	private Header authenticationHeader;
+	private volatile RateLimiter rateLimiter;
+	private volatile Bulkhead bulkhead;
 
 	@Inject
 	public RequestExecutorImpl(HttpClientProvider httpClientProvider, URLHelper urlHelper) {
@@ -108,49 +123,75 @@ public class RequestExecutorImpl implements RequestExecutor {
 	 * for the json content type)
 	 */
 	@Override
-	public String executeRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat)
-			throws MambuApiException {
+	public String executeRequest(String urlString, ParamsMap params, final Method method,
+			final ContentType contentTypeFormat) throws MambuApiException {
+
+		// Prepare a copy of the caller's params, which may be sent again, e.g. by a retry or a hedge
+		params = copyParams(params);
 
 		// Pagination parameters for POST with JSON are to be provided with the URL. See MBU-8975
-		urlString = urlHelper.addJsonPaginationParams(urlString, method, contentTypeFormat, params);
-		urlString = urlHelper.addDetailsParam(urlString, method, contentTypeFormat, params);
+		final String url = prepareUrl(urlString, method, contentTypeFormat, params);
 
 		// Log API Request details
-		logApiRequestDetails(urlString, params, method, contentTypeFormat);
-		// Optionally log a template for the "curl" command as if it would be executed with the request specific API
-		// params
-		logCurlRequestDetails(urlString, params, method, contentTypeFormat, urlHelper.userAgentHeaderValue());
+		logRequest(url, params, method, contentTypeFormat);
 
 		// Add 'Application Key', if it was set by the application
 		// Mambu may handle API requests differently for different Application Keys
+		final ParamsMap paramsWithAppKey = addAppKeyToParams(params);
 
-		params = addAppKeyToParams(params);
+		return execute(url, paramsWithAppKey, method, contentTypeFormat, new HttpResponseProcessor<String>() {
 
-		HttpClient httpClient = httpClientProvider.createCustomHttpClient();
-				
-		String response = "";
-		
-		HttpResponse httpResponse = null;
-		try {
-			httpResponse = executeRequestByMethod(urlString, params, method, contentTypeFormat, httpClient,
-					httpResponse);
+			@Override
+			public String process(HttpResponse httpResponse) throws MambuApiException, IOException {
 
-			// Process response
-			response = processResponse(httpResponse, method, contentTypeFormat, urlString, params);
+				return processResponse(httpResponse, method, contentTypeFormat, url, paramsWithAppKey);
+			}
+		});
+	}
 
-		} catch (MalformedURLException e) {
-			LOGGER.severe("MalformedURLException: " + e.getMessage());
-			throw new MambuApiException(e);
-		} catch (IOException e) {
-			LOGGER.warning("IOException: message= " + e.getMessage());
-			throw new MambuApiException(e);
-		} finally {
-			httpClient.getConnectionManager().shutdown();
-		}
-		
-		return response;
+	/**
+	 * Executes a request and reads the result directly from the response content with the given ResponseReader. The
+	 * response is not built as a String first, only a bounded prefix of it is kept when the response logging is
+	 * enabled. Error responses are read and mapped to MambuApiException as for the other requests.
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/clients
+	 * @param params
+	 *            the parameters eg: {clientId=id}
+	 * @param method
+	 *            the method (e.g. GET or POST)
+	 * @param contentTypeFormat
+	 *            the content type (e.g. WWW_FORM or JSON)
+	 * @param responseReader
+	 *            reads the result from the response content
+	 * @return the result read by the responseReader
+	 */
+	@Override
+	public <R> R executeRequest(String urlString, ParamsMap params, final Method method,
+			final ContentType contentTypeFormat, final ResponseReader<R> responseReader) throws MambuApiException {
+
+		// Prepare a copy of the caller's params, which may be sent again, e.g. by a retry or a hedge
+		params = copyParams(params);
+
+		// Pagination parameters for POST with JSON are to be provided with the URL. See MBU-8975
+		final String url = prepareUrl(urlString, method, contentTypeFormat, params);
+
+		// Log API Request details
+		logRequest(url, params, method, contentTypeFormat);
+
+		// Add 'Application Key', if it was set by the application
+		final ParamsMap paramsWithAppKey = addAppKeyToParams(params);
+
+		return execute(url, paramsWithAppKey, method, contentTypeFormat, new HttpResponseProcessor<R>() {
+
+			@Override
+			public R process(HttpResponse httpResponse) throws MambuApiException, IOException {
+
+				return processResponse(httpResponse, method, contentTypeFormat, url, paramsWithAppKey,
+						responseReader);
+			}
+		});
 	}
-	
 
 	/**
 	 * Gets the InputStream from the response and converts it into a ByteArrayOutputStream for laster use. (i.e executes
@@ -165,45 +206,363 @@ public class RequestExecutorImpl implements RequestExecutor {
 	 * @return A ByteArrayOutputStream from the InputStream of the HTTP response.
 	 */
 	@Override
-	public ByteArrayOutputStream executeRequest(String urlString, ParamsMap params, ApiDefinition apiDefinition)
-			throws MambuApiException {
+	public ByteArrayOutputStream executeRequest(final String urlString, ParamsMap params,
+			ApiDefinition apiDefinition) throws MambuApiException {
+
+		// Prepare a copy of the caller's params, which may be sent again, e.g. by a retry or a hedge
+		params = copyParams(params);
 
-		Method method = apiDefinition.getMethod();
-		ContentType contentTypeFormat = apiDefinition.getContentType();
+		final Method method = apiDefinition.getMethod();
+		final ContentType contentTypeFormat = apiDefinition.getContentType();
 
 		// Log API Request details
-		logApiRequestDetails(urlString, params, method, contentTypeFormat);
-		// Optionally log a template for the "curl" command as if it would be executed with the request specific API
-		// params
-		logCurlRequestDetails(urlString, params, method, contentTypeFormat, urlHelper.userAgentHeaderValue());
+		logRequest(urlString, params, method, contentTypeFormat);
 
 		// Add 'Application Key', if it was set by the application
 		// Mambu may handle API requests differently for different Application Keys
-		params = addAppKeyToParams(params);
+		final ParamsMap paramsWithAppKey = addAppKeyToParams(params);
 
-		HttpClient httpClient = httpClientProvider.createCustomHttpClient();
-				
-		ByteArrayOutputStream byteArrayOutputStreamResponse;
-		HttpResponse httpResponse = null;
-		try {
-			httpResponse = executeRequestByMethod(urlString, params, method, contentTypeFormat, httpClient,
-					httpResponse);
+		return execute(urlString, paramsWithAppKey, method, contentTypeFormat,
+				new HttpResponseProcessor<ByteArrayOutputStream>() {
 
-			// Process response
-			byteArrayOutputStreamResponse = processInputStreamResponse(httpResponse, method, contentTypeFormat,
-					urlString, params);
+					@Override
+					public ByteArrayOutputStream process(HttpResponse httpResponse)
+							throws MambuApiException, IOException {
+
+						return processInputStreamResponse(httpResponse, method, contentTypeFormat, urlString,
+								paramsWithAppKey);
+					}
+				});
+	}
+
+	/**
+	 * Executes a request downloading content through the API and reads the result directly from the response content
+	 * with the given ContentReader. The content is not held in memory by the executor
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/database/backup/LATEST
+	 * @param params
+	 *            the parameters eg: {clientId=id}
+	 * @param apiDefinition
+	 *            the ApiDefinition holding details like HTTP method, content type and API return type
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader
+	 */
+	@Override
+	public <R> R executeRequest(final String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			final ContentReader<R> contentReader) throws MambuApiException {
+
+		// Prepare a copy of the caller's params, which may be sent again, e.g. by a retry or a hedge
+		params = copyParams(params);
+
+		final Method method = apiDefinition.getMethod();
+		final ContentType contentTypeFormat = apiDefinition.getContentType();
+
+		// Log API Request details
+		logRequest(urlString, params, method, contentTypeFormat);
+
+		// Add 'Application Key', if it was set by the application
+		final ParamsMap paramsWithAppKey = addAppKeyToParams(params);
+
+		return execute(urlString, paramsWithAppKey, method, contentTypeFormat, new HttpResponseProcessor<R>() {
+
+			@Override
+			public R process(HttpResponse httpResponse) throws MambuApiException, IOException {
+
+				return processContentResponse(httpResponse, method, contentTypeFormat, urlString, paramsWithAppKey,
+						contentReader);
+			}
+		});
+	}
+
+	/**
+	 * Executes a request streaming the request body from the given ContentWriter, like a large document upload. The
+	 * body is sent with chunked transfer encoding when its length is not known
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/documents
+	 * @param method
+	 *            the method, POST or PATCH
+	 * @param contentTypeFormat
+	 *            content type of the body
+	 * @param contentWriter
+	 *            writes the request body
+	 * @return Mambu Response String
+	 */
+	@Override
+	public String executeRequest(final String urlString, final Method method, final ContentType contentTypeFormat,
+			ContentWriter contentWriter) throws MambuApiException {
+
+		if (method != Method.POST && method != Method.PATCH) {
+			throw new IllegalArgumentException("Only methods POST and PATCH can send content, not " + method);
+		}
+		// Log API Request details. The content is not logged
+		logRequest(urlString, null, method, contentTypeFormat);
+
+		HttpEntityEnclosingRequestBase httpRequest = method == Method.POST ? new HttpPost(urlString)
+				: new HttpPatch(urlString);
+		String contentType = getFormattedContentTypeString(contentTypeFormat);
+		httpRequest.setHeader(CONTENT_TYPE_HEADER_NAME, contentType);
+		httpRequest.addHeader(authenticationHeader);
+		httpRequest.setHeader(USER_AGENT_HEADER_NAME, urlHelper.userAgentHeaderValue());
+		httpRequest.setEntity(new ContentWriterEntity(contentWriter, contentType));
+
+		return execute(httpRequest, new HttpResponseProcessor<String>() {
+
+			@Override
+			public String process(HttpResponse httpResponse) throws MambuApiException, IOException {
+
+				return processResponse(httpResponse, method, contentTypeFormat, urlString, null);
+			}
+		});
+	}
 
+	/**
+	 * Executes a request downloading a byte range of the content, sending a Range header. The result is read directly
+	 * from the response content with the given RangeContentReader. A 206 (Partial Content) response is read with its
+	 * Content-Range, a 200 response is read as the whole content
+	 * 
+	 * @param urlString
+	 *            the url to execute on. eg: https://demo.mambu.com/api/database/backup/LATEST
+	 * @param params
+	 *            the parameters eg: {clientId=id}
+	 * @param apiDefinition
+	 *            the ApiDefinition holding details like HTTP method, content type and API return type
+	 * @param firstByte
+	 *            the position of the first byte of the range
+	 * @param lastByte
+	 *            the position of the last byte of the range, inclusive. Negative for the end of the content
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader
+	 */
+	@Override
+	public <R> R executeRangeRequest(final String urlString, ParamsMap params, ApiDefinition apiDefinition,
+			long firstByte, long lastByte, final RangeContentReader<R> contentReader) throws MambuApiException {
+
+		if (firstByte < 0) {
+			throw new IllegalArgumentException("First byte must not be negative");
+		}
+		// Prepare a copy of the caller's params, which may be sent again, e.g. by a retry or the next segment
+		params = copyParams(params);
+		final Method method = apiDefinition.getMethod();
+		final ContentType contentTypeFormat = apiDefinition.getContentType();
+
+		// Log API Request details
+		logRequest(urlString, params, method, contentTypeFormat);
+
+		// Add 'Application Key', if it was set by the application
+		final ParamsMap paramsWithAppKey = addAppKeyToParams(params);
+
+		Header rangeHeader = new BasicHeader(RANGE_HEADER_NAME,
+				"bytes=" + firstByte + "-" + (lastByte < 0 ? "" : String.valueOf(lastByte)));
+
+		return execute(urlString, paramsWithAppKey, method, contentTypeFormat, rangeHeader,
+				new HttpResponseProcessor<R>() {
+
+					@Override
+					public R process(final HttpResponse httpResponse) throws MambuApiException, IOException {
+
+						return processRangeResponse(httpResponse, method, contentTypeFormat, urlString,
+								paramsWithAppKey, contentReader);
+					}
+				});
+	}
+
+	/**
+	 * Executes the HTTP request with the pooled http client and converts the response with the given processor. The
+	 * connection is released back to the pool once the response was processed
+	 * 
+	 * @param urlString
+	 *            URL string for the HTTP request
+	 * @param params
+	 *            parameters map, with the application key already added
+	 * @param method
+	 *            HTTP method
+	 * @param contentTypeFormat
+	 *            content type
+	 * @param responseProcessor
+	 *            converts the HTTP response into the result
+	 * @return the processed response
+	 * @throws MambuApiException
+	 */
+	private <T> T execute(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat,
+			HttpResponseProcessor<T> responseProcessor) throws MambuApiException {
+
+		return execute(urlString, params, method, contentTypeFormat, null, responseProcessor);
+	}
+
+	/**
+	 * Executes the HTTP request with the pooled http client and converts the response with the given processor. The
+	 * connection is released back to the pool once the response was processed
+	 * 
+	 * @param urlString
+	 *            URL string for the HTTP request
+	 * @param params
+	 *            parameters map, with the application key already added
+	 * @param method
+	 *            HTTP method
+	 * @param contentTypeFormat
+	 *            content type
+	 * @param requestHeader
+	 *            additional header sent with the request (like Range). Can be null
+	 * @param responseProcessor
+	 *            converts the HTTP response into the result
+	 * @return the processed response
+	 * @throws MambuApiException
+	 */
+	private <T> T execute(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat,
+			Header requestHeader, HttpResponseProcessor<T> responseProcessor) throws MambuApiException {
+
+		HttpUriRequest httpRequest;
+		try {
+			httpRequest = createHttpRequest(urlString, params, method, contentTypeFormat);
 		} catch (MalformedURLException e) {
 			LOGGER.severe("MalformedURLException: " + e.getMessage());
 			throw new MambuApiException(e);
 		} catch (IOException e) {
 			LOGGER.warning("IOException: message= " + e.getMessage());
 			throw new MambuApiException(e);
+		}
+		if (requestHeader != null) {
+			httpRequest.setHeader(requestHeader);
+		}
+
+		return execute(httpRequest, responseProcessor);
+	}
+
+	/**
+	 * Executes the HTTP request with the pooled http client and converts the response with the given processor. The
+	 * connection is released back to the pool once the response was processed. The request is aborted if it's still
+	 * running when its total timeout or the caller's deadline expires, see {@link RequestTimeouts}
+	 * 
+	 * @param httpRequest
+	 *            the HTTP request
+	 * @param responseProcessor
+	 *            converts the HTTP response into the result
+	 * @return the processed response
+	 * @throws MambuApiException
+	 */
+	private <T> T execute(final HttpUriRequest httpRequest, HttpResponseProcessor<T> responseProcessor)
+			throws MambuApiException {
+
+		// Use the pooled client shared by all requests
+		HttpClient httpClient = httpClientProvider.getHttpClient();
+		applyTimeouts(httpRequest);
+		RequestTimeouts.Watchdog watchdog = RequestTimeouts.watch(timedOut -> httpRequest.abort());
+
+		HttpResponse httpResponse = null;
+		Bulkhead.Lane lane = null;
+		try {
+			// Wait for a slot in the workload lane of the request, if a bulkhead is set
+			Bulkhead currentBulkhead = bulkhead;
+			if (currentBulkhead != null) {
+				lane = currentBulkhead.acquire();
+			}
+			// Wait for a permit of the tenant's rate limit, if one is set
+			RateLimiter currentRateLimiter = rateLimiter;
+			Method method = Method.valueOf(httpRequest.getMethod());
+			if (currentRateLimiter != null) {
+				currentRateLimiter.acquire(method);
+			}
+
+			httpResponse = httpClient.execute(httpRequest);
+			if (currentRateLimiter != null) {
+				currentRateLimiter.onResponse(method, httpResponse);
+			}
+
+			// Process response
+			return responseProcessor.process(httpResponse);
+
+		} catch (IOException e) {
+			LOGGER.warning("IOException: message= " + e.getMessage());
+			throw watchdog.toMambuApiException(e);
+		} catch (MambuApiException e) {
+			// The response processors wrap the IOExceptions of an aborted request too
+			throw watchdog.isExpired() ? watchdog.toMambuApiException(e) : e;
 		} finally {
-			httpClient.getConnectionManager().shutdown();
+			watchdog.cancel();
+			releaseConnection(httpResponse);
+			if (lane != null) {
+				lane.release();
+			}
 		}
+	}
+
+	/**
+	 * Sets the connect and read timeouts of the API request being executed by the current thread to the HTTP request,
+	 * if it has timeouts of its own. Otherwise the default timeouts of the http client apply
+	 * 
+	 * @param httpRequest
+	 *            the HTTP request
+	 */
+	void applyTimeouts(HttpUriRequest httpRequest) {
 
-		return byteArrayOutputStreamResponse;
+		RequestConfig defaultRequestConfig = httpClientProvider.getDefaultRequestConfig();
+		RequestConfig requestConfig = RequestTimeouts.getRequestConfig(defaultRequestConfig != null
+				? defaultRequestConfig : RequestConfig.DEFAULT);
+		if (requestConfig != null && httpRequest instanceof HttpRequestBase) {
+			((HttpRequestBase) httpRequest).setConfig(requestConfig);
+		}
+	}
+
+	/**
+	 * Adds to the URL the parameters which must be sent with the URL rather than in the request's body. Pagination and
+	 * details level parameters for POST with JSON are to be provided with the URL (see MBU-8975). Parameters added to
+	 * the URL are removed from the params map
+	 * 
+	 * @param urlString
+	 *            the URL string for the HTTP request
+	 * @param method
+	 *            the HTTP method
+	 * @param contentTypeFormat
+	 *            the content type
+	 * @param params
+	 *            the parameters map
+	 * @return the URL string to be used for the HTTP request
+	 */
+	String prepareUrl(String urlString, Method method, ContentType contentTypeFormat, ParamsMap params) {
+
+		urlString = urlHelper.addJsonPaginationParams(urlString, method, contentTypeFormat, params);
+		urlString = urlHelper.addDetailsParam(urlString, method, contentTypeFormat, params);
+
+		return urlString;
+	}
+
+	/**
+	 * Logs the API request details and, at FINEST level, the curl command template for the request. Must be called
+	 * before the application key is added to the params map
+	 * 
+	 * @param urlString
+	 *            the URL string for the HTTP request
+	 * @param params
+	 *            the parameters map
+	 * @param method
+	 *            the HTTP method
+	 * @param contentTypeFormat
+	 *            the content type
+	 */
+	void logRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat) {
+
+		logApiRequestDetails(urlString, params, method, contentTypeFormat);
+		// Optionally log a template for the "curl" command as if it would be executed with the request specific API
+		// params
+		logCurlRequestDetails(urlString, params, method, contentTypeFormat, urlHelper.userAgentHeaderValue());
+	}
+
+	/**
+	 * Releases the connection used by the HTTP response back to the pool. Any response content which was not read yet
+	 * is consumed, so that the connection can be reused by the next request
+	 * 
+	 * @param httpResponse
+	 *            HTTP response. Can be null if the request failed before a response was received
+	 */
+	static void releaseConnection(HttpResponse httpResponse) {
+
+		if (httpResponse != null) {
+			EntityUtils.consumeQuietly(httpResponse.getEntity());
+		}
 	}
 
 	/**
@@ -225,20 +584,57 @@ public class RequestExecutorImpl implements RequestExecutor {
 	 * @throws UnsupportedOperationException
 	 * @throws IOException
 	 */
-	private ByteArrayOutputStream processInputStreamResponse(HttpResponse httpResponse, Method method,
+	static ByteArrayOutputStream processInputStreamResponse(HttpResponse httpResponse, Method method,
 			ContentType contentType, String urlString, ParamsMap params)
 			throws MambuApiException, UnsupportedOperationException, IOException {
 
+		return processContentResponse(httpResponse, method, contentType, urlString, params,
+				new ContentReader<ByteArrayOutputStream>() {
+
+					@Override
+					public ByteArrayOutputStream read(InputStream content, long contentLength) throws IOException {
+
+						return getByteArrayOutputStream(content, contentLength);
+					}
+				});
+	}
+
+	/**
+	 * Process the response to an HTTP request downloading content, reading the result directly from the response
+	 * content with the given ContentReader. Throw MambuApiException if request failed. Logs the response details.
+	 * 
+	 * @param httpResponse
+	 *            HTTP response
+	 * @param method
+	 *            The HTTP method
+	 * @param contentType
+	 *            The content type
+	 * @param urlString
+	 *            The URL string for the HTTP request
+	 * @param params
+	 *            The parameters map
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader. Null if the response has no content
+	 * @throws MambuApiException
+	 * @throws IOException
+	 */
+	static <R> R processContentResponse(HttpResponse httpResponse, Method method, ContentType contentType,
+			String urlString, ParamsMap params, ContentReader<R> contentReader)
+			throws MambuApiException, IOException {
+
 		// get status
 		int status = httpResponse.getStatusLine().getStatusCode();
 
-		ByteArrayOutputStream response = null;
+		R response = null;
 		String responseMessage;
 		// Get the response Entity
 		HttpEntity entity = httpResponse.getEntity();
 		if (entity != null && status == HttpURLConnection.HTTP_OK) {
-			response = getByteArrayOutputStream(entity.getContent());
-			responseMessage = "DB backup stream successfully obtained";
+			try (InputStream content = entity.getContent()) {
+				response = contentReader.read(content, entity.getContentLength());
+			}
+			responseMessage = "Content stream successfully read";
 
 		} else {
 			// read the content for the error message
@@ -268,18 +664,100 @@ public class RequestExecutorImpl implements RequestExecutor {
 	}
 
 	/**
-	 * Converts the InputStream passed as parameter to this method into a ByteArrayOutputStream
+	 * Process the response to a ranged download request, reading the result directly from the response content with
+	 * the given RangeContentReader. A 206 (Partial Content) response is read with the range from its Content-Range
+	 * header, a 200 response is read as the whole content. Throw MambuApiException if request failed
+	 * 
+	 * @param httpResponse
+	 *            HTTP response
+	 * @param method
+	 *            The HTTP method
+	 * @param contentType
+	 *            The content type
+	 * @param urlString
+	 *            The URL string for the HTTP request
+	 * @param params
+	 *            The parameters map
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader
+	 * @throws MambuApiException
+	 * @throws IOException
+	 */
+	static <R> R processRangeResponse(final HttpResponse httpResponse, Method method, ContentType contentType,
+			String urlString, ParamsMap params, final RangeContentReader<R> contentReader)
+			throws MambuApiException, IOException {
+
+		final String validator = getContentValidator(httpResponse);
+		int status = httpResponse.getStatusLine().getStatusCode();
+		if (status != HttpURLConnection.HTTP_PARTIAL) {
+			// the whole content was sent, or the request failed
+			return processContentResponse(httpResponse, method, contentType, urlString, params,
+					new ContentReader<R>() {
+
+						@Override
+						public R read(InputStream content, long contentLength) throws IOException {
+
+							return contentReader.read(content, ContentRange.wholeContent(contentLength, validator));
+						}
+					});
+		}
+
+		Header contentRangeHeader = httpResponse.getFirstHeader(CONTENT_RANGE_HEADER_NAME);
+		ContentRange contentRange = ContentRange.parse(
+				contentRangeHeader == null ? null : contentRangeHeader.getValue(), validator);
+		HttpEntity entity = httpResponse.getEntity();
+		if (contentRange == null || entity == null) {
+			throw new IOException("Invalid partial content response, Content-Range: "
+					+ (contentRangeHeader == null ? null : contentRangeHeader.getValue()));
+		}
+
+		R response;
+		try (InputStream content = entity.getContent()) {
+			response = contentReader.read(content, contentRange);
+		}
+
+		// Log Mambu response
+		if (LOGGER.isLoggable(RESPONSE_LOG_LEVEL)) {
+			logApiResponse(RESPONSE_LOG_LEVEL, urlString, status, "Content range successfully read: " + contentRange);
+		}
+
+		return response;
+	}
+
+	/**
+	 * Get the validator of the response content, as used by If-Range requests
+	 * 
+	 * @param httpResponse
+	 *            HTTP response
+	 * @return the ETag or, if not sent, the Last-Modified header value. Null if none was sent
+	 */
+	private static String getContentValidator(HttpResponse httpResponse) {
+
+		Header validatorHeader = httpResponse.getFirstHeader(ETAG_HEADER_NAME);
+		if (validatorHeader == null) {
+			validatorHeader = httpResponse.getFirstHeader(LAST_MODIFIED_HEADER_NAME);
+		}
+		return validatorHeader == null ? null : validatorHeader.getValue();
+	}
+
+	/**
+	 * Copies the InputStream passed as parameter to this method into a ByteArrayOutputStream, sized for the content
+	 * length when known so that the content is held only once
 	 * 
 	 * @param inputStream
 	 *            The InputStream to be transformed
+	 * @param contentLength
+	 *            the length of the content. Negative if not known
 	 * @return A ByteArrayOutputStream
 	 * @throws IOException
 	 */
-	private ByteArrayOutputStream getByteArrayOutputStream(InputStream inputStream) throws IOException {
+	private static ByteArrayOutputStream getByteArrayOutputStream(InputStream inputStream, long contentLength)
+			throws IOException {
 
-		byte[] byteArray = IOUtils.toByteArray(inputStream);
-		ByteArrayOutputStream baos = new ByteArrayOutputStream(byteArray.length);
-		baos.write(byteArray, 0, byteArray.length);
+		int initialSize = contentLength > 0 && contentLength < Integer.MAX_VALUE ? (int) contentLength : 32 * 1024;
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(initialSize);
+		IOUtils.copy(inputStream, baos);
 
 		return baos;
 	}
@@ -324,6 +802,25 @@ public class RequestExecutorImpl implements RequestExecutor {
 		}
 	}
 
+	/**
+	 * Copies the params of a request. Preparing the request changes its params: the pagination and details
+	 * parameters of a JSON POST are moved to the URL and the application key is added. Each execution works on its
+	 * own copy, so that the caller's params can be sent again
+	 * 
+	 * @param params
+	 *            the params of the request. Can be null
+	 * @return a copy of the params, or null
+	 */
+	static ParamsMap copyParams(ParamsMap params) {
+
+		if (params == null) {
+			return null;
+		}
+		ParamsMap copy = new ParamsMap();
+		copy.putAll(params);
+		return copy;
+	}
+
 	/**
 	 * Adds the application key to the parameter map received as parameter to this
 	 * 
@@ -332,7 +829,7 @@ public class RequestExecutorImpl implements RequestExecutor {
 	 *            it was specified.
 	 * @return The updated parameters map
 	 */
-	private ParamsMap addAppKeyToParams(ParamsMap paramsMap) {
+	ParamsMap addAppKeyToParams(ParamsMap paramsMap) {
 
 		String applicationKey = MambuAPIFactory.getApplicationKey();
 		if (applicationKey != null) {
@@ -395,8 +892,8 @@ public class RequestExecutorImpl implements RequestExecutor {
 	}
 
 	/**
-	 * Delegates the request executions to more specialized methods based on HTTP method type. Returns the HTTP response
-	 * after executing the requests.
+	 * Delegates the request creation to more specialized methods based on HTTP method type. Returns the HTTP request
+	 * ready to be executed by either the blocking or the non-blocking http client.
 	 * 
 	 * @param urlString
 	 *            URL string for the HTTP request
@@ -406,37 +903,68 @@ public class RequestExecutorImpl implements RequestExecutor {
 	 *            HTTP method
 	 * @param contentTypeFormat
 	 *            content type
-	 * @param httpClient
-	 *            HTTP client executing the request
-	 * @param httpResponse
-	 *            HTTP response
-	 * @return HTTP response
+	 * @return HTTP request
 	 * @throws MalformedURLException
 	 * @throws IOException
-	 * @throws MambuApiException
 	 */
-	private HttpResponse executeRequestByMethod(String urlString, ParamsMap params, Method method,
-			ContentType contentTypeFormat, HttpClient httpClient, HttpResponse httpResponse)
-			throws MalformedURLException, IOException, MambuApiException {
+	HttpUriRequest createHttpRequest(String urlString, ParamsMap params, Method method, ContentType contentTypeFormat)
+			throws MalformedURLException, IOException {
 
 		switch (method) {
 		case GET:
-			httpResponse = executeGetRequest(httpClient, urlString, params);
-			break;
+			return createGetRequest(urlString, params);
 		case POST:
-			httpResponse = executePostRequest(httpClient, urlString, params, contentTypeFormat);
-			break;
+			return createPostRequest(urlString, params, contentTypeFormat);
 		case PATCH:
-			httpResponse = executePatchRequest(httpClient, urlString, params);
-			break;
+			return createPatchRequest(urlString, params);
 		case DELETE:
-			httpResponse = executeDeleteRequest(httpClient, urlString, params);
-			break;
+			return createDeleteRequest(urlString, params);
 		default:
 			throw new IllegalArgumentException(
 					"Only methods GET, POST PATCH and DELETE are supported, not " + method.name() + ".");
 		}
-		return httpResponse;
+	}
+
+	/**
+	 * Get the client-side rate limiter of the requests
+	 * 
+	 * @return the rate limiter or null if requests are not limited
+	 */
+	public RateLimiter getRateLimiter() {
+
+		return rateLimiter;
+	}
+
+	/**
+	 * Set the client-side rate limiter of the requests, synchronous and asynchronous
+	 * 
+	 * @param rateLimiter
+	 *            the rate limiter. Null to stop limiting requests
+	 */
+	public void setRateLimiter(RateLimiter rateLimiter) {
+
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Get the bulkhead isolating the workload lanes of the requests
+	 * 
+	 * @return the bulkhead or null if requests are not isolated
+	 */
+	public Bulkhead getBulkhead() {
+
+		return bulkhead;
+	}
+
+	/**
+	 * Set the bulkhead isolating the workload lanes of the requests, synchronous and asynchronous
+	 * 
+	 * @param bulkhead
+	 *            the bulkhead. Null to stop isolating requests
+	 */
+	public void setBulkhead(Bulkhead bulkhead) {
+
+		this.bulkhead = bulkhead;
 	}
 
 	@Override
@@ -458,10 +986,9 @@ public class RequestExecutorImpl implements RequestExecutor {
 	}
 
 	/**
-	 * Executes a PATCH request as per the interface specification
+	 * Creates a PATCH request as per the interface specification
 	 */
-	private HttpResponse executePatchRequest(HttpClient httpClient, String urlString, ParamsMap params)
-			throws IOException, MambuApiException {
+	private HttpPatch createPatchRequest(String urlString, ParamsMap params) throws IOException {
 
 		// PATCH request is using json ContentType
 		final String contentType = JSON_CONTENT_TYPE;
@@ -476,26 +1003,20 @@ public class RequestExecutorImpl implements RequestExecutor {
 		StringEntity jsonEntity = makeJsonEntity(params);
 		httpPatch.setEntity(jsonEntity);
 
-		// execute
-		HttpResponse httpResponse = httpClient.execute(httpPatch);
-
-		return httpResponse;
+		return httpPatch;
 
 	}
 
 	/***
-	 * Execute a GET request as per the interface specification
+	 * Create a GET request as per the interface specification
 	 *
-	 * @param httpClient
-	 *            http client
 	 * @param urlString
 	 *            url string
 	 * @param params
 	 *            Params Map
-	 * @return Http Response
+	 * @return Http GET request
 	 */
-	private HttpResponse executeGetRequest(HttpClient httpClient, String urlString, ParamsMap params)
-			throws IOException, MambuApiException {
+	private HttpGet createGetRequest(String urlString, ParamsMap params) {
 
 		if (params != null && params.size() > 0) {
 			urlString = URLHelper.makeUrlWithParams(urlString, params);
@@ -506,10 +1027,7 @@ public class RequestExecutorImpl implements RequestExecutor {
 		httpGet.addHeader(authenticationHeader);
 		httpGet.setHeader(USER_AGENT_HEADER_NAME, urlHelper.userAgentHeaderValue());
 
-		// execute
-		HttpResponse httpResponse = httpClient.execute(httpGet);
-
-		return httpResponse;
+		return httpGet;
 
 	}
 
@@ -557,7 +1075,7 @@ public class RequestExecutorImpl implements RequestExecutor {
 	 *            Params Map
 	 * @return HTTP response string
 	 */
-	private static String processResponse(HttpResponse httpResponse, Method method, ContentType contentType,
+	static String processResponse(HttpResponse httpResponse, Method method, ContentType contentType,
 			String urlString, ParamsMap params) throws IOException, MambuApiException {
 
 		// get status
@@ -597,7 +1115,63 @@ public class RequestExecutorImpl implements RequestExecutor {
 	}
 
 	/**
-	 * Reads a stream into a String
+	 * Process the response to an HTTP request reading the result directly from the response content with the given
+	 * ResponseReader. Throw MambuApiException if request failed. Only a bounded prefix of a successful response is
+	 * logged, and only if the response logging level is enabled
+	 * 
+	 * @param httpResponse
+	 *            HTTP response
+	 * @param method
+	 *            method
+	 * @param contentType
+	 *            content type
+	 * @param urlString
+	 *            URL string for the HTTP request
+	 * @param params
+	 *            Params Map
+	 * @param responseReader
+	 *            reads the result from the response content
+	 * @return the result read by the responseReader
+	 */
+	static <R> R processResponse(HttpResponse httpResponse, Method method, ContentType contentType, String urlString,
+			ParamsMap params, ResponseReader<R> responseReader) throws IOException, MambuApiException {
+
+		int status = httpResponse.getStatusLine().getStatusCode();
+		HttpEntity entity = httpResponse.getEntity();
+		InputStream content = (entity != null) ? entity.getContent() : null;
+
+		if (content == null || (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_CREATED)) {
+			// Error responses (and responses without content) are read as String, as for all other requests
+			String response = processResponse(httpResponse, method, contentType, urlString, params);
+			return responseReader.read(new StringReader(response));
+		}
+
+		Reader reader = new InputStreamReader(content, UTF8_CHARSET);
+		PrefixRecordingReader loggingReader = null;
+		if (LOGGER.isLoggable(RESPONSE_LOG_LEVEL)) {
+			loggingReader = new PrefixRecordingReader(reader, howManyStreamedResponseCharsToShow);
+			reader = loggingReader;
+		}
+
+		try {
+			R result = responseReader.read(reader);
+
+			// Log Mambu response
+			if (loggingReader != null) {
+				String loggedResponse = loggingReader.getPrefix();
+				if (loggingReader.isTruncated()) {
+					loggedResponse = loggedResponse + moreIndicator;
+				}
+				logApiResponse(RESPONSE_LOG_LEVEL, urlString, status, loggedResponse);
+			}
+			return result;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads a stream into a String. Line terminators are not included in the returned String
 	 * 
 	 * @param content
 	 * 
@@ -607,31 +1181,27 @@ public class RequestExecutorImpl implements RequestExecutor {
 	 */
 	private static String readStream(InputStream content) throws IOException {
 
-		String response = "";
+		StringBuilder response = new StringBuilder();
 
 		// read the response content
 		BufferedReader in = new BufferedReader(new InputStreamReader(content, UTF8_CHARSET));
 		String line;
 		while ((line = in.readLine()) != null) {
-			response += line;
+			response.append(line);
 		}
-		return response;
+		return response.toString();
 	}
 
 	/***
-	 * Execute a DELETE request as per the interface specification
-	 *
-	 * @param httpClient
-	 *            http client
+	 * Create a DELETE request as per the interface specification
 	 *
 	 * @param urlString
 	 *
 	 * @param params
 	 *            ParamsMap with parameters
-	 * @return Http Response
+	 * @return Http DELETE request
 	 */
-	private HttpResponse executeDeleteRequest(HttpClient httpClient, String urlString, ParamsMap params)
-			throws IOException, MambuApiException {
+	private HttpDelete createDeleteRequest(String urlString, ParamsMap params) {
 
 		if (params != null && params.size() > 0) {
 			urlString = (URLHelper.makeUrlWithParams(urlString, params));
@@ -641,18 +1211,15 @@ public class RequestExecutorImpl implements RequestExecutor {
 		httpDelete.addHeader(authenticationHeader);
 		httpDelete.setHeader(USER_AGENT_HEADER_NAME, urlHelper.userAgentHeaderValue());
 
-		// execute
-		HttpResponse httpResponse = httpClient.execute(httpDelete);
-
-		return httpResponse;
+		return httpDelete;
 
 	}
 
 	/**
-	 * Executes a POST request as per the interface specification
+	 * Creates a POST request as per the interface specification
 	 */
-	private HttpResponse executePostRequest(HttpClient httpClient, String urlString, ParamsMap params,
-											ContentType contentTypeFormat) throws IOException, MambuApiException {
+	private HttpPost createPostRequest(String urlString, ParamsMap params, ContentType contentTypeFormat)
+			throws IOException {
 
 		// Get properly formatted ContentType
 		final String contentType = getFormattedContentTypeString(contentTypeFormat);
@@ -687,10 +1254,7 @@ public class RequestExecutorImpl implements RequestExecutor {
 			}
 		}
 
-		// execute
-		HttpResponse httpResponse = httpClient.execute(httpPost);
-
-		return httpResponse;
+		return httpPost;
 
 	}
 
@@ -966,6 +1530,8 @@ public class RequestExecutorImpl implements RequestExecutor {
 	final static int howManyEncodedCharsToShow = 20;
 	// must be long enough to show full string for boolean API responses
 	final static int howManyDocumentResponseCharsToShow = 50;
+	// how much of a response parsed directly from the response stream is kept for logging
+	final static int howManyStreamedResponseCharsToShow = 4096;
 
 	/**
 	 * Log Json string details. This is a helper method for modifying the original Json string to remove details that
@@ -1037,7 +1603,8 @@ public class RequestExecutorImpl implements RequestExecutor {
 			final boolean isDocumentApiResponse = urlString.contains(documentsApiEndpoint);
 			if (encodedDataStart != -1) {
 				// This is a response containing base64 encoded data. Strip the bulk of it out
-				int totalCharsToShow = encodedDataStart + encodedDataIndicator.length() + howManyEncodedCharsToShow;
+				int totalCharsToShow = Math.min(response.length(),
+						encodedDataStart + encodedDataIndicator.length() + howManyEncodedCharsToShow);
 				// Get the needed part of this response and add "..." indicator
 				response = response.substring(0, totalCharsToShow) + moreIndicator;
 			} else if (isDocumentApiResponse) {
@@ -1076,4 +1643,48 @@ public class RequestExecutorImpl implements RequestExecutor {
 
 	}
 
+	/**
+	 * HTTP entity streaming the request body from a ContentWriter
+	 */
+	private static class ContentWriterEntity extends AbstractHttpEntity {
+
+		private final ContentWriter contentWriter;
+
+		ContentWriterEntity(ContentWriter contentWriter, String contentType) {
+
+			this.contentWriter = contentWriter;
+			setContentType(contentType);
+			setChunked(contentWriter.getContentLength() < 0);
+		}
+
+		@Override
+		public boolean isRepeatable() {
+
+			return contentWriter.isRepeatable();
+		}
+
+		@Override
+		public long getContentLength() {
+
+			return contentWriter.getContentLength();
+		}
+
+		@Override
+		public InputStream getContent() {
+
+			throw new UnsupportedOperationException("The content can only be written");
+		}
+
+		@Override
+		public void writeTo(OutputStream outputStream) throws IOException {
+
+			contentWriter.writeTo(outputStream);
+		}
+
+		@Override
+		public boolean isStreaming() {
+
+			return !contentWriter.isRepeatable();
+		}
+	}
 }
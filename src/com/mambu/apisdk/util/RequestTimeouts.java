@@ -0,0 +1,370 @@
+package com.mambu.apisdk.util;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.apache.http.client.config.RequestConfig;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Timeouts of an API request: the connect timeout (also used as the timeout for leasing a pooled connection), the read
+ * timeout (the longest inactivity between two packets of the response) and the total timeout of the whole request,
+ * after which the request is aborted. A timeout of zero means no limit.
+ *
+ * The timeouts of an API are set with {@link ApiDefinition.Builder#setTimeouts(RequestTimeouts)}, or for all the APIs
+ * of a type or return format with a {@link TimeoutPolicy}. Requests without timeouts of their own use the timeouts of
+ * the {@link HttpClientConfig}.
+ *
+ * Callers can also bound all the requests made by a piece of code, including its retries, with
+ * {@link #callWithDeadline(long, TimeUnit, RetryPolicy.RetriableRequest)}. A request still running when its timeout or
+ * the caller's deadline expires is aborted and fails with the {@link #TIMED_OUT} error code.
+ *
+ * This class is immutable
+ */
+public final class RequestTimeouts {
+
+	/**
+	 * Error code of the {@link MambuApiException} thrown when a request timed out. The exception of a request timing
+	 * out on its own timeouts keeps the cause, so that the request can be retried. The exception of a request aborted
+	 * by the caller's deadline has no cause, as there is no time left for a retry
+	 */
+	public static final int TIMED_OUT = -3;
+
+	// The timeouts of the API request being executed by the current thread, set by the ServiceExecutor
+	private static final ThreadLocal<RequestTimeouts> currentTimeouts = new ThreadLocal<>();
+	// The deadline set by the caller for the requests of the current thread, as System.nanoTime()
+	private static final ThreadLocal<Long> currentDeadline = new ThreadLocal<>();
+
+	private static ScheduledThreadPoolExecutor abortScheduler;
+
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+	private final long totalTimeoutMillis;
+
+	/**
+	 * Creates request timeouts
+	 *
+	 * @param connectTimeoutMillis
+	 *            timeout for leasing a connection and for connecting to Mambu, in milliseconds. Zero for no limit
+	 * @param readTimeoutMillis
+	 *            timeout for waiting for data from Mambu, in milliseconds. Zero for no limit
+	 * @param totalTimeoutMillis
+	 *            timeout of the whole request, including the reading of the response, in milliseconds. Zero for no
+	 *            limit
+	 */
+	public RequestTimeouts(int connectTimeoutMillis, int readTimeoutMillis, long totalTimeoutMillis) {
+
+		if (connectTimeoutMillis < 0 || readTimeoutMillis < 0 || totalTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Timeouts must not be negative. Connect=" + connectTimeoutMillis
+					+ " Read=" + readTimeoutMillis + " Total=" + totalTimeoutMillis);
+		}
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+		this.totalTimeoutMillis = totalTimeoutMillis;
+	}
+
+	public int getConnectTimeoutMillis() {
+
+		return connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis() {
+
+		return readTimeoutMillis;
+	}
+
+	public long getTotalTimeoutMillis() {
+
+		return totalTimeoutMillis;
+	}
+
+	/**
+	 * Executes the request, aborting the API requests it makes once the timeout expired. Deadlines can be nested, the
+	 * earliest one applies
+	 *
+	 * @param timeout
+	 *            the time given to the request
+	 * @param unit
+	 *            time unit of the timeout
+	 * @param request
+	 *            the request, e.g. a call to a service of the factory
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 *             with the {@link #TIMED_OUT} error code if the deadline expired
+	 */
+	public static <T> T callWithDeadline(long timeout, TimeUnit unit, RetryPolicy.RetriableRequest<T> request)
+			throws MambuApiException {
+
+		if (unit == null || request == null) {
+			throw new IllegalArgumentException("Time unit and request cannot be null");
+		}
+		Long outerDeadline = currentDeadline.get();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (outerDeadline == null || deadline - outerDeadline < 0) {
+			currentDeadline.set(deadline);
+		}
+		try {
+			return request.execute();
+		} finally {
+			if (outerDeadline == null) {
+				currentDeadline.remove();
+			} else {
+				currentDeadline.set(outerDeadline);
+			}
+		}
+	}
+
+	/**
+	 * Executes the request with the given timeouts for the API requests it makes on the current thread
+	 *
+	 * @param timeouts
+	 *            the timeouts. Null to use the timeouts of the http client
+	 * @param request
+	 *            the request
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 */
+	static <T> T callWithTimeouts(RequestTimeouts timeouts, RetryPolicy.RetriableRequest<T> request)
+			throws MambuApiException {
+
+		RequestTimeouts outerTimeouts = setCurrentTimeouts(timeouts);
+		try {
+			return request.execute();
+		} finally {
+			setCurrentTimeouts(outerTimeouts);
+		}
+	}
+
+	/**
+	 * Set the timeouts for the API requests made on the current thread. The caller must restore the previous timeouts
+	 * once its requests are sent
+	 *
+	 * @param timeouts
+	 *            the timeouts. Null to use the timeouts of the http client
+	 * @return the previous timeouts
+	 */
+	static RequestTimeouts setCurrentTimeouts(RequestTimeouts timeouts) {
+
+		RequestTimeouts outerTimeouts = currentTimeouts.get();
+		if (timeouts == null) {
+			currentTimeouts.remove();
+		} else {
+			currentTimeouts.set(timeouts);
+		}
+		return outerTimeouts;
+	}
+
+	/**
+	 * Get the timeouts for the API requests made on the current thread
+	 *
+	 * @return the timeouts or null if the timeouts of the http client apply
+	 */
+	static RequestTimeouts getCurrentTimeouts() {
+
+		return currentTimeouts.get();
+	}
+
+	/**
+	 * Get the deadline set by the caller for the requests of the current thread
+	 *
+	 * @return the deadline as System.nanoTime(), or null if there is none
+	 */
+	static Long getCurrentDeadline() {
+
+		return currentDeadline.get();
+	}
+
+	/**
+	 * Set the deadline for the requests made on the current thread. The caller must restore the previous deadline once
+	 * its requests are sent
+	 *
+	 * @param deadline
+	 *            the deadline as System.nanoTime(). Null for no deadline
+	 * @return the previous deadline
+	 */
+	static Long setCurrentDeadline(Long deadline) {
+
+		Long outerDeadline = currentDeadline.get();
+		if (deadline == null) {
+			currentDeadline.remove();
+		} else {
+			currentDeadline.set(deadline);
+		}
+		return outerDeadline;
+	}
+
+	/**
+	 * Get the request config for an HTTP request made on the current thread
+	 *
+	 * @param defaultRequestConfig
+	 *            the default request config of the http client
+	 * @return the request config with the current timeouts, or null if there are none and the default applies
+	 */
+	static RequestConfig getRequestConfig(RequestConfig defaultRequestConfig) {
+
+		RequestTimeouts timeouts = currentTimeouts.get();
+		if (timeouts == null) {
+			return null;
+		}
+		return RequestConfig.copy(defaultRequestConfig).setConnectTimeout(timeouts.connectTimeoutMillis)
+				.setConnectionRequestTimeout(timeouts.connectTimeoutMillis)
+				.setSocketTimeout(timeouts.readTimeoutMillis).build();
+	}
+
+	/**
+	 * Starts watching an HTTP request made on the current thread, for its total timeout and the caller's deadline
+	 *
+	 * @param onExpiry
+	 *            called with the TIMED_OUT exception when the request must be aborted
+	 * @return the watchdog, to be cancelled once the request completed
+	 * @throws MambuApiException
+	 *             with the {@link #TIMED_OUT} error code if the caller's deadline already expired
+	 */
+	static Watchdog watch(Consumer<MambuApiException> onExpiry) throws MambuApiException {
+
+		RequestTimeouts timeouts = currentTimeouts.get();
+		long timeoutMillis = timeouts == null || timeouts.totalTimeoutMillis == 0 ? Long.MAX_VALUE
+				: timeouts.totalTimeoutMillis;
+		boolean byDeadline = false;
+
+		Long deadline = currentDeadline.get();
+		if (deadline != null) {
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0) {
+				throw new MambuApiException(TIMED_OUT, "The caller's deadline expired before sending the request");
+			}
+			if (remainingMillis < timeoutMillis) {
+				timeoutMillis = remainingMillis;
+				byDeadline = true;
+			}
+		}
+		return new Watchdog(timeoutMillis, byDeadline, onExpiry);
+	}
+
+	/**
+	 * Waits for the result of a request made by another thread, like an identical request in flight, for at most the
+	 * time the current thread would give to its own request: until the caller's deadline, and for the total timeout
+	 * of the current timeouts
+	 *
+	 * @param result
+	 *            the result of the request
+	 * @return the result
+	 * @throws ExecutionException
+	 *             if the request failed
+	 * @throws MambuApiException
+	 *             with the {@link #TIMED_OUT} error code if the time was up before the request completed
+	 */
+	static <T> T await(Future<T> result) throws ExecutionException, MambuApiException {
+
+		RequestTimeouts timeouts = currentTimeouts.get();
+		long timeoutNanos = timeouts == null || timeouts.totalTimeoutMillis == 0 ? Long.MAX_VALUE
+				: TimeUnit.MILLISECONDS.toNanos(timeouts.totalTimeoutMillis);
+		boolean byDeadline = false;
+
+		Long deadline = currentDeadline.get();
+		if (deadline != null) {
+			long remainingNanos = deadline - System.nanoTime();
+			if (remainingNanos < timeoutNanos) {
+				timeoutNanos = Math.max(remainingNanos, 0);
+				byDeadline = true;
+			}
+		}
+		try {
+			return timeoutNanos == Long.MAX_VALUE ? result.get() : result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		} catch (TimeoutException e) {
+			if (byDeadline) {
+				throw new MambuApiException(TIMED_OUT, "The caller's deadline expired while waiting for the request");
+			}
+			throw new MambuApiException(TIMED_OUT, new InterruptedIOException("Request timed out after "
+					+ timeouts.totalTimeoutMillis + " milliseconds"));
+		}
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getAbortScheduler() {
+
+		if (abortScheduler == null) {
+			abortScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "mambu-request-timeout");
+				thread.setDaemon(true);
+				return thread;
+			});
+			abortScheduler.setRemoveOnCancelPolicy(true);
+		}
+		return abortScheduler;
+	}
+
+	/**
+	 * Aborts an HTTP request when its time is up. Also maps the failures of the request to the TIMED_OUT error code
+	 */
+	static final class Watchdog {
+
+		private final long timeoutMillis;
+		private final boolean byDeadline;
+		private final ScheduledFuture<?> task;
+		private volatile boolean expired;
+
+		private Watchdog(long timeoutMillis, boolean byDeadline, final Consumer<MambuApiException> onExpiry) {
+
+			this.timeoutMillis = timeoutMillis;
+			this.byDeadline = byDeadline;
+			this.task = timeoutMillis == Long.MAX_VALUE ? null : getAbortScheduler().schedule(() -> {
+				expired = true;
+				onExpiry.accept(makeTimedOutException(null));
+			}, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * Stops watching the request
+		 */
+		void cancel() {
+
+			if (task != null) {
+				task.cancel(false);
+			}
+		}
+
+		boolean isExpired() {
+
+			return expired;
+		}
+
+		/**
+		 * Makes the exception for an IOException of the watched request. Socket, connect and pool timeouts and the
+		 * failures of an aborted request get the TIMED_OUT error code
+		 *
+		 * @param e
+		 *            the IOException
+		 * @return the exception to throw
+		 */
+		MambuApiException toMambuApiException(Exception e) {
+
+			if (expired || e instanceof InterruptedIOException) {
+				return makeTimedOutException(e);
+			}
+			return new MambuApiException(e);
+		}
+
+		private MambuApiException makeTimedOutException(Exception cause) {
+
+			if (byDeadline && expired) {
+				return new MambuApiException(TIMED_OUT, "The caller's deadline expired after " + timeoutMillis
+						+ " milliseconds");
+			}
+			if (expired) {
+				return new MambuApiException(TIMED_OUT, new InterruptedIOException("Request timed out after "
+						+ timeoutMillis + " milliseconds"));
+			}
+			return new MambuApiException(TIMED_OUT, cause);
+		}
+	}
+}
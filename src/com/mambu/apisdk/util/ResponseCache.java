@@ -0,0 +1,61 @@
+package com.mambu.apisdk.util;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestCoalescer.CoalescedRequest;
+
+/**
+ * Read-through cache of API responses, used by the {@link ServiceExecutor} for the GET requests which are cached by
+ * the {@link ResponseCachePolicy} of a factory. Responses are cached as the response strings returned by Mambu, so
+ * that each caller parses its own result objects.
+ *
+ * {@link InMemoryResponseCache} is the default implementation. Implementations must be thread safe
+ */
+public interface ResponseCache {
+
+	/**
+	 * Get the cached response for the request key, loading it with the loader if it is not cached or it has expired
+	 *
+	 * @param requestKey
+	 *            key identifying identical requests. See {@link RequestCoalescer#makeRequestKey(RequestExecutor.Method,
+	 *            String, ParamsMap)}
+	 * @param entityClass
+	 *            the class of the entities in the response. Used to invalidate all responses for an entity class
+	 * @param timeToLiveMillis
+	 *            how long a loaded response can be returned, in milliseconds
+	 * @param loader
+	 *            makes the API request returning the response
+	 * @return the response string
+	 * @throws MambuApiException
+	 *             the exception thrown by the loader
+	 */
+	String get(String requestKey, Class<?> entityClass, long timeToLiveMillis, CoalescedRequest<String> loader)
+			throws MambuApiException;
+
+	/**
+	 * Remove the cached response for the request key
+	 *
+	 * @param requestKey
+	 *            request key
+	 */
+	void invalidate(String requestKey);
+
+	/**
+	 * Remove all cached responses for the entity class
+	 *
+	 * @param entityClass
+	 *            the class of the entities in the responses
+	 */
+	void invalidate(Class<?> entityClass);
+
+	/**
+	 * Remove all cached responses
+	 */
+	void invalidateAll();
+
+	/**
+	 * Get the cache statistics
+	 *
+	 * @return snapshot of the statistics since the cache was created
+	 */
+	ResponseCacheStatistics getStatistics();
+}
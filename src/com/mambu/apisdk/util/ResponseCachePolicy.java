@@ -0,0 +1,93 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.mambu.accounts.shared.model.TransactionChannel;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.core.shared.model.Currency;
+import com.mambu.core.shared.model.CustomFieldSet;
+import com.mambu.core.shared.model.ObjectLabel;
+import com.mambu.loans.shared.model.LoanProduct;
+import com.mambu.organization.shared.model.Branch;
+import com.mambu.savings.shared.model.SavingsProduct;
+
+/**
+ * Defines which API responses are cached by a {@link ResponseCache} and for how long. The time to live is set for the
+ * class returned by an {@link ApiDefinition}, so that all the GET requests for the same entities (the list and the
+ * details of one entity) are cached alike. Only GET requests returning objects or collections are cached.
+ *
+ * This class is thread safe
+ */
+public class ResponseCachePolicy {
+
+	// Time to live in milliseconds, by the return class of the api definition
+	private final ConcurrentMap<Class<?>, Long> timesToLive = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a policy for the organization and product configuration, which rarely changes: currencies, transaction
+	 * channels, custom field sets, branches, object labels, loan products and savings products
+	 *
+	 * @param duration
+	 *            time to live of the cached responses
+	 * @param unit
+	 *            time unit of the duration
+	 * @return the policy
+	 */
+	public static ResponseCachePolicy forConfigurationData(long duration, TimeUnit unit) {
+
+		ResponseCachePolicy policy = new ResponseCachePolicy();
+		for (Class<?> entityClass : new Class<?>[] { Currency.class, TransactionChannel.class, CustomFieldSet.class,
+				Branch.class, ObjectLabel.class, LoanProduct.class, SavingsProduct.class }) {
+			policy.setTimeToLive(entityClass, duration, unit);
+		}
+		return policy;
+	}
+
+	/**
+	 * Set the time to live of the responses for an entity class
+	 *
+	 * @param entityClass
+	 *            the class returned by the api definitions
+	 * @param duration
+	 *            time to live of the cached responses. Zero to stop caching the entity class
+	 * @param unit
+	 *            time unit of the duration
+	 * @return this policy
+	 */
+	public ResponseCachePolicy setTimeToLive(Class<?> entityClass, long duration, TimeUnit unit) {
+
+		if (entityClass == null || unit == null || duration < 0) {
+			throw new IllegalArgumentException("Invalid time to live. Class=" + entityClass + " Duration=" + duration
+					+ " Unit=" + unit);
+		}
+		if (duration == 0) {
+			timesToLive.remove(entityClass);
+		} else {
+			timesToLive.put(entityClass, unit.toMillis(duration));
+		}
+		return this;
+	}
+
+	/**
+	 * Get the time to live of the responses for the api definition
+	 *
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @return time to live in milliseconds. Zero if the responses are not cached
+	 */
+	public long getTimeToLive(ApiDefinition apiDefinition) {
+
+		if (apiDefinition.getMethod() != Method.GET || apiDefinition.getReturnClass() == null) {
+			return 0;
+		}
+		ApiReturnFormat returnFormat = apiDefinition.getApiReturnFormat();
+		if (returnFormat != ApiReturnFormat.OBJECT && returnFormat != ApiReturnFormat.COLLECTION) {
+			return 0;
+		}
+		Long timeToLive = timesToLive.get(apiDefinition.getReturnClass());
+		return timeToLive == null ? 0 : timeToLive;
+	}
+}
@@ -0,0 +1,130 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Immutable snapshot of the statistics of a {@link ResponseCache}
+ */
+public class ResponseCacheStatistics {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadSuccessCount;
+	private final long loadFailureCount;
+	private final long totalLoadTimeNanos;
+	private final long refreshCount;
+	private final long evictionCount;
+	private final int size;
+
+	public ResponseCacheStatistics(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+			long totalLoadTimeNanos, long refreshCount, long evictionCount, int size) {
+
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadSuccessCount = loadSuccessCount;
+		this.loadFailureCount = loadFailureCount;
+		this.totalLoadTimeNanos = totalLoadTimeNanos;
+		this.refreshCount = refreshCount;
+		this.evictionCount = evictionCount;
+		this.size = size;
+	}
+
+	/**
+	 * Get the number of requests answered with a cached response
+	 *
+	 * @return number of hits
+	 */
+	public long getHitCount() {
+
+		return hitCount;
+	}
+
+	/**
+	 * Get the number of requests which had to wait for the response to be loaded
+	 *
+	 * @return number of misses
+	 */
+	public long getMissCount() {
+
+		return missCount;
+	}
+
+	/**
+	 * Get the ratio of hits to all requests
+	 *
+	 * @return hit rate, 1.0 if there were no requests
+	 */
+	public double getHitRate() {
+
+		long requestCount = hitCount + missCount;
+		return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+	}
+
+	public long getLoadSuccessCount() {
+
+		return loadSuccessCount;
+	}
+
+	public long getLoadFailureCount() {
+
+		return loadFailureCount;
+	}
+
+	/**
+	 * Get the time spent loading responses, including the background refreshes
+	 *
+	 * @return total load time in nanoseconds
+	 */
+	public long getTotalLoadTimeNanos() {
+
+		return totalLoadTimeNanos;
+	}
+
+	/**
+	 * Get the average time spent loading a response
+	 *
+	 * @return average load time in nanoseconds, 0 if nothing was loaded
+	 */
+	public long getAverageLoadTimeNanos() {
+
+		long loadCount = loadSuccessCount + loadFailureCount;
+		return loadCount == 0 ? 0 : totalLoadTimeNanos / loadCount;
+	}
+
+	/**
+	 * Get the number of responses reloaded in the background before they expired
+	 *
+	 * @return number of refreshes started
+	 */
+	public long getRefreshCount() {
+
+		return refreshCount;
+	}
+
+	/**
+	 * Get the number of responses removed to keep the cache within its size
+	 *
+	 * @return number of evictions
+	 */
+	public long getEvictionCount() {
+
+		return evictionCount;
+	}
+
+	/**
+	 * Get the number of cached responses
+	 *
+	 * @return cache size
+	 */
+	public int getSize() {
+
+		return size;
+	}
+
+	@Override
+	public String toString() {
+
+		return "ResponseCacheStatistics [hitCount=" + hitCount + ", missCount=" + missCount + ", loadSuccessCount="
+				+ loadSuccessCount + ", loadFailureCount=" + loadFailureCount + ", totalLoadTimeNanos="
+				+ totalLoadTimeNanos + ", refreshCount=" + refreshCount + ", evictionCount=" + evictionCount
+				+ ", size=" + size + "]";
+	}
+}
@@ -0,0 +1,266 @@
+package com.mambu.apisdk.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.entity.DecompressingEntity;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.client.entity.InputStreamFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Negotiates the compression of the API responses. Requests are sent with an Accept-Encoding header for gzip and
+ * deflate, and compressed responses are decompressed while their content is read, so that the JSON parser reads the
+ * decoded content as it arrives without the response being decompressed in memory first. Large and repetitive
+ * responses, like the lists of loan accounts with full details, GL journal entries or activities, shrink a lot.
+ *
+ * Compression can be disabled for an endpoint, the first part of the API path. A new ResponseCompression compresses
+ * the responses of all endpoints. Requests for a byte range are never compressed, as the range would apply to the
+ * compressed content. The counters of the wire and decoded bytes of all responses show how much compression saves.
+ *
+ * It is set for the http clients of a factory with {@link HttpClientConfig#setResponseCompression(ResponseCompression)}
+ * and is enabled by default for all endpoints except "database", as the backups are already compressed. This class is
+ * thread safe
+ */
+public class ResponseCompression implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+	public static final String ACCEPTED_ENCODINGS = "gzip,deflate";
+
+	private static final String API_PATH = "/api/";
+	private final static Logger LOGGER = Logger.getLogger(ResponseCompression.class.getName());
+
+	private final Set<String> uncompressedEndpoints = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+	private final AtomicLong compressedResponseCount = new AtomicLong();
+	private final AtomicLong wireByteCount = new AtomicLong();
+	private final AtomicLong decodedByteCount = new AtomicLong();
+
+	/**
+	 * Set whether the responses of an endpoint are compressed
+	 *
+	 * @param endpoint
+	 *            the endpoint, the first part of the API path, e.g. "database" or "gljournalentries"
+	 * @param isCompressed
+	 *            false to request uncompressed responses from the endpoint
+	 * @return this compression
+	 */
+	public ResponseCompression setCompressed(String endpoint, boolean isCompressed) {
+
+		if (endpoint == null) {
+			throw new IllegalArgumentException("Endpoint cannot be null");
+		}
+		if (isCompressed) {
+			uncompressedEndpoints.remove(endpoint);
+		} else {
+			uncompressedEndpoints.add(endpoint);
+		}
+		return this;
+	}
+
+	/**
+	 * Are the responses of an endpoint compressed
+	 *
+	 * @param endpoint
+	 *            the endpoint
+	 * @return true unless compression was disabled for the endpoint
+	 */
+	public boolean isCompressed(String endpoint) {
+
+		return !uncompressedEndpoints.contains(endpoint);
+	}
+
+	/**
+	 * Get the number of responses which were compressed
+	 *
+	 * @return number of compressed responses
+	 */
+	public long getCompressedResponseCount() {
+
+		return compressedResponseCount.get();
+	}
+
+	/**
+	 * Get the number of bytes of response content read from the wire, compressed or not
+	 *
+	 * @return number of bytes received
+	 */
+	public long getWireByteCount() {
+
+		return wireByteCount.get();
+	}
+
+	/**
+	 * Get the number of bytes of response content read after decompression
+	 *
+	 * @return number of decoded bytes
+	 */
+	public long getDecodedByteCount() {
+
+		return decodedByteCount.get();
+	}
+
+	/**
+	 * Adds the Accept-Encoding header to the requests of the endpoints with compressed responses
+	 */
+	@Override
+	public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+
+		if (request.containsHeader(HttpHeaders.ACCEPT_ENCODING) || request.containsHeader(HttpHeaders.RANGE)) {
+			return;
+		}
+		if (isCompressed(getEndpoint(request.getRequestLine().getUri()))) {
+			request.addHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+		}
+	}
+
+	/**
+	 * Decodes the responses of the blocking http client, see {@link #decode(HttpResponse)}
+	 */
+	@Override
+	public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+
+		decode(response);
+	}
+
+	/**
+	 * Replaces the entity of a compressed response with one decompressing its content while it's read. The
+	 * non-blocking http client runs its response interceptors before the content is received, so its responses are
+	 * decoded by the {@link AsyncRequestExecutorImpl} once completed
+	 *
+	 * @param response
+	 *            the HTTP response
+	 */
+	void decode(HttpResponse response) {
+
+		HttpEntity entity = response.getEntity();
+		if (entity == null || entity.getContentLength() == 0) {
+			return;
+		}
+		Header contentEncoding = entity.getContentEncoding();
+		String encoding = contentEncoding == null ? "identity" : contentEncoding.getValue().trim()
+				.toLowerCase(Locale.ROOT);
+
+		InputStreamFactory decoder;
+		switch (encoding) {
+		case "gzip":
+		case "x-gzip":
+			decoder = content -> new GZIPInputStream(content);
+			break;
+		case "deflate":
+			decoder = content -> new DeflateInputStream(content);
+			break;
+		case "identity":
+		case "":
+			response.setEntity(new CountingEntity(entity));
+			return;
+		default:
+			LOGGER.warning("Unsupported content encoding: " + encoding);
+			return;
+		}
+
+		compressedResponseCount.incrementAndGet();
+		response.setEntity(new DecompressingEntity(entity, content -> new CountingInputStream(decoder
+				.create(new CountingInputStream(content, wireByteCount)), decodedByteCount)));
+		response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+		response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+		response.removeHeaders(HttpHeaders.CONTENT_MD5);
+	}
+
+	/**
+	 * Get the endpoint of a request URI: the first part of the path after "/api/"
+	 *
+	 * @param uri
+	 *            the request URI, absolute or only the path
+	 * @return the endpoint, or an empty string for URIs not starting with the API path
+	 */
+	static String getEndpoint(String uri) {
+
+		int start = uri.indexOf(API_PATH);
+		if (start < 0) {
+			return "";
+		}
+		start += API_PATH.length();
+		int end = start;
+		while (end < uri.length() && "/?#".indexOf(uri.charAt(end)) < 0) {
+			end++;
+		}
+		return uri.substring(start, end);
+	}
+
+	/**
+	 * Entity of an uncompressed response, counting its content as both wire and decoded bytes
+	 */
+	private class CountingEntity extends HttpEntityWrapper {
+
+		CountingEntity(HttpEntity entity) {
+
+			super(entity);
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+
+			return new CountingInputStream(new CountingInputStream(super.getContent(), wireByteCount),
+					decodedByteCount);
+		}
+	}
+
+	/**
+	 * Input stream adding the number of bytes read to a counter
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private final AtomicLong counter;
+
+		CountingInputStream(InputStream in, AtomicLong counter) {
+
+			super(in);
+			this.counter = counter;
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			int result = super.read();
+			if (result >= 0) {
+				counter.incrementAndGet();
+			}
+			return result;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+
+			int count = super.read(buffer, offset, length);
+			if (count > 0) {
+				counter.addAndGet(count);
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long length) throws IOException {
+
+			long count = super.skip(length);
+			counter.addAndGet(count);
+			return count;
+		}
+	}
+}
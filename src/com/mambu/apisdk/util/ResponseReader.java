@@ -0,0 +1,25 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the result of an API request directly from the content of Mambu response. Used to parse the response without
+ * first building it as a String (for example, to deserialize the response JSON with a Gson JsonReader)
+ * 
+ * @param <R>
+ *            the type of the result
+ */
+public interface ResponseReader<R> {
+
+	/**
+	 * Reads the result from Mambu response content
+	 * 
+	 * @param reader
+	 *            the reader for the response content, using the UTF-8 charset. It is closed by the caller
+	 * @return the result read from the response
+	 * @throws IOException
+	 */
+	R read(Reader reader) throws IOException;
+
+}
@@ -0,0 +1,260 @@
+package com.mambu.apisdk.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Policy retrying the API requests which failed with a transient error: a connection failure (an IOException, like a
+ * connection reset by the gateway) or a 502, 503 or 504 status. Only idempotent requests are retried, see
+ * {@link ApiDefinition#isIdempotent()}: GET and DELETE requests, and PATCH or POST requests declared safe to retry.
+ *
+ * The wait before each retry grows exponentially from the initial backoff up to the max backoff, and is randomised
+ * over the whole interval ("full jitter"), so that the clients which failed together don't retry together. Retries
+ * stop after the max attempts, or when the next retry would start after the max elapsed time since the first attempt.
+ *
+ * A policy is set for all requests of a factory with
+ * {@link com.mambu.apisdk.MambuAPIServiceFactory#setRetryPolicy(RetryPolicy)}, and can be overridden for an API with
+ * {@link ApiDefinition.Builder#setRetryPolicy(RetryPolicy)}. Streamed downloads and uploads are not retried, as their
+ * content was already partly read or written.
+ *
+ * The settings are expected to be set before the policy is used. The counters are thread safe
+ */
+public class RetryPolicy {
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 200;
+	public static final long DEFAULT_MAX_BACKOFF_MILLIS = 10 * 1000L;
+	public static final long DEFAULT_MAX_ELAPSED_MILLIS = 60 * 1000L;
+	public static final Set<Integer> DEFAULT_RETRYABLE_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays
+			.asList(502, 503, 504)));
+
+	private final static Logger LOGGER = Logger.getLogger(RetryPolicy.class.getName());
+
+	/**
+	 * A request which can be executed again
+	 *
+	 * @param <T>
+	 *            the type of the result
+	 */
+	public interface RetriableRequest<T> {
+
+		T execute() throws MambuApiException;
+	}
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+	private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+	private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+	private long maxElapsedMillis = DEFAULT_MAX_ELAPSED_MILLIS;
+	private Set<Integer> retryableStatuses = DEFAULT_RETRYABLE_STATUSES;
+
+	private final AtomicLong attemptCount = new AtomicLong();
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong giveUpCount = new AtomicLong();
+
+	/**
+	 * Creates a policy which never retries, to disable retries for an API
+	 *
+	 * @return policy with a single attempt
+	 */
+	public static RetryPolicy noRetries() {
+
+		RetryPolicy retryPolicy = new RetryPolicy();
+		retryPolicy.setMaxAttempts(1);
+		return retryPolicy;
+	}
+
+	/**
+	 * Executes the request, retrying it while it fails with a transient error and the policy allows it
+	 *
+	 * @param request
+	 *            the idempotent request
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 *             the exception of the last attempt
+	 */
+	public <T> T execute(RetriableRequest<T> request) throws MambuApiException {
+
+		long start = System.nanoTime();
+		for (int attempt = 1;; attempt++) {
+			attemptCount.incrementAndGet();
+			try {
+				return request.execute();
+			} catch (MambuApiException e) {
+				if (!isRetryable(e)) {
+					throw e;
+				}
+				long backoffMillis = getBackoffMillis(attempt);
+				long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				if (attempt >= maxAttempts || elapsedMillis + backoffMillis > maxElapsedMillis) {
+					giveUpCount.incrementAndGet();
+					LOGGER.warning("Giving up after " + attempt + " attempts in " + elapsedMillis + " ms: "
+							+ e.getMessage());
+					throw e;
+				}
+				LOGGER.info("Retrying in " + backoffMillis + " ms after attempt " + attempt + " failed with "
+						+ (e.getCause() instanceof IOException ? e.getCause() : "status " + e.getErrorCode()));
+				retryCount.incrementAndGet();
+				sleep(backoffMillis);
+			}
+		}
+	}
+
+	/**
+	 * Is the failure transient, so that the request may succeed if retried
+	 *
+	 * @param exception
+	 *            the exception of a failed request
+	 * @return true for connection failures and retryable statuses
+	 */
+	public boolean isRetryable(MambuApiException exception) {
+
+		Integer errorCode = exception.getErrorCode();
+		return exception.getCause() instanceof IOException
+				|| (errorCode != null && retryableStatuses.contains(errorCode));
+	}
+
+	/**
+	 * Get the wait before the retry following the attempt: a random time up to the exponential backoff of the attempt
+	 *
+	 * @param attempt
+	 *            the number of the failed attempt, starting at 1
+	 * @return backoff in milliseconds
+	 */
+	long getBackoffMillis(int attempt) {
+
+		// initial * 2^(attempt - 1), doubled only up to the max backoff
+		long exponentialBackoff = initialBackoffMillis;
+		for (int i = 1; i < attempt && exponentialBackoff < maxBackoffMillis; i++) {
+			exponentialBackoff *= 2;
+		}
+		long backoffCap = Math.min(maxBackoffMillis, exponentialBackoff);
+		return backoffCap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoffCap + 1);
+	}
+
+	private static void sleep(long millis) throws MambuApiException {
+
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MambuApiException(e);
+		}
+	}
+
+	/**
+	 * Get the number of attempts made, first attempts included
+	 *
+	 * @return number of attempts
+	 */
+	public long getAttemptCount() {
+
+		return attemptCount.get();
+	}
+
+	/**
+	 * Get the number of retries made after a transient error
+	 *
+	 * @return number of retries
+	 */
+	public long getRetryCount() {
+
+		return retryCount.get();
+	}
+
+	/**
+	 * Get the number of requests which failed with a transient error but were not retried any more, because the max
+	 * attempts or the max elapsed time were reached
+	 *
+	 * @return number of requests given up
+	 */
+	public long getGiveUpCount() {
+
+		return giveUpCount.get();
+	}
+
+	public int getMaxAttempts() {
+
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("Max attempts must be greater than zero");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialBackoffMillis() {
+
+		return initialBackoffMillis;
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+
+		if (initialBackoffMillis < 0) {
+			throw new IllegalArgumentException("Initial backoff must not be negative");
+		}
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public long getMaxBackoffMillis() {
+
+		return maxBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+
+		if (maxBackoffMillis < 0) {
+			throw new IllegalArgumentException("Max backoff must not be negative");
+		}
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	public long getMaxElapsedMillis() {
+
+		return maxElapsedMillis;
+	}
+
+	/**
+	 * Set the overall deadline of a request and its retries. No retry starts after it
+	 *
+	 * @param maxElapsedMillis
+	 *            max time since the first attempt, in milliseconds
+	 */
+	public void setMaxElapsedMillis(long maxElapsedMillis) {
+
+		if (maxElapsedMillis < 0) {
+			throw new IllegalArgumentException("Max elapsed time must not be negative");
+		}
+		this.maxElapsedMillis = maxElapsedMillis;
+	}
+
+	public Set<Integer> getRetryableStatuses() {
+
+		return retryableStatuses;
+	}
+
+	/**
+	 * Set the HTTP statuses of the responses which are retried
+	 *
+	 * @param retryableStatuses
+	 *            the statuses. Defaults to {@link #DEFAULT_RETRYABLE_STATUSES}
+	 */
+	public void setRetryableStatuses(Set<Integer> retryableStatuses) {
+
+		if (retryableStatuses == null) {
+			throw new IllegalArgumentException("Retryable statuses must not be null");
+		}
+		this.retryableStatuses = Collections.unmodifiableSet(new HashSet<>(retryableStatuses));
+	}
+}
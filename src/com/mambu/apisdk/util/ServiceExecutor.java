@@ -1,10 +1,18 @@
 package com.mambu.apisdk.util;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.io.IOUtils;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -16,6 +24,7 @@ import com.mambu.accounts.shared.model.DocumentTemplate;
 import com.mambu.accounts.shared.model.TransactionChannel;
 import com.mambu.admin.shared.model.ExchangeRate;
 import com.mambu.api.server.handler.activityfeed.model.JSONActivity;
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
 import com.mambu.api.server.handler.loan.model.JSONLoanAccount;
 import com.mambu.api.server.handler.loan.model.JSONTransactionRequest;
 import com.mambu.api.server.handler.savings.model.JSONSavingsAccount;
@@ -133,7 +142,6 @@ public class ServiceExecutor {
 	 * 
 	 * @throws MambuApiException
 	 */
-	@SuppressWarnings("unchecked")
 	public <R> R execute(ApiDefinition apiDefinition, String objectId, String relatedEntityId, ParamsMap paramsMap)
 			throws MambuApiException {
 
@@ -146,35 +154,677 @@ public class ServiceExecutor {
 		String apiUrlPath = getApiPath(apiDefinition, objectId, relatedEntityId);
 
 		// Add full details parameter if required by apiDefintion specification
-		if (apiDefinition.getWithFullDetails()) {
-			if (paramsMap == null) {
-				paramsMap = new ParamsMap();
+		paramsMap = addFullDetailsParam(apiDefinition, paramsMap);
+
+		// Evict the changed documents before the request, and again after it, in case they were read meanwhile
+		if (invalidateDocuments(apiDefinition, apiUrlPath)) {
+			try {
+				return executeEntityRequest(apiDefinition, objectId, apiUrlPath, paramsMap);
+			} finally {
+				invalidateDocuments(apiDefinition, apiUrlPath);
+			}
+		}
+
+		return executeEntityRequest(apiDefinition, objectId, apiUrlPath, paramsMap);
+	}
+
+	/****
+	 * Execute API Request through the entity cache, if one is set, for the url path and params map made for the
+	 * ApiDefinition
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param apiUrlPath
+	 *            request url
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @return result object, as returned by {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * @throws MambuApiException
+	 */
+	private <R> R executeEntityRequest(ApiDefinition apiDefinition, String objectId, String apiUrlPath,
+			ParamsMap paramsMap) throws MambuApiException {
+
+		EntityCache entityCache = mambuAPIService.getEntityCache();
+		if (entityCache != null) {
+			String cachedEntity = entityCache.getCachedEntity(apiDefinition, objectId);
+			if (cachedEntity != null) {
+				return executeEntityCached(entityCache, cachedEntity, apiDefinition, apiUrlPath, paramsMap);
+			}
+			// Evict the changed entities before the request, and again after it, in case they were read meanwhile
+			Set<String> changedEntities = entityCache.getChangedEntities(apiDefinition, objectId, paramsMap);
+			if (!changedEntities.isEmpty()) {
+				entityCache.invalidate(changedEntities);
+				try {
+					return executeRequest(apiDefinition, apiUrlPath, paramsMap);
+				} finally {
+					entityCache.invalidate(changedEntities);
+				}
 			}
-			paramsMap.put(APIData.FULL_DETAILS, "true");
 		}
 
+		return executeRequest(apiDefinition, apiUrlPath, paramsMap);
+	}
+
+	/****
+	 * Execute API Request for the url path and params map made for the ApiDefinition
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param apiUrlPath
+	 *            request url
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @return result object, as returned by {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * @throws MambuApiException
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> R executeRequest(ApiDefinition apiDefinition, String apiUrlPath, ParamsMap paramsMap)
+			throws MambuApiException {
+
 		// Execute Request. Get Method and ContentType from the apiDefintion
 		Method method = apiDefinition.getMethod();
 		ContentType contentType = apiDefinition.getContentType();
 
-		// Process API Response. Get the return format from the apiDefintion
-		ApiReturnFormat returnFormat = apiDefinition.getApiReturnFormat();
+		DocumentCache documentCache = mambuAPIService.getDocumentCache();
+		if (documentCache != null && apiDefinition.isDocumentContent() && method == Method.GET) {
+			String jsonResponse = executeDocumentCached(documentCache, apiDefinition, apiUrlPath, paramsMap,
+					(content, contentLength) -> IOUtils.toString(content, StandardCharsets.UTF_8.name()));
+			return processResponse(jsonResponse, apiDefinition);
+		}
+
+		ResponseCache responseCache = mambuAPIService.getResponseCache();
+		ResponseCachePolicy responseCachePolicy = mambuAPIService.getResponseCachePolicy();
+		long timeToLive = responseCache == null || responseCachePolicy == null ? 0 : responseCachePolicy
+				.getTimeToLive(apiDefinition);
+		if (timeToLive > 0) {
+			return executeCached(responseCache, timeToLive, apiDefinition, apiUrlPath, paramsMap);
+		}
 
-		ByteArrayOutputStream byteArrayOutputStreamResult = null;
-		String jsonResponse = null;
+		RequestCoalescer requestCoalescer = mambuAPIService.getRequestCoalescer();
+		if (requestCoalescer != null && method == Method.GET
+				&& apiDefinition.getApiReturnFormat() != ApiReturnFormat.ZIP_ARCHIVE) {
+			return executeCoalesced(requestCoalescer, apiDefinition, apiUrlPath, paramsMap);
+		}
 
-		// Use mambuAPIService to execute request
-		switch (returnFormat) {
+		HedgingPolicy hedgingPolicy = mambuAPIService.getHedgingPolicy();
+		if (hedgingPolicy != null && hedgingPolicy.isHedged(apiDefinition) && mambuAPIService.isAsyncSupported()) {
+			// Send the request and its hedge asynchronously, so that the losing one can be cancelled
+			final String endpoint = CircuitBreaker.getEndpoint(apiDefinition);
+			String jsonResponse = executeWithRetries(apiDefinition, () -> hedgingPolicy.execute(endpoint,
+					() -> mambuAPIService.executeRequestAsync(apiUrlPath, paramsMap, method, contentType)));
+			return processResponse(jsonResponse, apiDefinition);
+		}
+
+		// Use mambuAPIService to execute request. Get the return format from the apiDefintion
+		switch (apiDefinition.getApiReturnFormat()) {
 		case ZIP_ARCHIVE:
-			byteArrayOutputStreamResult = mambuAPIService.executeRequest(apiUrlPath, paramsMap, apiDefinition);
-			break;
+			return (R) executeWithRetries(apiDefinition,
+					() -> mambuAPIService.executeRequest(apiUrlPath, paramsMap, apiDefinition));
+		case OBJECT:
+		case COLLECTION:
+			// Deserialize objects directly from the response content, without making the response string first
+			ResponseReader<R> jsonReader = createJsonResponseReader(apiDefinition);
+			return executeWithRetries(apiDefinition,
+					() -> mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType, jsonReader));
 		default:
-			jsonResponse = mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType);
-			break;
+			String jsonResponse = executeWithRetries(apiDefinition,
+					() -> mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType));
+			// Process API Response
+			return processResponse(jsonResponse, apiDefinition);
+		}
+	}
+
+	/****
+	 * Execute API Request downloading content (like zip archives), reading the result directly from the response
+	 * content with the contentReader. The URL and parameters are made as by
+	 * {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters (optional, can be null)
+	 * @param contentReader
+	 *            reads the result from the response content, e.g. a {@link ContentDownloader}
+	 * 
+	 * @return the result read by the contentReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeDownload(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap,
+			ContentReader<R> contentReader) throws MambuApiException {
+
+		return executeDownload(apiDefinition, objectId, null, paramsMap, contentReader);
+	}
+
+	/****
+	 * Execute API Request downloading content, reading the result directly from the response content with the
+	 * contentReader. The URL and parameters are made as by {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param relatedEntityId
+	 *            an id of the relatedEntity (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters (optional, can be null)
+	 * @param contentReader
+	 *            reads the result from the response content, e.g. a {@link Base64ContentReader}
+	 * 
+	 * @return the result read by the contentReader
+	 * 
+	 * @throws MambuApiException
+	 */
+	public <R> R executeDownload(ApiDefinition apiDefinition, String objectId, String relatedEntityId,
+			ParamsMap paramsMap, ContentReader<R> contentReader) throws MambuApiException {
+
+		if (apiDefinition == null || contentReader == null) {
+			throw new IllegalArgumentException("ApiDefinition and ContentReader cannot be NULL");
+		}
+
+		String apiUrlPath = getApiPath(apiDefinition, objectId, relatedEntityId);
+		paramsMap = addFullDetailsParam(apiDefinition, paramsMap);
+
+		DocumentCache documentCache = mambuAPIService.getDocumentCache();
+		if (documentCache != null && apiDefinition.isDocumentContent()
+				&& apiDefinition.getMethod() == Method.GET) {
+			return executeDocumentCached(documentCache, apiDefinition, apiUrlPath, paramsMap, contentReader);
+		}
+
+		final ParamsMap params = paramsMap;
+		return executeWithTimeouts(apiDefinition,
+				() -> mambuAPIService.executeRequest(apiUrlPath, params, apiDefinition, contentReader));
+	}
+
+	/****
+	 * Execute API Request streaming its body from the contentWriter, like a large document upload. The URL is made as
+	 * by {@link #execute(ApiDefinition, String, String, ParamsMap)} and the response is processed as specified by the
+	 * apiDefinition
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param relatedEntityId
+	 *            an id of the relatedEntity (optional, must be null if not used)
+	 * @param contentWriter
+	 *            writes the request body, e.g. a {@link Base64DocumentWriter}
+	 * @return result object, as returned by {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * @throws MambuApiException
+	 */
+	public <R> R executeUpload(ApiDefinition apiDefinition, String objectId, String relatedEntityId,
+			ContentWriter contentWriter) throws MambuApiException {
+
+		if (apiDefinition == null || contentWriter == null) {
+			throw new IllegalArgumentException("ApiDefinition and ContentWriter cannot be NULL");
+		}
+
+		String apiUrlPath = getApiPath(apiDefinition, objectId, relatedEntityId);
+
+		EntityCache entityCache = mambuAPIService.getEntityCache();
+		Set<String> changedEntities = entityCache == null ? Collections.<String> emptySet()
+				: entityCache.getChangedEntities(apiDefinition, objectId, null);
+		if (!changedEntities.isEmpty()) {
+			entityCache.invalidate(changedEntities);
+		}
+		invalidateDocuments(apiDefinition, apiUrlPath);
+		try {
+			String jsonResponse = executeWithTimeouts(apiDefinition, () -> mambuAPIService.executeRequest(apiUrlPath,
+					apiDefinition.getMethod(), apiDefinition.getContentType(), contentWriter));
+			return processResponse(jsonResponse, apiDefinition);
+		} finally {
+			if (!changedEntities.isEmpty()) {
+				entityCache.invalidate(changedEntities);
+			}
+			invalidateDocuments(apiDefinition, apiUrlPath);
+		}
+	}
+
+	/****
+	 * Execute API Request downloading a byte range of the content (like a part of a DB backup). The result is read
+	 * directly from the response content by the contentReader. Used by the {@link RangedDownloader} to fetch the
+	 * segments of a download in parallel
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @param firstByte
+	 *            the position of the first byte of the range
+	 * @param lastByte
+	 *            the position of the last byte of the range, inclusive. Negative for the end of the content
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader
+	 * @throws MambuApiException
+	 */
+	public <R> R executeRangeDownload(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap,
+			long firstByte, long lastByte, RangeContentReader<R> contentReader) throws MambuApiException {
+
+		if (apiDefinition == null || contentReader == null) {
+			throw new IllegalArgumentException("ApiDefinition and RangeContentReader cannot be NULL");
+		}
+
+		String apiUrlPath = getApiPath(apiDefinition, objectId, null);
+		paramsMap = addFullDetailsParam(apiDefinition, paramsMap);
+
+		final ParamsMap params = paramsMap;
+		return executeWithTimeouts(apiDefinition, () -> mambuAPIService.executeRangeRequest(apiUrlPath, params,
+				apiDefinition, firstByte, lastByte, contentReader));
+	}
+
+	/****
+	 * Execute API Request asynchronously using its ApiDefinition and supplied input data. The request is built as by
+	 * {@link #execute(ApiDefinition, String, String, ParamsMap)} and sent without blocking the caller. Mambu response
+	 * is parsed into the requested type off the http client's I/O threads
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param relatedEntityId
+	 *            an id of the relatedEntity (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters
+	 * 
+	 * @return future completed with the result object, which will be an API specific object or a list of objects. A
+	 *         failed request completes the future exceptionally with a MambuApiException
+	 */
+	public <R> CompletableFuture<R> executeAsync(final ApiDefinition apiDefinition, String objectId,
+			String relatedEntityId, ParamsMap paramsMap) {
+
+		if (apiDefinition == null) {
+			throw new IllegalArgumentException("ApiDefinition cannot be NULL");
+
+		}
+
+		// Create URL for this API request using specification in its apiDefintion and input IDs
+		String apiUrlPath = getApiPath(apiDefinition, objectId, relatedEntityId);
+
+		// Add full details parameter if required by apiDefintion specification
+		paramsMap = addFullDetailsParam(apiDefinition, paramsMap);
+
+		// Evict the changed documents before the request, and again once it completes
+		if (invalidateDocuments(apiDefinition, apiUrlPath)) {
+			return this.<R> executeRequestAsync(apiDefinition, objectId, apiUrlPath, paramsMap).whenComplete(
+					(result, exception) -> invalidateDocuments(apiDefinition, apiUrlPath));
+		}
+
+		return executeRequestAsync(apiDefinition, objectId, apiUrlPath, paramsMap);
+	}
+
+	/****
+	 * Execute API Request asynchronously, through the entity cache if one is set, for the url path and params map made
+	 * for the ApiDefinition
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param apiUrlPath
+	 *            request url
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @return future completed with the result object, as returned by
+	 *         {@link #executeAsync(ApiDefinition, String, String, ParamsMap)}
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> CompletableFuture<R> executeRequestAsync(final ApiDefinition apiDefinition, String objectId,
+			String apiUrlPath, ParamsMap paramsMap) {
+
+		// The requests are sent from this thread, with the timeouts of the API and in the lane of the service unless the
+		// caller chose one
+		RequestTimeouts outerTimeouts = RequestTimeouts.setCurrentTimeouts(getTimeouts(apiDefinition));
+		String outerLane = Bulkhead.getCurrentLane();
+		if (outerLane == null) {
+			Bulkhead.setCurrentLane(mambuAPIService.getLane());
+		}
+		try {
+			// Execute Request. Get Method and ContentType from the apiDefintion
+			Method method = apiDefinition.getMethod();
+			ContentType contentType = apiDefinition.getContentType();
+
+			EntityCache entityCache = mambuAPIService.getEntityCache();
+			if (entityCache != null) {
+				// Evict the changed entities before the request, and again once it completes
+				final Set<String> changedEntities = entityCache.getChangedEntities(apiDefinition, objectId, paramsMap);
+				if (!changedEntities.isEmpty()) {
+					entityCache.invalidate(changedEntities);
+					return mambuAPIService.executeRequestAsync(apiUrlPath, paramsMap, method, contentType)
+							.whenComplete((jsonResponse, exception) -> entityCache.invalidate(changedEntities))
+							.thenApplyAsync(jsonResponse -> this.<R> processResponse(jsonResponse, apiDefinition));
+				}
+			}
+
+			// Use mambuAPIService to execute request. Get the return format from the apiDefintion
+			switch (apiDefinition.getApiReturnFormat()) {
+			case ZIP_ARCHIVE:
+				return (CompletableFuture<R>) (CompletableFuture<?>) mambuAPIService.executeRequestAsync(apiUrlPath,
+						paramsMap, apiDefinition);
+			default:
+				// Process API Response asynchronously, so that parsing is not done on the I/O threads
+				return mambuAPIService.executeRequestAsync(apiUrlPath, paramsMap, method, contentType).thenApplyAsync(
+						jsonResponse -> this.<R> processResponse(jsonResponse, apiDefinition));
+			}
+		} finally {
+			RequestTimeouts.setCurrentTimeouts(outerTimeouts);
+			Bulkhead.setCurrentLane(outerLane);
+		}
+	}
+
+	/****
+	 * Convenience method to execute API Request asynchronously without relatedEntityId parameter
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * @param paramsMap
+	 *            map with API parameters
+	 * 
+	 * @return future completed with the result object
+	 */
+	public <R> CompletableFuture<R> executeAsync(ApiDefinition apiDefinition, String objectId, ParamsMap paramsMap) {
+
+		String relatedEntityId = null;
+		return executeAsync(apiDefinition, objectId, relatedEntityId, paramsMap);
+	}
+
+	/****
+	 * Convenience method to execute API Request asynchronously using its ApiDefinition and object ID
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param objectId
+	 *            api's object id (optional, must be null if not used)
+	 * 
+	 * @return future completed with the result object
+	 */
+	public <R> CompletableFuture<R> executeAsync(ApiDefinition apiDefinition, String objectId) {
+
+		ParamsMap paramsMap = null;
+		return executeAsync(apiDefinition, objectId, paramsMap);
+	}
+
+	/****
+	 * Convenience method to execute API Request asynchronously using its ApiDefinition and params map
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param paramsMap
+	 *            map with API parameters
+	 * 
+	 * @return future completed with the result object
+	 */
+	public <R> CompletableFuture<R> executeAsync(ApiDefinition apiDefinition, ParamsMap paramsMap) {
+
+		String objectId = null;
+		return executeAsync(apiDefinition, objectId, paramsMap);
+	}
+
+	/****
+	 * Convenience method to execute API request asynchronously using its ApiDefinition only
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * 
+	 * @return future completed with the result object
+	 */
+	public <R> CompletableFuture<R> executeAsync(ApiDefinition apiDefinition) {
+
+		ParamsMap paramsMap = null;
+		String objectId = null;
+		return executeAsync(apiDefinition, objectId, paramsMap);
+	}
+
+	/****
+	 * Execute a GET request, sharing one API call with the identical requests in flight. The response string is shared
+	 * and each caller parses it, so that callers don't get the same result objects
+	 * 
+	 * @param requestCoalescer
+	 *            the request coalescer
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param apiUrlPath
+	 *            request url
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @return result object, as returned by {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * @throws MambuApiException
+	 */
+	private <R> R executeCoalesced(RequestCoalescer requestCoalescer, ApiDefinition apiDefinition,
+			final String apiUrlPath, final ParamsMap paramsMap) throws MambuApiException {
+
+		final Method method = apiDefinition.getMethod();
+		final ContentType contentType = apiDefinition.getContentType();
+		String requestKey = RequestCoalescer.makeRequestKey(method, apiUrlPath, paramsMap);
+
+		// Callers waiting for the identical request in flight wait for at most the total timeout of their request
+		String jsonResponse = RequestTimeouts.callWithTimeouts(getTimeouts(apiDefinition),
+				() -> requestCoalescer.execute(requestKey, () -> executeWithRetries(apiDefinition,
+						() -> mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType))));
+		return processResponse(jsonResponse, apiDefinition);
+	}
+
+	/****
+	 * Execute a GET request for a single entity through the entity cache. The cached response string is parsed for each
+	 * caller, so that callers don't get the same result objects
+	 * 
+	 * @param entityCache
+	 *            the entity cache
+	 * @param cachedEntity
+	 *            reference of the read entity
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param apiUrlPath
+	 *            request url
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @return result object, as returned by {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * @throws MambuApiException
+	 */
+	private <R> R executeEntityCached(EntityCache entityCache, String cachedEntity, ApiDefinition apiDefinition,
+			final String apiUrlPath, final ParamsMap paramsMap) throws MambuApiException {
+
+		final Method method = apiDefinition.getMethod();
+		final ContentType contentType = apiDefinition.getContentType();
+		String requestKey = RequestCoalescer.makeRequestKey(method, apiUrlPath, paramsMap);
+
+		String jsonResponse = RequestTimeouts.callWithTimeouts(getTimeouts(apiDefinition),
+				() -> entityCache.get(cachedEntity, requestKey, () -> executeWithRetries(apiDefinition,
+						() -> mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType))));
+		return processResponse(jsonResponse, apiDefinition);
+	}
+
+	/****
+	 * Execute a GET request through the response cache. The cached response string is parsed for each caller, so that
+	 * callers don't get the same result objects
+	 * 
+	 * @param responseCache
+	 *            the response cache
+	 * @param timeToLive
+	 *            time to live of the response in milliseconds
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param apiUrlPath
+	 *            request url
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @return result object, as returned by {@link #execute(ApiDefinition, String, String, ParamsMap)}
+	 * @throws MambuApiException
+	 */
+	private <R> R executeCached(ResponseCache responseCache, long timeToLive, ApiDefinition apiDefinition,
+			final String apiUrlPath, final ParamsMap paramsMap) throws MambuApiException {
+
+		final Method method = apiDefinition.getMethod();
+		final ContentType contentType = apiDefinition.getContentType();
+		String requestKey = RequestCoalescer.makeRequestKey(method, apiUrlPath, paramsMap);
+
+		String jsonResponse = RequestTimeouts.callWithTimeouts(getTimeouts(apiDefinition),
+				() -> responseCache.get(requestKey, apiDefinition.getReturnClass(), timeToLive,
+						() -> executeWithRetries(apiDefinition,
+								() -> mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType))));
+		return processResponse(jsonResponse, apiDefinition);
+	}
+
+	/****
+	 * Execute a GET request for document content through the document cache. The cached response is read by the
+	 * contentReader for each caller
+	 * 
+	 * @param documentCache
+	 *            the document cache
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param apiUrlPath
+	 *            request url
+	 * @param paramsMap
+	 *            map with API parameters
+	 * @param contentReader
+	 *            reads the result from the response content
+	 * @return the result read by the contentReader
+	 * @throws MambuApiException
+	 */
+	private <R> R executeDocumentCached(DocumentCache documentCache, final ApiDefinition apiDefinition,
+			final String apiUrlPath, final ParamsMap paramsMap, ContentReader<R> contentReader)
+			throws MambuApiException {
+
+		String requestKey = DocumentCache.makeRequestKey(apiUrlPath, paramsMap);
+
+		return documentCache.read(requestKey, contentReader,
+				downloader -> executeWithTimeouts(apiDefinition,
+						() -> mambuAPIService.executeRequest(apiUrlPath, paramsMap, apiDefinition, downloader)));
+	}
+
+	/**
+	 * Execute a request with the retry policy of the API definition, or else of the factory. Only idempotent requests
+	 * are retried. Each attempt has the timeouts of the API and goes through the circuit breaker of the factory, if one
+	 * is set. Requests reading or
+	 * writing streamed content are not executed through here, as their content can't be read or written again
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param request
+	 *            the request execution
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 */
+	private <T> T executeWithRetries(ApiDefinition apiDefinition, RetryPolicy.RetriableRequest<T> request)
+			throws MambuApiException {
+
+		RetryPolicy.RetriableRequest<T> timedRequest = () -> executeWithTimeouts(apiDefinition, request);
+		CircuitBreaker circuitBreaker = mambuAPIService.getCircuitBreaker();
+		RetryPolicy.RetriableRequest<T> attempt = circuitBreaker == null ? timedRequest : () -> circuitBreaker
+				.execute(CircuitBreaker.getEndpoint(apiDefinition), timedRequest);
+
+		RetryPolicy retryPolicy = apiDefinition.getRetryPolicy() != null ? apiDefinition.getRetryPolicy()
+				: mambuAPIService.getRetryPolicy();
+		if (retryPolicy == null || !apiDefinition.isIdempotent()) {
+			return attempt.execute();
 		}
+		return retryPolicy.execute(attempt);
+	}
+
+	/**
+	 * Execute a request with the timeouts of the API definition, or else of the timeout policy of the factory. The
+	 * request is executed in the workload lane of the service, unless the caller chose one
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param request
+	 *            the request execution
+	 * @return the result of the request
+	 * @throws MambuApiException
+	 *             with the {@link RequestTimeouts#TIMED_OUT} error code if the request timed out
+	 */
+	private <T> T executeWithTimeouts(ApiDefinition apiDefinition, RetryPolicy.RetriableRequest<T> request)
+			throws MambuApiException {
+
+		String lane = mambuAPIService.getLane();
+		if (lane != null && Bulkhead.getCurrentLane() == null) {
+			return Bulkhead.callInLane(lane, () -> executeWithTimeouts(apiDefinition, request));
+		}
+		RequestTimeouts timeouts = getTimeouts(apiDefinition);
+		return timeouts == null ? request.execute() : RequestTimeouts.callWithTimeouts(timeouts, request);
+	}
+
+	/**
+	 * Get the timeouts of the requests for the API definition
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @return the timeouts, or null to use the ones of the http client
+	 */
+	private RequestTimeouts getTimeouts(ApiDefinition apiDefinition) {
+
+		TimeoutPolicy timeoutPolicy = mambuAPIService.getTimeoutPolicy();
+		return timeoutPolicy != null ? timeoutPolicy.getTimeouts(apiDefinition) : apiDefinition.getTimeouts();
+	}
+
+	/**
+	 * Evicts the cached documents changed by a request, if a document cache is set. See
+	 * {@link DocumentCache#getChangedPaths(Method, String)}
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param apiUrlPath
+	 *            request url
+	 * @return true if the request changes documents
+	 */
+	private boolean invalidateDocuments(ApiDefinition apiDefinition, String apiUrlPath) {
+
+		DocumentCache documentCache = mambuAPIService.getDocumentCache();
+		if (documentCache == null) {
+			return false;
+		}
+		String apiUrl = mambuAPIService.createUrl("");
+		String urlPath = apiUrlPath.startsWith(apiUrl) ? apiUrlPath.substring(apiUrl.length()) : apiUrlPath;
+		List<String> changedPaths = DocumentCache.getChangedPaths(apiDefinition.getMethod(), urlPath);
+		for (String changedPath : changedPaths) {
+			documentCache.invalidate(mambuAPIService.createUrl(changedPath));
+		}
+		return !changedPaths.isEmpty();
+	}
+
+	/**
+	 * Adds the full details parameter to the params map if required by the apiDefintion specification
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @param paramsMap
+	 *            map with API parameters. Can be null
+	 * @return the params map to be used for the request
+	 */
+	private ParamsMap addFullDetailsParam(ApiDefinition apiDefinition, ParamsMap paramsMap) {
+
+		if (apiDefinition.getWithFullDetails()) {
+			if (paramsMap == null) {
+				paramsMap = new ParamsMap();
+			}
+			paramsMap.put(APIData.FULL_DETAILS, "true");
+		}
+		return paramsMap;
+	}
+
+	/**
+	 * Converts Mambu response string into the type specified by the return format of the apiDefintion
+	 * 
+	 * @param jsonResponse
+	 *            Mambu response string
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @return result object, which will be an API specific object, a list of objects, a Boolean or the response string
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> R processResponse(String jsonResponse, ApiDefinition apiDefinition) {
 
 		R result = null;
-		switch (returnFormat) {
+		switch (apiDefinition.getApiReturnFormat()) {
 		case OBJECT:
 			// Get Single Object from the response
 			result = getObject(jsonResponse, apiDefinition);
@@ -192,8 +842,8 @@ public class ServiceExecutor {
 			// This can be used for the services to perform any subsequent processing or for such APIs as getDocument()
 			result = (R) jsonResponse;
 			break;
-		case ZIP_ARCHIVE:
-			result = (R) byteArrayOutputStreamResult;
+		default:
+			break;
 		}
 
 		return result;
@@ -449,6 +1099,34 @@ public class ServiceExecutor {
 		return gson.fromJson(jsonResponse, collectionType);
 	}
 
+	/****
+	 * Create a ResponseReader deserializing Mambu's JSON response into the object or the list of objects specified by
+	 * the ApiDefinition. Gson reads the response content with a JsonReader, so no response string is created
+	 * 
+	 * @param apiDefinition
+	 *            API definition for the request. Its return format must be either OBJECT or COLLECTION
+	 * 
+	 * @return response reader returning an API specific object or a list of objects
+	 */
+	private <R> ResponseReader<R> createJsonResponseReader(ApiDefinition apiDefinition) {
+
+		// Create Gson with optional deserializers as per ApiDefinition
+		final Gson gson = GsonUtils.createDeserializerGson(apiDefinition);
+		// Get return class from ApiDefinition and make a collection type for it if a list is expected
+		Class<?> returnClass = apiDefinition.getReturnClass();
+		final Type returnType = apiDefinition.getApiReturnFormat() == ApiReturnFormat.COLLECTION
+				? getCollectionType(returnClass) : returnClass;
+
+		return new ResponseReader<R>() {
+
+			@Override
+			public R read(Reader reader) {
+
+				return gson.fromJson(reader, returnType);
+			}
+		};
+	}
+
 	/****
 	 * Get a boolean value represented by Mambu's response string
 	 * 
@@ -744,8 +1422,8 @@ public class ServiceExecutor {
 
 		Class<?> parentClass = parentEntity.getEntityClass();
 		Class<?> ownedEntityClass = postEntity.getClass();
-		ApiDefinition postDefinition = new ApiDefinition(ApiType.POST_OWNED_ENTITY, parentClass, ownedEntityClass);
-		postDefinition.setContentType(ContentType.JSON);
+		ApiDefinition postDefinition = new ApiDefinition(ApiType.POST_OWNED_ENTITY, parentClass, ownedEntityClass)
+				.withContentType(ContentType.JSON);
 
 		return executeJson(postDefinition, postEntity, parentId);
 	}
@@ -776,8 +1454,7 @@ public class ServiceExecutor {
 		Class<?> parentClass = parentEntity.getEntityClass();
 		Class<?> ownedEntityClass = postEntity.getClass();
 		ApiDefinition postDefinition = new ApiDefinition(ApiType.POST_OWNED_ENTITY, parentClass, ownedEntityClass,
-				resultClass);
-		postDefinition.setContentType(ContentType.JSON);
+				resultClass).withContentType(ContentType.JSON);
 
 		return executeJson(postDefinition, postEntity, parentId);
 	}
@@ -914,6 +1591,73 @@ public class ServiceExecutor {
 		return getPaginatedList(mambuEntity, offset, limit, false);
 	}
 
+	/**
+	 * Convenience method to iterate over all Mambu entities of a type. The entities are fetched page by page with
+	 * {@link #getPaginatedList(MambuEntityType, Integer, Integer, boolean)}, the next pages being fetched in the
+	 * background while the current one is consumed. See {@link PagedIterable}
+	 * 
+	 * @param mambuEntity
+	 *            Mambu entity
+	 * @param requiresFullDetails
+	 *            flag indicating if is a full call if true then 'fullDetails=true' parameter will be added to the calls
+	 * @param pageSize
+	 *            the number of entities requested for each page. Must be greater than zero
+	 * @param prefetchDepth
+	 *            how many pages are fetched in the background. Zero fetches each page only when needed
+	 * @return iterable over all entities
+	 */
+	public <R> PagedIterable<R> getPagedList(final MambuEntityType mambuEntity, final boolean requiresFullDetails,
+			int pageSize, int prefetchDepth) {
+
+		if (mambuEntity == null) {
+			throw new IllegalArgumentException("Mambu entity must not be null");
+		}
+		return getPagedList(
+				(offset, limit) -> this.<R> getPaginatedList(mambuEntity, offset, limit, requiresFullDetails),
+				pageSize, prefetchDepth);
+	}
+
+	/**
+	 * Iterate over all entities returned by a paginated API. The pages are fetched with the supplied page fetcher, the
+	 * next pages being fetched in the background while the current one is consumed. See {@link PagedIterable}
+	 * 
+	 * @param pageFetcher
+	 *            fetcher of one page, usually calling an API wrapper with offset and limit parameters
+	 * @param pageSize
+	 *            the number of entities requested for each page. Must be greater than zero
+	 * @param prefetchDepth
+	 *            how many pages are fetched in the background. Zero fetches each page only when needed
+	 * @return iterable over all entities
+	 */
+	public <R> PagedIterable<R> getPagedList(PageFetcher<R> pageFetcher, int pageSize, int prefetchDepth) {
+
+		Executor backgroundExecutor = mambuAPIService.getBackgroundExecutor();
+		if (backgroundExecutor == null) {
+			return new PagedIterable<>(pageFetcher, pageSize, prefetchDepth);
+		}
+		return getPagedList(pageFetcher, pageSize, prefetchDepth, backgroundExecutor);
+	}
+
+	/**
+	 * Iterate over all entities returned by a paginated API, the next pages being fetched in the background by the
+	 * supplied executor while the current one is consumed. See {@link PagedIterable}
+	 * 
+	 * @param pageFetcher
+	 *            fetcher of one page, usually calling an API wrapper with offset and limit parameters
+	 * @param pageSize
+	 *            the number of entities requested for each page. Must be greater than zero
+	 * @param prefetchDepth
+	 *            how many pages are fetched in the background. Zero fetches each page only when needed
+	 * @param executor
+	 *            executor fetching the pages in the background. Must not be null
+	 * @return iterable over all entities
+	 */
+	public <R> PagedIterable<R> getPagedList(PageFetcher<R> pageFetcher, int pageSize, int prefetchDepth,
+			Executor executor) {
+
+		return new PagedIterable<>(pageFetcher, pageSize, prefetchDepth, executor);
+	}
+
 	/**
 	 * Creates an ApiDefinition in order to get a list with basic or full details based on requiresFullDetails flag
 	 * 
@@ -983,7 +1727,8 @@ public class ServiceExecutor {
 	}
 
 	/**
-	 * POST JSON Transaction Request
+	 * POST JSON Transaction Request. If a {@link TransactionIdempotency} is set, the request is tagged with an
+	 * idempotency key and retried after transient failures, unless the transaction is found posted
 	 * 
 	 * @param accountId
 	 *            account id or encoded key. Must not be null
@@ -1002,8 +1747,20 @@ public class ServiceExecutor {
 		if (request == null || transactionTypeName == null || accountType == null || accountId == null) {
 			throw new IllegalArgumentException("All input parameters must not be null");
 		}
-		// Create Params Map containing JSON for the transaction request
-		ParamsMap paramsMap = ServiceHelper.makeParamsForTransactionRequest(transactionTypeName, request);
+		TransactionIdempotency transactionIdempotency = mambuAPIService.getTransactionIdempotency();
+		String idempotencyKey = null;
+		ParamsMap paramsMap;
+		if (transactionIdempotency == null) {
+			// Create Params Map containing JSON for the transaction request
+			paramsMap = ServiceHelper.makeParamsForTransactionRequest(transactionTypeName, request);
+		} else {
+			// Tag the JSON of this post with the key of the caller, or else with a new key
+			idempotencyKey = transactionIdempotency.getCallerKey(request);
+			if (idempotencyKey == null) {
+				idempotencyKey = TransactionIdempotency.makeIdempotencyKey();
+			}
+			paramsMap = transactionIdempotency.makeTaggedParams(transactionTypeName, request, idempotencyKey);
+		}
 
 		// Create API Definition specifying entity class and expected result class
 		Class<?> entityClass = accountType == Account.Type.LOAN ? LoanAccount.class : SavingsAccount.class;
@@ -1011,11 +1768,23 @@ public class ServiceExecutor {
 
 		// Make ApiDefinition to POST_OWNED_ENTITY using JSON format
 		ApiDefinition postJsonAccountTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY, entityClass,
-				transactionClass);
-		postJsonAccountTransaction.setContentType(ContentType.JSON);
+				transactionClass).withContentType(ContentType.JSON);
 
 		// Execute API request with ParamsMap containing JSON
 		// Returns LoanTransaction or SavingsTransaction (depending on accountType),
-		return execute(postJsonAccountTransaction, accountId, paramsMap);
+		if (transactionIdempotency == null) {
+			return execute(postJsonAccountTransaction, accountId, paramsMap);
+		}
+
+		// POST {JSONFilterConstraints} /api/loans/transactions/search or /api/savings/transactions/search
+		String entityUrl = accountType == Account.Type.LOAN ? APIData.LOANS : APIData.SAVINGS;
+		ApiDefinition searchTransactions = new ApiDefinition(entityUrl + "/" + APIData.TRANSACTIONS + "/"
+				+ APIData.SEARCH, ContentType.JSON, Method.POST, transactionClass, ApiReturnFormat.COLLECTION);
+		JSONFilterConstraints lookupConstraints = transactionIdempotency.makeLookupConstraints(idempotencyKey);
+
+		return transactionIdempotency.execute(idempotencyKey,
+				() -> execute(postJsonAccountTransaction, accountId, paramsMap),
+				() -> executeJson(searchTransactions, lookupConstraints, null, null,
+						ServiceHelper.makePaginationParams("0", "1")));
 	}
 }
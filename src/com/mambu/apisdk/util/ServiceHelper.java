@@ -25,6 +25,7 @@ import com.mambu.clients.shared.model.ClientExpanded;
 import com.mambu.clients.shared.model.GroupExpanded;
 import com.mambu.core.shared.model.CustomFieldValue;
 import com.mambu.core.shared.model.Money;
+import com.mambu.docs.shared.model.Document;
 import com.mambu.loans.shared.model.CustomPredefinedFee;
 import com.mambu.loans.shared.model.DisbursementDetails;
 import com.mambu.loans.shared.model.LoanAccount;
@@ -262,18 +263,7 @@ public class ServiceHelper {
 		// Gson.toJson(document) parser
 
 		// Create Json with the same document but with empty content
-		JSONDocument copy = new JSONDocument();
-		copy.setDocument(document.getDocument());
-		copy.setDocumentContent("");
-
-		// Parse modified JSONDocument with the blank content value
-		String jsonData = makeApiJson(copy);
-
-		// Add AppKey here - to avoid inserting it after the full string is made
-		String applicationKey = MambuAPIFactory.getApplicationKey();
-		if (applicationKey != null && applicationKey.length() > 0) {
-			jsonData = addAppkeyValueToJson(applicationKey, jsonData);
-		}
+		String jsonData = makeDocumentJsonTemplate(document.getDocument());
 
 		// Now insert back document content value into the generated JSON string
 		final String documentContent = document.getDocumentContent();
@@ -281,8 +271,7 @@ public class ServiceHelper {
 		finalJson.append(jsonData);
 
 		// Now find the position to insert document content (into the "" part of the "documentContent":"")
-		final String contentPair = "\"documentContent\":\"\"";
-		int insertPosition = finalJson.indexOf(contentPair) + contentPair.length() - 1;
+		int insertPosition = getDocumentContentPosition(jsonData);
 
 		// Insert document content
 		finalJson.insert(insertPosition, documentContent);
@@ -296,6 +285,49 @@ public class ServiceHelper {
 		return paramsMap;
 	}
 
+	/**
+	 * Make the JSON string for uploading a document with a blank document content value, and the appKey when set. The
+	 * encoded document content is to be inserted at the {@link #getDocumentContentPosition(String)}
+	 * 
+	 * @param document
+	 *            the document details
+	 * @return JSON string with "documentContent":""
+	 */
+	public static String makeDocumentJsonTemplate(Document document) {
+
+		JSONDocument copy = new JSONDocument();
+		copy.setDocument(document);
+		copy.setDocumentContent("");
+
+		// Parse JSONDocument with the blank content value
+		String jsonData = makeApiJson(copy);
+
+		// Add AppKey here - to avoid inserting it after the full string is made
+		String applicationKey = MambuAPIFactory.getApplicationKey();
+		if (applicationKey != null && applicationKey.length() > 0) {
+			jsonData = addAppkeyValueToJson(applicationKey, jsonData);
+		}
+		return jsonData;
+	}
+
+	/**
+	 * Get the position of the document content value in a JSON string made by
+	 * {@link #makeDocumentJsonTemplate(Document)}: the position of the closing quote of "documentContent":""
+	 * 
+	 * @param documentJsonTemplate
+	 *            JSON string with the blank document content value
+	 * @return position to insert the document content at
+	 */
+	public static int getDocumentContentPosition(String documentJsonTemplate) {
+
+		final String contentPair = "\"documentContent\":\"\"";
+		int contentPairPosition = documentJsonTemplate.indexOf(contentPair);
+		if (contentPairPosition < 0) {
+			throw new IllegalArgumentException("No document content in " + documentJsonTemplate);
+		}
+		return contentPairPosition + contentPair.length() - 1;
+	}
+
 	/**
 	 * Get Base64 encoded content from the API message containing bas64 encoding indicator and base64 encoded content
 	 * 
@@ -0,0 +1,105 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+
+/**
+ * Defines the {@link RequestTimeouts} of the API requests made through a factory. Timeouts can be set for an
+ * {@link ApiType} (e.g. short ones for GET_ENTITY), for an {@link ApiReturnFormat} (e.g. long ones for the ZIP_ARCHIVE
+ * database backups) and as the default for all the other requests. The timeouts set with
+ * {@link ApiDefinition.Builder#setTimeouts(RequestTimeouts)} take precedence, then the ones of the return format, of
+ * the API type and the default. Requests without any timeouts use the ones of the {@link HttpClientConfig}.
+ *
+ * This class is thread safe
+ */
+public class TimeoutPolicy {
+
+	private final ConcurrentMap<ApiType, RequestTimeouts> timeoutsByApiType = new ConcurrentHashMap<>();
+	private final ConcurrentMap<ApiReturnFormat, RequestTimeouts> timeoutsByReturnFormat = new ConcurrentHashMap<>();
+	private volatile RequestTimeouts defaultTimeouts;
+
+	/**
+	 * Set the timeouts of the requests of an API type
+	 *
+	 * @param apiType
+	 *            the API type
+	 * @param timeouts
+	 *            the timeouts. Null to remove them
+	 * @return this policy
+	 */
+	public TimeoutPolicy setTimeouts(ApiType apiType, RequestTimeouts timeouts) {
+
+		if (apiType == null) {
+			throw new IllegalArgumentException("Api type cannot be null");
+		}
+		if (timeouts == null) {
+			timeoutsByApiType.remove(apiType);
+		} else {
+			timeoutsByApiType.put(apiType, timeouts);
+		}
+		return this;
+	}
+
+	/**
+	 * Set the timeouts of the requests with an API return format
+	 *
+	 * @param returnFormat
+	 *            the API return format
+	 * @param timeouts
+	 *            the timeouts. Null to remove them
+	 * @return this policy
+	 */
+	public TimeoutPolicy setTimeouts(ApiReturnFormat returnFormat, RequestTimeouts timeouts) {
+
+		if (returnFormat == null) {
+			throw new IllegalArgumentException("Api return format cannot be null");
+		}
+		if (timeouts == null) {
+			timeoutsByReturnFormat.remove(returnFormat);
+		} else {
+			timeoutsByReturnFormat.put(returnFormat, timeouts);
+		}
+		return this;
+	}
+
+	/**
+	 * Set the timeouts of the requests not having timeouts for their API type or return format
+	 *
+	 * @param defaultTimeouts
+	 *            the timeouts. Null to use the ones of the http client
+	 * @return this policy
+	 */
+	public TimeoutPolicy setDefaultTimeouts(RequestTimeouts defaultTimeouts) {
+
+		this.defaultTimeouts = defaultTimeouts;
+		return this;
+	}
+
+	public RequestTimeouts getDefaultTimeouts() {
+
+		return defaultTimeouts;
+	}
+
+	/**
+	 * Get the timeouts of the requests for the api definition
+	 *
+	 * @param apiDefinition
+	 *            API definition for the request
+	 * @return the timeouts, or null to use the ones of the http client
+	 */
+	public RequestTimeouts getTimeouts(ApiDefinition apiDefinition) {
+
+		if (apiDefinition.getTimeouts() != null) {
+			return apiDefinition.getTimeouts();
+		}
+		RequestTimeouts timeouts = apiDefinition.getApiReturnFormat() == null ? null : timeoutsByReturnFormat
+				.get(apiDefinition.getApiReturnFormat());
+		if (timeouts == null && apiDefinition.getApiType() != null) {
+			timeouts = timeoutsByApiType.get(apiDefinition.getApiType());
+		}
+		return timeouts != null ? timeouts : defaultTimeouts;
+	}
+}
@@ -0,0 +1,223 @@
+package com.mambu.apisdk.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraint;
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
+import com.mambu.api.server.handler.loan.model.JSONTransactionRequest;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RetryPolicy.RetriableRequest;
+import com.mambu.core.shared.data.DataFieldType;
+import com.mambu.core.shared.data.FilterElement;
+import com.mambu.core.shared.model.CustomFieldValue;
+
+/**
+ * Makes the JSON transaction requests safe to retry (loan repayments, deposits, withdrawals and the other transactions
+ * posted with {@link ServiceExecutor#executeJSONTransactionRequest}).
+ *
+ * Each transaction is tagged with an idempotency key, stored in a transaction custom field. When posting the
+ * transaction fails with a transient error (see {@link RetryPolicy#isRetryable(MambuApiException)}), the transaction
+ * may still have been posted by Mambu: before posting it again, the transactions are searched by the idempotency key
+ * and the transaction found is returned instead. The custom field must be defined in Mambu for the loan and savings
+ * transactions.
+ *
+ * Callers can set the key themselves, as a custom field value of the request, to keep it across restarts of a batch.
+ * Otherwise a random key is generated for each post. The request of the caller is not changed, so that it can be
+ * reused for other transactions
+ */
+public class TransactionIdempotency {
+
+	private final static Logger LOGGER = Logger.getLogger(TransactionIdempotency.class.getName());
+
+	private final String customFieldId;
+	private volatile RetryPolicy retryPolicy = new RetryPolicy();
+
+	private final AtomicLong recoveredCount = new AtomicLong();
+	private final AtomicLong repostCount = new AtomicLong();
+
+	/**
+	 * Creates the idempotency of the transaction requests
+	 *
+	 * @param customFieldId
+	 *            the id of the transaction custom field holding the idempotency key. Must not be null
+	 */
+	public TransactionIdempotency(String customFieldId) {
+
+		if (customFieldId == null || customFieldId.isEmpty()) {
+			throw new IllegalArgumentException("Custom field id must not be null or empty");
+		}
+		this.customFieldId = customFieldId;
+	}
+
+	/**
+	 * Creates a new idempotency key
+	 *
+	 * @return a random key
+	 */
+	public static String makeIdempotencyKey() {
+
+		return UUID.randomUUID().toString();
+	}
+
+	/**
+	 * Get the idempotency key set by the caller on the transaction request
+	 *
+	 * @param request
+	 *            the transaction request
+	 * @return the idempotency key of the request or null if the caller set none
+	 */
+	String getCallerKey(JSONTransactionRequest request) {
+
+		List<CustomFieldValue> customInformation = request.getCustomInformation();
+		if (customInformation != null) {
+			for (CustomFieldValue fieldValue : customInformation) {
+				if (customFieldId.equals(fieldValue.getCustomFieldId()) && fieldValue.getValue() != null
+						&& !fieldValue.getValue().isEmpty()) {
+					return fieldValue.getValue();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Makes the params posting the transaction request tagged with its idempotency key. The request itself is not
+	 * tagged: a request reused for another post gets a new key
+	 *
+	 * @param transactionTypeName
+	 *            transaction type name. E.g. REPAYMENT, DEPOSIT
+	 * @param request
+	 *            the transaction request
+	 * @param idempotencyKey
+	 *            the idempotency key of this post, see {@link #getCallerKey(JSONTransactionRequest)}
+	 * @return params map with the JSON of the tagged request
+	 */
+	ParamsMap makeTaggedParams(String transactionTypeName, JSONTransactionRequest request, String idempotencyKey) {
+
+		ParamsMap paramsMap = ServiceHelper.makeParamsForTransactionRequest(transactionTypeName, request);
+		if (idempotencyKey.equals(getCallerKey(request))) {
+			return paramsMap;
+		}
+		CustomFieldValue keyValue = new CustomFieldValue();
+		keyValue.setCustomFieldId(customFieldId);
+		keyValue.setValue(idempotencyKey);
+
+		// Add the key to the JSON of the request: {..., "customInformation":[..., {"customFieldId":..., "value":...}]}
+		Gson gson = GsonUtils.createGson();
+		JsonObject requestJson = gson.fromJson(paramsMap.get(APIData.JSON_OBJECT), JsonObject.class);
+		JsonElement customInformation = requestJson.get(APIData.CUSTOM_INFORMATION_FIELD);
+		JsonArray taggedInformation = customInformation != null && customInformation.isJsonArray()
+				? customInformation.getAsJsonArray() : new JsonArray();
+		taggedInformation.add(gson.toJsonTree(keyValue));
+		requestJson.add(APIData.CUSTOM_INFORMATION_FIELD, taggedInformation);
+		paramsMap.put(APIData.JSON_OBJECT, gson.toJson(requestJson));
+		return paramsMap;
+	}
+
+	/**
+	 * Makes the filter constraints to search the transactions tagged with an idempotency key
+	 *
+	 * @param idempotencyKey
+	 *            the idempotency key
+	 * @return filter constraints
+	 */
+	JSONFilterConstraints makeLookupConstraints(String idempotencyKey) {
+
+		// { "filterSelection":"IdempotencyKey", "dataFieldType":"CUSTOM", "filterElement":"EQUALS_CASE_SENSITIVE",
+		// "value":"7f8e5b2c-..." }
+		JSONFilterConstraint constraint = new JSONFilterConstraint();
+		constraint.setDataFieldType(DataFieldType.CUSTOM.name());
+		constraint.setFilterSelection(customFieldId);
+		constraint.setFilterElement(FilterElement.EQUALS_CASE_SENSITIVE.name());
+		constraint.setValue(idempotencyKey);
+
+		JSONFilterConstraints filterConstraints = new JSONFilterConstraints();
+		filterConstraints.setFilterConstraints(Collections.singletonList(constraint));
+		return filterConstraints;
+	}
+
+	/**
+	 * Posts a tagged transaction with the retry policy, looking the transaction up before posting it again
+	 *
+	 * @param idempotencyKey
+	 *            the idempotency key of the transaction
+	 * @param post
+	 *            posts the transaction
+	 * @param lookup
+	 *            searches the transactions tagged with the idempotency key
+	 * @return the posted transaction, or the transaction found by the lookup
+	 * @throws MambuApiException
+	 *             the exception of the last attempt
+	 */
+	<R> R execute(final String idempotencyKey, final RetriableRequest<R> post, final RetriableRequest<List<R>> lookup)
+			throws MambuApiException {
+
+		final AtomicBoolean posted = new AtomicBoolean();
+		return retryPolicy.execute(() -> {
+			if (posted.getAndSet(true)) {
+				// The previous attempt may have been posted, even if it failed
+				List<R> transactions = lookup.execute();
+				if (transactions != null && !transactions.isEmpty()) {
+					LOGGER.info("Transaction " + idempotencyKey + " was posted by a failed attempt");
+					recoveredCount.incrementAndGet();
+					return transactions.get(0);
+				}
+				repostCount.incrementAndGet();
+			}
+			return post.execute();
+		});
+	}
+
+	public String getCustomFieldId() {
+
+		return customFieldId;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the retry policy of the transaction requests
+	 *
+	 * @param retryPolicy
+	 *            the retry policy. Must not be null
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+
+		if (retryPolicy == null) {
+			throw new IllegalArgumentException("Retry policy must not be null");
+		}
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Get the number of transactions found posted after their request failed, which were not posted again
+	 *
+	 * @return number of recovered transactions
+	 */
+	public long getRecoveredCount() {
+
+		return recoveredCount.get();
+	}
+
+	/**
+	 * Get the number of transactions posted again, after they were not found posted by a failed request
+	 *
+	 * @return number of transactions posted again
+	 */
+	public long getRepostCount() {
+
+		return repostCount.get();
+	}
+}
@@ -4,6 +4,8 @@ import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 
+import java.io.StringReader;
+
 import org.junit.Before;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -12,6 +14,9 @@ import org.mockito.stubbing.Answer;
 import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.ResponseReader;
 import com.mambu.apisdk.util.URLHelper;
 
 /***
@@ -48,6 +53,21 @@ public class ServiceTestBase {
 			}
 		});
 
+		// Requests reading their result directly from the response are delegated to the String requests, so that the
+		// tests can verify all requests against executeRequest(url, params, method, contentType)
+		when(executor.executeRequest(anyString(), (ParamsMap) anyObject(), (Method) anyObject(),
+				(ContentType) anyObject(), (ResponseReader<?>) anyObject())).thenAnswer(new Answer<Object>() {
+
+					@Override
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						Object[] arguments = invocation.getArguments();
+						String response = executor.executeRequest((String) arguments[0], (ParamsMap) arguments[1],
+								(Method) arguments[2], (ContentType) arguments[3]);
+						return response == null ? null
+								: ((ResponseReader<?>) arguments[4]).read(new StringReader(response));
+					}
+				});
+
 		when(mockUrlHelper.createUrlWithParams(anyString(), (ParamsMap) anyObject())).thenAnswer(new Answer<String>() {
 
 			@Override
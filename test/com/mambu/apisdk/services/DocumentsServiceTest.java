@@ -1,11 +1,38 @@
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.mambu.api.server.handler.documents.model.JSONDocument;
 import com.mambu.apisdk.ServiceTestBase;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.APIData.IMAGE_SIZE_TYPE;
+import com.mambu.apisdk.util.ContentWriter;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
@@ -18,6 +45,18 @@ import com.mambu.docs.shared.model.OwnerType;
  */
 public class DocumentsServiceTest extends ServiceTestBase {
 
+	private static final byte[] SAMPLE_CONTENT = "This is a sample text document in UTF-8 with special characters like \u00e4\u00f6\u00fc=\u00e9'\"."
+			.getBytes(StandardCharsets.UTF_8);
+	private static final String SAMPLE_DOCUMENT_JSON = "{\"document\":"
+			+ "{\"documentHolderKey\":\"8a38a2c9415022670141507a1eb4001c\"," + "\"documentHolderType\":\"CLIENT\","
+			+ "\"name\":\"sample.txt\"," + "\"type\":\"txt\"," + "\"originalFilename\":\"sample-original.txt\","
+			+ "\"description\":\"Sample text file\"," + "\"createdByUserKey\":\"8a3615ef414e97d301415007253359f7\"},"
+			+ "\"documentContent\":\"VGhpcyBpcyBhIHNhbXBsZSB0ZXh0IGRvY3VtZW50IGluIFVURi04IHdpdGggc3BlY2lhbCBjaGFyYWN0ZXJzIGxpa2Ugw6TDtsO8PcOpJyIu\""
+			+ "}";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	private DocumentsService service;
 
 	@Override
@@ -66,4 +105,102 @@ public class DocumentsServiceTest extends ServiceTestBase {
 				ContentType.JSON);
 	}
 
+	@Test
+	public void uploadDocumentFromFile() throws Exception {
+
+		// setup
+		Path file = temporaryFolder.newFile("sample.txt").toPath();
+		Files.write(file, SAMPLE_CONTENT);
+
+		// execute
+		service.uploadDocument(createSampleDocument(), file);
+
+		// verify the body streamed is the same as the one made in memory
+		ArgumentCaptor<ContentWriter> contentWriter = ArgumentCaptor.forClass(ContentWriter.class);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/documents"), eq(Method.POST),
+				eq(ContentType.JSON), contentWriter.capture());
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		contentWriter.getValue().writeTo(body);
+		assertEquals(SAMPLE_DOCUMENT_JSON, body.toString(StandardCharsets.UTF_8.name()));
+		assertEquals(body.size(), contentWriter.getValue().getContentLength());
+		assertTrue(contentWriter.getValue().isRepeatable());
+	}
+
+	@Test
+	public void uploadDocumentFromStream() throws Exception {
+
+		// execute
+		service.uploadDocument(createSampleDocument(), new ByteArrayInputStream(SAMPLE_CONTENT));
+
+		// verify the body is sent chunked, as its length is not known
+		ArgumentCaptor<ContentWriter> contentWriter = ArgumentCaptor.forClass(ContentWriter.class);
+		Mockito.verify(executor).executeRequest(eq("https://demo.mambutest.com/api/documents"), eq(Method.POST),
+				eq(ContentType.JSON), contentWriter.capture());
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		contentWriter.getValue().writeTo(body);
+		assertEquals(SAMPLE_DOCUMENT_JSON, body.toString(StandardCharsets.UTF_8.name()));
+		assertEquals(-1, contentWriter.getValue().getContentLength());
+		assertFalse(contentWriter.getValue().isRepeatable());
+	}
+
+	private static Document createSampleDocument() {
+
+		Document document = new Document();
+		document.setCreatedByUserKey("8a3615ef414e97d301415007253359f7");
+		document.setDescription("Sample text file");
+		document.setDocumentHolderKey("8a38a2c9415022670141507a1eb4001c");
+		document.setDocumentHolderType(OwnerType.CLIENT);
+		document.setName("sample.txt");
+		document.setOriginalFilename("sample-original.txt");
+		document.setType("txt");
+		return document;
+	}
+
+	@Test
+	public void getDocumentAndImageConcurrently() throws Exception {
+
+		// the executor answers with the requested url, so that each call can check it got its own response
+		when(executor.executeRequest(anyString(), (ParamsMap) anyObject(), (Method) anyObject(),
+				(ContentType) anyObject())).thenAnswer(new Answer<String>() {
+
+					@Override
+					public String answer(InvocationOnMock invocation) {
+						return "\"data:image/png;base64," + invocation.getArguments()[0] + "\"";
+					}
+				});
+
+		final int threads = 8;
+		final int iterations = 200;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<String>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < threads; i++) {
+				final int thread = i;
+				results.add(pool.submit(new Callable<String>() {
+
+					@Override
+					public String call() throws MambuApiException {
+
+						for (int j = 0; j < iterations; j++) {
+							String id = thread + "-" + j;
+							String response = thread % 2 == 0 ? service.getDocument(id)
+									: service.getImage(id, IMAGE_SIZE_TYPE.SMALL_THUMB);
+							String expectedUrl = thread % 2 == 0 ? "https://demo.mambutest.com/api/documents/" + id
+									: "https://demo.mambutest.com/api/images/" + id;
+							if (!response.contains(expectedUrl)) {
+								return response;
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<String> result : results) {
+				assertEquals(null, result.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 }
@@ -1,8 +1,11 @@
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -10,6 +13,9 @@ import org.mockito.Mockito;
 import com.mambu.accounts.shared.model.AccountHolderType;
 import com.mambu.apisdk.ServiceTestBase;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.EntityCache;
+import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
@@ -154,4 +160,29 @@ public class LoanServiceTest extends ServiceTestBase {
 				"https://demo.mambutest.com/api/loans/8ad661123b36cfaf013b42c2e0f46dca/transactions", params,
 				Method.POST, ContentType.WWW_FORM);
 	}
+
+	@Test
+	public void getLoanAccountWithEntityCache() throws MambuApiException {
+
+		// setup
+		EntityCache entityCache = new EntityCache(1, TimeUnit.HOURS, MambuEntityType.LOAN_ACCOUNT);
+		mambuApiService.setEntityCache(entityCache);
+		String accountUrl = "https://demo.mambutest.com/api/loans/ABC123";
+		ParamsMap params = new ParamsMap();
+		params.addParam(APIData.FULL_DETAILS, "true");
+		Mockito.when(executor.executeRequest(accountUrl, params, Method.GET, ContentType.WWW_FORM)).thenReturn(
+				"{\"id\":\"ABC123\",\"encodedKey\":\"8ad661123b36cfaf013b42c2e0f46dca\"}");
+
+		// execute: a repayment made with the encoded key evicts the account read with its id
+		service.getLoanAccount("ABC123");
+		service.getLoanAccount("ABC123");
+		service.makeLoanRepayment("8ad661123b36cfaf013b42c2e0f46dca", new Money(100.00), null, null, null, null);
+		LoanAccount account = service.getLoanAccount("ABC123");
+
+		// verify
+		assertEquals("ABC123", account.getId());
+		Mockito.verify(executor, Mockito.times(2)).executeRequest(accountUrl, params, Method.GET, ContentType.WWW_FORM);
+		assertEquals(1, entityCache.getHitCount());
+		assertEquals(1, entityCache.getInvalidationCount());
+	}
 }
@@ -1,15 +1,24 @@
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.mambu.apisdk.ServiceTestBase;
 import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.InMemoryResponseCache;
 import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RequestCoalescer;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.ResponseCachePolicy;
 import com.mambu.core.shared.model.CustomFieldType;
+import com.mambu.organization.shared.model.Branch;
 
 /**
  * @author ipenciuc
@@ -64,6 +73,25 @@ public class OrganizationServiceTest extends ServiceTestBase {
 				Method.GET, ContentType.WWW_FORM);
 	}
 
+	@Test
+	public void testGetBranchWithRequestCoalescing() throws MambuApiException {
+
+		// setup
+		RequestCoalescer requestCoalescer = new RequestCoalescer();
+		mambuApiService.setRequestCoalescer(requestCoalescer);
+
+		// execute
+		service.getBranch("branch_123");
+
+		// verify: coalesced requests use the response string, the request is otherwise unchanged
+		ParamsMap params = new ParamsMap();
+		params.put(APIData.FULL_DETAILS, "true");
+
+		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/branches/branch_123", params,
+				Method.GET, ContentType.WWW_FORM);
+		assertEquals(1, requestCoalescer.getExecutedCount());
+	}
+
 	@Test
 	public void testGetBranches() throws MambuApiException {
 
@@ -81,6 +109,32 @@ public class OrganizationServiceTest extends ServiceTestBase {
 				ContentType.WWW_FORM);
 	}
 
+	@Test
+	public void testGetBranchesWithResponseCache() throws MambuApiException {
+
+		// setup
+		InMemoryResponseCache responseCache = new InMemoryResponseCache();
+		mambuApiService.setResponseCache(responseCache,
+				ResponseCachePolicy.forConfigurationData(1, TimeUnit.HOURS));
+		ParamsMap params = new ParamsMap();
+		params.put(APIData.OFFSET, "0");
+		params.put(APIData.LIMIT, "100");
+		Mockito.when(executor.executeRequest("https://demo.mambutest.com/api/branches", params, Method.GET,
+				ContentType.WWW_FORM)).thenReturn("[{\"id\":\"branch_123\"}]");
+
+		// execute
+		service.getBranches("0", "100");
+		service.getBranches("0", "100");
+		responseCache.invalidate(Branch.class);
+		service.getBranches("0", "100");
+
+		// verify: the second call is answered from the cache, the third loads the branches again
+		Mockito.verify(executor, times(2)).executeRequest("https://demo.mambutest.com/api/branches", params,
+				Method.GET, ContentType.WWW_FORM);
+		assertEquals(1, responseCache.getStatistics().getHitCount());
+		assertEquals(2, responseCache.getStatistics().getMissCount());
+	}
+
 	@Test
 	public void testGetCentre() throws MambuApiException {
 
@@ -0,0 +1,65 @@
+package com.mambu.apisdk.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
+import com.mambu.apisdk.ServiceTestBase;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.loans.shared.model.LoanTransaction;
+
+public class SearchServiceTest extends ServiceTestBase {
+
+	private SearchService service;
+
+	@Override
+	public void setUp() throws MambuApiException {
+		super.setUp();
+
+		service = new SearchService(super.mambuApiService);
+	}
+
+	@Test
+	public void searchAllEntitiesWithFullDetails() throws MambuApiException {
+
+		// two full pages of two transactions and a last page with one transaction
+		when(executor.executeRequest(anyString(), (ParamsMap) anyObject(), (Method) anyObject(),
+				(ContentType) anyObject())).thenAnswer(new Answer<String>() {
+
+					@Override
+					public String answer(InvocationOnMock invocation) {
+						ParamsMap params = (ParamsMap) invocation.getArguments()[1];
+						int offset = Integer.parseInt(params.get(APIData.OFFSET));
+						StringBuilder page = new StringBuilder("[");
+						for (int i = offset; i < Math.min(offset + 2, 5); i++) {
+							page.append(i > offset ? "," : "").append("{\"transactionId\":").append(i).append("}");
+						}
+						return page.append("]").toString();
+					}
+				});
+
+		// execute
+		List<LoanTransaction> transactions = service.searchAllEntitiesWithFullDetails(
+				MambuEntityType.LOAN_TRANSACTION, new JSONFilterConstraints(), 2, 3);
+
+		// verify
+		assertEquals(5, transactions.size());
+		for (int i = 0; i < transactions.size(); i++) {
+			assertEquals(Long.valueOf(i), transactions.get(i).getTransactionId());
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.mambu.apisdk.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.json.ClientPatchJsonSerializer;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanTransaction;
+
+public class ApiDefinitionTest {
+
+	@Test
+	public void givenApiDefinitionWhenWithMethodsAreCalledThenOriginalIsNotChanged() {
+
+		// setup
+		ApiDefinition postTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY, LoanAccount.class,
+				LoanTransaction.class);
+
+		// execute
+		ApiDefinition jsonTransaction = postTransaction.withContentType(ContentType.JSON);
+		ApiDefinition transactionsList = postTransaction.withApiReturnFormat(ApiReturnFormat.COLLECTION);
+		ApiDefinition fullDetails = postTransaction.withFullDetails(true);
+
+		// verify
+		assertThat(postTransaction.getContentType(), is(ContentType.WWW_FORM));
+		assertThat(postTransaction.getApiReturnFormat(), is(ApiReturnFormat.OBJECT));
+		assertThat(postTransaction.getWithFullDetails(), is(false));
+
+		assertThat(jsonTransaction.getContentType(), is(ContentType.JSON));
+		assertThat(jsonTransaction.getEndPoint(), is(postTransaction.getEndPoint()));
+		assertThat(jsonTransaction.getRelatedEntity(), is(postTransaction.getRelatedEntity()));
+		assertThat(transactionsList.getApiReturnFormat(), is(ApiReturnFormat.COLLECTION));
+		assertThat(transactionsList.getContentType(), is(ContentType.WWW_FORM));
+		assertThat(fullDetails.getWithFullDetails(), is(true));
+	}
+
+	@Test
+	public void givenBuilderWhenSerializerIsAddedThenOriginalDefinitionHasNoSerializers() {
+
+		// setup
+		ApiDefinition patchClient = new ApiDefinition(ApiType.PATCH_ENTITY, Client.class);
+
+		// execute
+		ApiDefinition patchWithSerializer = patchClient.toBuilder()
+				.addJsonSerializer(Client.class, new ClientPatchJsonSerializer()).build();
+
+		// verify
+		assertThat(patchClient.getJsonSerializers().isEmpty(), is(true));
+		assertThat(patchWithSerializer.getJsonSerializers().size(), is(1));
+		assertThat(patchWithSerializer.getEndPoint(), is(patchClient.getEndPoint()));
+	}
+
+	@Test
+	public void givenApiDefinitionWhenReturnedSerializersAreModifiedThenDefinitionIsUnchanged() {
+
+		ApiDefinition patchClient = new ApiDefinition(ApiType.PATCH_ENTITY, Client.class);
+
+		patchClient.getJsonSerializers().put(Client.class, new ClientPatchJsonSerializer());
+
+		assertThat(patchClient.getJsonSerializers().isEmpty(), is(true));
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void givenDefinitionOfClientCodeWhenDeprecatedSettersAreUsedThenDefinitionIsChanged() {
+
+		// setup
+		ApiDefinition patchClient = new ApiDefinition(ApiType.PATCH_ENTITY, Client.class);
+		ApiDefinition copy = patchClient.withFullDetails(false);
+
+		// execute
+		patchClient.setContentType(ContentType.WWW_FORM);
+		patchClient.addJsonSerializer(Client.class, new ClientPatchJsonSerializer());
+
+		// verify: copies made before are not changed
+		assertThat(patchClient.getContentType(), is(ContentType.WWW_FORM));
+		assertThat(patchClient.getJsonSerializers().size(), is(1));
+		assertThat(copy.getContentType(), is(ContentType.JSON));
+		assertThat(copy.getJsonSerializers().isEmpty(), is(true));
+	}
+
+	@Test
+	public void givenSharedApiDefinitionWhenVariantsAreMadeConcurrentlyThenEachVariantIsConsistent()
+			throws Exception {
+
+		// setup
+		final ApiDefinition postTransaction = new ApiDefinition(ApiType.POST_OWNED_ENTITY, LoanAccount.class,
+				LoanTransaction.class);
+		final int threads = 8;
+		final int iterations = 1000;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Boolean>> results = new ArrayList<>();
+
+		// execute: half of the threads ask for JSON, the other half for a collection. With shared mutable definitions
+		// one thread could see the settings of the other
+		try {
+			for (int i = 0; i < threads; i++) {
+				final boolean json = i % 2 == 0;
+				results.add(pool.submit(new Callable<Boolean>() {
+
+					@Override
+					public Boolean call() {
+
+						for (int j = 0; j < iterations; j++) {
+							ApiDefinition variant = json ? postTransaction.withContentType(ContentType.JSON)
+									: postTransaction.withApiReturnFormat(ApiReturnFormat.COLLECTION);
+							ContentType expectedContentType = json ? ContentType.JSON : ContentType.WWW_FORM;
+							ApiReturnFormat expectedFormat = json ? ApiReturnFormat.OBJECT : ApiReturnFormat.COLLECTION;
+							if (variant.getContentType() != expectedContentType
+									|| variant.getApiReturnFormat() != expectedFormat) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+
+			// verify
+			for (Future<Boolean> result : results) {
+				assertThat(result.get(), is(true));
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertThat(postTransaction.getContentType(), is(ContentType.WWW_FORM));
+		assertThat(postTransaction.getApiReturnFormat(), is(ApiReturnFormat.OBJECT));
+	}
+}
@@ -0,0 +1,220 @@
+package com.mambu.apisdk.util;
+
+import static com.mambu.apisdk.util.RequestExecutor.ContentType.WWW_FORM;
+import static com.mambu.apisdk.util.RequestExecutor.Method.GET;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncRequestExecutorImplTest {
+
+	private static final String SOME_URL = "someUrl";
+	private static final String SOME_USER_AGENT = "someUserAgent";
+	private static final String SOME_API_KEY = "someApiKey";
+	private static final String SOME_DATA = "some data";
+
+	private static final String APIKEY_HEADER_NAME = "apikey";
+
+	@Mock
+	private URLHelper urlHelperMock;
+	@Mock
+	private HttpClientProvider httpClientProviderMock;
+	@Mock
+	private HttpAsyncClient asyncHttpClientMock;
+	@Mock(answer = Answers.RETURNS_DEEP_STUBS)
+	private HttpResponse httpResponseMock;
+
+	private RequestExecutorImpl requestExecutor;
+	private AsyncRequestExecutorImpl asyncRequestExecutor;
+
+	@Before
+	public void setUp() throws Exception {
+
+		mockUrlHelperMock();
+		when(httpClientProviderMock.getAsyncHttpClient()).thenReturn(asyncHttpClientMock);
+
+		requestExecutor = new RequestExecutorImpl(httpClientProviderMock, urlHelperMock);
+		requestExecutor.setAuthorization(SOME_API_KEY);
+
+		asyncRequestExecutor = new AsyncRequestExecutorImpl(httpClientProviderMock, requestExecutor);
+	}
+
+	@Test
+	public void givenOkResponseWhenExecuteRequestThenFutureIsCompletedWithResponse() throws Exception {
+
+		// execute
+		CompletableFuture<String> future = asyncRequestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM);
+		completeRequest(HTTP_OK);
+
+		// verify
+		assertThat(future.get(), is(SOME_DATA));
+		assertThat(getSentRequest().getFirstHeader(APIKEY_HEADER_NAME).getValue(), is(SOME_API_KEY));
+	}
+
+	@Test
+	public void givenErrorResponseWhenExecuteRequestThenFutureFailsWithMambuApiException() throws Exception {
+
+		// execute
+		CompletableFuture<String> future = asyncRequestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM);
+		completeRequest(HTTP_BAD_REQUEST);
+
+		// verify
+		MambuApiException exception = getFailure(future);
+		assertThat(exception.getErrorCode(), is(HTTP_BAD_REQUEST));
+		assertThat(exception.getErrorMessage(), is(SOME_DATA));
+	}
+
+	@Test
+	public void givenIOFailureWhenExecuteRequestThenFutureFailsWithMambuApiException() throws Exception {
+
+		// execute
+		CompletableFuture<String> future = asyncRequestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM);
+		getCallback().failed(new IOException("connection reset"));
+
+		// verify
+		MambuApiException exception = getFailure(future);
+		assertThat(exception.getCause(), instanceOf(IOException.class));
+	}
+
+	@Test
+	public void givenNoPermitAvailableWhenExecuteRequestThenCallerIsNotBlockedAndRequestIsSentLater()
+			throws Exception {
+
+		// setup: the only permit is taken, the next one comes in 200 ms
+		RateLimiter rateLimiter = new RateLimiter(5, 1, 5, 1);
+		rateLimiter.acquire(GET);
+		requestExecutor.setRateLimiter(rateLimiter);
+
+		// execute
+		long start = System.nanoTime();
+		CompletableFuture<String> future = asyncRequestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM);
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// verify
+		assertThat(elapsedMillis < 100, is(true));
+		verify(asyncHttpClientMock, never()).execute(any(HttpUriRequest.class), any(FutureCallback.class));
+		verify(asyncHttpClientMock, timeout(5000)).execute(any(HttpUriRequest.class), any(FutureCallback.class));
+		completeRequest(HTTP_OK);
+		assertThat(future.get(), is(SOME_DATA));
+		assertThat(rateLimiter.getWaitCount(), is(1L));
+	}
+
+	@Test
+	public void givenSaturatedLaneWhenExecuteRequestThenCallerIsNotBlockedAndRequestIsSentOnceSlotIsFree()
+			throws Exception {
+
+		// setup: the only slot of the lane is taken
+		Bulkhead bulkhead = new Bulkhead().setLane(Bulkhead.INTERACTIVE, 1, 10, 5000);
+		requestExecutor.setBulkhead(bulkhead);
+		Bulkhead.Lane held = bulkhead.acquire();
+		Bulkhead.Lane lane = bulkhead.getLane(Bulkhead.INTERACTIVE);
+
+		// execute
+		long start = System.nanoTime();
+		CompletableFuture<String> future = asyncRequestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM);
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// verify: the request is queued in its lane, and sent once the slot is released
+		assertThat(elapsedMillis < 100, is(true));
+		assertThat(lane.getQueuedCount(), is(1));
+		verify(asyncHttpClientMock, never()).execute(any(HttpUriRequest.class), any(FutureCallback.class));
+		held.release();
+		completeRequest(HTTP_OK);
+		assertThat(future.get(), is(SOME_DATA));
+		assertThat(lane.getActiveCount(), is(0));
+		assertThat(lane.getRequestCount(), is(2L));
+	}
+
+	@Test
+	public void givenQueuedRequestWhenFutureIsCancelledThenRequestLeavesTheQueue() throws Exception {
+
+		// setup
+		Bulkhead bulkhead = new Bulkhead().setLane(Bulkhead.INTERACTIVE, 1, 10, 5000);
+		requestExecutor.setBulkhead(bulkhead);
+		Bulkhead.Lane held = bulkhead.acquire();
+		Bulkhead.Lane lane = bulkhead.getLane(Bulkhead.INTERACTIVE);
+		CompletableFuture<String> future = asyncRequestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM);
+
+		// execute
+		future.cancel(false);
+		held.release();
+
+		// verify: the freed slot is not handed over to the cancelled request
+		assertThat(lane.getQueuedCount(), is(0));
+		assertThat(lane.getActiveCount(), is(0));
+		verify(asyncHttpClientMock, never()).execute(any(HttpUriRequest.class), any(FutureCallback.class));
+	}
+
+	private void completeRequest(int status) throws IOException {
+
+		when(httpResponseMock.getStatusLine().getStatusCode()).thenReturn(status);
+		when(httpResponseMock.getEntity()).thenReturn(new StringEntity(SOME_DATA));
+
+		getCallback().completed(httpResponseMock);
+	}
+
+	@SuppressWarnings("unchecked")
+	private FutureCallback<HttpResponse> getCallback() {
+
+		ArgumentCaptor<FutureCallback> callbackCaptor = ArgumentCaptor.forClass(FutureCallback.class);
+		verify(asyncHttpClientMock).execute(any(HttpUriRequest.class), callbackCaptor.capture());
+
+		return callbackCaptor.getValue();
+	}
+
+	private HttpUriRequest getSentRequest() {
+
+		ArgumentCaptor<HttpUriRequest> requestCaptor = ArgumentCaptor.forClass(HttpUriRequest.class);
+		verify(asyncHttpClientMock).execute(requestCaptor.capture(), any(FutureCallback.class));
+
+		return requestCaptor.getValue();
+	}
+
+	private static MambuApiException getFailure(CompletableFuture<?> future) throws InterruptedException {
+
+		try {
+			future.get();
+			fail("Future was expected to fail");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), instanceOf(MambuApiException.class));
+			return (MambuApiException) e.getCause();
+		}
+		return null;
+	}
+
+	private void mockUrlHelperMock() {
+
+		when(urlHelperMock.addJsonPaginationParams(SOME_URL, GET, WWW_FORM, null)).thenReturn(SOME_URL);
+		when(urlHelperMock.addDetailsParam(SOME_URL, GET, WWW_FORM, null)).thenReturn(SOME_URL);
+		when(urlHelperMock.userAgentHeaderValue()).thenReturn(SOME_USER_AGENT);
+	}
+}
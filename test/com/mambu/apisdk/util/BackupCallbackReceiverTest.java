@@ -0,0 +1,213 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.DatabaseBackupResponse;
+import com.mambu.apisdk.model.DownloadResult;
+import com.mambu.apisdk.model.Protocol;
+import com.mambu.apisdk.services.DatabaseService;
+import com.mambu.apisdk.util.BackupCallbackReceiver.Callback;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class BackupCallbackReceiverTest {
+
+	private static final String BACKUP_RESPONSE = "{\"returnCode\":\"0\",\"returnStatus\":\"SUCCESS\"}";
+	private static final String FAILED_BACKUP_RESPONSE = "{\"returnCode\":\"500\",\"returnStatus\":\"INTERNAL_ERROR\"}";
+	private static final Pattern CALLBACK = Pattern.compile("\"callback\":\"([^\"]+)\"");
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private BackupCallbackReceiver receiver;
+
+	@Before
+	public void setUp() throws IOException {
+
+		receiver = new BackupCallbackReceiver(new InetSocketAddress("localhost", 0));
+		receiver.start();
+	}
+
+	@After
+	public void tearDown() {
+
+		receiver.close();
+	}
+
+	@Test
+	public void givenRegisteredCallbackWhenMambuCallsItThenFutureIsCompletedOnce() throws Exception {
+
+		// setup
+		Callback callback = receiver.register();
+		assertTrue(callback.getUrl().startsWith(receiver.getBaseUrl() + BackupCallbackReceiver.CALLBACK_PATH));
+		assertEquals(1, receiver.getPendingCallbacks());
+
+		// execute
+		int status = post(callback.getUrl(), BACKUP_RESPONSE);
+
+		// verify
+		assertEquals(200, status);
+		DatabaseBackupResponse response = callback.getFuture().get(5, TimeUnit.SECONDS);
+		assertEquals("SUCCESS", response.getReturnStatus());
+		assertEquals(0, receiver.getPendingCallbacks());
+		assertEquals(404, post(callback.getUrl(), BACKUP_RESPONSE));
+	}
+
+	@Test
+	public void givenUnknownCallbackUrlWhenCalledThenItIsRejected() throws Exception {
+
+		Callback callback = receiver.register();
+
+		assertEquals(404, post(receiver.getBaseUrl() + BackupCallbackReceiver.CALLBACK_PATH + "unknown", ""));
+		HttpURLConnection connection = (HttpURLConnection) new URL(callback.getUrl()).openConnection();
+		assertEquals(405, connection.getResponseCode());
+		assertEquals(1, receiver.getPendingCallbacks());
+	}
+
+	@Test
+	public void givenNoCallbackWhenTimeoutElapsesThenFutureFails() throws Exception {
+
+		Callback callback = receiver.register(50, TimeUnit.MILLISECONDS);
+
+		try {
+			callback.getFuture().get(5, TimeUnit.SECONDS);
+			fail("The callback should time out");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		assertEquals(0, receiver.getPendingCallbacks());
+	}
+
+	@Test
+	public void givenBackupCreatedWhenCallbackIsReceivedThenBackupIsDownloaded() throws Exception {
+
+		// setup a stub Mambu calling back once the backup was "created"
+		final byte[] backup = new byte[20000];
+		new Random(3).nextBytes(backup);
+		HttpServer mambu = startMambu(backup, BACKUP_RESPONSE, new AtomicInteger());
+		Path file = temporaryFolder.getRoot().toPath().resolve("backup.zip");
+
+		try {
+			DatabaseService databaseService = MambuAPIServiceFactory
+					.getFactoryWithApiKey(Protocol.HTTP, "localhost:" + mambu.getAddress().getPort(), "apiKey")
+					.getDatabaseService();
+
+			// execute
+			DownloadResult result = databaseService.createAndDownloadDatabaseBackup(receiver, file, null).get(5,
+					TimeUnit.SECONDS);
+
+			// verify
+			assertEquals(backup.length, result.getTransferredBytes());
+			assertArrayEquals(backup, Files.readAllBytes(file));
+		} finally {
+			mambu.stop(0);
+		}
+	}
+
+	@Test
+	public void givenBackupFailedWhenCallbackIsReceivedThenPreviousBackupIsNotDownloaded() throws Exception {
+
+		// setup a stub Mambu calling back that the backup failed
+		AtomicInteger downloads = new AtomicInteger();
+		HttpServer mambu = startMambu(new byte[100], FAILED_BACKUP_RESPONSE, downloads);
+		Path file = temporaryFolder.getRoot().toPath().resolve("backup.zip");
+
+		try {
+			DatabaseService databaseService = MambuAPIServiceFactory
+					.getFactoryWithApiKey(Protocol.HTTP, "localhost:" + mambu.getAddress().getPort(), "apiKey")
+					.getDatabaseService();
+
+			// execute
+			databaseService.createAndDownloadDatabaseBackup(receiver, file, null).get(5, TimeUnit.SECONDS);
+			fail("The backup failed");
+		} catch (ExecutionException e) {
+			// verify
+			MambuApiException exception = (MambuApiException) e.getCause();
+			assertEquals(Integer.valueOf(500), exception.getErrorCode());
+			assertEquals(0, downloads.get());
+			assertFalse(Files.exists(file));
+		} finally {
+			mambu.stop(0);
+		}
+	}
+
+	/**
+	 * Starts a stub Mambu calling back with the callback message once the backup was requested, and returning the
+	 * backup when downloaded
+	 */
+	private static HttpServer startMambu(final byte[] backup, final String callbackMessage,
+			final AtomicInteger downloads) throws IOException {
+
+		HttpServer mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.createContext("/api/database/backup", exchange -> {
+			if ("POST".equals(exchange.getRequestMethod())) {
+				String request = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8.name());
+				respond(exchange, BACKUP_RESPONSE.getBytes(StandardCharsets.UTF_8));
+				Matcher matcher = CALLBACK.matcher(request);
+				assertTrue(request, matcher.find());
+				CompletableFuture.runAsync(() -> {
+					try {
+						post(matcher.group(1), callbackMessage);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				});
+			} else {
+				downloads.incrementAndGet();
+				respond(exchange, backup);
+			}
+		});
+		mambu.start();
+		return mambu;
+	}
+
+	private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	private static int post(String url, String body) throws IOException {
+
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/json");
+		try (OutputStream output = connection.getOutputStream()) {
+			output.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return connection.getResponseCode();
+	}
+}
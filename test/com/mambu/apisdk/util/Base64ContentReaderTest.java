@@ -0,0 +1,116 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import com.mambu.apisdk.model.DownloadResult;
+
+public class Base64ContentReaderTest {
+
+	private final byte[] content = new byte[100000];
+	{
+		new Random(7).nextBytes(content);
+	}
+
+	@Test
+	public void givenQuotedImageResponseWhenReadingThenIndicatorQuotesAndLineBreaksAreSkipped() throws Exception {
+
+		// setup: a JSON string with escaped line breaks every 76 characters, like the chunked base64 Mambu returns
+		String encoded = Base64.encodeBase64String(content).replaceAll("(.{76})", "$1\\\\r\\\\n");
+		String response = "\"data:image/jpg;base64," + encoded + "\"";
+
+		// execute
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		DownloadResult result = new Base64ContentReader<>(new ContentDownloader(decoded))
+				.read(trickle(response.getBytes(StandardCharsets.US_ASCII)), response.length());
+
+		// verify
+		assertArrayEquals(content, decoded.toByteArray());
+		assertEquals(content.length, result.getTransferredBytes());
+	}
+
+	@Test
+	public void givenEscapedSlashesWhenReadingThenTheyAreDecodedAsSlashes() throws Exception {
+
+		// setup: a JSON string with the slashes of the base64 content escaped as \/
+		String encoded = Base64.encodeBase64String(content);
+		String response = "\"data:image\\/jpg;base64," + encoded.replace("/", "\\/") + "\"";
+
+		// execute
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		new Base64ContentReader<>(new ContentDownloader(decoded))
+				.read(trickle(response.getBytes(StandardCharsets.US_ASCII)), response.length());
+
+		// verify
+		assertArrayEquals(content, decoded.toByteArray());
+	}
+
+	@Test
+	public void givenUnicodeEscapedBase64CharactersWhenReadingThenTheyAreDecoded() throws Exception {
+
+		// setup: a JSON string with /, + and = escaped as \\uXXXX, and line breaks as \\u000D\\u000A
+		String encoded = Base64.encodeBase64String(content).replaceAll("(.{76})", "$1\\\\u000D\\\\u000a");
+		String response = "\"data:image/jpg;base64," + encoded.replace("/", "\\u002F").replace("+", "\\u002b")
+				.replace("=", "\\u003D") + "\"";
+
+		// execute
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		new Base64ContentReader<>(new ContentDownloader(decoded))
+				.read(trickle(response.getBytes(StandardCharsets.US_ASCII)), response.length());
+
+		// verify
+		assertArrayEquals(content, decoded.toByteArray());
+	}
+
+	@Test
+	public void givenDocumentWithoutIndicatorWhenReadingThenWholeResponseIsDecoded() throws Exception {
+
+		// setup: raw line breaks, as sent by the chunked encoder
+		String response = new String(Base64.encodeBase64Chunked(content), StandardCharsets.US_ASCII);
+
+		// execute
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		new Base64ContentReader<>(new ContentDownloader(decoded))
+				.read(new ByteArrayInputStream(response.getBytes(StandardCharsets.US_ASCII)), response.length());
+
+		// verify
+		assertArrayEquals(content, decoded.toByteArray());
+	}
+
+	@Test
+	public void givenEmptyResponseWhenReadingThenNothingIsDecoded() throws Exception {
+
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		DownloadResult result = new Base64ContentReader<>(new ContentDownloader(decoded))
+				.read(new ByteArrayInputStream(new byte[0]), 0);
+
+		assertEquals(0, decoded.size());
+		assertEquals(0, result.getTransferredBytes());
+	}
+
+	/**
+	 * Returns the bytes a few at a time, like a slow network, so that the indicator and escape sequences are split
+	 */
+	private static InputStream trickle(byte[] bytes) {
+
+		return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+
+				return super.read(buffer, offset, Math.min(length, 7));
+			}
+		};
+	}
+}
@@ -0,0 +1,188 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.Protocol;
+import com.mambu.apisdk.services.ClientsService;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class BulkheadTest {
+
+	private ExecutorService mambuThreads;
+	private HttpServer mambu;
+	private CountDownLatch slowResponses;
+	private MambuAPIServiceFactory factory;
+	private Bulkhead bulkhead;
+
+	@Before
+	public void setUp() throws Exception {
+
+		// a stub Mambu answering the requests for the "slow" client only once the latch is released
+		slowResponses = new CountDownLatch(1);
+		mambuThreads = Executors.newCachedThreadPool();
+		mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.createContext("/api/", this::respond);
+		mambu.setExecutor(mambuThreads);
+		mambu.start();
+
+		bulkhead = new Bulkhead().setLane(Bulkhead.INTERACTIVE, 2, 10, 5000).setLane(Bulkhead.BATCH, 1, 1, 5000)
+				.setLane(Bulkhead.ADMIN, 1, 0, 0);
+		factory = MambuAPIServiceFactory.getFactoryWithApiKey(Protocol.HTTP, getHost(), "apiKey");
+		factory.setBulkhead(bulkhead);
+	}
+
+	@After
+	public void tearDown() {
+
+		slowResponses.countDown();
+		factory.shutdown();
+		mambu.stop(0);
+		mambuThreads.shutdownNow();
+	}
+
+	@Test
+	public void givenSaturatedBatchLaneWhenGettingClientThenInteractiveRequestIsNotQueued() throws Exception {
+
+		// setup: one batch request being executed and one queued
+		ClientsService batchClientsService = factory.getServiceInLane(ClientsService.class, Bulkhead.BATCH);
+		ExecutorService batchThreads = Executors.newFixedThreadPool(2);
+		Future<Client> active = batchThreads.submit(() -> batchClientsService.getClient("slow"));
+		waitUntil(() -> bulkhead.getLane(Bulkhead.BATCH).getActiveCount() == 1);
+		Future<Client> queued = batchThreads.submit(() -> batchClientsService.getClient("slow"));
+		waitUntil(() -> bulkhead.getLane(Bulkhead.BATCH).getQueuedCount() == 1);
+
+		// execute
+		Client client = factory.getClientService().getClient("fast");
+		try {
+			batchClientsService.getClient("fast");
+			fail("The batch lane should be full");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(Bulkhead.LANE_FULL), e.getErrorCode());
+		}
+		slowResponses.countDown();
+		active.get(5, TimeUnit.SECONDS);
+		queued.get(5, TimeUnit.SECONDS);
+		batchThreads.shutdown();
+
+		// verify
+		assertEquals("fast", client.getId());
+		Bulkhead.Lane batchLane = bulkhead.getLane(Bulkhead.BATCH);
+		assertEquals(2, batchLane.getRequestCount());
+		assertEquals(1, batchLane.getWaitCount());
+		assertEquals(1, batchLane.getRejectedCount());
+		assertEquals(0, batchLane.getActiveCount());
+		assertEquals(0, batchLane.getQueuedCount());
+		assertEquals(1, bulkhead.getLane(Bulkhead.INTERACTIVE).getRequestCount());
+	}
+
+	@Test
+	public void givenLaneChosenByCallerWhenGettingClientThenItWinsOverLaneOfService() throws Exception {
+
+		// setup
+		ClientsService batchClientsService = factory.getServiceInLane(ClientsService.class, Bulkhead.BATCH);
+
+		// execute
+		Client client = Bulkhead.callInLane(Bulkhead.ADMIN, () -> batchClientsService.getClient("fast"));
+
+		// verify
+		assertEquals("fast", client.getId());
+		assertEquals(1, bulkhead.getLane(Bulkhead.ADMIN).getRequestCount());
+		assertEquals(0, bulkhead.getLane(Bulkhead.BATCH).getRequestCount());
+		assertEquals(0, bulkhead.getLane(Bulkhead.ADMIN).getActiveCount());
+	}
+
+	@Test
+	public void givenQueuedRequestWhenSlotIsFreedThenItIsNotTakenByANewRequest() throws Exception {
+
+		// setup: a request holding the only slot and another one queued behind it
+		Bulkhead singleSlot = new Bulkhead().setLane(Bulkhead.INTERACTIVE, 1, 10, 5000);
+		List<String> order = new CopyOnWriteArrayList<>();
+		Bulkhead.Lane held = singleSlot.acquire();
+		ExecutorService queuedThread = Executors.newSingleThreadExecutor();
+		Future<?> queued = queuedThread.submit(() -> {
+			Bulkhead.Lane lane = singleSlot.acquire();
+			order.add("queued");
+			lane.release();
+			return null;
+		});
+		waitUntil(() -> singleSlot.getLane(Bulkhead.INTERACTIVE).getQueuedCount() == 1);
+
+		// execute
+		held.release();
+		Bulkhead.Lane next = singleSlot.acquire();
+		order.add("new");
+		next.release();
+		queued.get(5, TimeUnit.SECONDS);
+		queuedThread.shutdown();
+
+		// verify
+		assertEquals("[queued, new]", order.toString());
+	}
+
+	@Test
+	public void givenConnectionsWhenCreatingBulkheadThenLanesShareThem() {
+
+		Bulkhead shared = Bulkhead.forConnections(20);
+
+		assertEquals(10, shared.getLane(Bulkhead.INTERACTIVE).getMaxConcurrent());
+		assertEquals(8, shared.getLane(Bulkhead.BATCH).getMaxConcurrent());
+		assertEquals(2, shared.getLane(Bulkhead.ADMIN).getMaxConcurrent());
+		assertEquals(80, shared.getLane(Bulkhead.BATCH).getMaxQueued());
+		assertEquals(Bulkhead.INTERACTIVE, shared.getDefaultLane());
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				fail("Condition not met in time");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	private String getHost() {
+
+		return "localhost:" + mambu.getAddress().getPort();
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+
+		String id = exchange.getRequestURI().getPath().endsWith("/slow") ? "slow" : "fast";
+		if (id.equals("slow")) {
+			try {
+				slowResponses.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+		byte[] body = ("{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.accounting.shared.model.GLJournalEntry;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.CircuitBreaker.State;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanTransaction;
+
+public class CircuitBreakerTest {
+
+	private static final String JOURNAL_ENTRIES = "gljournalentries";
+	private static final String LOANS = "loans";
+
+	private final AtomicLong clock = new AtomicLong();
+	private final List<String> transitions = new ArrayList<>();
+	private CircuitBreaker circuitBreaker;
+
+	@Before
+	public void setUp() {
+
+		circuitBreaker = new CircuitBreaker(clock::get);
+		circuitBreaker.setWindowSize(10);
+		circuitBreaker.setMinimumCalls(4);
+		circuitBreaker.setHalfOpenCalls(2);
+		circuitBreaker.setOpenDurationMillis(1000);
+		circuitBreaker.addListener((endpoint, from, to) -> transitions.add(endpoint + " " + from + "->" + to));
+	}
+
+	@Test
+	public void givenFailingEndpointWhenFailureRateIsReachedThenItsCallsFailFast() throws Exception {
+
+		// execute
+		succeed(JOURNAL_ENTRIES);
+		succeed(JOURNAL_ENTRIES);
+		failWith(JOURNAL_ENTRIES, new MambuApiException(new ConnectException("Connection refused")));
+		failWith(JOURNAL_ENTRIES, new MambuApiException(503, "Service Unavailable"));
+
+		// verify
+		assertEquals(State.OPEN, circuitBreaker.getState(JOURNAL_ENTRIES));
+		assertEquals(CircuitBreaker.CIRCUIT_OPEN, failWith(JOURNAL_ENTRIES, null));
+		assertEquals(1, circuitBreaker.getRejectedCount());
+		assertEquals(1, circuitBreaker.getOpenedCount());
+		assertEquals("[gljournalentries CLOSED->OPEN]", transitions.toString());
+
+		// other endpoints are not affected
+		succeed(LOANS);
+		assertEquals(State.CLOSED, circuitBreaker.getState(LOANS));
+	}
+
+	@Test
+	public void givenOpenCircuitWhenTrialCallsSucceedThenItCloses() throws Exception {
+
+		// setup
+		openCircuit(JOURNAL_ENTRIES);
+
+		// execute
+		advance(1000);
+		succeed(JOURNAL_ENTRIES);
+		assertEquals(State.HALF_OPEN, circuitBreaker.getState(JOURNAL_ENTRIES));
+		succeed(JOURNAL_ENTRIES);
+
+		// verify
+		assertEquals(State.CLOSED, circuitBreaker.getState(JOURNAL_ENTRIES));
+		assertEquals("[gljournalentries CLOSED->OPEN, gljournalentries OPEN->HALF_OPEN, "
+				+ "gljournalentries HALF_OPEN->CLOSED]", transitions.toString());
+	}
+
+	@Test
+	public void givenHalfOpenCircuitWhenTrialCallFailsThenItOpensAgain() throws Exception {
+
+		openCircuit(JOURNAL_ENTRIES);
+		advance(1000);
+
+		failWith(JOURNAL_ENTRIES, new MambuApiException(502, "Bad Gateway"));
+		failWith(JOURNAL_ENTRIES, new MambuApiException(502, "Bad Gateway"));
+
+		assertEquals(State.OPEN, circuitBreaker.getState(JOURNAL_ENTRIES));
+		assertEquals(2, circuitBreaker.getOpenedCount());
+		assertEquals(CircuitBreaker.CIRCUIT_OPEN, failWith(JOURNAL_ENTRIES, null));
+	}
+
+	@Test
+	public void givenSlowEndpointWhenSlowCallRateIsReachedThenCircuitOpens() throws Exception {
+
+		circuitBreaker.setSlowCallDurationMillis(500);
+
+		for (int i = 0; i < 4; i++) {
+			circuitBreaker.execute(LOANS, () -> {
+				advance(600);
+				return "{}";
+			});
+		}
+
+		assertEquals(State.OPEN, circuitBreaker.getState(LOANS));
+	}
+
+	@Test
+	public void givenClientErrorsWhenCallingThenCircuitStaysClosed() throws Exception {
+
+		for (int i = 0; i < 10; i++) {
+			failWith(LOANS, new MambuApiException(400, "Invalid parameters"));
+		}
+
+		assertEquals(State.CLOSED, circuitBreaker.getState(LOANS));
+	}
+
+	@Test
+	public void givenApiDefinitionsWhenGettingEndpointThenEndpointNamesTheirUrl() {
+
+		assertEquals(JOURNAL_ENTRIES, CircuitBreaker.getEndpoint(new ApiDefinition(ApiType.GET_LIST,
+				GLJournalEntry.class)));
+		assertEquals("loans/transactions", CircuitBreaker.getEndpoint(new ApiDefinition(ApiType.POST_OWNED_ENTITY,
+				LoanAccount.class, LoanTransaction.class)));
+		// the ids in url paths don't make endpoints of their own
+		assertEquals(LOANS, CircuitBreaker.getEndpoint(new ApiDefinition("loans/ABC123/custominformation/cf1",
+				ContentType.JSON, Method.PATCH, Boolean.class, ApiReturnFormat.BOOLEAN)));
+		assertEquals(LOANS, CircuitBreaker.getEndpoint(new ApiDefinition("loans?offset=0", ContentType.WWW_FORM,
+				Method.GET, LoanAccount.class, ApiReturnFormat.COLLECTION)));
+	}
+
+	@Test
+	public void givenMaxCircuitsWhenCallingOtherEndpointThenItHasNoCircuit() throws Exception {
+
+		// setup
+		circuitBreaker.setMaxCircuits(1);
+		succeed(LOANS);
+
+		// execute
+		for (int i = 0; i < 4; i++) {
+			failWith(JOURNAL_ENTRIES, new MambuApiException(500, "Internal Server Error"));
+		}
+
+		// verify: the calls are not shed, while the endpoint with a circuit still opens it
+		assertEquals(500, failWith(JOURNAL_ENTRIES, new MambuApiException(500, "Internal Server Error")));
+		assertEquals(State.CLOSED, circuitBreaker.getState(JOURNAL_ENTRIES));
+		openCircuit(LOANS);
+	}
+
+	private void openCircuit(String endpoint) throws IOException {
+
+		for (int i = 0; i < 4; i++) {
+			failWith(endpoint, new MambuApiException(500, "Internal Server Error"));
+		}
+		assertEquals(State.OPEN, circuitBreaker.getState(endpoint));
+	}
+
+	private void succeed(String endpoint) throws MambuApiException {
+
+		circuitBreaker.execute(endpoint, () -> "{}");
+	}
+
+	/**
+	 * Calls the endpoint with a request failing with the exception
+	 *
+	 * @return the error code of the exception thrown
+	 */
+	private int failWith(String endpoint, final MambuApiException exception) {
+
+		try {
+			circuitBreaker.execute(endpoint, () -> {
+				throw exception;
+			});
+			fail("The call should fail");
+			return 0;
+		} catch (MambuApiException e) {
+			return e.getErrorCode();
+		}
+	}
+
+	private void advance(long millis) {
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+}
@@ -0,0 +1,97 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.model.DownloadResult;
+
+public class ContentDownloaderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final byte[] content = new byte[10000];
+	{
+		new Random(42).nextBytes(content);
+	}
+
+	@Test
+	public void givenOutputStreamWhenDownloadingThenContentIsCopiedWithChecksumAndProgress() throws Exception {
+
+		// setup
+		ByteArrayOutputStream destination = new ByteArrayOutputStream();
+		final List<Long> progress = new ArrayList<>();
+		ContentDownloader downloader = new ContentDownloader(destination);
+		downloader.setBufferSize(4096);
+		downloader.setProgressListener((transferredBytes, totalBytes) -> {
+			assertEquals(content.length, totalBytes);
+			progress.add(transferredBytes);
+		});
+
+		// execute
+		DownloadResult result = downloader.read(new ByteArrayInputStream(content), content.length);
+
+		// verify
+		assertArrayEquals(content, destination.toByteArray());
+		assertEquals(content.length, result.getTransferredBytes());
+		assertEquals("SHA-256", result.getChecksumAlgorithm());
+		assertEquals(Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(content)), result.getChecksum());
+		assertEquals(Long.valueOf(content.length), progress.get(progress.size() - 1));
+		assertTrue("Progress was not reported per chunk", progress.size() >= 3);
+	}
+
+	@Test
+	public void givenFileChannelWithoutChecksumWhenDownloadingThenContentIsTransferredAfterCurrentPosition()
+			throws IOException {
+
+		// setup
+		Path file = temporaryFolder.newFile().toPath();
+		DownloadResult result;
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			fileChannel.write(ByteBuffer.wrap(new byte[] { 1, 2 }));
+			ContentDownloader downloader = new ContentDownloader(fileChannel);
+			downloader.setChecksumAlgorithm(null);
+
+			// execute
+			result = downloader.read(new ByteArrayInputStream(content), -1);
+
+			// verify
+			assertEquals(2 + content.length, fileChannel.position());
+		}
+		byte[] written = Files.readAllBytes(file);
+		assertEquals(2 + content.length, written.length);
+		assertEquals(content[0], written[2]);
+		assertEquals(content[content.length - 1], written[written.length - 1]);
+		assertEquals(content.length, result.getTransferredBytes());
+		assertNull(result.getChecksum());
+	}
+
+	@Test(expected = IOException.class)
+	public void givenUnknownChecksumAlgorithmWhenDownloadingThenIOExceptionIsThrown() throws IOException {
+
+		ContentDownloader downloader = new ContentDownloader(new ByteArrayOutputStream());
+		downloader.setChecksumAlgorithm("UNKNOWN");
+
+		downloader.read(new ByteArrayInputStream(content), content.length);
+	}
+}
@@ -0,0 +1,249 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.model.Protocol;
+import com.mambu.apisdk.services.DocumentsService;
+import com.mambu.apisdk.util.APIData.IMAGE_SIZE_TYPE;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class DocumentCacheTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final byte[] image = new byte[3000];
+	{
+		new Random(11).nextBytes(image);
+	}
+
+	private final ConcurrentMap<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+	// documents changed by another client while Mambu answers a request
+	private volatile String changedDuringResponse;
+	private HttpServer mambu;
+	private Path cacheDirectory;
+	private MambuAPIServiceFactory factory;
+	private DocumentsService documentsService;
+
+	@Before
+	public void setUp() throws Exception {
+
+		// a stub Mambu returning the same base64 encoded image for all images and documents
+		mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.createContext("/api/", this::respond);
+		mambu.start();
+
+		cacheDirectory = temporaryFolder.getRoot().toPath().resolve("documents");
+		factory = MambuAPIServiceFactory.getFactoryWithApiKey(Protocol.HTTP,
+				"localhost:" + mambu.getAddress().getPort(), "apiKey");
+		factory.setDocumentCache(new DocumentCache(cacheDirectory));
+		documentsService = factory.getDocumentsService();
+	}
+
+	@After
+	public void tearDown() {
+
+		mambu.stop(0);
+	}
+
+	@Test
+	public void givenCachedImageWhenReadAgainThenItIsReadFromTheCacheFile() throws Exception {
+
+		// execute
+		String first = documentsService.getImage("imageKey", IMAGE_SIZE_TYPE.SMALL_THUMB);
+		String second = documentsService.getImage("imageKey", IMAGE_SIZE_TYPE.SMALL_THUMB);
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		documentsService.getImage("imageKey", IMAGE_SIZE_TYPE.SMALL_THUMB, decoded);
+
+		// verify
+		assertEquals(Base64.encodeBase64String(image), first);
+		assertEquals(first, second);
+		assertArrayEquals(image, decoded.toByteArray());
+		assertEquals(1, getRequestCount("GET /api/images/imageKey"));
+		DocumentCache documentCache = factory.getDocumentCache();
+		assertEquals(2, documentCache.getHitCount());
+		assertEquals(1, documentCache.getMissCount());
+		assertEquals(1, documentCache.getFileCount());
+		assertEquals(1, countFiles(cacheDirectory));
+	}
+
+	@Test
+	public void givenCachedImageWhenOtherSizeIsReadThenItIsCachedSeparately() throws Exception {
+
+		documentsService.getImage("imageKey", IMAGE_SIZE_TYPE.SMALL_THUMB);
+		documentsService.getImage("imageKey", IMAGE_SIZE_TYPE.LARGE);
+		documentsService.getImage("imageKey", IMAGE_SIZE_TYPE.LARGE);
+
+		assertEquals(2, getRequestCount("GET /api/images/imageKey"));
+		assertEquals(2, factory.getDocumentCache().getFileCount());
+	}
+
+	@Test
+	public void givenCachedDocumentWhenItIsDeletedThenItIsEvicted() throws Exception {
+
+		// setup
+		documentsService.getDocument("documentId");
+		documentsService.getImage("imageKey", null);
+
+		// execute
+		assertTrue(documentsService.deleteDocument("documentId"));
+		documentsService.getDocument("documentId");
+		documentsService.getImage("imageKey", null);
+
+		// verify
+		assertEquals(2, getRequestCount("GET /api/documents/documentId"));
+		assertEquals(1, getRequestCount("GET /api/images/imageKey"));
+		assertEquals(1, factory.getDocumentCache().getInvalidationCount());
+	}
+
+	@Test
+	public void givenRequestsWhenGettingChangedPathsThenOnlyChangedDocumentsAreReturned() {
+
+		assertEquals(Arrays.asList("documents/documentId", "images/documentId"),
+				DocumentCache.getChangedPaths(Method.DELETE, "documents/documentId"));
+		assertEquals(Collections.singletonList("clients/C1/documents/PROFILE_PICTURE"),
+				DocumentCache.getChangedPaths(Method.POST, "clients/C1/documents/PROFILE_PICTURE?fullDetails=true"));
+		// creating a document, other writes and reads change no cached document
+		assertTrue(DocumentCache.getChangedPaths(Method.POST, "documents").isEmpty());
+		assertTrue(DocumentCache.getChangedPaths(Method.POST, "loans/L1/transactions").isEmpty());
+		assertTrue(DocumentCache.getChangedPaths(Method.GET, "documents/documentId").isEmpty());
+	}
+
+	@Test
+	public void givenOtherDocumentChangedDuringReadWhenReadCompletesThenImageIsCached() throws Exception {
+
+		// setup
+		changedDuringResponse = "documents/other";
+
+		// execute
+		documentsService.getImage("imageKey", null);
+		documentsService.getImage("imageKey", null);
+
+		// verify
+		assertEquals(1, getRequestCount("GET /api/images/imageKey"));
+		assertEquals(1, factory.getDocumentCache().getFileCount());
+	}
+
+	@Test
+	public void givenImageChangedDuringReadWhenReadCompletesThenImageIsNotCached() throws Exception {
+
+		// setup
+		changedDuringResponse = "images/imageKey";
+
+		// execute
+		documentsService.getImage("imageKey", null);
+		documentsService.getImage("imageKey", null);
+
+		// verify
+		assertEquals(2, getRequestCount("GET /api/images/imageKey"));
+		assertEquals(0, factory.getDocumentCache().getFileCount());
+	}
+
+	@Test
+	public void givenFullCacheWhenNewDocumentIsCachedThenLeastRecentlyUsedIsEvicted() throws Exception {
+
+		// setup: room for two responses
+		DocumentCache documentCache = new DocumentCache(cacheDirectory.resolveSibling("small"), 2 * 4200);
+		factory.setDocumentCache(documentCache);
+
+		// execute
+		documentsService.getImage("first", null);
+		documentsService.getImage("second", null);
+		documentsService.getImage("first", null);
+		documentsService.getImage("third", null);
+		documentsService.getImage("first", null);
+		documentsService.getImage("second", null);
+
+		// verify
+		assertEquals(1, getRequestCount("GET /api/images/first"));
+		assertEquals(2, getRequestCount("GET /api/images/second"));
+		assertEquals(2, documentCache.getEvictionCount());
+		assertEquals(2, documentCache.getFileCount());
+		assertTrue(documentCache.getSize() <= documentCache.getMaxSize());
+		assertEquals(2, countFiles(documentCache.getDirectory()));
+	}
+
+	@Test
+	public void givenCacheDirectoryWhenCacheIsCreatedAgainThenCachedFilesAreKept() throws Exception {
+
+		// setup
+		documentsService.getImage("imageKey", null);
+		Files.write(cacheDirectory.resolve("interrupted.tmp"), new byte[10]);
+
+		// execute
+		DocumentCache documentCache = new DocumentCache(cacheDirectory);
+		factory.setDocumentCache(documentCache);
+		String cached = documentsService.getImage("imageKey", null);
+
+		// verify
+		assertEquals(Base64.encodeBase64String(image), cached);
+		assertEquals(1, getRequestCount("GET /api/images/imageKey"));
+		assertEquals(1, documentCache.getHitCount());
+		assertFalse(Files.exists(cacheDirectory.resolve("interrupted.tmp")));
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+
+		String request = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+		requestCounts.computeIfAbsent(request, key -> new AtomicInteger()).incrementAndGet();
+		if (changedDuringResponse != null) {
+			factory.getDocumentCache().invalidate(
+					Protocol.HTTP + "://localhost:" + mambu.getAddress().getPort() + "/api/" + changedDuringResponse);
+		}
+
+		String response = "DELETE".equals(exchange.getRequestMethod())
+				? "{\"returnCode\":0,\"returnStatus\":\"SUCCESS\"}"
+				: "\"data:image/png;base64," + Base64.encodeBase64String(image) + "\"";
+		byte[] body = response.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	private int getRequestCount(String request) {
+
+		AtomicInteger count = requestCounts.get(request);
+		return count == null ? 0 : count.get();
+	}
+
+	private static int countFiles(Path directory) throws IOException {
+
+		int count = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (@SuppressWarnings("unused")
+			Path file : files) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
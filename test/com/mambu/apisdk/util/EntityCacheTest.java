@@ -0,0 +1,183 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestCoalescer.CoalescedRequest;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanTransaction;
+import com.mambu.savings.shared.model.SavingsAccount;
+import com.mambu.savings.shared.model.SavingsTransaction;
+
+public class EntityCacheTest {
+
+	private static final String LOAN = "{\"id\":\"ABC123\",\"notes\":{\"id\":\"ignored\"},\"encodedKey\":\"8a1\"}";
+
+	private final AtomicLong now = new AtomicLong(1000);
+	private final EntityCache cache = new EntityCache(1000, 100, now::get, MambuEntityType.LOAN_ACCOUNT,
+			MambuEntityType.SAVINGS_ACCOUNT);
+
+	private final AtomicInteger loads = new AtomicInteger();
+	private final CoalescedRequest<String> loanLoader = () -> {
+		loads.incrementAndGet();
+		return LOAN;
+	};
+
+	@Test
+	public void givenEntityReadsWhenGettingCachedEntityThenOnlySingleEntitiesOfCachedTypesAreCached() {
+
+		assertEquals("loans/ABC123",
+				cache.getCachedEntity(new ApiDefinition(ApiType.GET_ENTITY_DETAILS, LoanAccount.class), "ABC123"));
+		assertEquals("savings/XYZ",
+				cache.getCachedEntity(new ApiDefinition(ApiType.GET_ENTITY, SavingsAccount.class), "XYZ"));
+		assertNull(cache.getCachedEntity(new ApiDefinition(ApiType.GET_ENTITY, Client.class), "C1"));
+		assertNull(cache.getCachedEntity(new ApiDefinition(ApiType.GET_LIST, LoanAccount.class), null));
+		assertNull(cache.getCachedEntity(new ApiDefinition(ApiType.GET_OWNED_ENTITIES, LoanAccount.class,
+				LoanTransaction.class), "ABC123"));
+	}
+
+	@Test
+	public void givenMutatingRequestsWhenGettingChangedEntitiesThenTargetedAccountsAreReturned() {
+
+		// transaction on a loan
+		assertEquals(new HashSet<>(Arrays.asList("loans/ABC123")), cache.getChangedEntities(new ApiDefinition(
+				ApiType.POST_OWNED_ENTITY, LoanAccount.class, LoanTransaction.class), "ABC123", null));
+		// transfer from a savings account to a loan
+		ParamsMap transfer = new ParamsMap();
+		transfer.addParam(APIData.TO_LOAN, "ABC123");
+		assertEquals(new HashSet<>(Arrays.asList("savings/XYZ", "loans/ABC123")), cache.getChangedEntities(
+				new ApiDefinition(ApiType.POST_OWNED_ENTITY, SavingsAccount.class, SavingsTransaction.class), "XYZ",
+				transfer));
+		// url path request
+		assertEquals(new HashSet<>(Arrays.asList("loans/ABC123")), cache.getChangedEntities(new ApiDefinition(
+				"loans/ABC123/custominformation/cf1", ContentType.JSON, Method.PATCH, Boolean.class,
+				ApiDefinition.ApiReturnFormat.BOOLEAN), null, null));
+		// reads and entity types which are not cached
+		assertTrue(cache.getChangedEntities(new ApiDefinition(ApiType.GET_ENTITY, LoanAccount.class), "ABC123",
+				null).isEmpty());
+		assertTrue(cache.getChangedEntities(new ApiDefinition(ApiType.DELETE_ENTITY, Client.class), "C1", null)
+				.isEmpty());
+	}
+
+	@Test
+	public void givenCachedEntityWhenInvalidatedByEncodedKeyThenEntityReadByIdIsReloaded() throws MambuApiException {
+
+		// setup
+		cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+		cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+
+		// execute
+		cache.invalidate(MambuEntityType.LOAN_ACCOUNT, "8a1");
+		cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+
+		// verify: nested ids are not taken as the entity id
+		cache.invalidate(MambuEntityType.LOAN_ACCOUNT, "ignored");
+		cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+		assertEquals(2, loads.get());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getInvalidationCount());
+	}
+
+	@Test
+	public void givenExpiredEntityWhenReadingThenEntityIsReloaded() throws MambuApiException {
+
+		// execute
+		cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+		now.addAndGet(100);
+		cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+
+		// verify
+		assertEquals(2, loads.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void givenChangeDuringReadWhenReadCompletesThenEntityIsNotCached() throws MambuApiException {
+
+		// execute: the entity is read while it's being changed
+		cache.get("loans/ABC123", "GET loans/ABC123", () -> {
+			cache.invalidate(new HashSet<>(Arrays.asList("loans/ABC123")));
+			return loanLoader.execute();
+		});
+
+		// verify
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void givenChangeDuringReadWhenReadingAgainThenStaleReadIsNotJoined() throws Exception {
+
+		// setup: a read in flight when the entity is changed
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch changed = new CountDownLatch(1);
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		Future<String> staleRead = reader.submit(() -> cache.get("loans/ABC123", "GET loans/ABC123", () -> {
+			loading.countDown();
+			Uninterruptibles.awaitUninterruptibly(changed);
+			return "{\"id\":\"ABC123\",\"loanName\":\"before\"}";
+		}));
+		loading.await();
+		cache.invalidate(Collections.singleton("loans/ABC123"));
+
+		// execute: the caller reading its own change doesn't join the read started before it
+		String response = cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+		changed.countDown();
+		staleRead.get(5, TimeUnit.SECONDS);
+		reader.shutdown();
+
+		// verify
+		assertEquals(LOAN, response);
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void givenChangeOfOtherEntityDuringReadWhenReadCompletesThenEntityIsCached() throws MambuApiException {
+
+		// execute: another account is changed while the entity is read
+		cache.get("loans/ABC123", "GET loans/ABC123", () -> {
+			cache.invalidate(Collections.singleton("loans/XYZ789"));
+			return loanLoader.execute();
+		});
+		cache.get("loans/ABC123", "GET loans/ABC123", loanLoader);
+
+		// verify
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void givenFullCacheWhenReadingThenLeastRecentlyUsedEntitiesAreEvicted() throws MambuApiException {
+
+		// setup: each response weighs 400 characters
+		for (int i = 0; i < 3; i++) {
+			final String account = "{\"id\":\"" + i + "\",\"notes\":\"" + String.format("%379s", "") + "\"}";
+			cache.get("loans/" + i, "GET loans/" + i, () -> account);
+		}
+
+		// verify
+		assertEquals(2, cache.size());
+		assertEquals(800, cache.getWeight());
+		assertEquals(1, cache.getEvictionCount());
+	}
+}
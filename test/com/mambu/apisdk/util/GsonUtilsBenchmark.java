@@ -0,0 +1,172 @@
+package com.mambu.apisdk.util;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.core.shared.model.CustomFieldValue;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.loans.shared.model.LoanTransaction;
+
+/**
+ * Micro benchmark comparing the per call cost of serializing and deserializing large responses with a Gson instance
+ * created for each call (as done before the Gson instances were cached) and with the Gson instance cached by GsonUtils:
+ * a page of loan accounts with full details, each with its custom field values, and a page of loan transactions.
+ * 
+ * Not compiled nor run by the unit tests. Compile it with mvn -P benchmark test-compile and run it with its main()
+ * method using the test classpath, or with org.openjdk.jmh.Main GsonUtilsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonUtilsBenchmark {
+
+	private static final Type LOAN_ACCOUNTS = new TypeToken<List<LoanAccount>>() {
+	}.getType();
+	private static final Type LOAN_TRANSACTIONS = new TypeToken<List<LoanTransaction>>() {
+	}.getType();
+
+	// Number of entities per page, the max page size of the API being 1000
+	@Param({ "100", "1000" })
+	private int pageSize;
+
+	private List<LoanAccount> loanAccounts;
+	private String loanAccountsJson;
+	private String loanTransactionsJson;
+	private ApiDefinition getLoanAccounts;
+	private ApiDefinition getLoanTransactions;
+
+	@Setup
+	public void setUp() {
+
+		loanAccounts = new ArrayList<>();
+		List<LoanTransaction> loanTransactions = new ArrayList<>();
+		for (int i = 0; i < pageSize; i++) {
+			loanAccounts.add(makeLoanAccount(i));
+			loanTransactions.add(makeLoanTransaction(i));
+		}
+
+		Gson gson = GsonUtils.createGson();
+		loanAccountsJson = gson.toJson(loanAccounts, LOAN_ACCOUNTS);
+		loanTransactionsJson = gson.toJson(loanTransactions, LOAN_TRANSACTIONS);
+		getLoanAccounts = new ApiDefinition(ApiType.GET_LIST, LoanAccount.class);
+		getLoanTransactions = new ApiDefinition(ApiType.GET_LIST, LoanTransaction.class);
+	}
+
+	@Benchmark
+	public String serializeLoanAccountsWithNewGsonPerCall() {
+
+		Gson gson = GsonUtils.createGsonBuilder().create();
+		return gson.toJson(loanAccounts, LOAN_ACCOUNTS);
+	}
+
+	@Benchmark
+	public String serializeLoanAccountsWithCachedGson() {
+
+		return GsonUtils.createGson().toJson(loanAccounts, LOAN_ACCOUNTS);
+	}
+
+	@Benchmark
+	public List<LoanAccount> deserializeLoanAccountsWithNewGsonPerCall() {
+
+		Gson gson = GsonUtils.createGsonBuilder(GsonUtils.defaultDateTimeFormat).create();
+		return gson.fromJson(loanAccountsJson, LOAN_ACCOUNTS);
+	}
+
+	@Benchmark
+	public List<LoanAccount> deserializeLoanAccountsWithCachedGson() {
+
+		Gson gson = GsonUtils.createDeserializerGson(getLoanAccounts);
+		return gson.fromJson(loanAccountsJson, LOAN_ACCOUNTS);
+	}
+
+	@Benchmark
+	public List<LoanTransaction> deserializeLoanTransactionsWithNewGsonPerCall() {
+
+		Gson gson = GsonUtils.createGsonBuilder(GsonUtils.defaultDateTimeFormat).create();
+		return gson.fromJson(loanTransactionsJson, LOAN_TRANSACTIONS);
+	}
+
+	@Benchmark
+	public List<LoanTransaction> deserializeLoanTransactionsWithCachedGson() {
+
+		Gson gson = GsonUtils.createDeserializerGson(getLoanTransactions);
+		return gson.fromJson(loanTransactionsJson, LOAN_TRANSACTIONS);
+	}
+
+	private static LoanAccount makeLoanAccount(int index) {
+
+		LoanAccount loanAccount = new LoanAccount();
+		loanAccount.setId("LOAN" + index);
+		loanAccount.setLoanName("Benchmark Loan " + index);
+		loanAccount.setProductTypeKey("8a33ab0d4bd6e8a4014bd8e31e7a0a11");
+		loanAccount.setCreationDate(new Date());
+		loanAccount.setLastModifiedDate(new Date());
+		loanAccount.setDisbursementDate(new Date());
+		loanAccount.setLoanAmount(new BigDecimal("125000.00"));
+		loanAccount.setPeriodicPayment(new BigDecimal("1250.50"));
+		loanAccount.setPrincipalDue(new BigDecimal("1000.00"));
+		loanAccount.setInterestDue(new BigDecimal("250.50"));
+		loanAccount.setFeesDue(new BigDecimal("15.00"));
+		loanAccount.setRepaymentInstallments(120);
+		loanAccount.setRepaymentPeriodCount(1);
+
+		// Full details: the custom field values of the account
+		List<CustomFieldValue> customFieldValues = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			CustomFieldValue customFieldValue = new CustomFieldValue();
+			customFieldValue.setCustomFieldId("Loan_Field_" + i);
+			customFieldValue.setCustomFieldKey("8a33ab0d4bd6e8a4014bd8e31e7b" + i);
+			customFieldValue.setParentKey("8a33ab0d4bd6e8a4014bd8e31e7a" + index);
+			customFieldValue.setValue("Value " + i + " of loan " + index);
+			customFieldValues.add(customFieldValue);
+		}
+		loanAccount.setCustomFieldValues(customFieldValues);
+		return loanAccount;
+	}
+
+	private static LoanTransaction makeLoanTransaction(int index) {
+
+		LoanTransaction loanTransaction = new LoanTransaction();
+		loanTransaction.setEncodedKey("8a33ab0d4bd6e8a4014bd8e31e7c" + index);
+		loanTransaction.setParentAccountKey("8a33ab0d4bd6e8a4014bd8e31e7a" + index);
+		loanTransaction.setUserKey("8a33ab0d4bd6e8a4014bd8e31e7d0001");
+		loanTransaction.setBranchKey("8a33ab0d4bd6e8a4014bd8e31e7e0001");
+		loanTransaction.setComment("Repayment " + index);
+		loanTransaction.setCreationDate(new Date());
+		loanTransaction.setEntryDate(new Date());
+		loanTransaction.setPrincipalBalance(new BigDecimal("98750.25"));
+		loanTransaction.setRedrawBalance(BigDecimal.ZERO);
+		loanTransaction.setArrearsPosition(BigDecimal.ZERO);
+		return loanTransaction;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(GsonUtilsBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,87 @@
+package com.mambu.apisdk.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.mambu.apisdk.json.ClientPatchJsonSerializer;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.loans.shared.model.LoanAccount;
+
+public class GsonUtilsTest {
+
+	@Test
+	public void givenSameApiDefinitionWhenCreateSerializerGsonThenSameInstanceIsReturned() {
+
+		// setup
+		ApiDefinition patchClient = new ApiDefinition(ApiType.PATCH_ENTITY, Client.class).toBuilder()
+				.addJsonSerializer(Client.class, new ClientPatchJsonSerializer()).build();
+
+		// execute
+		Gson first = GsonUtils.createSerializerGson(patchClient);
+		Gson second = GsonUtils.createSerializerGson(patchClient);
+
+		// verify
+		assertThat(first, sameInstance(second));
+	}
+
+	@Test
+	public void givenDifferentConfigurationsWhenCreateGsonThenDifferentInstancesAreReturned() {
+
+		// setup
+		ApiDefinition getLoan = new ApiDefinition(ApiType.GET_ENTITY_DETAILS, LoanAccount.class);
+		ApiDefinition patchClient = new ApiDefinition(ApiType.PATCH_ENTITY, Client.class).toBuilder()
+				.addJsonSerializer(Client.class, new ClientPatchJsonSerializer()).build();
+
+		// verify
+		assertThat(GsonUtils.createGson(), sameInstance(GsonUtils.createGson(GsonUtils.defaultDateTimeFormat)));
+		assertThat(GsonUtils.createGson(), not(sameInstance(GsonUtils.createGson(APIData.yyyyMmddFormat))));
+		assertThat(GsonUtils.createSerializerGson(patchClient), not(sameInstance(GsonUtils.createSerializerGson(getLoan))));
+	}
+
+	@Test
+	public void givenConcurrentCallsWhenCreateDeserializerGsonThenOneInstanceIsShared() throws Exception {
+
+		// setup
+		final ApiDefinition getLoan = new ApiDefinition(ApiType.GET_ENTITY_DETAILS, LoanAccount.class);
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		List<Callable<Gson>> calls = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			calls.add(new Callable<Gson>() {
+
+				@Override
+				public Gson call() {
+
+					return GsonUtils.createDeserializerGson(getLoan);
+				}
+			});
+		}
+
+		// execute
+		Set<Gson> instances = new HashSet<>();
+		try {
+			for (Future<Gson> future : executorService.invokeAll(calls)) {
+				instances.add(future.get());
+			}
+		} finally {
+			executorService.shutdown();
+		}
+
+		// verify
+		assertThat(instances.size(), is(1));
+	}
+}
@@ -0,0 +1,170 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.Protocol;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class HedgingPolicyTest {
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private ExecutorService mambuThreads;
+	private HttpServer mambu;
+	private HedgingPolicy hedgingPolicy;
+
+	@Before
+	public void setUp() throws Exception {
+
+		// a stub Mambu answering the first request after 3 seconds and the others at once
+		mambuThreads = Executors.newCachedThreadPool();
+		mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.createContext("/api/", this::respond);
+		mambu.setExecutor(mambuThreads);
+		mambu.start();
+
+		hedgingPolicy = new HedgingPolicy();
+		hedgingPolicy.setInitialDelayMillis(100);
+		hedgingPolicy.setBudgetRatio(1);
+	}
+
+	@After
+	public void tearDown() {
+
+		mambu.stop(0);
+		mambuThreads.shutdownNow();
+	}
+
+	@Test
+	public void givenSlowResponseWhenGettingClientThenHedgeAnswersFirst() throws Exception {
+
+		// setup
+		MambuAPIServiceFactory factory = MambuAPIServiceFactory.getFactoryWithApiKey(Protocol.HTTP, "localhost:"
+				+ mambu.getAddress().getPort(), "apiKey");
+		factory.setHedgingPolicy(hedgingPolicy);
+
+		// execute
+		long start = System.nanoTime();
+		Client client = factory.getClientService().getClient("clientId");
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// verify
+		assertNotNull(client);
+		assertTrue("Elapsed " + elapsedMillis, elapsedMillis < 2000);
+		assertEquals(2, requestCount.get());
+		assertEquals(1, hedgingPolicy.getHedgeCount());
+		assertEquals(1, hedgingPolicy.getHedgeWonCount());
+		factory.shutdown();
+	}
+
+	@Test
+	public void givenFastResponsesWhenExecutingThenNothingIsHedgedAndDelayFollowsLatencies() throws Exception {
+
+		for (int i = 0; i < 30; i++) {
+			assertEquals("ok", hedgingPolicy.execute("clients", () -> CompletableFuture.completedFuture("ok")));
+		}
+
+		assertEquals(0, hedgingPolicy.getHedgeCount());
+		assertEquals(30, hedgingPolicy.getRequestCount());
+		assertEquals(HedgingPolicy.DEFAULT_MIN_DELAY_MILLIS, hedgingPolicy.getDelayMillis("clients"));
+		assertEquals(100, hedgingPolicy.getDelayMillis("loans"));
+	}
+
+	@Test
+	public void givenNoBudgetWhenResponseIsSlowThenRequestIsNotHedged() throws Exception {
+
+		// setup
+		hedgingPolicy.setBudgetRatio(0);
+		AtomicInteger sent = new AtomicInteger();
+
+		// execute
+		String result = hedgingPolicy.execute("clients", () -> {
+			sent.incrementAndGet();
+			return CompletableFuture.supplyAsync(() -> {
+				sleep(300);
+				return "slow";
+			});
+		});
+
+		// verify
+		assertEquals("slow", result);
+		assertEquals(1, sent.get());
+		assertEquals(1, hedgingPolicy.getBudgetExhaustedCount());
+	}
+
+	@Test
+	public void givenFailingRequestAndHedgeWhenExecutingThenLastFailureIsThrown() throws Exception {
+
+		try {
+			hedgingPolicy.execute("clients", () -> CompletableFuture.supplyAsync(() -> {
+				sleep(200);
+				throw new IllegalStateException("Unreachable");
+			}).thenApply(result -> "never"));
+			fail("The request should fail");
+		} catch (IllegalStateException e) {
+			assertEquals("Unreachable", e.getMessage());
+		}
+		assertEquals(1, hedgingPolicy.getHedgeCount());
+		assertEquals(0, hedgingPolicy.getHedgeWonCount());
+	}
+
+	@Test
+	public void givenFailedRequestWhenExecutingThenItIsNotHedged() throws Exception {
+
+		CompletableFuture<String> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new MambuApiException(404, "Not Found"));
+
+		try {
+			hedgingPolicy.execute("clients", () -> failed);
+			fail("The request should fail");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(404), e.getErrorCode());
+		}
+		assertEquals(0, hedgingPolicy.getHedgeCount());
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+
+		if (requestCount.incrementAndGet() == 1) {
+			sleep(3000);
+		}
+		byte[] body = "{\"id\":\"clientId\"}".getBytes(StandardCharsets.UTF_8);
+		try {
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		} catch (IOException e) {
+			// The hedged request was cancelled
+		}
+	}
+
+	private static void sleep(long millis) {
+
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package com.mambu.apisdk.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpClientProviderTest {
+
+	private static final int SOME_MAX_TOTAL = 12;
+	private static final int SOME_MAX_PER_ROUTE = 7;
+
+	private HttpClientProvider httpClientProvider;
+
+	@Before
+	public void setUp() {
+
+		HttpClientConfig httpClientConfig = new HttpClientConfig();
+		httpClientConfig.setMaxTotalConnections(SOME_MAX_TOTAL);
+		httpClientConfig.setMaxConnectionsPerRoute(SOME_MAX_PER_ROUTE);
+
+		httpClientProvider = new HttpClientProvider(httpClientConfig);
+	}
+
+	@After
+	public void tearDown() {
+
+		httpClientProvider.shutdown();
+	}
+
+	@Test
+	public void givenSeveralCallsWhenGetHttpClientThenSameClientIsReturned() {
+
+		HttpClient first = httpClientProvider.getHttpClient();
+		HttpClient second = httpClientProvider.getHttpClient();
+
+		assertThat(first, is(notNullValue()));
+		assertThat(second, is(sameInstance(first)));
+	}
+
+	@Test
+	public void givenHttpClientConfigWhenGetHttpClientThenPoolIsConfigured() {
+
+		httpClientProvider.getHttpClient();
+
+		PoolingHttpClientConnectionManager connectionManager = httpClientProvider.getConnectionManager();
+
+		assertThat(connectionManager.getMaxTotal(), is(SOME_MAX_TOTAL));
+		assertThat(connectionManager.getDefaultMaxPerRoute(), is(SOME_MAX_PER_ROUTE));
+	}
+
+	@Test
+	public void givenShutdownWhenGetHttpClientThenNewClientIsCreated() {
+
+		HttpClient first = httpClientProvider.getHttpClient();
+
+		httpClientProvider.shutdown();
+
+		assertThat(httpClientProvider.getConnectionManager(), is(nullValue()));
+		assertThat(httpClientProvider.getHttpClient(), is(not(sameInstance(first))));
+	}
+
+	@Test
+	public void givenShutdownWhenGetBackgroundExecutorThenPreviousExecutorIsShutDown() {
+
+		ExecutorService first = httpClientProvider.getBackgroundExecutor();
+
+		httpClientProvider.shutdown();
+
+		assertThat(first.isShutdown(), is(true));
+		assertThat(httpClientProvider.getBackgroundExecutor(), is(not(sameInstance(first))));
+	}
+
+	@Test
+	public void givenShutdownWhenGetSslContextThenSameContextIsReturnedWithSessionCache() {
+
+		SSLContext first = httpClientProvider.getSslContext();
+		httpClientProvider.getHttpClient();
+
+		httpClientProvider.shutdown();
+
+		assertThat(httpClientProvider.getSslContext(), is(sameInstance(first)));
+		assertThat(first.getClientSessionContext().getSessionCacheSize(),
+				is(HttpClientConfig.DEFAULT_TLS_SESSION_CACHE_SIZE));
+	}
+
+	@Test
+	public void givenWarmUpWhenExecutingRequestThenWarmConnectionIsReused() throws Exception {
+
+		// setup
+		HttpServer mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.createContext("/api/", this::respond);
+		mambu.start();
+		HttpHost target = new HttpHost("localhost", mambu.getAddress().getPort(), "http");
+		HttpRoute route = new HttpRoute(target);
+
+		try {
+			// execute
+			int warmConnections = httpClientProvider.warmUp(target, 3);
+			HttpResponse response = httpClientProvider.getHttpClient().execute(
+					new HttpGet(target.toURI() + "/api/clients"));
+			EntityUtils.consume(response.getEntity());
+
+			// verify
+			PoolingHttpClientConnectionManager connectionManager = httpClientProvider.getConnectionManager();
+			assertThat(warmConnections, is(3));
+			assertThat(connectionManager.getStats(route).getAvailable(), is(3));
+		} finally {
+			mambu.stop(0);
+		}
+	}
+
+	@Test
+	public void givenConcurrentShutdownWhenWarmingUpThenWarmUpCompletesWithoutError() throws Exception {
+
+		// setup
+		HttpServer mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.start();
+		HttpHost target = new HttpHost("localhost", mambu.getAddress().getPort(), "http");
+		ExecutorService warmUpThread = Executors.newSingleThreadExecutor();
+
+		try {
+			for (int i = 0; i < 20; i++) {
+				// execute
+				Future<Integer> warmConnections = warmUpThread.submit(() -> httpClientProvider.warmUp(target, 3));
+				httpClientProvider.shutdown();
+
+				// verify
+				assertThat(warmConnections.get(5, TimeUnit.SECONDS) <= 3, is(true));
+			}
+		} finally {
+			warmUpThread.shutdown();
+			mambu.stop(0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenInvalidMaxTotalWhenSetMaxTotalConnectionsThenExceptionIsThrown() {
+
+		new HttpClientConfig().setMaxTotalConnections(0);
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+
+		exchange.sendResponseHeaders(200, 2);
+		exchange.getResponseBody().write("{}".getBytes());
+		exchange.close();
+	}
+}
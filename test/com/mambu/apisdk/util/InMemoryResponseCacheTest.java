@@ -0,0 +1,205 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestCoalescer.CoalescedRequest;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.core.shared.model.Currency;
+import com.mambu.organization.shared.model.Branch;
+
+public class InMemoryResponseCacheTest {
+
+	private static final String KEY = "GET https://demo.mambutest.com/api/currencies null";
+
+	private final AtomicLong now = new AtomicLong(1000);
+	// Refreshes are queued and run by the test
+	private final List<Runnable> refreshes = new ArrayList<>();
+	private final InMemoryResponseCache cache = new InMemoryResponseCache(2, 0.5, refreshes::add, now::get);
+
+	private final AtomicInteger loads = new AtomicInteger();
+	private final CoalescedRequest<String> loader = () -> "response " + loads.incrementAndGet();
+
+	@Test
+	public void givenCachedResponseWhenReadBeforeExpiryThenLoaderIsNotCalled() throws MambuApiException {
+
+		// execute
+		String first = cache.get(KEY, Currency.class, 100, loader);
+		now.addAndGet(40);
+		String second = cache.get(KEY, Currency.class, 100, loader);
+
+		// verify
+		assertEquals("response 1", first);
+		assertEquals("response 1", second);
+		assertEquals(1, loads.get());
+		ResponseCacheStatistics statistics = cache.getStatistics();
+		assertEquals(1, statistics.getHitCount());
+		assertEquals(1, statistics.getMissCount());
+		assertEquals(1, statistics.getLoadSuccessCount());
+		assertEquals(0.5, statistics.getHitRate(), 0.001);
+	}
+
+	@Test
+	public void givenResponseReadAfterRefreshPointWhenGettingThenCachedResponseIsReturnedAndReloaded()
+			throws MambuApiException {
+
+		// setup
+		cache.get(KEY, Currency.class, 100, loader);
+		now.addAndGet(60);
+
+		// execute: the read doesn't wait for the refresh, and a single refresh is scheduled
+		assertEquals("response 1", cache.get(KEY, Currency.class, 100, loader));
+		assertEquals("response 1", cache.get(KEY, Currency.class, 100, loader));
+		assertEquals(1, refreshes.size());
+		refreshes.get(0).run();
+
+		// verify: the refreshed response is returned, with a new time to live
+		now.addAndGet(45);
+		assertEquals("response 2", cache.get(KEY, Currency.class, 100, loader));
+		assertEquals(2, loads.get());
+		assertEquals(1, cache.getStatistics().getRefreshCount());
+	}
+
+	@Test
+	public void givenFailedRefreshWhenGettingThenCachedResponseIsKeptUntilExpiry() throws MambuApiException {
+
+		// setup
+		cache.get(KEY, Currency.class, 100, loader);
+		now.addAndGet(60);
+		CoalescedRequest<String> failingLoader = () -> {
+			throw new MambuApiException(503, "Service unavailable");
+		};
+
+		// execute
+		assertEquals("response 1", cache.get(KEY, Currency.class, 100, failingLoader));
+		refreshes.get(0).run();
+		now.addAndGet(30);
+
+		// verify: the response is still returned, and the next read tries the refresh again
+		assertEquals("response 1", cache.get(KEY, Currency.class, 100, failingLoader));
+		assertEquals(2, refreshes.size());
+		assertEquals(1, cache.getStatistics().getLoadFailureCount());
+
+		// verify: once expired, the loader is called by the reader
+		now.addAndGet(20);
+		try {
+			cache.get(KEY, Currency.class, 100, failingLoader);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(503), e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void givenFullCacheWhenLoadingThenLeastRecentlyUsedResponseIsEvicted() throws MambuApiException {
+
+		// setup
+		cache.get("first", Currency.class, 100, loader);
+		cache.get("second", Currency.class, 100, loader);
+		cache.get("first", Currency.class, 100, loader);
+
+		// execute
+		cache.get("third", Currency.class, 100, loader);
+
+		// verify
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getStatistics().getEvictionCount());
+		assertEquals("response 1", cache.get("first", Currency.class, 100, loader));
+		assertEquals("response 4", cache.get("second", Currency.class, 100, loader));
+	}
+
+	@Test
+	public void givenCachedResponsesWhenInvalidatingEntityClassThenOnlyItsResponsesAreRemoved()
+			throws MambuApiException {
+
+		// setup
+		cache.get("currencies", Currency.class, 100, loader);
+		cache.get("branches", Branch.class, 100, loader);
+
+		// execute
+		cache.invalidate(Branch.class);
+
+		// verify
+		assertEquals("response 1", cache.get("currencies", Currency.class, 100, loader));
+		assertEquals("response 3", cache.get("branches", Branch.class, 100, loader));
+	}
+
+	@Test
+	public void givenInvalidationDuringLoadWhenLoadCompletesThenResponseIsNotCached() throws MambuApiException {
+
+		// execute: the response is loaded before a change invalidated the cache
+		String response = cache.get(KEY, Currency.class, 100, () -> {
+			String loaded = loader.execute();
+			cache.invalidateAll();
+			return loaded;
+		});
+
+		// verify
+		assertEquals("response 1", response);
+		assertEquals(0, cache.size());
+		assertEquals("response 2", cache.get(KEY, Currency.class, 100, loader));
+	}
+
+	@Test
+	public void givenDeadlineOfCallerWhenLoadInFlightIsBlockedThenCallerTimesOut() throws Exception {
+
+		// setup: a load of the response blocks until released
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> firstCaller = pool.submit(() -> cache.get(KEY, Currency.class, 100, () -> {
+				loading.countDown();
+				Uninterruptibles.awaitUninterruptibly(release);
+				return loader.execute();
+			}));
+			assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+			// execute
+			try {
+				RequestTimeouts.callWithDeadline(50, TimeUnit.MILLISECONDS,
+						() -> cache.get(KEY, Currency.class, 100, loader));
+				fail("Exception expected");
+			} catch (MambuApiException e) {
+				// verify
+				assertEquals(Integer.valueOf(RequestTimeouts.TIMED_OUT), e.getErrorCode());
+			}
+			release.countDown();
+			assertEquals("response 1", firstCaller.get(5, TimeUnit.SECONDS));
+			assertEquals(1, loads.get());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void givenConfigurationPolicyWhenGettingTimeToLiveThenOnlyConfigurationReadsAreCached() {
+
+		// setup
+		ResponseCachePolicy policy = ResponseCachePolicy.forConfigurationData(10, TimeUnit.MINUTES);
+
+		// verify
+		assertEquals(600000, policy.getTimeToLive(new ApiDefinition(ApiType.GET_LIST, Currency.class)));
+		assertEquals(600000, policy.getTimeToLive(new ApiDefinition(ApiType.GET_ENTITY_DETAILS, Branch.class)));
+		assertEquals(0, policy.getTimeToLive(new ApiDefinition(ApiType.CREATE_JSON_ENTITY, Branch.class)));
+		assertEquals(0, policy.getTimeToLive(new ApiDefinition(ApiType.GET_LIST, Client.class)));
+		assertTrue(policy.setTimeToLive(Branch.class, 0, TimeUnit.MINUTES) == policy);
+		assertEquals(0, policy.getTimeToLive(new ApiDefinition(ApiType.GET_LIST, Branch.class)));
+	}
+}
@@ -0,0 +1,185 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.exception.UncheckedMambuApiException;
+
+public class PagedIterableTest {
+
+	// runs the prefetches in the calling thread, so that the requested offsets are deterministic
+	private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+	@Test
+	public void givenSeveralPagesWhenIteratingThenAllEntitiesAreReturnedInOrder() {
+
+		// setup
+		RecordingFetcher fetcher = new RecordingFetcher(23);
+
+		// execute
+		List<Integer> result = new ArrayList<>();
+		for (Integer entity : new PagedIterable<>(fetcher, 10, 2, DIRECT_EXECUTOR)) {
+			result.add(entity);
+		}
+
+		// verify: pages are requested in offset order and the iteration stops at the short page
+		assertEquals(23, result.size());
+		for (int i = 0; i < result.size(); i++) {
+			assertEquals(Integer.valueOf(i), result.get(i));
+		}
+		assertEquals(0, fetcher.offsets.get(0).intValue());
+		assertEquals(10, fetcher.offsets.get(1).intValue());
+		assertEquals(20, fetcher.offsets.get(2).intValue());
+	}
+
+	@Test
+	public void givenNoPrefetchWhenIteratingThenPagesAreFetchedOnlyWhenNeeded() {
+
+		// setup
+		RecordingFetcher fetcher = new RecordingFetcher(20);
+		Iterator<Integer> iterator = new PagedIterable<>(fetcher, 10, 0, DIRECT_EXECUTOR).iterator();
+
+		// execute
+		for (int i = 0; i < 10; i++) {
+			iterator.next();
+		}
+
+		// verify
+		assertEquals(1, fetcher.offsets.size());
+		for (int i = 0; i < 10; i++) {
+			iterator.next();
+		}
+		// the third page is empty and ends the iteration
+		assertFalse(iterator.hasNext());
+		assertEquals(3, fetcher.offsets.size());
+	}
+
+	@Test
+	public void givenPrefetchWhenConsumingFirstPageThenNextPageIsFetchedInBackground() throws Exception {
+
+		// setup
+		final CountDownLatch secondPageRequested = new CountDownLatch(1);
+		final RecordingFetcher fetcher = new RecordingFetcher(100);
+		PageFetcher<Integer> signallingFetcher = (offset, limit) -> {
+			if (offset == limit) {
+				secondPageRequested.countDown();
+			}
+			return fetcher.getPage(offset, limit);
+		};
+
+		// execute
+		Iterator<Integer> iterator = new PagedIterable<>(signallingFetcher, 10, 1).iterator();
+		iterator.next();
+
+		// verify
+		assertTrue(secondPageRequested.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void givenLaneAndDeadlineOfCallerWhenPrefetchingThenPagesAreFetchedWithThem() throws Exception {
+
+		// setup: pages prefetched on another thread, recording the settings of their requests
+		final RecordingFetcher fetcher = new RecordingFetcher(30);
+		final List<String> settings = new CopyOnWriteArrayList<>();
+		PageFetcher<Integer> settingsFetcher = (offset, limit) -> {
+			settings.add(Bulkhead.getCurrentLane() + " " + (RequestTimeouts.getCurrentDeadline() != null));
+			return fetcher.getPage(offset, limit);
+		};
+		ExecutorService prefetchThread = Executors.newSingleThreadExecutor();
+
+		// execute
+		int count = Bulkhead.callInLane(Bulkhead.BATCH, () -> RequestTimeouts.callWithDeadline(1, TimeUnit.MINUTES,
+				() -> {
+					int entities = 0;
+					for (@SuppressWarnings("unused")
+					Integer entity : new PagedIterable<>(settingsFetcher, 10, 2, prefetchThread)) {
+						entities++;
+					}
+					return entities;
+				}));
+		String workerLane = prefetchThread.submit(() -> Bulkhead.getCurrentLane() + " "
+				+ (RequestTimeouts.getCurrentDeadline() != null)).get(5, TimeUnit.SECONDS);
+		prefetchThread.shutdown();
+
+		// verify: the worker thread is left without the settings once the prefetches completed
+		assertEquals(30, count);
+		assertFalse(settings.isEmpty());
+		for (String setting : settings) {
+			assertEquals("batch true", setting);
+		}
+		assertEquals("null false", workerLane);
+	}
+
+	@Test
+	public void givenFailingPageWhenIteratingThenExceptionIsThrownAndIterationEnds() {
+
+		// setup
+		final RecordingFetcher fetcher = new RecordingFetcher(100);
+		PageFetcher<Integer> failingFetcher = (offset, limit) -> {
+			if (offset == limit) {
+				throw new MambuApiException(500, "Internal error");
+			}
+			return fetcher.getPage(offset, limit);
+		};
+		Iterator<Integer> iterator = new PagedIterable<>(failingFetcher, 10, 1, DIRECT_EXECUTOR).iterator();
+		for (int i = 0; i < 10; i++) {
+			iterator.next();
+		}
+
+		// execute
+		try {
+			iterator.hasNext();
+			fail("Exception expected");
+		} catch (UncheckedMambuApiException e) {
+			// verify
+			assertEquals(Integer.valueOf(500), e.getCause().getErrorCode());
+		}
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenInvalidPageSizeWhenCreatingThenExceptionIsThrown() {
+
+		new PagedIterable<>((offset, limit) -> Collections.<Integer> emptyList(), 0, 1);
+	}
+
+	/**
+	 * Returns pages of consecutive integers, from 0 to size - 1, recording the requested offsets
+	 */
+	private static class RecordingFetcher implements PageFetcher<Integer> {
+
+		private final int size;
+		private final List<Integer> offsets = new CopyOnWriteArrayList<>();
+
+		RecordingFetcher(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public List<Integer> getPage(int offset, int limit) {
+
+			offsets.add(offset);
+			List<Integer> page = new ArrayList<>();
+			for (int i = offset; i < Math.min(offset + limit, size); i++) {
+				page.add(i);
+			}
+			return page;
+		}
+	}
+}
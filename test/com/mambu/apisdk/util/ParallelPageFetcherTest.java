@@ -0,0 +1,132 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+public class ParallelPageFetcherTest {
+
+	@Test
+	public void givenPagesCompletingOutOfOrderWhenFetchAllThenEntitiesKeepServerOrder() throws MambuApiException {
+
+		// setup
+		RecordingFetcher fetcher = new RecordingFetcher(1005);
+
+		// execute
+		List<Integer> result = new ParallelPageFetcher<>(fetcher, 10, 4).fetchAll();
+
+		// verify
+		assertEquals(1005, result.size());
+		for (int i = 0; i < result.size(); i++) {
+			assertEquals(Integer.valueOf(i), result.get(i));
+		}
+		assertTrue("Max concurrency exceeded: " + fetcher.maxRunning.get(), fetcher.maxRunning.get() <= 4);
+		assertTrue("Pages were not requested concurrently", fetcher.maxRunning.get() > 1);
+	}
+
+	@Test
+	public void givenShortPageWhenFetchingThenNoMorePagesAreRequested() throws MambuApiException {
+
+		// setup
+		RecordingFetcher fetcher = new RecordingFetcher(25);
+
+		// execute
+		List<Integer> result = new ParallelPageFetcher<>(fetcher, 10, 3).fetchAll();
+
+		// verify: the last page (offset 20) is short, pages after it can only have been requested before it completed
+		assertEquals(25, result.size());
+		for (Integer offset : fetcher.offsets) {
+			assertTrue("Unexpected offset " + offset, offset < 20 + 3 * 10);
+		}
+	}
+
+	@Test
+	public void givenFailingPageWhenFetchingThenErrorIsThrown() {
+
+		// setup
+		final RecordingFetcher fetcher = new RecordingFetcher(100);
+		PageFetcher<Integer> failingFetcher = (offset, limit) -> {
+			if (offset == 30) {
+				throw new MambuApiException(500, "Internal error");
+			}
+			return fetcher.getPage(offset, limit);
+		};
+		final List<Integer> consumed = new ArrayList<>();
+
+		// execute
+		try {
+			new ParallelPageFetcher<>(failingFetcher, 10, 4).forEachPage(consumed::addAll);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			// verify: pages before the failed one are consumed
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+			assertEquals(30, consumed.size());
+		}
+	}
+
+	@Test
+	public void givenFailingPageAfterTheEndWhenFetchingThenErrorIsIgnored() throws MambuApiException {
+
+		// setup
+		final RecordingFetcher fetcher = new RecordingFetcher(15);
+		PageFetcher<Integer> failingFetcher = (offset, limit) -> {
+			if (offset >= 20) {
+				throw new MambuApiException(400, "Invalid offset");
+			}
+			return fetcher.getPage(offset, limit);
+		};
+
+		// execute
+		List<Integer> result = new ParallelPageFetcher<>(failingFetcher, 10, 4).fetchAll();
+
+		// verify
+		assertEquals(15, result.size());
+	}
+
+	/**
+	 * Returns pages of consecutive integers, from 0 to size - 1, after a random delay. Records the requested offsets
+	 * and the maximum number of concurrent requests
+	 */
+	private static class RecordingFetcher implements PageFetcher<Integer> {
+
+		private final int size;
+		private final List<Integer> offsets = new CopyOnWriteArrayList<>();
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicInteger maxRunning = new AtomicInteger();
+
+		RecordingFetcher(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public List<Integer> getPage(int offset, int limit) throws MambuApiException {
+
+			offsets.add(offset);
+			int now = running.incrementAndGet();
+			maxRunning.accumulateAndGet(now, Math::max);
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextInt(1, 4));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MambuApiException(e);
+			} finally {
+				running.decrementAndGet();
+			}
+			List<Integer> page = new ArrayList<>();
+			for (int i = offset; i < Math.min(offset + limit, size); i++) {
+				page.add(i);
+			}
+			return page;
+		}
+	}
+}
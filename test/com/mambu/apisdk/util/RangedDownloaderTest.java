@@ -0,0 +1,283 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.DownloadResult;
+import com.mambu.apisdk.model.Protocol;
+import com.mambu.apisdk.services.DatabaseService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the ranged download of a DB backup against a local stub server
+ */
+public class RangedDownloaderTest {
+
+	private static final String BACKUP_PATH = "/api/database/backup/LATEST";
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+	private static final String ETAG = "\"backup-1\"";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final byte[] backup = new byte[100000];
+	private final List<String> requestedRanges = new CopyOnWriteArrayList<>();
+	private volatile boolean rangesSupported = true;
+	private volatile long failRangesFrom = -1;
+
+	private HttpServer server;
+	private DatabaseService databaseService;
+
+	@Before
+	public void setUp() throws Exception {
+
+		new Random(7).nextBytes(backup);
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext(BACKUP_PATH, this::handleBackupRequest);
+		server.start();
+
+		MambuAPIServiceFactory factory = MambuAPIServiceFactory.getFactoryWithApiKey(Protocol.HTTP,
+				"localhost:" + server.getAddress().getPort(), "apiKey");
+		databaseService = factory.getDatabaseService();
+	}
+
+	@After
+	public void tearDown() {
+
+		server.stop(0);
+	}
+
+	@Test
+	public void givenRangesSupportedWhenDownloadingThenSegmentsAreWrittenInParallel() throws Exception {
+
+		// setup
+		Path file = temporaryFolder.getRoot().toPath().resolve("backup.zip");
+		RangedDownloader downloader = createDownloader();
+		final long[] lastProgress = new long[1];
+		downloader.setProgressListener((transferredBytes, totalBytes) -> {
+			assertEquals(backup.length, totalBytes);
+			lastProgress[0] = transferredBytes;
+		});
+
+		// execute
+		DownloadResult result = databaseService.downloadLatestDbBackup(file, downloader);
+
+		// verify
+		assertArrayEquals(backup, Files.readAllBytes(file));
+		assertEquals(backup.length, result.getTransferredBytes());
+		assertEquals(sha256(backup), result.getChecksum());
+		assertEquals(backup.length, lastProgress[0]);
+		// the probe for the first byte and the 10 segments
+		assertEquals(11, requestedRanges.size());
+		assertTrue(requestedRanges.contains("bytes=90000-99999"));
+		assertFalse(Files.exists(RangedDownloader.getSegmentMapFile(file)));
+	}
+
+	@Test
+	public void givenRangesNotSupportedWhenDownloadingThenWholeContentIsStreamed() throws Exception {
+
+		// setup
+		rangesSupported = false;
+		Path file = temporaryFolder.getRoot().toPath().resolve("backup.zip");
+
+		// execute
+		DownloadResult result = databaseService.downloadLatestDbBackup(file, createDownloader());
+
+		// verify
+		assertArrayEquals(backup, Files.readAllBytes(file));
+		assertEquals(sha256(backup), result.getChecksum());
+		assertEquals(1, requestedRanges.size());
+		assertFalse(Files.exists(RangedDownloader.getSegmentMapFile(file)));
+	}
+
+	@Test
+	public void givenFailedDownloadWhenDownloadingAgainThenOnlyMissingSegmentsAreRequested() throws Exception {
+
+		// setup
+		Path file = temporaryFolder.getRoot().toPath().resolve("backup.zip");
+		RangedDownloader downloader = createDownloader();
+		failRangesFrom = 50000;
+
+		// execute
+		try {
+			databaseService.downloadLatestDbBackup(file, downloader);
+			fail("The download should fail");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+		}
+		assertTrue(Files.exists(RangedDownloader.getSegmentMapFile(file)));
+
+		failRangesFrom = -1;
+		requestedRanges.clear();
+		DownloadResult result = databaseService.downloadLatestDbBackup(file, downloader);
+
+		// verify
+		assertArrayEquals(backup, Files.readAllBytes(file));
+		assertEquals(sha256(backup), result.getChecksum());
+		// the probe for the first byte and the 5 segments which failed
+		assertEquals(6, requestedRanges.size());
+		assertFalse(requestedRanges.contains("bytes=0-9999"));
+		assertTrue(requestedRanges.contains("bytes=50000-59999"));
+		assertFalse(Files.exists(RangedDownloader.getSegmentMapFile(file)));
+	}
+
+	@Test
+	public void givenConnectionResetWhenDownloadingSegmentThenSegmentIsRequestedAgain() throws Exception {
+
+		// setup: the first attempt of one segment fails with an I/O error
+		Path file = temporaryFolder.getRoot().toPath().resolve("backup.zip");
+		RangedDownloader downloader = createDownloader();
+		RangedDownloader.RangeRequester requester = new RangedDownloader.RangeRequester() {
+
+			@Override
+			public <R> R request(long firstByte, long lastByte, RangeContentReader<R> contentReader)
+					throws MambuApiException {
+
+				requestedRanges.add("bytes=" + firstByte + "-" + lastByte);
+				if (firstByte == 50000 && occurrences("bytes=50000-59999") == 1) {
+					throw new MambuApiException(new IOException("Connection reset"));
+				}
+				return readRange(firstByte, lastByte, contentReader);
+			}
+		};
+
+		// execute
+		downloader.download(requester, file);
+
+		// verify
+		assertArrayEquals(backup, Files.readAllBytes(file));
+		assertEquals(2, occurrences("bytes=50000-59999"));
+	}
+
+	@Test
+	public void givenOpenCircuitWhenDownloadingSegmentThenSegmentIsNotRetried() throws Exception {
+
+		// setup
+		Path file = temporaryFolder.getRoot().toPath().resolve("backup.zip");
+		RangedDownloader downloader = createDownloader();
+		RangedDownloader.RangeRequester requester = new RangedDownloader.RangeRequester() {
+
+			@Override
+			public <R> R request(long firstByte, long lastByte, RangeContentReader<R> contentReader)
+					throws MambuApiException {
+
+				requestedRanges.add("bytes=" + firstByte + "-" + lastByte);
+				if (firstByte >= 50000) {
+					throw new MambuApiException(CircuitBreaker.CIRCUIT_OPEN, "Circuit open for endpoint database");
+				}
+				return readRange(firstByte, lastByte, contentReader);
+			}
+		};
+
+		// execute
+		try {
+			downloader.download(requester, file);
+			fail("The download should fail");
+		} catch (MambuApiException e) {
+			// verify
+			assertEquals(Integer.valueOf(CircuitBreaker.CIRCUIT_OPEN), e.getErrorCode());
+		}
+		for (String range : requestedRanges) {
+			assertEquals(range, 1, occurrences(range));
+		}
+	}
+
+	private <R> R readRange(long firstByte, long lastByte, RangeContentReader<R> contentReader)
+			throws MambuApiException {
+
+		int last = lastByte < 0 ? backup.length - 1 : (int) Math.min(lastByte, backup.length - 1);
+		ContentRange contentRange = new ContentRange(firstByte, last, backup.length, true, ETAG);
+		try {
+			return contentReader.read(new ByteArrayInputStream(backup, (int) firstByte, last - (int) firstByte + 1),
+					contentRange);
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	private int occurrences(String range) {
+
+		int count = 0;
+		for (String requestedRange : requestedRanges) {
+			if (requestedRange.equals(range)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private RangedDownloader createDownloader() {
+
+		RangedDownloader downloader = new RangedDownloader();
+		downloader.setSegmentSize(10000);
+		downloader.setMaxConnections(3);
+		downloader.setMaxAttemptsPerSegment(2);
+		downloader.setBufferSize(4096);
+		return downloader;
+	}
+
+	private void handleBackupRequest(HttpExchange exchange) throws IOException {
+
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		requestedRanges.add(String.valueOf(range));
+
+		Matcher matcher = range == null ? null : RANGE.matcher(range);
+		if (!rangesSupported || matcher == null || !matcher.matches()) {
+			exchange.sendResponseHeaders(200, backup.length);
+			write(exchange, 0, backup.length);
+			return;
+		}
+
+		int firstByte = Integer.parseInt(matcher.group(1));
+		int lastByte = matcher.group(2).isEmpty() ? backup.length - 1
+				: Math.min(Integer.parseInt(matcher.group(2)), backup.length - 1);
+		if (failRangesFrom >= 0 && firstByte >= failRangesFrom) {
+			exchange.sendResponseHeaders(500, -1);
+			exchange.close();
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Range", "bytes " + firstByte + "-" + lastByte + "/" + backup.length);
+		exchange.getResponseHeaders().set("ETag", ETAG);
+		exchange.sendResponseHeaders(206, lastByte - firstByte + 1);
+		write(exchange, firstByte, lastByte - firstByte + 1);
+	}
+
+	private void write(HttpExchange exchange, int offset, int length) throws IOException {
+
+		try (OutputStream body = exchange.getResponseBody()) {
+			body.write(backup, offset, length);
+		}
+	}
+
+	private static String sha256(byte[] content) throws Exception {
+
+		return Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(content));
+	}
+}
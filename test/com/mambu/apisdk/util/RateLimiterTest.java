@@ -0,0 +1,119 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RateLimiter.RequestType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+public class RateLimiterTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Test
+	public void givenFailFastWhenBurstIsUsedThenRequestsFailUntilRefilled() throws Exception {
+
+		// setup
+		RateLimiter rateLimiter = new RateLimiter(2, 2, 1, 1, clock::get);
+		rateLimiter.setFailFast(true);
+
+		// execute
+		rateLimiter.acquire(Method.GET);
+		rateLimiter.acquire(Method.GET);
+		assertRejected(rateLimiter, Method.GET);
+		advance(500);
+		rateLimiter.acquire(Method.GET);
+
+		// verify
+		assertEquals(0, rateLimiter.getAvailablePermits(RequestType.READ));
+		assertEquals(1, rateLimiter.getRejectedCount());
+	}
+
+	@Test
+	public void givenReadsUsedWhenWritingThenWritesHaveTheirOwnPermits() throws Exception {
+
+		RateLimiter rateLimiter = new RateLimiter(1, 1, 5, 5, clock::get);
+		rateLimiter.setFailFast(true);
+
+		rateLimiter.acquire(Method.GET);
+		assertRejected(rateLimiter, Method.GET);
+		rateLimiter.acquire(Method.POST);
+		rateLimiter.acquire(Method.DELETE);
+
+		assertEquals(3, rateLimiter.getAvailablePermits(RequestType.WRITE));
+	}
+
+	@Test
+	public void givenRetryAfterWhenThrottledThenBucketIsPausedAndSlowedDown() throws Exception {
+
+		// setup
+		RateLimiter rateLimiter = new RateLimiter(10, 10, 10, 10, clock::get);
+		rateLimiter.setFailFast(true);
+		HttpResponse throttled = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "Too Many Requests");
+		throttled.addHeader("Retry-After", "2");
+
+		// execute
+		rateLimiter.onResponse(Method.GET, throttled);
+
+		// verify: no permits until Retry-After elapsed, then at half the rate
+		assertEquals(5.0, rateLimiter.getRate(RequestType.READ), 0.001);
+		assertEquals(0, rateLimiter.getAvailablePermits(RequestType.READ));
+		assertEquals(10, rateLimiter.getAvailablePermits(RequestType.WRITE));
+		advance(2000);
+		assertRejected(rateLimiter, Method.GET);
+		advance(200);
+		rateLimiter.acquire(Method.GET);
+		assertEquals(1, rateLimiter.getThrottledCount());
+
+		// successful responses recover the configured rate
+		for (int i = 0; i < 20; i++) {
+			rateLimiter.onResponse(Method.GET, new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"));
+		}
+		assertEquals(10.0, rateLimiter.getRate(RequestType.READ), 0.001);
+	}
+
+	@Test
+	public void givenBlockingLimiterWhenNoPermitIsAvailableThenRequestWaits() throws Exception {
+
+		// setup
+		RateLimiter rateLimiter = new RateLimiter(20, 1, 20, 1);
+
+		// execute
+		long start = System.nanoTime();
+		for (int i = 0; i < 4; i++) {
+			rateLimiter.acquire(Method.PATCH);
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// verify
+		assertTrue("Elapsed " + elapsedMillis, elapsedMillis >= 140);
+		assertEquals(3, rateLimiter.getWaitCount());
+		assertTrue(rateLimiter.getLongestWaitMillis() >= 40);
+		assertTrue(rateLimiter.getTotalWaitMillis() >= 140);
+	}
+
+	private void advance(long millis) {
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	private static void assertRejected(RateLimiter rateLimiter, Method method) {
+
+		try {
+			rateLimiter.acquire(method);
+			fail("The request should be rejected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(RateLimiter.TOO_MANY_REQUESTS), e.getErrorCode());
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+public class RequestCoalescerTest {
+
+	private static final int CALLERS = 8;
+
+	private final RequestCoalescer coalescer = new RequestCoalescer();
+	private final ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+
+	@After
+	public void tearDown() {
+
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void givenIdenticalConcurrentRequestsWhenExecutingThenOneRequestIsMade() throws Exception {
+
+		// setup: the first request blocks until all callers are waiting for it
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger executions = new AtomicInteger();
+		final String response = "{\"id\":\"branch_123\"}";
+		RequestCoalescer.CoalescedRequest<String> request = () -> {
+			executions.incrementAndGet();
+			await(release);
+			return response;
+		};
+
+		// execute
+		List<Future<String>> results = submitCallers(request);
+		waitForCoalescedCalls(CALLERS - 1);
+		release.countDown();
+
+		// verify
+		for (Future<String> result : results) {
+			assertSame(response, result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, executions.get());
+		assertEquals(1, coalescer.getExecutedCount());
+		assertEquals(CALLERS - 1, coalescer.getCoalescedCount());
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	public void givenFailingRequestWhenExecutingThenErrorIsThrownToAllWaiters() throws Exception {
+
+		// setup
+		final CountDownLatch release = new CountDownLatch(1);
+		RequestCoalescer.CoalescedRequest<String> request = () -> {
+			await(release);
+			throw new MambuApiException(500, "Internal error");
+		};
+
+		// execute
+		List<Future<String>> results = submitCallers(request);
+		waitForCoalescedCalls(CALLERS - 1);
+		release.countDown();
+
+		// verify
+		for (Future<String> result : results) {
+			try {
+				result.get(5, TimeUnit.SECONDS);
+				fail("Exception expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof MambuApiException);
+				assertEquals(Integer.valueOf(500), ((MambuApiException) e.getCause()).getErrorCode());
+			}
+		}
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	public void givenCompletedRequestWhenExecutingAgainThenNewRequestIsMade() throws MambuApiException {
+
+		// setup
+		final AtomicInteger executions = new AtomicInteger();
+		RequestCoalescer.CoalescedRequest<Integer> request = () -> executions.incrementAndGet();
+
+		// execute
+		coalescer.execute("key", request);
+		coalescer.execute("key", request);
+
+		// verify
+		assertEquals(2, executions.get());
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	@Test
+	public void givenTotalTimeoutOfWaiterWhenRequestInFlightIsBlockedThenWaiterTimesOut() throws Exception {
+
+		// setup: the first request blocks until released
+		final CountDownLatch release = new CountDownLatch(1);
+		Future<String> leader = pool.submit(() -> coalescer.execute("GET clients/123", () -> {
+			await(release);
+			return "{}";
+		}));
+		waitForInFlightCall();
+
+		// execute
+		long start = System.nanoTime();
+		try {
+			RequestTimeouts.callWithTimeouts(new RequestTimeouts(0, 0, 100),
+					() -> coalescer.execute("GET clients/123", () -> "{}"));
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			// verify
+			assertEquals(Integer.valueOf(RequestTimeouts.TIMED_OUT), e.getErrorCode());
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+		}
+		release.countDown();
+		assertEquals("{}", leader.get(5, TimeUnit.SECONDS));
+		assertEquals(1, coalescer.getExecutedCount());
+	}
+
+	@Test
+	public void givenDeadlineOfWaiterWhenRequestInFlightIsBlockedThenWaiterTimesOutAtItsDeadline() throws Exception {
+
+		// setup: the first request blocks until released
+		final CountDownLatch release = new CountDownLatch(1);
+		Future<String> leader = pool.submit(() -> coalescer.execute("GET clients/123", () -> {
+			await(release);
+			return "{}";
+		}));
+		waitForInFlightCall();
+
+		// execute
+		long start = System.nanoTime();
+		try {
+			RequestTimeouts.callWithDeadline(100, TimeUnit.MILLISECONDS,
+					() -> coalescer.execute("GET clients/123", () -> "{}"));
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			// verify: the waiter fails without a cause, as its deadline leaves no time for a retry
+			assertEquals(Integer.valueOf(RequestTimeouts.TIMED_OUT), e.getErrorCode());
+			assertEquals(null, e.getCause());
+			long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue(waitedMillis >= 100 && waitedMillis < 5000);
+		}
+		assertEquals(1, coalescer.getCoalescedCount());
+		release.countDown();
+		assertEquals("{}", leader.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void givenParamsInDifferentOrderWhenMakingKeyThenKeysAreEqual() {
+
+		// setup
+		ParamsMap first = new ParamsMap();
+		first.put(APIData.OFFSET, "0");
+		first.put(APIData.LIMIT, "10");
+		ParamsMap second = new ParamsMap();
+		second.put(APIData.LIMIT, "10");
+		second.put(APIData.OFFSET, "0");
+
+		// verify
+		String url = "https://demo.mambutest.com/api/clients";
+		assertEquals(RequestCoalescer.makeRequestKey(Method.GET, url, first),
+				RequestCoalescer.makeRequestKey(Method.GET, url, second));
+		assertNotEquals(RequestCoalescer.makeRequestKey(Method.GET, url, first),
+				RequestCoalescer.makeRequestKey(Method.GET, url, null));
+	}
+
+	private <T> List<Future<T>> submitCallers(final RequestCoalescer.CoalescedRequest<T> request) {
+
+		List<Future<T>> results = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(pool.submit(new Callable<T>() {
+
+				@Override
+				public T call() throws MambuApiException {
+					return coalescer.execute("GET clients/123", request);
+				}
+			}));
+		}
+		return results;
+	}
+
+	private void waitForCoalescedCalls(int expected) throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (coalescer.getCoalescedCount() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+	}
+
+	private void waitForInFlightCall() throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (coalescer.getInFlightCount() < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void await(CountDownLatch latch) throws MambuApiException {
+
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new MambuApiException(e);
+		}
+	}
+}
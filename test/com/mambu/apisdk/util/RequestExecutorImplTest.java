@@ -2,21 +2,32 @@ package com.mambu.apisdk.util;
 
 import static com.mambu.apisdk.util.RequestExecutor.ContentType.WWW_FORM;
 import static com.mambu.apisdk.util.RequestExecutor.Method.GET;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.entity.StringEntity;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,6 +38,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.mambu.apisdk.MambuAPIFactory;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.DatabaseBackup;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+
 /**
  * @author cezarrom
  */
@@ -51,8 +67,6 @@ public class RequestExecutorImplTest {
 	private HttpClient httpClientMock;
 	@Mock(answer = Answers.RETURNS_DEEP_STUBS)
 	private HttpResponse httpResponseMock;
-	@Mock
-	private ClientConnectionManager clientConnectionManagerMock;
 
 	@InjectMocks
 	private RequestExecutorImpl requestExecutor;
@@ -97,6 +111,121 @@ public class RequestExecutorImplTest {
 		assertThat(httpGet.getFirstHeader(AUTHORIZATION_HEADER_NAME).getValue(), is(getBasicAuthHeader()));
 	}
 
+	@Test
+	public void givenSeveralRequestsWhenExecuteRequestThenPooledHttpClientIsReusedAndNotShutDown() throws Exception {
+
+		// setup
+		requestExecutor.setAuthorization(SOME_API_KEY);
+
+		// execute
+		requestExecutor.executeRequest(SOME_URL, GET);
+		requestExecutor.executeRequest(SOME_URL, GET);
+
+		// verify
+		verify(httpClientProviderMock, times(2)).getHttpClient();
+		verify(httpClientMock, times(2)).execute(any(HttpGet.class));
+		verify(httpClientMock, never()).getConnectionManager();
+	}
+
+	@Test
+	public void givenResponseReaderWhenExecuteRequestThenResultIsReadFromResponseContent() throws Exception {
+
+		// setup
+		requestExecutor.setAuthorization(SOME_API_KEY);
+
+		// execute
+		String result = requestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM, new ResponseReader<String>() {
+
+			@Override
+			public String read(Reader reader) throws IOException {
+
+				return IOUtils.toString(reader);
+			}
+		});
+
+		// verify
+		assertThat(result, is("some data"));
+		verify(httpClientMock).execute(any(HttpGet.class));
+	}
+
+	@Test
+	public void givenErrorResponseWhenExecuteRequestWithResponseReaderThenMambuApiExceptionIsThrown()
+			throws Exception {
+
+		// setup
+		requestExecutor.setAuthorization(SOME_API_KEY);
+		when(httpResponseMock.getStatusLine().getStatusCode()).thenReturn(HTTP_BAD_REQUEST);
+		@SuppressWarnings("unchecked")
+		ResponseReader<String> responseReaderMock = mock(ResponseReader.class);
+
+		// execute
+		try {
+			requestExecutor.executeRequest(SOME_URL, null, GET, WWW_FORM, responseReaderMock);
+			fail("MambuApiException was expected");
+		} catch (MambuApiException e) {
+			// verify
+			assertThat(e.getErrorCode(), is(HTTP_BAD_REQUEST));
+			assertThat(e.getErrorMessage(), is("some data"));
+		}
+		verifyZeroInteractions(responseReaderMock);
+	}
+
+	@Test
+	public void givenContentReaderWhenExecuteDownloadRequestThenContentIsReadFromResponseStream() throws Exception {
+
+		// setup
+		requestExecutor.setAuthorization(SOME_API_KEY);
+		ApiDefinition downloadDefinition = new ApiDefinition("database/backup/LATEST", WWW_FORM, GET,
+				DatabaseBackup.class, ApiReturnFormat.ZIP_ARCHIVE);
+
+		// execute
+		String result = requestExecutor.executeRequest(SOME_URL, null, downloadDefinition,
+				new ContentReader<String>() {
+
+					@Override
+					public String read(InputStream content, long contentLength) throws IOException {
+
+						return IOUtils.toString(content, "UTF-8") + ":" + contentLength;
+					}
+				});
+
+		// verify
+		assertThat(result, is("some data:9"));
+		verify(httpClientMock).execute(any(HttpGet.class));
+	}
+
+	@Test
+	public void givenParamsChangedWhilePreparingRequestWhenExecuteRequestTwiceThenCallerParamsAreUnchanged()
+			throws Exception {
+
+		// setup: the url helper moves the offset to the URL, as for a JSON POST, and an application key is set
+		requestExecutor.setAuthorization(SOME_API_KEY);
+		List<String> offsetsSent = new ArrayList<>();
+		when(urlHelperMock.addJsonPaginationParams(eq(SOME_URL), eq(GET), eq(WWW_FORM), any(ParamsMap.class)))
+				.thenAnswer(invocation -> {
+					ParamsMap params = (ParamsMap) invocation.getArguments()[3];
+					offsetsSent.add(params.remove(APIData.OFFSET));
+					return SOME_URL;
+				});
+		when(urlHelperMock.addDetailsParam(eq(SOME_URL), eq(GET), eq(WWW_FORM), any(ParamsMap.class)))
+				.thenReturn(SOME_URL);
+		ParamsMap params = new ParamsMap();
+		params.addParam(APIData.OFFSET, "50");
+		MambuAPIFactory.setApplicationKey("someAppKey");
+
+		// execute
+		try {
+			requestExecutor.executeRequest(SOME_URL, params, GET, WWW_FORM);
+			requestExecutor.executeRequest(SOME_URL, params, GET, WWW_FORM);
+		} finally {
+			MambuAPIFactory.setApplicationKey(null);
+		}
+
+		// verify
+		assertThat(offsetsSent.toString(), is("[50, 50]"));
+		assertThat(params.toString(), is("{offset=50}"));
+	}
+
 	private ArgumentCaptor<HttpGet> getHttpGetArgumentCaptor() throws IOException {
 
 		ArgumentCaptor<HttpGet> httpGetArgumentCaptor = ArgumentCaptor.forClass(HttpGet.class);
@@ -115,12 +244,11 @@ public class RequestExecutorImplTest {
 
 		StringEntity entity = new StringEntity("some data");
 
-		when(httpClientMock.getConnectionManager()).thenReturn(clientConnectionManagerMock);
 		when(httpClientMock.execute(any(HttpGet.class))).thenReturn(httpResponseMock);
 		when(httpResponseMock.getStatusLine().getStatusCode()).thenReturn(HTTP_OK);
 		when(httpResponseMock.getEntity()).thenReturn(entity);
 
-		when(httpClientProviderMock.createCustomHttpClient()).thenReturn(httpClientMock);
+		when(httpClientProviderMock.getHttpClient()).thenReturn(httpClientMock);
 	}
 
 	private void mockUrlHelperMock() {
@@ -0,0 +1,200 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.Protocol;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class RequestTimeoutsTest {
+
+	private static final RequestTimeouts SHORT = new RequestTimeouts(1000, 200, 0);
+	private static final RequestTimeouts LONG = new RequestTimeouts(1000, 0, 600 * 1000L);
+
+	private ExecutorService mambuThreads;
+	private HttpServer mambu;
+	private MambuAPIServiceFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+
+		// a stub Mambu answering after 2 seconds
+		mambuThreads = Executors.newCachedThreadPool();
+		mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.createContext("/api/", this::respond);
+		mambu.setExecutor(mambuThreads);
+		mambu.start();
+
+		factory = MambuAPIServiceFactory.getFactoryWithApiKey(Protocol.HTTP, getHost(), "apiKey");
+	}
+
+	@After
+	public void tearDown() {
+
+		factory.shutdown();
+		mambu.stop(0);
+		mambuThreads.shutdownNow();
+	}
+
+	@Test
+	public void givenReadTimeoutForApiTypeWhenResponseIsSlowThenRequestTimesOut() throws Exception {
+
+		// setup
+		factory.setTimeoutPolicy(new TimeoutPolicy().setTimeouts(ApiType.GET_ENTITY, SHORT));
+
+		// execute
+		long start = System.nanoTime();
+		MambuApiException exception = getClientFailing();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// verify: the request timed out on its own timeouts, so it can be retried
+		assertEquals(Integer.valueOf(RequestTimeouts.TIMED_OUT), exception.getErrorCode());
+		assertNotNull(exception.getCause());
+		assertTrue("Elapsed " + elapsedMillis, elapsedMillis < 1500);
+	}
+
+	@Test
+	public void givenTotalTimeoutWhenResponseIsSlowThenRequestIsAborted() throws Exception {
+
+		factory.setTimeoutPolicy(new TimeoutPolicy().setDefaultTimeouts(new RequestTimeouts(1000, 0, 300)));
+
+		long start = System.nanoTime();
+		MambuApiException exception = getClientFailing();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(Integer.valueOf(RequestTimeouts.TIMED_OUT), exception.getErrorCode());
+		assertTrue(exception.getCause() instanceof IOException);
+		assertTrue("Elapsed " + elapsedMillis, elapsedMillis < 1500);
+	}
+
+	@Test
+	public void givenCallerDeadlineWhenResponseIsSlowThenRequestIsAbortedAndNotRetried() throws Exception {
+
+		// setup
+		RetryPolicy retryPolicy = new RetryPolicy();
+		factory.setRetryPolicy(retryPolicy);
+
+		// execute
+		long start = System.nanoTime();
+		try {
+			RequestTimeouts.callWithDeadline(300, TimeUnit.MILLISECONDS,
+					() -> factory.getClientService().getClient("clientId"));
+			fail("The request should time out");
+		} catch (MambuApiException e) {
+			// verify
+			assertEquals(Integer.valueOf(RequestTimeouts.TIMED_OUT), e.getErrorCode());
+			assertNull(e.getCause());
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("Elapsed " + elapsedMillis, elapsedMillis < 1500);
+		assertEquals(0, retryPolicy.getRetryCount());
+	}
+
+	@Test
+	public void givenTotalTimeoutWhenAsyncResponseIsSlowThenFutureFailsWithTimedOut() throws Exception {
+
+		// setup
+		HttpClientProvider httpClientProvider = new HttpClientProvider();
+		RequestExecutorImpl requestExecutor = new RequestExecutorImpl(httpClientProvider, new URLHelper("http",
+				getHost(), "test"));
+		requestExecutor.setAuthorization("apiKey");
+		AsyncRequestExecutorImpl asyncRequestExecutor = new AsyncRequestExecutorImpl(httpClientProvider,
+				requestExecutor);
+
+		// execute
+		CompletableFuture<String> future = RequestTimeouts.callWithTimeouts(new RequestTimeouts(1000, 0, 300),
+				() -> asyncRequestExecutor.executeRequest("http://" + getHost() + "/api/clients/clientId", null,
+						Method.GET, ContentType.WWW_FORM));
+
+		// verify
+		try {
+			future.get(1500, TimeUnit.MILLISECONDS);
+			fail("The request should time out");
+		} catch (ExecutionException e) {
+			MambuApiException exception = (MambuApiException) e.getCause();
+			assertEquals(Integer.valueOf(RequestTimeouts.TIMED_OUT), exception.getErrorCode());
+		} finally {
+			httpClientProvider.shutdown();
+		}
+	}
+
+	@Test
+	public void givenTimeoutPolicyWhenGettingTimeoutsThenMostSpecificOnesApply() {
+
+		// setup
+		RequestTimeouts defaultTimeouts = new RequestTimeouts(5000, 30000, 0);
+		RequestTimeouts ownTimeouts = new RequestTimeouts(100, 100, 100);
+		TimeoutPolicy policy = new TimeoutPolicy().setTimeouts(ApiType.GET_ENTITY, SHORT)
+				.setTimeouts(ApiReturnFormat.ZIP_ARCHIVE, LONG).setDefaultTimeouts(defaultTimeouts);
+
+		ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		ApiDefinition getBackup = getClient.withApiReturnFormat(ApiReturnFormat.ZIP_ARCHIVE);
+		ApiDefinition getClients = new ApiDefinition(ApiType.GET_LIST, Client.class);
+
+		// verify
+		assertSame(SHORT, policy.getTimeouts(getClient));
+		assertSame(LONG, policy.getTimeouts(getBackup));
+		assertSame(defaultTimeouts, policy.getTimeouts(getClients));
+		assertSame(ownTimeouts, policy.getTimeouts(getClient.toBuilder().setTimeouts(ownTimeouts).build()));
+	}
+
+	private MambuApiException getClientFailing() {
+
+		try {
+			factory.getClientService().getClient("clientId");
+			fail("The request should time out");
+			return null;
+		} catch (MambuApiException e) {
+			return e;
+		}
+	}
+
+	private String getHost() {
+
+		return "localhost:" + mambu.getAddress().getPort();
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+
+		try {
+			Thread.sleep(2000);
+		} catch (InterruptedException e) {
+			return;
+		}
+		byte[] body = "{\"id\":\"clientId\"}".getBytes(StandardCharsets.UTF_8);
+		try {
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		} catch (IOException e) {
+			// The request was aborted
+		}
+	}
+}
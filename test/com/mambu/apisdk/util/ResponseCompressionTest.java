@@ -0,0 +1,170 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.model.Protocol;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ResponseCompressionTest {
+
+	private static final int CLIENTS = 200;
+
+	private HttpServer mambu;
+	private String acceptedEncoding;
+	private ResponseCompression responseCompression;
+	private HttpClientConfig httpClientConfig;
+
+	@Before
+	public void setUp() throws Exception {
+
+		// a stub Mambu sending gzip responses to the requests accepting them
+		mambu = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		mambu.createContext("/api/", this::respond);
+		mambu.start();
+
+		responseCompression = new ResponseCompression();
+		httpClientConfig = new HttpClientConfig();
+		httpClientConfig.setResponseCompression(responseCompression);
+	}
+
+	@After
+	public void tearDown() {
+
+		mambu.stop(0);
+	}
+
+	@Test
+	public void givenGzipResponseWhenGettingClientsThenItIsDecompressedWhileParsed() throws Exception {
+
+		// setup
+		MambuAPIServiceFactory factory = MambuAPIServiceFactory.getFactoryWithApiKey(Protocol.HTTP, getHost(),
+				"apiKey", "test", httpClientConfig);
+
+		// execute
+		List<Client> clients = factory.getClientService().getClients(true, 0, CLIENTS);
+		factory.shutdown();
+
+		// verify
+		assertEquals(CLIENTS, clients.size());
+		assertEquals("client199", clients.get(CLIENTS - 1).getId());
+		assertEquals(ResponseCompression.ACCEPTED_ENCODINGS, acceptedEncoding);
+		assertEquals(1, responseCompression.getCompressedResponseCount());
+		assertEquals(makeClientsJson().length, responseCompression.getDecodedByteCount());
+		assertTrue(responseCompression.getWireByteCount() * 5 < responseCompression.getDecodedByteCount());
+	}
+
+	@Test
+	public void givenGzipResponseWhenExecutingAsyncThenItIsDecompressed() throws Exception {
+
+		// setup
+		HttpClientProvider httpClientProvider = new HttpClientProvider(httpClientConfig);
+		RequestExecutorImpl requestExecutor = new RequestExecutorImpl(httpClientProvider, new URLHelper("http",
+				getHost(), "test"));
+		requestExecutor.setAuthorization("apiKey");
+		AsyncRequestExecutorImpl asyncRequestExecutor = new AsyncRequestExecutorImpl(httpClientProvider,
+				requestExecutor);
+
+		// execute
+		CompletableFuture<String> future = asyncRequestExecutor.executeRequest("http://" + getHost()
+				+ "/api/clients", null, Method.GET, ContentType.WWW_FORM);
+		String json = future.get();
+		httpClientProvider.shutdown();
+
+		// verify
+		assertEquals(new String(makeClientsJson(), StandardCharsets.UTF_8), json);
+		assertEquals(1, responseCompression.getCompressedResponseCount());
+	}
+
+	@Test
+	public void givenEndpointWithoutCompressionWhenGettingClientsThenResponseIsNotCompressed() throws Exception {
+
+		// setup
+		responseCompression.setCompressed("clients", false);
+		MambuAPIServiceFactory factory = MambuAPIServiceFactory.getFactoryWithApiKey(Protocol.HTTP, getHost(),
+				"apiKey", "test", httpClientConfig);
+
+		// execute
+		List<Client> clients = factory.getClientService().getClients(true, 0, CLIENTS);
+		factory.shutdown();
+
+		// verify
+		assertEquals(CLIENTS, clients.size());
+		assertNull(acceptedEncoding);
+		assertEquals(0, responseCompression.getCompressedResponseCount());
+		assertEquals(responseCompression.getWireByteCount(), responseCompression.getDecodedByteCount());
+	}
+
+	@Test
+	public void givenDefaultConfigWhenCheckingEndpointsThenOnlyDatabaseBackupsAreNotCompressed() {
+
+		// execute
+		ResponseCompression defaultCompression = new HttpClientConfig().getResponseCompression();
+
+		// verify
+		assertFalse(defaultCompression.isCompressed("database"));
+		assertTrue(defaultCompression.isCompressed("clients"));
+		assertTrue(new ResponseCompression().isCompressed("database"));
+	}
+
+	@Test
+	public void givenRequestUrisWhenGettingEndpointThenFirstPartOfApiPathIsReturned() {
+
+		assertEquals("clients", ResponseCompression.getEndpoint("https://demo.mambu.com/api/clients?offset=0"));
+		assertEquals("database", ResponseCompression.getEndpoint("/api/database/backup/LATEST"));
+		assertEquals("", ResponseCompression.getEndpoint("/health"));
+	}
+
+	private String getHost() {
+
+		return "localhost:" + mambu.getAddress().getPort();
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+
+		acceptedEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		byte[] body = makeClientsJson();
+		if (acceptedEncoding != null && acceptedEncoding.contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write(body);
+			}
+			body = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	private static byte[] makeClientsJson() {
+
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < CLIENTS; i++) {
+			json.append(i == 0 ? "" : ",").append("{\"id\":\"client").append(i).append(
+					"\",\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"state\":\"ACTIVE\"}");
+		}
+		return json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
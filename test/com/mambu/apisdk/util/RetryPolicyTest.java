@@ -0,0 +1,160 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.OngoingStubbing;
+
+import com.mambu.apisdk.MambuAPIService;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+
+public class RetryPolicyTest {
+
+	private static final MambuApiException SERVICE_UNAVAILABLE = new MambuApiException(503,
+			"{\"returnCode\":503,\"returnStatus\":\"SERVICE_UNAVAILABLE\"}");
+
+	private RequestExecutor executor;
+	private MambuAPIService mambuAPIService;
+	private RetryPolicy retryPolicy;
+
+	@Before
+	public void setUp() throws Exception {
+
+		executor = Mockito.mock(RequestExecutor.class);
+		mambuAPIService = new MambuAPIService("demo.mambutest.com", "user", "password", null, executor,
+				new URLHelper("https", "demo.mambutest.com", "test"));
+		retryPolicy = new RetryPolicy();
+		retryPolicy.setInitialBackoffMillis(5);
+		mambuAPIService.setRetryPolicy(retryPolicy);
+	}
+
+	@Test
+	public void givenTransientFailuresWhenGettingThenRequestIsRetried() throws Exception {
+
+		// setup
+		failBeforeSuccess(2);
+
+		// execute
+		String result = execute(new ApiDefinition(ApiType.GET_ENTITY, Client.class));
+
+		// verify
+		assertEquals("{}", result);
+		verifyRequestCount(3);
+		assertEquals(3, retryPolicy.getAttemptCount());
+		assertEquals(2, retryPolicy.getRetryCount());
+		assertEquals(0, retryPolicy.getGiveUpCount());
+	}
+
+	@Test
+	public void givenTransientFailuresWhenPostingThenRequestIsNotRetried() throws Exception {
+
+		failBeforeSuccess(1);
+
+		assertFailsWith503(new ApiDefinition(ApiType.CREATE_JSON_ENTITY, Client.class));
+
+		verifyRequestCount(1);
+		assertEquals(0, retryPolicy.getAttemptCount());
+	}
+
+	@Test
+	public void givenPostDeclaredIdempotentWhenPostingThenRequestIsRetried() throws Exception {
+
+		failBeforeSuccess(1);
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.CREATE_JSON_ENTITY, Client.class).toBuilder()
+				.setIdempotent(true).build();
+
+		execute(apiDefinition);
+
+		verifyRequestCount(2);
+		assertEquals(1, retryPolicy.getRetryCount());
+	}
+
+	@Test
+	public void givenPersistentFailuresWhenGettingThenRetriesGiveUpAfterMaxAttempts() throws Exception {
+
+		failBeforeSuccess(10);
+
+		assertFailsWith503(new ApiDefinition(ApiType.GET_ENTITY, Client.class));
+
+		verifyRequestCount(RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+		assertEquals(1, retryPolicy.getGiveUpCount());
+	}
+
+	@Test
+	public void givenApiRetryPolicyWhenGettingThenItOverridesTheFactoryPolicy() throws Exception {
+
+		failBeforeSuccess(1);
+		ApiDefinition apiDefinition = new ApiDefinition(ApiType.GET_ENTITY, Client.class).toBuilder()
+				.setRetryPolicy(RetryPolicy.noRetries()).build();
+
+		assertFailsWith503(apiDefinition);
+
+		verifyRequestCount(1);
+		assertEquals(0, retryPolicy.getAttemptCount());
+		assertEquals(1, apiDefinition.getRetryPolicy().getGiveUpCount());
+	}
+
+	@Test
+	public void givenAttemptWhenBackingOffThenBackoffIsBoundedByTheExponentialBackoff() {
+
+		RetryPolicy policy = new RetryPolicy();
+		policy.setInitialBackoffMillis(100);
+		policy.setMaxBackoffMillis(1000);
+
+		for (int i = 0; i < 100; i++) {
+			long first = policy.getBackoffMillis(1);
+			long third = policy.getBackoffMillis(3);
+			long tenth = policy.getBackoffMillis(10);
+			assertTrue("Backoff " + first, first >= 0 && first <= 100);
+			assertTrue("Backoff " + third, third >= 0 && third <= 400);
+			assertTrue("Backoff " + tenth, tenth >= 0 && tenth <= 1000);
+		}
+	}
+
+	private String execute(ApiDefinition apiDefinition) throws MambuApiException {
+
+		ServiceExecutor serviceExecutor = new ServiceExecutor(mambuAPIService);
+		return serviceExecutor.execute(apiDefinition.toBuilder().setApiReturnFormat(ApiReturnFormat.RESPONSE_STRING)
+				.build(), "clientId");
+	}
+
+	private void failBeforeSuccess(int failures) throws MambuApiException {
+
+		OngoingStubbing<String> stubbing = when(executor.executeRequest(anyString(), any(ParamsMap.class),
+				any(Method.class), any(ContentType.class)));
+		for (int i = 0; i < failures; i++) {
+			stubbing = stubbing.thenThrow(SERVICE_UNAVAILABLE);
+		}
+		stubbing.thenReturn("{}");
+	}
+
+	private void verifyRequestCount(int requestCount) throws MambuApiException {
+
+		verify(executor, times(requestCount)).executeRequest(anyString(), any(ParamsMap.class), any(Method.class),
+				any(ContentType.class));
+	}
+
+	private void assertFailsWith503(ApiDefinition apiDefinition) {
+
+		try {
+			execute(apiDefinition);
+			fail("The request should fail");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(503), e.getErrorCode());
+		}
+	}
+}
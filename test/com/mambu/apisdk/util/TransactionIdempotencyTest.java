@@ -0,0 +1,175 @@
+package com.mambu.apisdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.mambu.accounts.shared.model.Account;
+import com.mambu.api.server.handler.loan.model.JSONTransactionRequest;
+import com.mambu.apisdk.MambuAPIService;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.core.shared.model.CustomFieldValue;
+import com.mambu.loans.shared.model.LoanTransaction;
+
+public class TransactionIdempotencyTest {
+
+	private RequestExecutor executor;
+	private ServiceExecutor serviceExecutor;
+	private TransactionIdempotency transactionIdempotency;
+
+	// Responses of the stub Mambu, in order: a JSON string, or an exception to throw
+	private final List<Object> postResponses = new ArrayList<>();
+	private final List<Object> searchResponses = new ArrayList<>();
+	private final List<String> postedJson = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+
+		executor = Mockito.mock(RequestExecutor.class);
+		MambuAPIService mambuAPIService = new MambuAPIService("demo.mambutest.com", "user", "password", null,
+				executor, new URLHelper("https", "demo.mambutest.com", "test"));
+		transactionIdempotency = new TransactionIdempotency("IdempotencyKey");
+		transactionIdempotency.getRetryPolicy().setInitialBackoffMillis(5);
+		mambuAPIService.setTransactionIdempotency(transactionIdempotency);
+		serviceExecutor = new ServiceExecutor(mambuAPIService);
+
+		when(executor.executeRequest(anyString(), any(ParamsMap.class), any(Method.class), any(ContentType.class),
+				any(ResponseReader.class))).thenAnswer(invocation -> {
+					String url = (String) invocation.getArguments()[0];
+					ParamsMap paramsMap = (ParamsMap) invocation.getArguments()[1];
+					Object response;
+					if (url.contains("/transactions/search")) {
+						response = searchResponses.remove(0);
+					} else {
+						postedJson.add(paramsMap.get(APIData.JSON_OBJECT));
+						response = postResponses.remove(0);
+					}
+					if (response instanceof MambuApiException) {
+						throw (MambuApiException) response;
+					}
+					ResponseReader<?> reader = (ResponseReader<?>) invocation.getArguments()[4];
+					return reader.read(new StringReader((String) response));
+				});
+	}
+
+	@Test
+	public void givenTimedOutPostWhenTransactionIsFoundThenItIsNotPostedAgain() throws Exception {
+
+		// setup: the repayment was posted, but the response timed out
+		postResponses.add(new MambuApiException(new SocketTimeoutException("Read timed out")));
+		searchResponses.add("[{\"encodedKey\":\"posted\"}]");
+
+		// execute
+		LoanTransaction transaction = makeRepayment(new JSONTransactionRequest());
+
+		// verify
+		assertEquals("posted", transaction.getEncodedKey());
+		assertEquals(1, postedJson.size());
+		assertTrue(postedJson.get(0).contains("IdempotencyKey"));
+		assertEquals(1, transactionIdempotency.getRecoveredCount());
+		assertEquals(0, transactionIdempotency.getRepostCount());
+	}
+
+	@Test
+	public void givenFailedPostWhenTransactionIsNotFoundThenItIsPostedAgainWithTheSameKey() throws Exception {
+
+		// setup
+		postResponses.add(new MambuApiException(503, "Service Unavailable"));
+		postResponses.add("{\"encodedKey\":\"reposted\"}");
+		searchResponses.add("[]");
+
+		// execute
+		LoanTransaction transaction = makeRepayment(new JSONTransactionRequest());
+
+		// verify
+		assertEquals("reposted", transaction.getEncodedKey());
+		assertEquals(2, postedJson.size());
+		assertEquals(postedJson.get(0), postedJson.get(1));
+		assertEquals(1, transactionIdempotency.getRepostCount());
+	}
+
+	@Test
+	public void givenReusedRequestWhenPostingTwiceThenTwoTransactionsArePosted() throws Exception {
+
+		// setup: the second repayment times out, but no transaction was posted with its key
+		postResponses.add("{\"encodedKey\":\"first\"}");
+		postResponses.add(new MambuApiException(new SocketTimeoutException("Read timed out")));
+		postResponses.add("{\"encodedKey\":\"second\"}");
+		searchResponses.add("[]");
+		JSONTransactionRequest request = new JSONTransactionRequest();
+
+		// execute
+		LoanTransaction first = makeRepayment(request);
+		LoanTransaction second = makeRepayment(request);
+
+		// verify: the second repayment is tagged with a new key, so the first one is not taken for it
+		assertEquals("first", first.getEncodedKey());
+		assertEquals("second", second.getEncodedKey());
+		assertEquals(3, postedJson.size());
+		assertNotEquals(postedJson.get(0), postedJson.get(1));
+		assertEquals(postedJson.get(1), postedJson.get(2));
+		assertNull(request.getCustomInformation());
+		assertEquals(0, transactionIdempotency.getRecoveredCount());
+	}
+
+	@Test
+	public void givenRejectedPostWhenPostingThenItIsNotRetried() throws Exception {
+
+		postResponses.add(new MambuApiException(400, "Invalid amount"));
+
+		try {
+			makeRepayment(new JSONTransactionRequest());
+			fail("The transaction should be rejected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(400), e.getErrorCode());
+		}
+
+		assertEquals(1, postedJson.size());
+		assertEquals(0, transactionIdempotency.getRetryPolicy().getRetryCount());
+	}
+
+	@Test
+	public void givenCallerKeyWhenTaggingThenItIsKept() throws Exception {
+
+		// setup
+		CustomFieldValue keyValue = new CustomFieldValue();
+		keyValue.setCustomFieldId("IdempotencyKey");
+		keyValue.setValue("batch-42-line-7");
+		JSONTransactionRequest request = new JSONTransactionRequest();
+		request.setAmount(new BigDecimal("10"));
+		request.setCustomInformation(Collections.singletonList(keyValue));
+
+		// execute
+		String idempotencyKey = transactionIdempotency.getCallerKey(request);
+		ParamsMap paramsMap = transactionIdempotency.makeTaggedParams("REPAYMENT", request, idempotencyKey);
+
+		// verify
+		assertEquals("batch-42-line-7", idempotencyKey);
+		assertEquals(1, request.getCustomInformation().size());
+		assertEquals(1, paramsMap.get(APIData.JSON_OBJECT).split("IdempotencyKey", -1).length - 1);
+	}
+
+	private LoanTransaction makeRepayment(JSONTransactionRequest request) throws MambuApiException {
+
+		request.setAmount(new BigDecimal("10"));
+		return serviceExecutor.executeJSONTransactionRequest("loanId", request, Account.Type.LOAN, "REPAYMENT");
+	}
+}